@@ -1,11 +1,13 @@
 package com.thunderfat.springboot.backend.auth.services;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
 import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
 import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
 import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
@@ -29,6 +31,7 @@ public class SecurityService {
 
     private final NutricionistaRepository nutricionistaRepository;
     private final PacienteRepository pacienteRepository;
+    private final CitaRepository citaRepository;
     
     /**
      * Checks if the authenticated user is the owner of the specified nutritionist ID.
@@ -48,6 +51,40 @@ public class SecurityService {
         return nutricionista.isPresent() && username.equals(nutricionista.get().getEmail());
     }
     
+    /**
+     * Checks if the authenticated user is the nutritionist of every appointment of a series.
+     * 
+     * @param serie the series identifier
+     * @param username the authenticated username
+     * @return true if the user owns the series; false for an unknown series
+     */
+    @Transactional(readOnly = true)
+    public boolean isSerieCitasOwner(String serie, String username) {
+        if (serie == null || username == null || username.isEmpty()) {
+            return false;
+        }
+        
+        List<Object[]> participantes = citaRepository.findParticipantesDeSerie(serie);
+        return !participantes.isEmpty() && participantes.stream().allMatch(fila -> username.equals(fila[0]));
+    }
+    
+    /**
+     * Checks if the authenticated user is the nutritionist or the patient of a series.
+     * 
+     * @param serie the series identifier
+     * @param username the authenticated username
+     * @return true if the user takes part in the series
+     */
+    @Transactional(readOnly = true)
+    public boolean canViewSerieCitas(String serie, String username) {
+        if (serie == null || username == null || username.isEmpty()) {
+            return false;
+        }
+        
+        return citaRepository.findParticipantesDeSerie(serie).stream()
+                .anyMatch(fila -> username.equals(fila[0]) || username.equals(fila[1]));
+    }
+    
     /**
      * Checks if the authenticated user can view the specified patient.
      * 
@@ -0,0 +1,37 @@
+package com.thunderfat.springboot.backend.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * The STOMP broker configuration of {@code @EnableWebSocketMessageBroker}, with the
+ * WebSocket handler replaced by {@link ManejadorStompConLimites} so slow sessions can be
+ * followed. Everything else is still configured by {@link WebSocketConfig}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Configuration(proxyBeanMethods = false)
+public class BrokerStompConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    private final ControlSalidaWebSocket controlSalida;
+
+    public BrokerStompConfig(ControlSalidaWebSocket controlSalida) {
+        this.controlSalida = controlSalida;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel) {
+        ManejadorStompConLimites manejador =
+                new ManejadorStompConLimites(clientInboundChannel, clientOutboundChannel, controlSalida);
+        manejador.setPhase(getPhase());
+        return manejador;
+    }
+}
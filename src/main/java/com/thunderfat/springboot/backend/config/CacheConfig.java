@@ -68,6 +68,9 @@ public class CacheConfig {
     public static final String PLATOS_BY_NUTRICIONISTA_CACHE = "platos-by-nutricionista";
     public static final String PLATOS_BY_NUTRICIONISTA_LIST_CACHE = "platos-by-nutricionista-list";
     
+    // Chat message cache regions: newest history page per chat, evicted on every new message
+    public static final String MENSAJES_BY_CHAT_CACHE = "mensajes-by-chat";
+    
     /**
      * Primary cache manager using simple concurrent map implementation.
      * For production, consider using Redis or Hazelcast for distributed caching.
@@ -110,7 +113,10 @@ public class CacheConfig {
             // PlatoPredeterminado service caches
             PLATOS_PREDETERMINADOS_CACHE,
             PLATOS_BY_NUTRICIONISTA_CACHE,
-            PLATOS_BY_NUTRICIONISTA_LIST_CACHE
+            PLATOS_BY_NUTRICIONISTA_LIST_CACHE,
+            
+            // Chat message caches
+            MENSAJES_BY_CHAT_CACHE
         ));
         
         // Allow dynamic cache creation
@@ -0,0 +1,174 @@
+package com.thunderfat.springboot.backend.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Backpressure on the frames sent to STOMP clients.
+ *
+ * Frames for a session wait in its send buffer while an earlier one is being written.
+ * The buffer is limited by {@code limite-buffer-envio} and a write by
+ * {@code limite-tiempo-envio}; a session over either is closed, and its client reconnects
+ * and reads what it missed from the chat history. With {@code politica-lentos=descartar}
+ * typing and presence frames are dropped instead of queued once a session has
+ * {@code umbral-descarte} bytes waiting: they are stale by the time a slow client would get
+ * them, and dropping them keeps room for chat messages. With {@code desconectar} every
+ * frame is queued until the limits close the session.
+ *
+ * Metrics: {@code thunderfat.websocket.send.buffer} (bytes waiting, all sessions),
+ * {@code thunderfat.websocket.send.buffer.max} (bytes waiting, largest session),
+ * {@code thunderfat.websocket.frames.dropped} by {@code type}, and
+ * {@code thunderfat.websocket.sessions.closed.slow}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+public class ControlSalidaWebSocket implements ChannelInterceptor {
+
+    public static final String DESCARTAR = "descartar";
+    public static final String DESCONECTAR = "desconectar";
+
+    private static final String TOPIC_CHAT = "/topic/chat/";
+    private static final String ESCRITURA = "typing";
+    private static final String PRESENCIA = "presence";
+
+    /** Send buffers of the open sessions, by session id */
+    private final Map<String, ConcurrentWebSocketSessionDecorator> sesiones = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean descartar;
+    private final int umbralDescarte;
+    private final Counter descartadosEscritura;
+    private final Counter descartadosPresencia;
+
+    public ControlSalidaWebSocket(ThunderFatProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        ThunderFatProperties.Websocket config = properties.getWebsocket();
+        if (!DESCARTAR.equals(config.getPoliticaLentos()) && !DESCONECTAR.equals(config.getPoliticaLentos())) {
+            throw new IllegalStateException("thunderfat.websocket.politica-lentos must be " + DESCARTAR
+                    + " or " + DESCONECTAR + ", not " + config.getPoliticaLentos());
+        }
+        if (config.getUmbralDescarte() >= config.getLimiteBufferEnvio()) {
+            throw new IllegalStateException("thunderfat.websocket.umbral-descarte must be below limite-buffer-envio");
+        }
+        this.descartar = DESCARTAR.equals(config.getPoliticaLentos());
+        this.umbralDescarte = config.getUmbralDescarte();
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+
+        Gauge.builder("thunderfat.websocket.send.buffer", this, ControlSalidaWebSocket::bytesPendientes)
+             .description("Bytes waiting to be sent to STOMP sessions")
+             .baseUnit("bytes")
+             .register(this.meterRegistry);
+        Gauge.builder("thunderfat.websocket.send.buffer.max", this, ControlSalidaWebSocket::maximoPendiente)
+             .description("Bytes waiting to be sent to the most backed-up STOMP session")
+             .baseUnit("bytes")
+             .register(this.meterRegistry);
+        this.descartadosEscritura = descartados(ESCRITURA);
+        this.descartadosPresencia = descartados(PRESENCIA);
+    }
+
+    /**
+     * Follows the send buffer of a session just opened.
+     */
+    void registrar(ConcurrentWebSocketSessionDecorator sesion) {
+        sesiones.put(sesion.getId(), sesion);
+    }
+
+    void quitar(String sessionId) {
+        sesiones.remove(sessionId);
+    }
+
+    /**
+     * Counts the sessions closed for exceeding the send limits.
+     */
+    void vigilar(SubProtocolWebSocketHandler manejador) {
+        FunctionCounter.builder("thunderfat.websocket.sessions.closed.slow", manejador,
+                                m -> m.getStats().getLimitExceededSessions())
+                       .description("STOMP sessions closed for exceeding the send buffer or send time limit")
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Drops typing and presence frames for a session over the threshold.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        if (!descartar) {
+            return message;
+        }
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        Counter descartados = descartables(SimpMessageHeaderAccessor.getDestination(headers));
+        if (descartados == null) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        ConcurrentWebSocketSessionDecorator sesion = sessionId != null ? sesiones.get(sessionId) : null;
+        if (sesion == null || sesion.getBufferSize() < umbralDescarte) {
+            return message;
+        }
+        descartados.increment();
+        log.debug("Dropped a frame for slow session {} with {} bytes waiting", sessionId, sesion.getBufferSize());
+        return null;
+    }
+
+    long bytesPendientes() {
+        long total = 0;
+        for (ConcurrentWebSocketSessionDecorator sesion : sesiones.values()) {
+            total += sesion.getBufferSize();
+        }
+        return total;
+    }
+
+    long maximoPendiente() {
+        long maximo = 0;
+        for (ConcurrentWebSocketSessionDecorator sesion : sesiones.values()) {
+            maximo = Math.max(maximo, sesion.getBufferSize());
+        }
+        return maximo;
+    }
+
+    /**
+     * Counter of the frames dropped for the destination, or null if its frames are never dropped.
+     */
+    private Counter descartables(String destino) {
+        if (destino == null || !destino.startsWith(TOPIC_CHAT)) {
+            return null;
+        }
+        if (destino.endsWith("/" + ESCRITURA)) {
+            return descartadosEscritura;
+        }
+        if (destino.endsWith("/" + PRESENCIA)) {
+            return descartadosPresencia;
+        }
+        return null;
+    }
+
+    private Counter descartados(String tipo) {
+        return Counter.builder("thunderfat.websocket.frames.dropped")
+                      .description("Frames not sent to slow STOMP sessions")
+                      .tag("type", tipo)
+                      .register(meterRegistry);
+    }
+}
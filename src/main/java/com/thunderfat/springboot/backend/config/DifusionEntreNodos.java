@@ -0,0 +1,27 @@
+package com.thunderfat.springboot.backend.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries STOMP broker messages between the nodes of the application, so the
+ * in-memory broker of each node also delivers what the others publish.
+ *
+ * Implementations deliver every published message to every subscribed node,
+ * the publishing one included, in the order each node published them.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface DifusionEntreNodos {
+
+    /**
+     * Sends a message to every node. Must not block the caller on the network.
+     */
+    void publicar(MensajeEntreNodos mensaje);
+
+    /**
+     * Registers the receiver of the messages published by any node.
+     * Called once, when the application is ready.
+     */
+    void suscribir(Consumer<MensajeEntreNodos> receptor);
+}
@@ -0,0 +1,45 @@
+package com.thunderfat.springboot.backend.config;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * STOMP WebSocket handler that hands the send buffer of each session to
+ * {@link ControlSalidaWebSocket}, which drops frames for slow sessions and measures
+ * the buffers. The buffer and time limits themselves are applied by the
+ * {@link ConcurrentWebSocketSessionDecorator} the base class wraps each session in.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+class ManejadorStompConLimites extends SubProtocolWebSocketHandler {
+
+    private final ControlSalidaWebSocket controlSalida;
+
+    ManejadorStompConLimites(MessageChannel clientInboundChannel,
+                             SubscribableChannel clientOutboundChannel,
+                             ControlSalidaWebSocket controlSalida) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.controlSalida = controlSalida;
+        controlSalida.vigilar(this);
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        WebSocketSession decorada = super.decorateSession(session);
+        if (decorada instanceof ConcurrentWebSocketSessionDecorator concurrente) {
+            controlSalida.registrar(concurrente);
+        }
+        return decorada;
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        controlSalida.quitar(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
@@ -0,0 +1,24 @@
+package com.thunderfat.springboot.backend.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A STOMP broker message as it travels between nodes: enough to rebuild it on the
+ * receiving node's broker channel.
+ *
+ * @param nodo id of the node that published it
+ * @param destino broker destination, e.g. /topic/chat/7
+ * @param tipoContenido content type of the payload, or null
+ * @param cabecerasNativas STOMP headers, including the original destination of user messages
+ * @param contenido serialized payload
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public record MensajeEntreNodos(String nodo,
+                                String destino,
+                                String tipoContenido,
+                                Map<String, List<String>> cabecerasNativas,
+                                byte[] contenido) {
+}
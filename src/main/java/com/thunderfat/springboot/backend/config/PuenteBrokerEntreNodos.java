@@ -0,0 +1,143 @@
+package com.thunderfat.springboot.backend.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Joins the in-memory STOMP brokers of several nodes through a {@link DifusionEntreNodos}.
+ *
+ * Every message the application publishes on this node's broker channel is also handed
+ * to the fan-out, and every message another node published is sent to this node's
+ * broker channel, where the local broker delivers it to the local subscribers. Messages
+ * received this way carry the id of their node and are not handed on again.
+ *
+ * User destinations travel unresolved ({@code /user/{name}/queue/...}) and each node
+ * resolves them against its own sessions, so a user gets them on every node it is
+ * connected to, with no shared registry to go stale. Messages already resolved to a
+ * session of this node, and replies to one particular session, stay on this node.
+ *
+ * Inactive unless a {@link DifusionEntreNodos} bean exists; a single node then keeps
+ * the plain simple broker.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+public class PuenteBrokerEntreNodos implements ChannelInterceptor {
+
+    /** Header marking a message received from another node, holding that node's id */
+    static final String CABECERA_NODO = "thunderfatNodoOrigen";
+
+    private static final String PREFIJO_USUARIO = "/user/";
+
+    private final DifusionEntreNodos difusion;
+    private final MessageChannel brokerChannel;
+    private final String nodo;
+
+    public PuenteBrokerEntreNodos(ObjectProvider<DifusionEntreNodos> difusion,
+                                  @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                  ThunderFatProperties properties) {
+        this.difusion = difusion.getIfAvailable();
+        this.brokerChannel = brokerChannel;
+        String configurado = properties.getWebsocket().getNodo();
+        this.nodo = StringUtils.hasText(configurado) ? configurado : UUID.randomUUID().toString();
+    }
+
+    /** Whether the broker of this node is joined to other nodes */
+    public boolean isActivo() {
+        return difusion != null;
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (difusion == null) {
+            return;
+        }
+        difusion.suscribir(this::recibir);
+        log.info("STOMP broker joined to the other nodes through {} as node {}",
+                 difusion.getClass().getSimpleName(), nodo);
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders cabeceras = message.getHeaders();
+        if (difusion == null || cabeceras.containsKey(CABECERA_NODO)
+                || !SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(cabeceras))) {
+            return message;
+        }
+        String destino = SimpMessageHeaderAccessor.getDestination(cabeceras);
+        if (destino == null || !(message.getPayload() instanceof byte[] contenido)) {
+            log.debug("Not forwarding broker message to {}: no destination or unserialized payload", destino);
+            return message;
+        }
+        if (SimpMessageHeaderAccessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, cabeceras) != null
+                || (destino.startsWith(PREFIJO_USUARIO) && SimpMessageHeaderAccessor.getSessionId(cabeceras) != null)) {
+            // Resolved to a session of this node, or meant for one session only
+            return message;
+        }
+
+        Object tipoContenido = cabeceras.get(MessageHeaders.CONTENT_TYPE);
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> nativas =
+                (Map<String, List<String>>) cabeceras.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        try {
+            difusion.publicar(new MensajeEntreNodos(nodo, destino,
+                    tipoContenido != null ? tipoContenido.toString() : null, nativas, contenido));
+        } catch (RuntimeException e) {
+            // Local subscribers still get the message
+            log.warn("Could not forward broker message to {} to the other nodes: {}", destino, e.getMessage());
+        }
+        return message;
+    }
+
+    /**
+     * Delivers a message published by another node to the subscribers of this one.
+     */
+    void recibir(MensajeEntreNodos mensaje) {
+        if (nodo.equals(mensaje.nodo())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(mensaje.destino());
+        if (mensaje.tipoContenido() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(mensaje.tipoContenido()));
+        }
+        if (mensaje.cabecerasNativas() != null) {
+            mensaje.cabecerasNativas().forEach((nombre, valores) ->
+                    valores.forEach(valor -> accessor.addNativeHeader(nombre, valor)));
+        }
+        accessor.setHeader(CABECERA_NODO, mensaje.nodo());
+        try {
+            brokerChannel.send(MessageBuilder.createMessage(mensaje.contenido(), accessor.getMessageHeaders()));
+        } catch (RuntimeException e) {
+            log.warn("Could not deliver broker message to {} from node {}: {}",
+                     mensaje.destino(), mensaje.nodo(), e.getMessage());
+        }
+    }
+}
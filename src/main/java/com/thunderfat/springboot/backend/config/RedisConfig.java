@@ -148,6 +148,9 @@ public class RedisConfig {
         configs.put(CacheConfig.PLATOS_BY_NUTRICIONISTA_CACHE, defaultConfig.entryTtl(Duration.ofHours(1)));
         configs.put(CacheConfig.PLATOS_BY_NUTRICIONISTA_LIST_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(15)));
         
+        // ===== CHAT MESSAGE CACHES =====
+        configs.put(CacheConfig.MENSAJES_BY_CHAT_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(10)));
+        
         // ===== SPANISH BILLING CACHES =====
         configs.put("facturas", defaultConfig.entryTtl(Duration.ofMinutes(30)));
         configs.put("facturas-stats", defaultConfig.entryTtl(Duration.ofMinutes(15)));
@@ -0,0 +1,123 @@
+package com.thunderfat.springboot.backend.config;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cross-node fan-out of STOMP broker messages over a Redis pub/sub channel.
+ *
+ * Messages are published from one thread through a bounded queue, so a slow or
+ * unreachable Redis never blocks the threads that send to the broker; when the queue
+ * is full the message is delivered on this node only. Received messages are handed
+ * to the broker on one thread, keeping the order in which each node published them.
+ *
+ * Enabled with {@code thunderfat.websocket.difusion=redis}; the connection is the one
+ * configured under {@code spring.data.redis}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@ConditionalOnProperty(name = "thunderfat.websocket.difusion", havingValue = "redis")
+@Slf4j
+public class RedisDifusionEntreNodos implements DifusionEntreNodos {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String canal;
+    private final ThreadPoolExecutor publicador;
+    private final ExecutorService receptor;
+    private final AtomicLong descartados = new AtomicLong();
+    private RedisMessageListenerContainer contenedor;
+
+    public RedisDifusionEntreNodos(RedisConnectionFactory connectionFactory,
+                                   ObjectMapper objectMapper,
+                                   ThunderFatProperties properties) {
+        ThunderFatProperties.Websocket config = properties.getWebsocket();
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.objectMapper = objectMapper;
+        this.canal = config.getCanalRedis();
+        this.publicador = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getCapacidadPublicacion()), hilo("stomp-redis-publicador"),
+                (tarea, ejecutor) -> descartar());
+        this.receptor = Executors.newSingleThreadExecutor(hilo("stomp-redis-receptor"));
+    }
+
+    @Override
+    public void publicar(MensajeEntreNodos mensaje) {
+        publicador.execute(() -> {
+            try {
+                redisTemplate.convertAndSend(canal, objectMapper.writeValueAsString(mensaje));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not publish broker message to {} on Redis: {}", mensaje.destino(), e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public synchronized void suscribir(Consumer<MensajeEntreNodos> receptorMensajes) {
+        contenedor = new RedisMessageListenerContainer();
+        contenedor.setConnectionFactory(connectionFactory);
+        contenedor.setTaskExecutor(receptor);
+        contenedor.addMessageListener((mensaje, patron) -> {
+            try {
+                receptorMensajes.accept(objectMapper.readValue(mensaje.getBody(), MensajeEntreNodos.class));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Discarding unreadable broker message from Redis channel {}: {}", canal, e.getMessage());
+            }
+        }, new ChannelTopic(canal));
+        contenedor.afterPropertiesSet();
+        contenedor.start();
+    }
+
+    /** Messages delivered on this node only because the publishing queue was full */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    @PreDestroy
+    public synchronized void detener() throws Exception {
+        if (contenedor != null) {
+            contenedor.destroy();
+        }
+        publicador.shutdown();
+        publicador.awaitTermination(5, TimeUnit.SECONDS);
+        receptor.shutdownNow();
+    }
+
+    private void descartar() {
+        long total = descartados.incrementAndGet();
+        if (total == 1 || total % 1_000 == 0) {
+            log.warn("Redis publishing queue full: {} broker messages delivered on this node only", total);
+        }
+    }
+
+    private static ThreadFactory hilo(String nombre) {
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
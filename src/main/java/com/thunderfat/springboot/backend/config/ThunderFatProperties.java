@@ -5,7 +5,14 @@ import org.springframework.context.annotation.Configuration;
 
 import lombok.Data;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for ThunderFat API settings
@@ -19,6 +26,16 @@ public class ThunderFatProperties {
     private Api api = new Api();
     private Cors cors = new Cors();
     private Security security = new Security();
+    private Dashboard dashboard = new Dashboard();
+    private PacienteBulk pacienteBulk = new PacienteBulk();
+    private CitaConflictos citaConflictos = new CitaConflictos();
+    private Agenda agenda = new Agenda();
+    private CitaSeries citaSeries = new CitaSeries();
+    private CalendarioSync calendarioSync = new CalendarioSync();
+    private Recordatorios recordatorios = new Recordatorios();
+    private MensajesChat mensajesChat = new MensajesChat();
+    private BusquedaMensajes busquedaMensajes = new BusquedaMensajes();
+    private Websocket websocket = new Websocket();
 
     @Data
     public static class Api {
@@ -46,4 +63,162 @@ public class ThunderFatProperties {
         private boolean enableFrameOptions = true;
         private String contentSecurityPolicy = "default-src 'self'";
     }
+    
+    @Data
+    public static class Dashboard {
+        /** Maximum time each dashboard section may take before it is reported as unavailable */
+        private Duration sectionTimeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class PacienteBulk {
+        /** Rows sent to the database per JDBC batch during a bulk import */
+        private int batchSize = 500;
+        /** JDBC fetch size of the export query (MySQL streams row by row with Integer.MIN_VALUE) */
+        private int exportFetchSize = 500;
+        /** Maximum number of per-row errors returned in the import report */
+        private int maxReportedErrors = 1000;
+    }
+
+    @Data
+    public static class CitaConflictos {
+        /** Age after which a nutritionist's in-memory appointment tree is reloaded from the database */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Agenda {
+        /** Default working hours per weekday as "HH:mm-HH:mm" ranges; days without an entry are closed */
+        private Map<DayOfWeek, List<String>> jornada = defaultJornada();
+        /** Per-nutritionist working hours, replacing {@link #jornada} for the days they list */
+        private Map<Integer, Map<DayOfWeek, List<String>>> jornadaNutricionista = new HashMap<>();
+        /** Daily breaks as "HH:mm-HH:mm" ranges, removed from every working day */
+        private List<String> descansos = new ArrayList<>();
+        /** Free time kept before and after each appointment */
+        private Duration buffer = Duration.ofMinutes(10);
+        /** Resolution of the per-day availability bitmap */
+        private Duration granularidad = Duration.ofMinutes(5);
+        /** Spacing between offered slot start times */
+        private Duration paso = Duration.ofMinutes(15);
+        /** Longest date range a single availability search may cover */
+        private int maxDias = 62;
+        /** Maximum number of slots returned by one search */
+        private int maxResultados = 50;
+
+        private static Map<DayOfWeek, List<String>> defaultJornada() {
+            Map<DayOfWeek, List<String>> jornada = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek dia : EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY)) {
+                jornada.put(dia, List.of("09:00-14:00", "16:00-20:00"));
+            }
+            return jornada;
+        }
+    }
+
+    @Data
+    public static class CitaSeries {
+        /** Maximum number of occurrences a recurring series may expand to */
+        private int maxOcurrencias = 52;
+    }
+
+    @Data
+    public static class CalendarioSync {
+        /** Maximum number of changes (events plus cancellations) returned by one sync call */
+        private int maxCambios = 500;
+        /** Longest date range a single iCalendar export may cover */
+        private int maxDiasIcs = 400;
+        /** JDBC fetch size of the iCalendar export query */
+        private int icsFetchSize = 500;
+    }
+
+    @Data
+    public static class Recordatorios {
+        /** Whether this node dispatches appointment reminders */
+        private boolean enabled = true;
+        /** How long before an appointment each reminder is sent; one reminder per entry */
+        private List<Duration> antelaciones = new ArrayList<>(List.of(Duration.ofHours(24), Duration.ofHours(2)));
+        /** Appointments starting within this window are loaded into the timing wheel */
+        private Duration horizonte = Duration.ofHours(48);
+        /** Interval between reloads of the window; also how late a missed reminder may still be sent */
+        private Duration recarga = Duration.ofMinutes(10);
+        /** Interval at which the timing wheel is advanced */
+        private Duration tick = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class MensajesChat {
+        /** Messages waiting to be stored; senders block once it is full */
+        private int capacidad = 10_000;
+        /** Maximum number of messages stored by one batch insert */
+        private int lote = 500;
+        /** How long a sender waits for room in a full queue before its message is rejected */
+        private Duration esperaEncolar = Duration.ofSeconds(2);
+        /** How long shutdown waits for the queued messages to be stored */
+        private Duration esperaCierre = Duration.ofSeconds(30);
+        /** Where the unread counters live: memory (this node) or redis (shared by every node) */
+        private String contadoresNoLeidos = "memory";
+        /** Prefix of the Redis keys of the unread counters */
+        private String prefijoRedisNoLeidos = "thunderfat:noleidos:";
+        /** Characters of the content shown in the inbox envelope of a message */
+        private int longitudResumenBandeja = 140;
+        /** Local journal of accepted messages, replayed on start after a crash; disabled when empty */
+        private String diario = "";
+        /** Whether every journal write is flushed to disk, so accepted messages also survive a machine crash */
+        private boolean sincronizarDiario = false;
+    }
+
+    @Data
+    public static class BusquedaMensajes {
+        /** Whether this node keeps a full-text index of chat messages */
+        private boolean enabled = true;
+        /** Directory of the index; kept in memory, and rebuilt on every start, when empty */
+        private String directorio = "";
+        /** Interval at which messages stored by other nodes or while this one was down are indexed */
+        private Duration sincronizacion = Duration.ofMinutes(1);
+        /** Messages read from the database per query while catching up */
+        private int lote = 1000;
+        /** Deepest result a search can page to */
+        private int maxResultados = 1000;
+    }
+
+    @Data
+    public static class Websocket {
+        /** Cross-node fan-out of STOMP broker messages: none (single node) or redis */
+        private String difusion = "none";
+        /** Redis pub/sub channel shared by the nodes */
+        private String canalRedis = "thunderfat:stomp";
+        /** Broker messages waiting to be published to the other nodes; further ones stay local */
+        private int capacidadPublicacion = 10_000;
+        /** Id of this node in the fan-out; a random one when empty */
+        private String nodo = "";
+        /** Typing and presence changes of a chat participant are broadcast at most once per window */
+        private Duration ventanaActividad = Duration.ofMillis(500);
+        /** A participant who sent no typing frame for this long is shown as no longer typing */
+        private Duration expiracionEscritura = Duration.ofSeconds(5);
+        /** A participant who sent no heartbeat for this long has left the chat */
+        private Duration expiracionPresencia = Duration.ofSeconds(30);
+        /** Bytes that may wait to be sent to one session before it is closed */
+        private int limiteBufferEnvio = 256 * 1024;
+        /** How long a send to one session may take before it is closed */
+        private Duration limiteTiempoEnvio = Duration.ofSeconds(10);
+        /** Largest inbound STOMP frame accepted, in bytes */
+        private int limiteTamanoMensaje = 64 * 1024;
+        /** Slow sessions: descartar drops their typing and presence frames first, desconectar only closes them */
+        private String politicaLentos = "descartar";
+        /** Bytes waiting for a session above which its typing and presence frames are dropped */
+        private int umbralDescarte = 32 * 1024;
+        /** Threads handling frames from clients */
+        private CanalStomp canalEntrada = new CanalStomp();
+        /** Threads sending frames to clients; a slow client holds one for up to limiteTiempoEnvio */
+        private CanalStomp canalSalida = new CanalStomp();
+    }
+
+    @Data
+    public static class CanalStomp {
+        /** Threads kept running */
+        private int hilos = Runtime.getRuntime().availableProcessors() * 2;
+        /** Threads started once the queue is full; ignored with an unbounded queue, which is never full */
+        private int hilosMaximos = Runtime.getRuntime().availableProcessors() * 4;
+        /** Frames waiting for a thread, further ones are rejected once the pool is at its maximum; 0 hands each frame straight to a thread */
+        private int cola = 10_000;
+    }
 }
@@ -1,11 +1,15 @@
 package com.thunderfat.springboot.backend.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * WebSocket configuration for real-time chat messaging.
@@ -16,19 +20,35 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * - Private conversation channels
  * - Notification broadcasting
  * - Cross-origin support for frontend clients
+ * - Optional fan-out between nodes (see {@link PuenteBrokerEntreNodos})
+ * - Send limits and slow-client policy (see {@link ControlSalidaWebSocket})
  * 
  * @author ThunderFat Development Team
  * @since Spring Boot 3.5.4
  */
 @Configuration
-@EnableWebSocketMessageBroker
+@Import(BrokerStompConfig.class)
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final PuenteBrokerEntreNodos puenteEntreNodos;
+    private final ControlSalidaWebSocket controlSalida;
+    private final ThunderFatProperties.Websocket websocketProps;
+
+    public WebSocketConfig(PuenteBrokerEntreNodos puenteEntreNodos,
+                           ControlSalidaWebSocket controlSalida,
+                           ThunderFatProperties properties) {
+        this.puenteEntreNodos = puenteEntreNodos;
+        this.controlSalida = controlSalida;
+        this.websocketProps = properties.getWebsocket();
+    }
+
     /**
      * Configure message broker for handling messages.
      * - /topic: for broadcasting to multiple subscribers
      * - /queue: for point-to-point messaging
      * - /app: for application-specific destinations
+     * The messages published on this node are also handed to the other nodes, when there are any.
      */
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
@@ -40,6 +60,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         
         // Set user destination prefix for private messaging
         config.setUserDestinationPrefix("/user");
+        
+        // Deliver each session's messages in the order they were published
+        config.setPreservePublishOrder(true);
+        
+        if (puenteEntreNodos.isActivo()) {
+            config.configureBrokerChannel().interceptors(puenteEntreNodos);
+        }
+    }
+
+    /**
+     * Threads handling the frames received from clients.
+     */
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        hilos(registration, websocketProps.getCanalEntrada());
+    }
+
+    /**
+     * Threads sending frames to clients, and the slow-client policy applied before a
+     * frame is queued for a session.
+     */
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        hilos(registration, websocketProps.getCanalSalida());
+        registration.interceptors(controlSalida);
+    }
+
+    /**
+     * Per-session send limits: a session whose buffer or current send exceeds them is closed.
+     */
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(websocketProps.getLimiteBufferEnvio())
+                    .setSendTimeLimit((int) websocketProps.getLimiteTiempoEnvio().toMillis())
+                    .setMessageSizeLimit(websocketProps.getLimiteTamanoMensaje());
     }
 
     /**
@@ -48,6 +103,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
+        // Handle each session's frames in the order they arrived, so chat messages are
+        // numbered in the order the sender wrote them
+        registry.setPreserveReceiveOrder(true);
+        
         // WebSocket endpoint for chat connections
         registry.addEndpoint("/ws/chat")
                 .setAllowedOriginPatterns("http://localhost:4200", "http://localhost:8100")
@@ -57,4 +116,21 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws/chat-native")
                 .setAllowedOriginPatterns("http://localhost:4200", "http://localhost:8100");
     }
+
+    /**
+     * A pool only grows past its core threads once its queue is full, so with an unbounded
+     * queue the maximum would never be reached and is not applied.
+     */
+    private static void hilos(ChannelRegistration registration, ThunderFatProperties.CanalStomp canal) {
+        int maximos = Math.max(canal.getHilos(), canal.getHilosMaximos());
+        if (canal.getCola() == Integer.MAX_VALUE && maximos > canal.getHilos()) {
+            log.warn("STOMP channel queue is unbounded: hilos-maximos={} ignored, running {} threads",
+                     canal.getHilosMaximos(), canal.getHilos());
+            maximos = canal.getHilos();
+        }
+        registration.taskExecutor()
+                    .corePoolSize(canal.getHilos())
+                    .maxPoolSize(maximos)
+                    .queueCapacity(canal.getCola());
+    }
 }
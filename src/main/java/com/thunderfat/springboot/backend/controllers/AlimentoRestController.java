@@ -23,6 +23,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.thunderfat.springboot.backend.model.dto.AlimentoDTO;
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
 import com.thunderfat.springboot.backend.model.dto.ManualApiResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.ValidationGroups;
 import com.thunderfat.springboot.backend.model.service.IAlimentoService;
@@ -284,13 +285,13 @@ public class AlimentoRestController {
     
     @Operation(
         summary = "Listar alimentos para componentes select",
-        description = "Obtiene una lista simple de alimentos para usar en dropdowns y componentes de selección"
+        description = "Obtiene una lista simple de alimentos (id, nombre, estado y calorías) para usar en dropdowns y componentes de selección"
     )
     @GetMapping("/select")
-    public ResponseEntity<ManualApiResponseDTO<List<AlimentoDTO>>> listarParaSelect() {
+    public ResponseEntity<ManualApiResponseDTO<List<AlimentoSelectDTO>>> listarParaSelect() {
         log.info("GET /alimentos/select - Lista para componentes select");
         
-        List<AlimentoDTO> alimentos = alimentoService.listarParaSelect();
+        List<AlimentoSelectDTO> alimentos = alimentoService.listarParaSelect();
         
         return ResponseEntity.ok(ManualApiResponseDTO.success(
             alimentos,
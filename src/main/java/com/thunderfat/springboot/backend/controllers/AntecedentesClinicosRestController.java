@@ -20,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Modernized Clinical History Controller following Spring Boot 2025 best practices
@@ -72,6 +73,68 @@ public class AntecedentesClinicosRestController {
         }
     }
 
+    @Operation(summary = "Get classified conditions by patient", 
+               description = "Retrieves the patient's clinical history grouped by allergy, cardiovascular, diabetes and gastrointestinal categories")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Classified conditions retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/categorias")
+    public ResponseEntity<ManualApiResponseDTO<Map<String, List<AntecedentesClinicosDTO>>>> listarCategoriasPorPaciente(
+            @Parameter(description = "Patient ID") @PathVariable int id) {
+        try {
+            Map<String, List<AntecedentesClinicosDTO>> categorias = 
+                antecedenteClinicoService.findCondicionesClasificadasByPacienteId(id);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.<Map<String, List<AntecedentesClinicosDTO>>>builder()
+                    .success(true)
+                    .data(categorias)
+                    .message("Classified conditions retrieved successfully")
+                    .timestamp(LocalDateTime.now())
+                    .build()
+            );
+        } catch (Exception e) {
+            log.error("Error retrieving classified conditions for patient ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.<Map<String, List<AntecedentesClinicosDTO>>>builder()
+                    .success(false)
+                    .message("Error retrieving classified conditions: " + e.getMessage())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    @Operation(summary = "Reclassify clinical conditions", 
+               description = "Recomputes the stored condition categories; by default only rows never classified")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Conditions reclassified successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/reclasificar")
+    public ResponseEntity<ManualApiResponseDTO<Integer>> reclasificar(
+            @Parameter(description = "Only process rows never classified") 
+            @RequestParam(defaultValue = "true") boolean soloPendientes) {
+        try {
+            int actualizados = antecedenteClinicoService.reclasificarCondiciones(soloPendientes);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.<Integer>builder()
+                    .success(true)
+                    .data(actualizados)
+                    .message("Conditions reclassified successfully")
+                    .timestamp(LocalDateTime.now())
+                    .build()
+            );
+        } catch (Exception e) {
+            log.error("Error reclassifying clinical conditions", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.<Integer>builder()
+                    .success(false)
+                    .message("Error reclassifying conditions: " + e.getMessage())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+    }
+
     @Operation(summary = "Get clinical history details", 
                description = "Retrieves detailed information of a specific clinical history record by its ID")
     @ApiResponses(value = {
@@ -1,14 +1,24 @@
 package com.thunderfat.springboot.backend.controllers;
 
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dto.ManualApiResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.ChatDTO;
+import com.thunderfat.springboot.backend.model.dto.MensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
 import com.thunderfat.springboot.backend.model.service.IChatService;
+import com.thunderfat.springboot.backend.model.service.IMensajeService;
+import com.thunderfat.springboot.backend.model.service.MensajeServiceJPA;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,9 +38,11 @@ import java.util.Optional;
 public class ChatRestController {
     
     private final IChatService chatService;
+    private final IMensajeService mensajeService;
 
-    public ChatRestController(IChatService chatService) {
+    public ChatRestController(IChatService chatService, IMensajeService mensajeService) {
         this.chatService = chatService;
+        this.mensajeService = mensajeService;
     }
     
     @Operation(summary = "Get all chat messages", 
@@ -60,6 +72,158 @@ public class ChatRestController {
         }
     }
     
+    @Operation(summary = "Get all chats (keyset pagination)", 
+               description = "Retrieves chats newest first using an opaque cursor instead of page numbers. No total count is computed; follow nextCursor until it is absent")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chats retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/keyset")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ChatDTO>>> listarKeyset(
+            @Parameter(description = "Cursor returned by the previous page; omit for the first page") 
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            PagedResponseDTO<ChatDTO> chats = chatService.findAllKeyset(cursor, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(chats, "Chats retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving chats: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get chat history (keyset pagination)", 
+               description = "Retrieves the messages of a chat newest first, one page at a time. Follow nextCursor for older pages, " +
+                             "or pass antesDe with the id of the oldest message already received, e.g. a live one")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Messages retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "404", description = "Message given in antesDe not found in the chat"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{idChat}/mensajes")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<MensajeDTO>>> historial(
+            @Parameter(description = "Chat ID") @PathVariable("idChat") int idChat,
+            @Parameter(description = "Cursor returned by the previous page; omit for the newest page") 
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Id of a message of the chat; returns the messages before it") 
+            @RequestParam(value = "antesDe", required = false) Integer antesDe,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "" + MensajeServiceJPA.TAMANO_PAGINA_HISTORIAL) int size) {
+        try {
+            PagedResponseDTO<MensajeDTO> mensajes = mensajeService.historial(idChat, cursor, antesDe, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(mensajes, "Messages retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving chat messages: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Search chat messages", 
+               description = "Full-text search over the messages of the current user's chats, or of one of them. " +
+                             "Accents and case are ignored and Spanish word forms match one another; every word must appear. " +
+                             "Results come most relevant first, with the matched words wrapped in <mark>")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Messages found"),
+        @ApiResponse(responseCode = "400", description = "No words to search for"),
+        @ApiResponse(responseCode = "403", description = "The user is not a participant of the chat"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/mensajes/buscar")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ResultadoBusquedaMensajeDTO>>> buscarMensajes(
+            @Parameter(description = "Words to search for") 
+            @RequestParam("q") String q,
+            @Parameter(description = "Chat to search in; omit to search all the user's chats") 
+            @RequestParam(value = "chatId", required = false) Integer chatId,
+            @Parameter(description = "Page number (0-based)") 
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            Authentication authentication) {
+        try {
+            PagedResponseDTO<ResultadoBusquedaMensajeDTO> resultados =
+                    mensajeService.buscar(authentication.getName(), q, chatId, page, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(resultados, "Messages found")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to chat messages"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error searching chat messages: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get all chats (paginated)", 
+               description = "Retrieves a page of chats. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chats retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ChatDTO>>> listarPaginado(
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<ChatDTO> pagina = count
+                ? PagedResponseDTO.of(chatService.findAll(pageable))
+                : PagedResponseDTO.of(chatService.findAllSlice(pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Chats retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving chats: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get chats by nutritionist (paginated)", 
+               description = "Retrieves a page of the chats of a specific nutritionist. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nutritionist chats retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ChatDTO>>> listarPorNutricionistaPaginado(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<ChatDTO> pagina = count
+                ? PagedResponseDTO.of(chatService.findByNutricionistaId(idNutricionista, pageable))
+                : PagedResponseDTO.of(chatService.findByNutricionistaIdSlice(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Nutritionist chats retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving nutritionist chats: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "Get chat message by ID", 
                description = "Retrieves a specific chat message by its ID")
     @ApiResponses(value = {
@@ -7,7 +7,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.core.Authentication;
@@ -15,7 +14,15 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
 import com.thunderfat.springboot.backend.model.dto.ChatDTO;
+import com.thunderfat.springboot.backend.model.dto.ConfirmacionMensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+import com.thunderfat.springboot.backend.model.dto.PresenciaChatDTO;
+import com.thunderfat.springboot.backend.model.service.ActividadChat;
+import com.thunderfat.springboot.backend.model.service.ContadorNoLeidos;
 import com.thunderfat.springboot.backend.model.service.IChatService;
+import com.thunderfat.springboot.backend.model.service.IMensajeService;
+import com.thunderfat.springboot.backend.model.service.MensajeWriteBehind;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,10 +31,12 @@ import lombok.extern.slf4j.Slf4j;
  * Handles message broadcasting, private messaging, and notifications.
  * 
  * Features:
- * - Real-time message delivery
+ * - Real-time message delivery, stored before it is broadcast
+ * - One inbox per user with the envelopes of every chat (/user/queue/inbox)
  * - Private conversation channels
- * - User presence notifications
+ * - Coalesced typing indicators and heartbeat-driven presence
  * - Message delivery confirmations
+ * - Read receipts and pushed unread counters
  * 
  * @author ThunderFat Development Team
  * @since Spring Boot 3.5.4
@@ -43,26 +52,48 @@ public class ChatWebSocketController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private MensajeWriteBehind mensajeWriteBehind;
+
+    @Autowired
+    private IMensajeService mensajeService;
+
+    @Autowired
+    private ContadorNoLeidos contadorNoLeidos;
+
+    @Autowired
+    private ActividadChat actividadChat;
+
     /**
      * Handle new messages sent to a specific chat conversation.
-     * Messages are broadcasted to all participants in the conversation.
+     * The message is queued to be stored and is broadcast to /topic/chat/{chatId},
+     * and its envelope to the inbox of both participants, once it is; if it cannot be
+     * queued the sender gets a REJECTED confirmation.
+     * The sender stops being shown as typing.
      */
     @MessageMapping("/chat/{chatId}/message")
-    @SendTo("/topic/chat/{chatId}")
-    public ChatMessage handleChatMessage(@DestinationVariable String chatId, 
-                                       @Payload ChatMessage message,
-                                       Authentication authentication) {
-        log.info("Received message for chat {}: {}", chatId, message.getContent());
-        
-        // Add timestamp and sender information
-        message.setTimestamp(LocalDateTime.now());
-        message.setSender(authentication.getName());
-        message.setChatId(chatId);
-        
-        // You could save the message to database here
-        // messageService.saveMessage(message);
+    public void handleChatMessage(@DestinationVariable String chatId, 
+                                  @Payload ChatMessage message,
+                                  Authentication authentication) {
+        log.debug("Received message from {} for chat {}", authentication.getName(), chatId);
         
-        return message;
+        boolean encolado;
+        try {
+            int idChat = Integer.parseInt(chatId);
+            encolado = mensajeWriteBehind.encolar(message.getId(), idChat,
+                    authentication.getName(), message.getContent(), message.getMessageType());
+            // Sending ends typing and counts as a heartbeat
+            actividadChat.escribiendo(idChat, authentication.getName(), false);
+        } catch (NumberFormatException e) {
+            encolado = false;
+        }
+        if (!encolado) {
+            messagingTemplate.convertAndSendToUser(
+                authentication.getName(),
+                MensajeWriteBehind.CONFIRMACIONES,
+                new ConfirmacionMensajeDTO(message.getId(), ConfirmacionMensajeDTO.REJECTED)
+            );
+        }
     }
 
     /**
@@ -88,58 +119,88 @@ public class ChatWebSocketController {
         // Optional: Send delivery confirmation to sender
         messagingTemplate.convertAndSendToUser(
             authentication.getName(),
-            "/queue/confirmations",
-            new MessageConfirmation(message.getId(), "DELIVERED")
+            MensajeWriteBehind.CONFIRMACIONES,
+            new ConfirmacionMensajeDTO(message.getId(), ConfirmacionMensajeDTO.DELIVERED)
         );
     }
 
     /**
-     * Handle user presence notifications (user joined/left chat).
+     * Heartbeat of a participant of the chat, sent by clients every few seconds while
+     * the chat is open. Presence changes are broadcast to /topic/chat/{chatId}/presence,
+     * coalesced, and a participant without heartbeats is shown as gone once they expire.
+     */
+    @MessageMapping("/chat/{chatId}/heartbeat")
+    public void handleHeartbeat(@DestinationVariable int chatId, Authentication authentication) {
+        actividadChat.latido(chatId, authentication.getName());
+    }
+
+    /**
+     * Handle user joining chat: the first heartbeat.
      */
     @MessageMapping("/chat/{chatId}/join")
-    @SendTo("/topic/chat/{chatId}/presence")
-    public PresenceNotification handleUserJoin(@DestinationVariable String chatId,
-                                             Authentication authentication) {
-        log.info("User {} joined chat {}", authentication.getName(), chatId);
-        
-        return new PresenceNotification(
-            authentication.getName(),
-            "JOINED",
-            LocalDateTime.now(),
-            chatId
-        );
+    public void handleUserJoin(@DestinationVariable int chatId,
+                               Authentication authentication) {
+        log.debug("User {} joined chat {}", authentication.getName(), chatId);
+        actividadChat.latido(chatId, authentication.getName());
     }
 
     /**
-     * Handle user leaving chat.
+     * Handle user leaving chat before its presence expires.
      */
     @MessageMapping("/chat/{chatId}/leave")
-    @SendTo("/topic/chat/{chatId}/presence")
-    public PresenceNotification handleUserLeave(@DestinationVariable String chatId,
-                                              Authentication authentication) {
-        log.info("User {} left chat {}", authentication.getName(), chatId);
-        
-        return new PresenceNotification(
-            authentication.getName(),
-            "LEFT",
-            LocalDateTime.now(),
-            chatId
-        );
+    public void handleUserLeave(@DestinationVariable int chatId,
+                                Authentication authentication) {
+        log.debug("User {} left chat {}", authentication.getName(), chatId);
+        actividadChat.salir(chatId, authentication.getName());
+    }
+
+    /**
+     * Participants currently present in the chat, for a client that has just subscribed
+     * to its presence topic.
+     */
+    @MessageMapping("/chat/{chatId}/presence")
+    @SendToUser("/queue/presence")
+    public List<PresenciaChatDTO> getPresence(@DestinationVariable int chatId) {
+        return actividadChat.presentes(chatId);
     }
 
     /**
-     * Handle typing indicators.
+     * Handle typing indicators. Broadcast to /topic/chat/{chatId}/typing at most once
+     * per window and only when they change; typing stops by itself after a timeout.
      */
     @MessageMapping("/chat/{chatId}/typing")
-    @SendTo("/topic/chat/{chatId}/typing")
-    public TypingIndicator handleTypingIndicator(@DestinationVariable String chatId,
-                                               @Payload TypingIndicator indicator,
-                                               Authentication authentication) {
-        indicator.setUser(authentication.getName());
-        indicator.setChatId(chatId);
-        indicator.setTimestamp(LocalDateTime.now());
-        
-        return indicator;
+    public void handleTypingIndicator(@DestinationVariable int chatId,
+                                      @Payload TypingIndicator indicator,
+                                      Authentication authentication) {
+        actividadChat.escribiendo(chatId, authentication.getName(), indicator.isTyping());
+    }
+
+    /**
+     * Read receipt: the user has read the chat up to the message in {@code hasta}, or up
+     * to now without it. Stored as one watermark per participant; the new unread counts
+     * are pushed to the user's /queue/unread and the receipt, coalesced per window, to
+     * /topic/chat/{chatId}/read.
+     */
+    @MessageMapping("/chat/{chatId}/read")
+    public void handleReadReceipt(@DestinationVariable int chatId,
+                                  @Payload(required = false) LecturaChatDTO lectura,
+                                  Authentication authentication) {
+        log.debug("User {} read chat {}", authentication.getName(), chatId);
+        LecturaChatDTO movida = mensajeService.marcarLeidosHasta(chatId, authentication.getName(),
+                                                                 lectura != null ? lectura.getHasta() : null);
+        if (movida != null) {
+            actividadChat.leido(chatId, authentication.getName(), movida.getHasta());
+        }
+    }
+
+    /**
+     * Current unread counts of the user, one per chat with unread messages.
+     * Later changes arrive on /queue/unread without asking.
+     */
+    @MessageMapping("/chat/unread")
+    @SendToUser(ContadorNoLeidos.COLA_NO_LEIDOS)
+    public List<NoLeidosDTO> getUnreadCounts(Authentication authentication) {
+        return contadorNoLeidos.resumen(authentication.getName());
     }
 
     /**
@@ -281,21 +342,6 @@ public class ChatWebSocketController {
         public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     }
 
-    public static class MessageConfirmation {
-        private String messageId;
-        private String status; // SENT, DELIVERED, READ
-
-        public MessageConfirmation(String messageId, String status) {
-            this.messageId = messageId;
-            this.status = status;
-        }
-
-        public String getMessageId() { return messageId; }
-        public void setMessageId(String messageId) { this.messageId = messageId; }
-        public String getStatus() { return status; }
-        public void setStatus(String status) { this.status = status; }
-    }
-
     public static class NotificationMessage {
         private String type;
         private String message;
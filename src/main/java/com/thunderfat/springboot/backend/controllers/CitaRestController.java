@@ -1,32 +1,58 @@
 package com.thunderfat.springboot.backend.controllers;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dto.ManualApiResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.CalendarioSyncDTO;
+import com.thunderfat.springboot.backend.model.dto.CambioSerieCitasDTO;
 import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.SerieCitasDTO;
+import com.thunderfat.springboot.backend.model.service.ICalendarioSyncService;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService;
 import com.thunderfat.springboot.backend.model.service.ICitaService;
+import com.thunderfat.springboot.backend.model.service.IDisponibilidadService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @Tag(name = "Citas", description = "Operations related to appointment management")
@@ -36,9 +62,16 @@ import jakarta.validation.Valid;
 public class CitaRestController {
     
     private final ICitaService citaService;
+    private final IDisponibilidadService disponibilidadService;
+    private final ICitaSerieService citaSerieService;
+    private final ICalendarioSyncService calendarioSyncService;
     
-    public CitaRestController(ICitaService citaService) {
+    public CitaRestController(ICitaService citaService, IDisponibilidadService disponibilidadService,
+                              ICitaSerieService citaSerieService, ICalendarioSyncService calendarioSyncService) {
         this.citaService = citaService;
+        this.disponibilidadService = disponibilidadService;
+        this.citaSerieService = citaSerieService;
+        this.calendarioSyncService = calendarioSyncService;
     }
     
     @Operation(summary = "Get all appointments", description = "Retrieves a list of all appointments")
@@ -59,6 +92,33 @@ public class CitaRestController {
         }
     }
     
+    @Operation(summary = "Get all appointments (keyset pagination)", 
+               description = "Retrieves appointments newest first using an opaque cursor instead of page numbers. No total count is computed; follow nextCursor until it is absent")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Appointments retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/keyset")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<CitaDTO>>> listarKeyset(
+            @Parameter(description = "Cursor returned by the previous page; omit for the first page") 
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            PagedResponseDTO<CitaDTO> citas = citaService.findAllKeyset(cursor, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(citas, "Appointments retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving appointments: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "Get appointment by ID", description = "Retrieves a specific appointment by its ID")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Appointment retrieved successfully"),
@@ -158,6 +218,106 @@ public class CitaRestController {
         }
     }
     
+    @Operation(summary = "Get all appointments (paginated)", 
+               description = "Retrieves a page of appointments. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Appointments retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<CitaDTO>>> listarPaginado(
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<CitaDTO> pagina = count
+                ? PagedResponseDTO.of(citaService.findAllPaginated(pageable))
+                : PagedResponseDTO.of(citaService.findAllSlice(pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Appointments retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving appointments: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get appointments by patient (paginated)", 
+               description = "Retrieves a page of appointments for a specific patient, newest first. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patient appointments retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/paciente/{idPaciente}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<CitaDTO>>> listarPorPacientePaginado(
+            @Parameter(description = "Patient ID") @PathVariable("idPaciente") Integer idPaciente,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<CitaDTO> pagina = count
+                ? PagedResponseDTO.of(citaService.findByPacienteId(idPaciente, pageable))
+                : PagedResponseDTO.of(citaService.findByPacienteIdSlice(idPaciente, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Patient appointments retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patient appointments: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get appointments by nutritionist (paginated)", 
+               description = "Retrieves a page of appointments for a specific nutritionist, newest first. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nutritionist appointments retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<CitaDTO>>> listarPorNutricionistaPaginado(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<CitaDTO> pagina = count
+                ? PagedResponseDTO.of(citaService.findByNutricionistaId(idNutricionista, pageable))
+                : PagedResponseDTO.of(citaService.findByNutricionistaIdSlice(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Nutritionist appointments retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving nutritionist appointments: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get appointment list rows by nutritionist", 
+               description = "Lightweight page for the appointment list screen: appointment columns and patient name in a single statement, no entity is loaded")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nutritionist appointments retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/listado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<CitaListadoDTO>>> listadoPorNutricionista(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20, sort = "fechaini", direction = Sort.Direction.DESC) Pageable pageable) {
+        try {
+            PagedResponseDTO<CitaListadoDTO> pagina = 
+                PagedResponseDTO.of(citaService.findListadoByNutricionistaId(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Nutritionist appointments retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving nutritionist appointments: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "Get appointments by nutritionist between dates", 
                description = "Retrieves appointments for a nutritionist within a date range")
     @ApiResponses(value = {
@@ -206,4 +366,290 @@ public class CitaRestController {
                 .body(ManualApiResponseDTO.error("Error retrieving next appointment: " + e.getMessage()));
         }
     }
+    
+    @Operation(summary = "Get free slots of a nutritionist", 
+               description = "Returns the first free slots of the requested duration between two dates, "
+                           + "taking working hours, breaks, existing appointments and buffers into account. "
+                           + "Defaults to the next seven days")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Free slots retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range, duration or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/disponibilidad")
+    public ResponseEntity<ManualApiResponseDTO<List<HuecoDisponibleDTO>>> getDisponibilidad(
+            @Parameter(description = "Nutritionist ID") @PathVariable Integer idNutricionista,
+            @Parameter(description = "First day (default today)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate desde,
+            @Parameter(description = "Last day (default six days after the first)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate hasta,
+            @Parameter(description = "Appointment duration in minutes") @RequestParam(defaultValue = "45") int duracion,
+            @Parameter(description = "Maximum number of slots") @RequestParam(defaultValue = "10") int limite) {
+        try {
+            LocalDate inicio = desde != null ? desde : LocalDate.now();
+            List<HuecoDisponibleDTO> huecos = disponibilidadService.buscarHuecos(
+                idNutricionista, inicio, hasta != null ? hasta : inicio.plusDays(6), duracion, limite);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(huecos, "Free slots retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving free slots: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get free slots across the clinic", 
+               description = "Returns the first free slots of the requested duration with any enabled nutritionist")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Free slots retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range, duration or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/disponibilidad")
+    public ResponseEntity<ManualApiResponseDTO<List<HuecoDisponibleDTO>>> getDisponibilidadClinica(
+            @Parameter(description = "First day (default today)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate desde,
+            @Parameter(description = "Last day (default six days after the first)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate hasta,
+            @Parameter(description = "Appointment duration in minutes") @RequestParam(defaultValue = "45") int duracion,
+            @Parameter(description = "Maximum number of slots") @RequestParam(defaultValue = "10") int limite) {
+        try {
+            LocalDate inicio = desde != null ? desde : LocalDate.now();
+            List<HuecoDisponibleDTO> huecos = disponibilidadService.buscarHuecosClinica(
+                inicio, hasta != null ? hasta : inicio.plusDays(6), duracion, limite);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(huecos, "Free slots retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving free slots: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Book a recurring series", 
+               description = "Expands a daily, weekly or monthly rule and books every occurrence in one transaction. "
+                           + "Clashing occurrences are reported and, depending on the policy, reject the whole series, "
+                           + "are skipped or are shifted to the nearest free slot of the same day")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Series booked"),
+        @ApiResponse(responseCode = "400", description = "Invalid recurrence rule"),
+        @ApiResponse(responseCode = "404", description = "Patient or nutritionist not found"),
+        @ApiResponse(responseCode = "409", description = "Some occurrences clash and the policy is RECHAZAR; nothing was booked"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/serie")
+    public ResponseEntity<ManualApiResponseDTO<ResultadoSerieCitasDTO>> crearSerie(
+            @Valid @RequestBody SerieCitasDTO serie) {
+        try {
+            return respuestaSerie(citaSerieService.crear(serie), HttpStatus.CREATED, "Appointment series booked");
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (BusinessValidationException | BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error booking appointment series: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get a recurring series", description = "Retrieves the occurrences of a series in chronological order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Series retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Series not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/serie/{serie}")
+    public ResponseEntity<ManualApiResponseDTO<List<CitaDTO>>> getSerie(
+            @Parameter(description = "Series identifier") @PathVariable String serie) {
+        try {
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(citaSerieService.findBySerie(serie), "Appointment series retrieved successfully")
+            );
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to appointment series"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving appointment series: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Change a recurring series", 
+               description = "Moves and/or resizes the pending occurrences of a series from a date onwards, "
+                           + "with the same conflict policies as booking")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Series changed"),
+        @ApiResponse(responseCode = "400", description = "Invalid change"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Series not found"),
+        @ApiResponse(responseCode = "409", description = "Some occurrences clash and the policy is RECHAZAR; nothing was changed"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/serie/{serie}")
+    public ResponseEntity<ManualApiResponseDTO<ResultadoSerieCitasDTO>> modificarSerie(
+            @Parameter(description = "Series identifier") @PathVariable String serie,
+            @Valid @RequestBody CambioSerieCitasDTO cambio) {
+        try {
+            return respuestaSerie(citaSerieService.modificar(serie, cambio), HttpStatus.OK, "Appointment series changed");
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to appointment series"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (BusinessValidationException | BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error changing appointment series: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Cancel a recurring series", 
+               description = "Cancels the pending occurrences of a series, optionally only from a given day")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Series cancelled; data is the number of appointments removed"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Series not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/serie/{serie}")
+    public ResponseEntity<ManualApiResponseDTO<Integer>> cancelarSerie(
+            @Parameter(description = "Series identifier") @PathVariable String serie,
+            @Parameter(description = "First day cancelled (default: everything not yet started)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate desde) {
+        try {
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(citaSerieService.cancelar(serie, desde), "Appointment series cancelled")
+            );
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to appointment series"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error cancelling appointment series: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Sync a nutritionist's calendar", 
+               description = "Returns the appointments created, updated or cancelled since the given token, "
+                           + "in commit order. Without a token the first pages are a full snapshot. "
+                           + "Call again with the returned token while hayMas is true")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Changes retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid sync token"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Nutritionist not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/sync")
+    public ResponseEntity<ManualApiResponseDTO<CalendarioSyncDTO>> sincronizarCalendario(
+            @Parameter(description = "Nutritionist ID") @PathVariable Integer idNutricionista,
+            @Parameter(description = "Token returned by the previous call; omit for a full sync") 
+            @RequestParam(value = "token", required = false) String token,
+            @Parameter(description = "Maximum number of changes (max 500)") 
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        try {
+            CalendarioSyncDTO cambios = calendarioSyncService.sincronizar(idNutricionista, token, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(cambios, "Calendar changes retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to nutritionist calendar"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving calendar changes: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Export a nutritionist's calendar as iCalendar", 
+               description = "Streams the appointments of a date range as a text/calendar document. "
+                           + "Send the returned ETag in If-None-Match to get 304 while nothing changed. "
+                           + "Defaults to the last 30 days and the next year")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Calendar streamed"),
+        @ApiResponse(responseCode = "304", description = "Calendar unchanged since the given ETag"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Nutritionist not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/calendario.ics")
+    public void exportarCalendario(
+            @Parameter(description = "Nutritionist ID") @PathVariable Integer idNutricionista,
+            @Parameter(description = "First day (default 30 days ago)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate desde,
+            @Parameter(description = "Last day (default one year after the first)") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @RequestParam(required = false) LocalDate hasta,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        LocalDate inicio = desde != null ? desde : LocalDate.now().minusDays(30);
+        LocalDate fin = hasta != null ? hasta : inicio.plusYears(1);
+        try {
+            // The agenda version answers If-None-Match without reading a single appointment
+            String etag = calendarioSyncService.etagCalendario(idNutricionista, inicio, fin);
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return;
+            }
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentType("text/calendar");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("agenda-" + idNutricionista + ".ics")
+                .build().toString());
+            calendarioSyncService.exportarIcs(idNutricionista, inicio, fin, response.getOutputStream());
+        } catch (AccessDeniedException e) {
+            response.reset();
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Access denied to nutritionist calendar");
+        } catch (BusinessValidationException e) {
+            response.reset();
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        } catch (ResourceNotFoundException e) {
+            response.reset();
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+        } catch (Exception e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error exporting calendar: " + e.getMessage());
+            } else {
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * A series that booked nothing because of clashes is a 409 that still carries the per-occurrence report.
+     */
+    private static ResponseEntity<ManualApiResponseDTO<ResultadoSerieCitasDTO>> respuestaSerie(
+            ResultadoSerieCitasDTO resultado, HttpStatus estado, String mensaje) {
+        if (!resultado.isCreada() && resultado.getConflictos() > 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ManualApiResponseDTO.<ResultadoSerieCitasDTO>builder()
+                    .success(false)
+                    .message(resultado.getConflictos() + " occurrences clash with existing appointments")
+                    .data(resultado)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        return ResponseEntity.status(estado).body(ManualApiResponseDTO.success(resultado, mensaje));
+    }
 }
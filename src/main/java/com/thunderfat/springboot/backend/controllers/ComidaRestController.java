@@ -1,10 +1,16 @@
 package com.thunderfat.springboot.backend.controllers;
 
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dto.ComidaDTO;
+import com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO;
 import com.thunderfat.springboot.backend.model.dto.ManualApiResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.entity.Comida;
 import com.thunderfat.springboot.backend.model.entity.PlatoPredeterminado;
 import com.thunderfat.springboot.backend.model.service.IComidaService;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -30,6 +36,133 @@ public class ComidaRestController {
         this.comidaService = comidaService;
     }
 
+    @Operation(summary = "Get all meals (keyset pagination)", 
+               description = "Retrieves meals newest first using an opaque cursor instead of page numbers. No total count is computed; follow nextCursor until it is absent")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Meals retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/keyset")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ComidaDTO>>> listarKeyset(
+            @Parameter(description = "Cursor returned by the previous page; omit for the first page") 
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            PagedResponseDTO<ComidaDTO> comidas = comidaService.findAllKeyset(cursor, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(comidas, "Meals retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving meals: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get all meals (paginated)", 
+               description = "Retrieves a page of meals. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Meals retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ComidaDTO>>> listarPaginado(
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<ComidaDTO> pagina = count
+                ? PagedResponseDTO.of(comidaService.findAll(pageable))
+                : PagedResponseDTO.of(comidaService.findAllSlice(pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Meals retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving meals: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get meals by diet plan (paginated)", 
+               description = "Retrieves a page of the meals of a diet plan. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Diet plan meals retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/plan/{idPlanDieta}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ComidaDTO>>> listarPorPlanDietaPaginado(
+            @Parameter(description = "Diet plan ID") @PathVariable("idPlanDieta") Integer idPlanDieta,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<ComidaDTO> pagina = count
+                ? PagedResponseDTO.of(comidaService.findByPlanDietaId(idPlanDieta, pageable))
+                : PagedResponseDTO.of(comidaService.findByPlanDietaIdSlice(idPlanDieta, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Diet plan meals retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving diet plan meals: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get meal list rows by diet plan", 
+               description = "Lightweight page for the meal list of a diet plan: day, time, rating and dish count, without loading the dishes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Diet plan meals retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/plan/{idPlanDieta}/listado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ComidaListadoDTO>>> listadoPorPlanDieta(
+            @Parameter(description = "Diet plan ID") @PathVariable("idPlanDieta") Integer idPlanDieta,
+            @Parameter(description = "Pagination parameters (page, size)") 
+            @PageableDefault(size = 20) Pageable pageable) {
+        try {
+            PagedResponseDTO<ComidaListadoDTO> pagina = 
+                PagedResponseDTO.of(comidaService.findListadoByPlanDietaId(idPlanDieta, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Diet plan meals retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving diet plan meals: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get meals by nutritionist (paginated)", 
+               description = "Retrieves a page of the meals planned by a specific nutritionist. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nutritionist meals retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<ComidaDTO>>> listarPorNutricionistaPaginado(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<ComidaDTO> pagina = count
+                ? PagedResponseDTO.of(comidaService.findByNutricionistaId(idNutricionista, pageable))
+                : PagedResponseDTO.of(comidaService.findByNutricionistaIdSlice(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Nutritionist meals retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving nutritionist meals: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "Get meal details", 
                description = "Retrieves details of a specific meal by its ID")
     @ApiResponses(value = {
@@ -1,11 +1,26 @@
 package com.thunderfat.springboot.backend.controllers;
 
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO;
 import com.thunderfat.springboot.backend.model.dto.ManualApiResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.service.IPacienteBulkService;
+import com.thunderfat.springboot.backend.model.service.IPacienteDashboardService;
 import com.thunderfat.springboot.backend.model.service.IPacienteService;
+import com.thunderfat.springboot.backend.model.service.PacienteSearchIndex;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,9 +29,14 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 
 @Tag(name = "Patients", description = "Operations related to patient management")
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8100"})
@@ -25,9 +45,17 @@ import java.util.List;
 public class PacienteRestController {
     
     private final IPacienteService pacienteService;
+    private final IPacienteDashboardService pacienteDashboardService;
+    private final IPacienteBulkService pacienteBulkService;
+    
+    private static final int SEARCH_LIMIT = 50;
 
-    public PacienteRestController(IPacienteService pacienteService) {
+    public PacienteRestController(IPacienteService pacienteService,
+                                  IPacienteDashboardService pacienteDashboardService,
+                                  IPacienteBulkService pacienteBulkService) {
         this.pacienteService = pacienteService;
+        this.pacienteDashboardService = pacienteDashboardService;
+        this.pacienteBulkService = pacienteBulkService;
     }
 
     @Operation(summary = "Get all patients", 
@@ -49,6 +77,107 @@ public class PacienteRestController {
         }
     }
 
+    @Operation(summary = "Get all patients (keyset pagination)", 
+               description = "Retrieves patients newest first using an opaque cursor instead of page numbers. No total count is computed; follow nextCursor until it is absent")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patients retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/keyset")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<PacienteDTO>>> listarKeyset(
+            @Parameter(description = "Cursor returned by the previous page; omit for the first page") 
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size (max 100)") 
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            PagedResponseDTO<PacienteDTO> pacientes = pacienteService.findAllKeyset(cursor, size);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pacientes, "Patients retrieved successfully")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patients: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get all patients (paginated)", 
+               description = "Retrieves a page of patients. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patients retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<PacienteDTO>>> listarPaginado(
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<PacienteDTO> pagina = count
+                ? PagedResponseDTO.of(pacienteService.findAllPaginated(pageable))
+                : PagedResponseDTO.of(pacienteService.findAllSlice(pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Patients retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patients: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get patients by nutritionist (paginated)", 
+               description = "Retrieves a page of the patients assigned to a specific nutritionist. Set count=false to skip the COUNT query; total and totalPages are then omitted and only hasNext is reported")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patients retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/paginado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<PacienteDTO>>> listarPorNutricionistaPaginado(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20) Pageable pageable,
+            @Parameter(description = "Whether to compute total count and pages") 
+            @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        try {
+            PagedResponseDTO<PacienteDTO> pagina = count
+                ? PagedResponseDTO.of(pacienteService.findByNutricionistaId(idNutricionista, pageable))
+                : PagedResponseDTO.of(pacienteService.findByNutricionistaIdSlice(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Patients retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patients: " + e.getMessage()));
+        }
+    }
+    
+    @Operation(summary = "Get patient list rows by nutritionist", 
+               description = "Lightweight page for the patient list screen: only the listed columns are selected, no entity or collection is loaded")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patients retrieved successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/listado")
+    public ResponseEntity<ManualApiResponseDTO<PagedResponseDTO<PacienteListadoDTO>>> listadoPorNutricionista(
+            @Parameter(description = "Nutritionist ID") @PathVariable("idNutricionista") Integer idNutricionista,
+            @Parameter(description = "Pagination parameters (page, size, sort)") 
+            @PageableDefault(size = 20, sort = {"apellidos", "nombre"}) Pageable pageable) {
+        try {
+            PagedResponseDTO<PacienteListadoDTO> pagina = 
+                PagedResponseDTO.of(pacienteService.findListadoByNutricionistaId(idNutricionista, pageable));
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pagina, "Patients retrieved successfully")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patients: " + e.getMessage()));
+        }
+    }
+    
     @Operation(summary = "Get patients by nutritionist", 
                description = "Retrieves all patients assigned to a specific nutritionist")
     @ApiResponses(value = {
@@ -95,6 +224,31 @@ public class PacienteRestController {
         }
     }
 
+    @Operation(summary = "Get patient dashboard", 
+               description = "Returns the active plan, next appointment, latest measurements, chat status and clinical history in one call. Sections load concurrently; any that fail or time out are listed in seccionesNoDisponibles")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Dashboard retrieved, possibly partial"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/dashboard")
+    public ResponseEntity<ManualApiResponseDTO<PacienteDashboardDTO>> dashboard(
+            @Parameter(description = "Patient ID") @PathVariable("id") int idPaciente) {
+        try {
+            PacienteDashboardDTO dashboard = pacienteDashboardService.getDashboard(idPaciente);
+            String mensaje = dashboard.isCompleto() 
+                ? "Patient dashboard retrieved successfully" 
+                : "Patient dashboard retrieved partially";
+            return ResponseEntity.ok(ManualApiResponseDTO.success(dashboard, mensaje));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to patient dashboard"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error retrieving patient dashboard: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Create patient", 
                description = "Creates a new patient in the system")
     @ApiResponses(value = {
@@ -115,6 +269,78 @@ public class PacienteRestController {
         }
     }
 
+    @Operation(summary = "Bulk import patients", 
+               description = "Imports the patients of a nutritionist from a CSV (header row with field names) or JSON array body, sent as text/csv or application/json. Invalid rows and rows whose DNI or email already exist are skipped and reported with their row number")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import finished; see the report for rejected rows"),
+        @ApiResponse(responseCode = "400", description = "Unreadable file"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Nutritionist not found"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/nutricionista/{idNutricionista}/importar", 
+                 consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ManualApiResponseDTO<ImportacionPacientesDTO>> importarPacientes(
+            @Parameter(description = "Nutritionist ID") @PathVariable int idNutricionista,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream fichero) {
+        try {
+            IPacienteBulkService.Formato formato = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? IPacienteBulkService.Formato.JSON 
+                : IPacienteBulkService.Formato.CSV;
+            ImportacionPacientesDTO resultado = pacienteBulkService.importar(idNutricionista, formato, fichero);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(resultado, "Imported " + resultado.getImportados() + " patients")
+            );
+        } catch (BusinessValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ManualApiResponseDTO.error("Access denied to nutritionist patients"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ManualApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error importing patients: " + e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Export patients", 
+               description = "Streams every patient of a nutritionist as CSV or JSON in the same layout accepted by the import endpoint")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Patients streamed"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/nutricionista/{idNutricionista}/exportar")
+    public void exportarPacientes(
+            @Parameter(description = "Nutritionist ID") @PathVariable int idNutricionista,
+            @Parameter(description = "Output format") 
+            @RequestParam(value = "formato", defaultValue = "CSV") IPacienteBulkService.Formato formato,
+            HttpServletResponse response) throws IOException {
+        // Written straight to the servlet stream: nothing is buffered beyond the writer
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(formato == IPacienteBulkService.Formato.JSON ? MediaType.APPLICATION_JSON_VALUE : "text/csv");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename("pacientes-" + idNutricionista + "." + formato.name().toLowerCase(Locale.ROOT))
+            .build().toString());
+        try {
+            pacienteBulkService.exportar(idNutricionista, formato, response.getOutputStream());
+        } catch (AccessDeniedException e) {
+            response.reset();
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Access denied to nutritionist patients");
+        } catch (Exception e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error exporting patients: " + e.getMessage());
+            } else {
+                throw e;
+            }
+        }
+    }
+
     @Operation(summary = "Delete patient", 
                description = "Deletes a patient from the system by their ID")
     @ApiResponses(value = {
@@ -146,7 +372,8 @@ public class PacienteRestController {
             @Parameter(description = "Nutritionist ID") @RequestParam("id") int idNutricionista, 
             @Parameter(description = "Search term") @RequestParam("searchterm") String searchTerm) {
         try {
-            List<PacienteDTO> pacientes = pacienteService.buscarNombreCompleto(idNutricionista, searchTerm);
+            List<PacienteDTO> pacientes = pacienteService.typeAheadSearch(searchTerm, idNutricionista, 
+                    PacienteSearchIndex.Campo.NOMBRE, SEARCH_LIMIT);
             return ResponseEntity.ok(
                 ManualApiResponseDTO.success(pacientes, "Patients found by full name")
             );
@@ -167,7 +394,8 @@ public class PacienteRestController {
             @Parameter(description = "Nutritionist ID") @RequestParam("id") int idNutricionista, 
             @Parameter(description = "DNI search term") @RequestParam("searchterm") String searchTerm) {
         try {
-            List<PacienteDTO> pacientes = pacienteService.buscarPorDni(idNutricionista, searchTerm);
+            List<PacienteDTO> pacientes = pacienteService.typeAheadSearch(searchTerm, idNutricionista, 
+                    PacienteSearchIndex.Campo.DNI, SEARCH_LIMIT);
             return ResponseEntity.ok(
                 ManualApiResponseDTO.success(pacientes, "Patients found by DNI")
             );
@@ -188,7 +416,8 @@ public class PacienteRestController {
             @Parameter(description = "Nutritionist ID") @RequestParam("id") int idNutricionista, 
             @Parameter(description = "Phone search term") @RequestParam("searchterm") String searchTerm) {
         try {
-            List<PacienteDTO> pacientes = pacienteService.buscarPorTelefono(searchTerm, idNutricionista);
+            List<PacienteDTO> pacientes = pacienteService.typeAheadSearch(searchTerm, idNutricionista, 
+                    PacienteSearchIndex.Campo.TELEFONO, SEARCH_LIMIT);
             return ResponseEntity.ok(
                 ManualApiResponseDTO.success(pacientes, "Patients found by phone")
             );
@@ -198,6 +427,31 @@ public class PacienteRestController {
         }
     }
 
+    @Operation(summary = "Type-ahead patient search", 
+               description = "Ranked search-as-you-type over a nutritionist's patients by name, DNI and phone, served from an in-memory index")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Search completed successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/typeahead")
+    public ResponseEntity<ManualApiResponseDTO<List<PacienteDTO>>> buscarTypeAhead(
+            @Parameter(description = "Nutritionist ID") @RequestParam("id") int idNutricionista, 
+            @Parameter(description = "Partial search term") @RequestParam("q") String termino,
+            @Parameter(description = "Field to match: NOMBRE, DNI, TELEFONO or TODOS") 
+            @RequestParam(value = "campo", defaultValue = "TODOS") PacienteSearchIndex.Campo campo,
+            @Parameter(description = "Maximum number of results") 
+            @RequestParam(value = "limit", defaultValue = "10") int limite) {
+        try {
+            List<PacienteDTO> pacientes = pacienteService.typeAheadSearch(termino, idNutricionista, campo, limite);
+            return ResponseEntity.ok(
+                ManualApiResponseDTO.success(pacientes, "Patients found")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ManualApiResponseDTO.error("Error searching patients: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Delete patient (alternative endpoint)", 
                description = "Deletes a patient from the system with enhanced error handling")
     @ApiResponses(value = {
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
 import com.thunderfat.springboot.backend.model.entity.Alimento;
 
 /**
@@ -30,6 +31,13 @@ public interface AlimentoRepository extends JpaRepository<Alimento, Integer> {
            "WHERE LOWER(a.nombre) = LOWER(:nombre) AND a.id != :id")
     boolean existsByNombreIgnoreCaseAndIdNot(@Param("nombre") String nombre, @Param("id") Integer id);
     
+    /**
+     * Select/dropdown options: only id, name, status and calories, sorted by name
+     */
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO(a.id, a.nombre, a.estado, a.cal) " +
+           "FROM Alimento a ORDER BY a.nombre")
+    List<AlimentoSelectDTO> findAllForSelect();
+    
     /**
      * Search foods by name (case-insensitive, partial match)
      */
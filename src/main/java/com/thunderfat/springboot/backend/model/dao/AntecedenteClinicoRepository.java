@@ -1,5 +1,6 @@
 package com.thunderfat.springboot.backend.model.dao;
 
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,6 +10,7 @@ import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 
 import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos;
+import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos.CategoriaClinica;
 
 /**
  * Repository interface for managing AntecedentesClinicos entities.
@@ -53,6 +55,27 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
     @Query("SELECT ac FROM AntecedentesClinicos ac WHERE LOWER(ac.condicion) LIKE LOWER(FUNCTION('CONCAT', '%', :condicionTipo, '%')) ORDER BY ac.paciente.id")
     List<AntecedentesClinicos> findByAntecedenteContainingIgnoreCase(@Param("antecedenteTipo") String antecedenteTipo);
     
+    /**
+     * Finds the antecedents of a patient whose category bitmask is one of the given values.
+     * Matching on the precomputed column keeps the lookup on the (paciente_id, categorias) index.
+     * 
+     * @param pacienteId the ID of the patient
+     * @param mascaras the bitmask values to accept
+     * @return list of matching antecedents
+     */
+    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId AND ac.categorias IN :mascaras")
+    List<AntecedentesClinicos> findByPacienteIdAndCategoriasIn(@Param("pacienteId") Integer pacienteId,
+                                                               @Param("mascaras") Collection<Integer> mascaras);
+    
+    /**
+     * Finds every antecedent of a patient that belongs to at least one clinical category.
+     * 
+     * @param pacienteId the ID of the patient
+     * @return list of classified antecedents
+     */
+    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId AND ac.categorias > 0")
+    List<AntecedentesClinicos> findClasificadosByPacienteId(@Param("pacienteId") Integer pacienteId);
+    
     /**
      * Finds food allergies and intolerances for dietary planning.
      * Critical for creating safe nutrition plans.
@@ -60,10 +83,9 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
      * @param pacienteId the ID of the patient
      * @return list of allergy-related antecedents
      */
-    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId " +
-           "AND (LOWER(ac.condicion) LIKE '%alergia%' OR LOWER(ac.condicion) LIKE '%intolerancia%' " +
-           "OR LOWER(ac.condicion) LIKE '%celiac%' OR LOWER(ac.condicion) LIKE '%lactosa%')")
-    List<AntecedentesClinicos> findAlergiasByPacienteId(@Param("pacienteId") Integer pacienteId);
+    default List<AntecedentesClinicos> findAlergiasByPacienteId(Integer pacienteId) {
+        return findByPacienteIdAndCategoriasIn(pacienteId, CategoriaClinica.ALERGIA.mascarasQueContienen());
+    }
     
     /**
      * Finds cardiovascular conditions for specialized nutrition plans.
@@ -72,10 +94,9 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
      * @param pacienteId the ID of the patient
      * @return list of cardiovascular-related antecedents
      */
-    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId " +
-           "AND (LOWER(ac.condicion) LIKE '%cardio%' OR LOWER(ac.condicion) LIKE '%hipertens%' " +
-           "OR LOWER(ac.condicion) LIKE '%corazón%' OR LOWER(ac.condicion) LIKE '%presión%')")
-    List<AntecedentesClinicos> findCondicionesCardiovascularByPacienteId(@Param("pacienteId") Integer pacienteId);
+    default List<AntecedentesClinicos> findCondicionesCardiovascularByPacienteId(Integer pacienteId) {
+        return findByPacienteIdAndCategoriasIn(pacienteId, CategoriaClinica.CARDIOVASCULAR.mascarasQueContienen());
+    }
     
     /**
      * Finds diabetes-related conditions for glucose management nutrition plans.
@@ -84,10 +105,9 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
      * @param pacienteId the ID of the patient
      * @return list of diabetes-related antecedents
      */
-    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId " +
-           "AND (LOWER(ac.condicion) LIKE '%diabetes%' OR LOWER(ac.condicion) LIKE '%glucos%' " +
-           "OR LOWER(ac.condicion) LIKE '%insulin%' OR LOWER(ac.condicion) LIKE '%azúcar%')")
-    List<AntecedentesClinicos> findCondicionesDiabeticasByPacienteId(@Param("pacienteId") Integer pacienteId);
+    default List<AntecedentesClinicos> findCondicionesDiabeticasByPacienteId(Integer pacienteId) {
+        return findByPacienteIdAndCategoriasIn(pacienteId, CategoriaClinica.DIABETES.mascarasQueContienen());
+    }
     
     /**
      * Finds gastrointestinal conditions affecting nutrition absorption.
@@ -96,10 +116,23 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
      * @param pacienteId the ID of the patient
      * @return list of gastrointestinal-related antecedents
      */
-    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.paciente.id = :pacienteId " +
-           "AND (LOWER(ac.condicion) LIKE '%gastro%' OR LOWER(ac.condicion) LIKE '%intestin%' " +
-           "OR LOWER(ac.condicion) LIKE '%digestiv%' OR LOWER(ac.condicion) LIKE '%estómago%')")
-    List<AntecedentesClinicos> findCondicionesGastrointestinalByPacienteId(@Param("pacienteId") Integer pacienteId);
+    default List<AntecedentesClinicos> findCondicionesGastrointestinalByPacienteId(Integer pacienteId) {
+        return findByPacienteIdAndCategoriasIn(pacienteId, CategoriaClinica.GASTROINTESTINAL.mascarasQueContienen());
+    }
+    
+    /**
+     * Finds antecedents after the given ID in ID order, for batched reclassification.
+     * 
+     * @param despuesDeId last ID already processed
+     * @param soloPendientes whether to restrict to rows that were never classified
+     * @param pageable batch size
+     * @return next batch of antecedents
+     */
+    @Query("SELECT ac FROM AntecedentesClinicos ac WHERE ac.id > :despuesDeId " +
+           "AND (:soloPendientes = false OR ac.categorias IS NULL) ORDER BY ac.id")
+    List<AntecedentesClinicos> findLoteParaClasificar(@Param("despuesDeId") Integer despuesDeId,
+                                                      @Param("soloPendientes") boolean soloPendientes,
+                                                      Pageable pageable);
     
   
     /**
@@ -113,14 +146,27 @@ public interface AntecedenteClinicoRepository extends BaseRepository<Antecedente
     
     /**
      * Checks if patient has any food allergies for safety verification.
+     * Covers the whole {@link CategoriaClinica#ALERGIA} category: allergies and intolerances,
+     * and also celiac disease and lactose conditions, which the former text match left out.
+     * 
+     * @param pacienteId the ID of the patient
+     * @return true if patient has any food allergy or intolerance
+     */
+    default boolean hasAlergias(Integer pacienteId) {
+        return existsByPacienteIdAndCategoriasIn(pacienteId, CategoriaClinica.ALERGIA.mascarasQueContienen());
+    }
+    
+    /**
+     * Checks whether a patient has any antecedent with one of the given category bitmasks.
      * 
      * @param pacienteId the ID of the patient
-     * @return true if patient has any food allergies
+     * @param mascaras the bitmask values to accept
+     * @return true if at least one antecedent matches
      */
     @Query("SELECT CASE WHEN COUNT(ac) > 0 THEN TRUE ELSE FALSE END FROM AntecedentesClinicos ac " +
-           "WHERE ac.paciente.id = :pacienteId " +
-           "AND (LOWER(ac.condicion) LIKE '%alergia%' OR LOWER(ac.condicion) LIKE '%intolerancia%')")
-    boolean hasAlergias(@Param("pacienteId") Integer pacienteId);
+           "WHERE ac.paciente.id = :pacienteId AND ac.categorias IN :mascaras")
+    boolean existsByPacienteIdAndCategoriasIn(@Param("pacienteId") Integer pacienteId,
+                                              @Param("mascaras") Collection<Integer> mascaras);
     
     // Spring Data JPA method naming conventions (automatically implemented)
     
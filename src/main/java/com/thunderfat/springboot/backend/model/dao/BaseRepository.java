@@ -2,7 +2,9 @@ package com.thunderfat.springboot.backend.model.dao;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.lang.NonNull;
@@ -34,6 +36,17 @@ public interface BaseRepository<T, ID> extends JpaRepository<T, ID>, JpaSpecific
     @NonNull
     Page<T> findAll(@NonNull Pageable pageable);
     
+    /**
+     * Finds all entities as a {@link Slice}: reads size + 1 rows to know whether a next
+     * page exists and skips the COUNT query that {@link #findAll(Pageable)} issues.
+     * 
+     * @param pageable pagination information
+     * @return slice of results without total count
+     */
+    default Slice<T> findAllSliced(Pageable pageable) {
+        return findBy(Specification.unrestricted(), query -> query.slice(pageable));
+    }
+    
     /**
      * Soft delete support - marks entity as deleted without physical removal.
      * Should be implemented by repositories that support soft delete.
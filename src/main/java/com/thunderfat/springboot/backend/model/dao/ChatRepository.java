@@ -1,17 +1,23 @@
 package com.thunderfat.springboot.backend.model.dao;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO;
 import com.thunderfat.springboot.backend.model.dto.ChatUnreadCountDTO;
 import com.thunderfat.springboot.backend.model.entity.Chat;
 
@@ -54,6 +60,13 @@ public interface ChatRepository extends BaseRepository<Chat, Integer> {
     @RestResource(path = "findByNutricionistaIdPaged", rel = "findByNutricionistaIdPaged")
     Page<Chat> findByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
 
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)} for infinite scroll.
+     */
+    @Query("SELECT c FROM Chat c WHERE c.nutricionista.id = :nutricionistaId")
+    @RestResource(exported = false)
+    Slice<Chat> findSliceByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+
     /**
      * Legacy method for backward compatibility.
      * @deprecated Use findByNutricionistaId(Integer, Pageable) instead
@@ -97,7 +110,7 @@ public interface ChatRepository extends BaseRepository<Chat, Integer> {
      * Find chats with unread messages for a specific user.
      */
     @Query("SELECT DISTINCT c FROM Chat c JOIN c.mensajes m " +
-           "WHERE m.leido = false AND " +
+           "WHERE " + MensajeRepository.NO_LEIDO + " AND " +
            "((c.paciente.id = :userId AND m.emisor.id != :userId) OR " +
            " (c.nutricionista.id = :userId AND m.emisor.id != :userId))")
     @Cacheable(value = "chats", key = "'unread_' + #userId")
@@ -183,7 +196,7 @@ public interface ChatRepository extends BaseRepository<Chat, Integer> {
      * Find chats with unread messages count for dashboard notifications.
      */
     @Query("SELECT new com.thunderfat.springboot.backend.model.dto.ChatUnreadCountDTO(c.id, COUNT(m)) FROM Chat c LEFT JOIN c.mensajes m " +
-           "WHERE c.nutricionista.id = :nutricionistaId AND m.leido = false " +
+           "WHERE c.nutricionista.id = :nutricionistaId AND " + MensajeRepository.NO_LEIDO + " " +
            "AND m.emisor.id = c.paciente.id GROUP BY c.id")
     List<ChatUnreadCountDTO> findChatsWithUnreadCount(@Param("nutricionistaId") Integer nutricionistaId);
 
@@ -195,6 +208,115 @@ public interface ChatRepository extends BaseRepository<Chat, Integer> {
     Page<Object[]> findChatsWithLastMessageTime(@Param("nutricionistaId") Integer nutricionistaId, 
                                                Pageable pageable);
 
+    // ================================
+    // LIVE MESSAGES
+    // ================================
+
+    /**
+     * Participants of the given chats, for checking the senders of live messages.
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO(" +
+           "c.id, p.id, p.email, n.id, n.email) FROM Chat c LEFT JOIN c.paciente p LEFT JOIN c.nutricionista n " +
+           "WHERE c.id IN :ids")
+    List<ChatParticipantesDTO> findParticipantes(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Participants of the chats the given user (STOMP user name) takes part in.
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO(" +
+           "c.id, p.id, p.email, n.id, n.email) FROM Chat c LEFT JOIN c.paciente p LEFT JOIN c.nutricionista n " +
+           "WHERE p.email = :email OR n.email = :email")
+    List<ChatParticipantesDTO> findParticipantesPorEmail(@Param("email") String email);
+
+    // ================================
+    // READ WATERMARKS
+    // ================================
+
+    /**
+     * Participants of the given chats with how far each has read them.
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO(" +
+           "c.id, p.id, p.email, n.id, n.email, c.leidoHastaPaciente, c.leidoHastaNutricionista) " +
+           "FROM Chat c LEFT JOIN c.paciente p LEFT JOIN c.nutricionista n WHERE c.id IN :ids")
+    List<ChatParticipantesDTO> findLecturas(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Moves the patient's watermark of a chat to hasta, if it still is where the caller read it.
+     *
+     * @param anterior watermark read by the caller, 0 if none
+     * @return 1 if moved, 0 if another read receipt moved it meanwhile
+     */
+    @Modifying
+    @RestResource(exported = false)
+    @Query("UPDATE Chat c SET c.leidoHastaPaciente = :hasta " +
+           "WHERE c.id_chat = :idChat AND COALESCE(c.leidoHastaPaciente, 0) = :anterior")
+    int moverLeidoHastaPaciente(@Param("idChat") int idChat, @Param("anterior") int anterior, @Param("hasta") int hasta);
+
+    /**
+     * Moves the nutritionist's watermark of a chat to hasta, if it still is where the caller read it.
+     *
+     * @param anterior watermark read by the caller, 0 if none
+     * @return 1 if moved, 0 if another read receipt moved it meanwhile
+     */
+    @Modifying
+    @RestResource(exported = false)
+    @Query("UPDATE Chat c SET c.leidoHastaNutricionista = :hasta " +
+           "WHERE c.id_chat = :idChat AND COALESCE(c.leidoHastaNutricionista, 0) = :anterior")
+    int moverLeidoHastaNutricionista(@Param("idChat") int idChat, @Param("anterior") int anterior, @Param("hasta") int hasta);
+
+    /**
+     * Whether some chat still has a watermark that was never seeded, i.e. was stored
+     * before there were watermarks; chats created since start at 0.
+     */
+    @RestResource(exported = false)
+    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Chat c " +
+           "WHERE c.leidoHastaPaciente IS NULL OR c.leidoHastaNutricionista IS NULL")
+    boolean existsLeidoHastaSinSembrar();
+
+    /**
+     * Seeds the patient's missing watermarks from the per-message read flags of older messages.
+     * Chats without any read message get 0, so no chat is seeded twice.
+     */
+    @Modifying
+    @Transactional
+    @RestResource(exported = false)
+    @Query("UPDATE Chat c SET c.leidoHastaPaciente = COALESCE((SELECT MAX(m.id_mensaje) FROM Mensaje m " +
+           "WHERE m.chat.id_chat = c.id_chat AND m.emisor.id = c.nutricionista.id AND m.leido = true), 0) " +
+           "WHERE c.leidoHastaPaciente IS NULL")
+    int sembrarLeidoHastaPaciente();
+
+    /**
+     * Seeds the nutritionist's missing watermarks from the per-message read flags of older messages.
+     * Chats without any read message get 0, so no chat is seeded twice.
+     */
+    @Modifying
+    @Transactional
+    @RestResource(exported = false)
+    @Query("UPDATE Chat c SET c.leidoHastaNutricionista = COALESCE((SELECT MAX(m.id_mensaje) FROM Mensaje m " +
+           "WHERE m.chat.id_chat = c.id_chat AND m.emisor.id = c.paciente.id AND m.leido = true), 0) " +
+           "WHERE c.leidoHastaNutricionista IS NULL")
+    int sembrarLeidoHastaNutricionista();
+
+    // ================================
+    // KEYSET (SEEK) PAGINATION
+    // ================================
+
+    /**
+     * First page of the keyset listing, newest chats first.
+     * Chats are ordered by id: it follows creation order and, unlike fechahora, is never null.
+     */
+    @Query("SELECT c FROM Chat c ORDER BY c.id DESC")
+    List<Chat> findKeysetFirstPage(Limit limit);
+
+    /**
+     * Next page of the keyset listing, seeking past the last chat already returned.
+     */
+    @Query("SELECT c FROM Chat c WHERE c.id < :id ORDER BY c.id DESC")
+    List<Chat> findKeysetPageAfter(@Param("id") Integer id, Limit limit);
+
     // ================================
     // LEGACY SUPPORT (Deprecated)
     // ================================
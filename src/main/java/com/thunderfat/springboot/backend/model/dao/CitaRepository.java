@@ -2,17 +2,26 @@ package com.thunderfat.springboot.backend.model.dao;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
 
+import com.thunderfat.springboot.backend.model.dto.CalendarioEventoDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO;
 import com.thunderfat.springboot.backend.model.entity.Cita;
 
 /**
@@ -30,6 +39,75 @@ import com.thunderfat.springboot.backend.model.entity.Cita;
 @Repository
 public interface CitaRepository extends BaseRepository<Cita, Integer> {
     
+    /**
+     * Longest appointment that can be stored (4 hours), enforced by the Cita entity
+     * callbacks and its check constraint. Overlap searches use it as a lower bound on
+     * fechaini, so they read a short slice of the (nutricionista, fechaini) index
+     * instead of the nutritionist's whole history.
+     */
+    long DURACION_MAXIMA_MINUTOS = Cita.DURACION_MAXIMA_MINUTOS;
+    
+    // =====================================
+    // DTO READS
+    // =====================================
+    // Every query whose rows go through CitaServiceJPA.enrichCitaDTO fetch-joins the
+    // patient and nutritionist, so the display names come from the same statement.
+    
+    /**
+     * Finds an appointment with its patient and nutritionist in one statement.
+     * 
+     * @param id the appointment ID
+     * @return the appointment, if found
+     */
+    @Override
+    @NonNull
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    Optional<Cita> findById(@NonNull Integer id);
+    
+    /**
+     * Finds all appointments with their patient and nutritionist in one statement.
+     * 
+     * @return all appointments
+     */
+    @Override
+    @NonNull
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    List<Cita> findAll();
+    
+    /**
+     * Finds the given appointments with their patient and nutritionist in one statement.
+     * 
+     * @param ids the appointment IDs
+     * @return the appointments found
+     */
+    @Override
+    @NonNull
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    List<Cita> findAllById(@NonNull Iterable<Integer> ids);
+    
+    /**
+     * Finds a page of appointments with their patient and nutritionist; the count
+     * query is derived without the joins.
+     * 
+     * @param pageable pagination information
+     * @return page of appointments
+     */
+    @Override
+    @NonNull
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    Page<Cita> findAll(@NonNull Pageable pageable);
+    
+    /**
+     * Count-free variant of {@link #findAll(Pageable)}, with the patient and nutritionist fetched.
+     * 
+     * @param pageable pagination information
+     * @return slice of appointments without total count
+     */
+    @Override
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c")
+    Slice<Cita> findAllSliced(Pageable pageable);
+    
     /**
      * Finds appointments by patient ID with pagination.
      * Uses EntityGraph to optimize loading of related entities.
@@ -56,8 +134,45 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId ORDER BY c.fechaini DESC")
     Page<Cita> findByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByPacienteId(Integer, Pageable)} for infinite scroll.
+     * 
+     * @param pacienteId the patient ID
+     * @param pageable pagination information
+     * @return slice of patient appointments without total count
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c WHERE c.paciente.id = :pacienteId ORDER BY c.fechaini DESC")
+    Slice<Cita> findSliceByPacienteId(@Param("pacienteId") Integer pacienteId, Pageable pageable);
+    
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)} for infinite scroll.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return slice of nutritionist appointments without total count
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId ORDER BY c.fechaini DESC")
+    Slice<Cita> findSliceByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+    
+    /**
+     * Appointment list rows for a nutritionist, with the patient name resolved in the same statement.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return page of list rows
+     */
+    @Query(value = "SELECT new com.thunderfat.springboot.backend.model.dto.CitaListadoDTO(" +
+                   "c.id, c.fechaini, c.fechafin, p.id, CONCAT(p.nombre, ' ', COALESCE(p.apellidos, '')), c.nutricionista.id) " +
+                   "FROM Cita c LEFT JOIN c.paciente p WHERE c.nutricionista.id = :nutricionistaId",
+           countQuery = "SELECT COUNT(c) FROM Cita c WHERE c.nutricionista.id = :nutricionistaId")
+    Page<CitaListadoDTO> findListadoByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Finds appointments for a nutritionist within a specific date range.
+     * The days are turned into the half-open range [startDate 00:00, endDate + 1 00:00)
+     * so the predicate stays on the bare column and idx_cita_nutricionista_fechaini is used.
      * 
      * @param nutricionistaId the nutritionist ID
      * @param startDate the start date (inclusive)
@@ -67,14 +182,29 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      */
     @Cacheable(value = "citas-by-nutritionist-dates", 
               key = "#nutricionistaId + ':' + #startDate + ':' + #endDate + ':' + #pageable.pageNumber + ':' + #pageable.pageSize")
+    default Page<Cita> findByNutricionistaIdAndDateRange(Integer nutricionistaId, LocalDate startDate,
+                                                         LocalDate endDate, Pageable pageable) {
+        return findByNutricionistaIdAndStartRange(nutricionistaId, startDate.atStartOfDay(),
+                                                  endDate.plusDays(1).atStartOfDay(), pageable);
+    }
+    
+    /**
+     * Finds appointments for a nutritionist starting in {@code [desde, hasta)}.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param desde lower bound for the start (inclusive)
+     * @param hasta upper bound for the start (exclusive)
+     * @param pageable pagination information
+     * @return paginated list of appointments in the range
+     */
     @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
-           "AND DATE(c.fechaini) BETWEEN :startDate AND :endDate " +
+           "AND c.fechaini >= :desde AND c.fechaini < :hasta " +
            "ORDER BY c.fechaini ASC")
-    Page<Cita> findByNutricionistaIdAndDateRange(@Param("nutricionistaId") Integer nutricionistaId,
-                                                 @Param("startDate") LocalDate startDate,
-                                                 @Param("endDate") LocalDate endDate,
-                                                 Pageable pageable);
+    Page<Cita> findByNutricionistaIdAndStartRange(@Param("nutricionistaId") Integer nutricionistaId,
+                                                  @Param("desde") LocalDateTime desde,
+                                                  @Param("hasta") LocalDateTime hasta,
+                                                  Pageable pageable);
     
     /**
      * Finds appointments within a specific date range across all nutritionists.
@@ -84,11 +214,25 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * @param pageable pagination information
      * @return paginated list of appointments in date range
      */
-    @Query("SELECT c FROM Cita c WHERE DATE(c.fechaini) BETWEEN :startDate AND :endDate " +
+    default Page<Cita> findByDateRange(LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        return findByStartRange(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), pageable);
+    }
+    
+    /**
+     * Finds appointments starting in {@code [desde, hasta)} across all nutritionists,
+     * served by idx_cita_fechaini_id.
+     * 
+     * @param desde lower bound for the start (inclusive)
+     * @param hasta upper bound for the start (exclusive)
+     * @param pageable pagination information
+     * @return paginated list of appointments in the range
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c WHERE c.fechaini >= :desde AND c.fechaini < :hasta " +
            "ORDER BY c.fechaini ASC")
-    Page<Cita> findByDateRange(@Param("startDate") LocalDate startDate,
-                              @Param("endDate") LocalDate endDate,
-                              Pageable pageable);
+    Page<Cita> findByStartRange(@Param("desde") LocalDateTime desde,
+                                @Param("hasta") LocalDateTime hasta,
+                                Pageable pageable);
     
     /**
      * Finds the next upcoming appointment for a patient.
@@ -98,23 +242,26 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * @return optional containing the next appointment if found
      */
     @Cacheable(value = "next-appointment", key = "#pacienteId + ':' + #fromDateTime")
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.paciente.id = :pacienteId " +
            "AND c.fechaini >= :fromDateTime " +
-           "ORDER BY c.fechaini ASC")
+           "ORDER BY c.fechaini ASC LIMIT 1")
     Optional<Cita> findNextAppointmentForPatient(@Param("pacienteId") Integer pacienteId,
                                                  @Param("fromDateTime") LocalDateTime fromDateTime);
     
     /**
-     * Finds upcoming appointments for a nutritionist within specified days.
+     * Finds upcoming appointments for a nutritionist within specified days; with a
+     * one-day window this is the nutritionist's agenda for today.
      * 
      * @param nutricionistaId the nutritionist ID
-     * @param fromDateTime the start datetime
-     * @param toDateTime the end datetime
+     * @param fromDateTime the start datetime (inclusive)
+     * @param toDateTime the end datetime (exclusive)
      * @param pageable pagination information
      * @return paginated list of upcoming appointments
      */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
-           "AND c.fechaini BETWEEN :fromDateTime AND :toDateTime " +
+           "AND c.fechaini >= :fromDateTime AND c.fechaini < :toDateTime " +
            "ORDER BY c.fechaini ASC")
     Page<Cita> findUpcomingAppointments(@Param("nutricionistaId") Integer nutricionistaId,
                                        @Param("fromDateTime") LocalDateTime fromDateTime,
@@ -123,19 +270,37 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
     
     /**
      * Finds conflicting appointments for scheduling validation.
+     * Two closed intervals overlap when each starts no later than the other ends.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param startDateTime the proposed start time
+     * @param endDateTime the proposed end time
+     * @return list of conflicting appointments
+     */
+    default List<Cita> findConflictingAppointments(Integer nutricionistaId, LocalDateTime startDateTime,
+                                                   LocalDateTime endDateTime) {
+        return findConflictingAppointmentsInRange(nutricionistaId,
+                startDateTime.minusMinutes(DURACION_MAXIMA_MINUTOS), startDateTime, endDateTime);
+    }
+    
+    /**
+     * Finds appointments starting at or after {@code inicioMinimo} that overlap
+     * the closed interval [startDateTime, endDateTime].
      * 
      * @param nutricionistaId the nutritionist ID
+     * @param inicioMinimo earliest start a clashing appointment can have
      * @param startDateTime the proposed start time
      * @param endDateTime the proposed end time
      * @return list of conflicting appointments
      */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
-           "AND ((c.fechaini BETWEEN :startDateTime AND :endDateTime) " +
-           "OR (c.fechafin BETWEEN :startDateTime AND :endDateTime) " +
-           "OR (c.fechaini <= :startDateTime AND c.fechafin >= :endDateTime))")
-    List<Cita> findConflictingAppointments(@Param("nutricionistaId") Integer nutricionistaId,
-                                          @Param("startDateTime") LocalDateTime startDateTime,
-                                          @Param("endDateTime") LocalDateTime endDateTime);
+           "AND c.fechaini >= :inicioMinimo AND c.fechaini <= :endDateTime " +
+           "AND c.fechafin >= :startDateTime")
+    List<Cita> findConflictingAppointmentsInRange(@Param("nutricionistaId") Integer nutricionistaId,
+                                                  @Param("inicioMinimo") LocalDateTime inicioMinimo,
+                                                  @Param("startDateTime") LocalDateTime startDateTime,
+                                                  @Param("endDateTime") LocalDateTime endDateTime);
     
     /**
      * Finds conflicting appointments excluding a specific appointment (for updates).
@@ -146,16 +311,129 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * @param excludeId the appointment ID to exclude
      * @return list of conflicting appointments
      */
+    default List<Cita> findConflictingAppointmentsExcluding(Integer nutricionistaId, LocalDateTime startDateTime,
+                                                            LocalDateTime endDateTime, Integer excludeId) {
+        return findConflictingAppointmentsInRangeExcluding(nutricionistaId,
+                startDateTime.minusMinutes(DURACION_MAXIMA_MINUTOS), startDateTime, endDateTime, excludeId);
+    }
+    
+    /**
+     * Same as {@link #findConflictingAppointmentsInRange} without the appointment being updated.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param inicioMinimo earliest start a clashing appointment can have
+     * @param startDateTime the proposed start time
+     * @param endDateTime the proposed end time
+     * @param excludeId the appointment ID to exclude
+     * @return list of conflicting appointments
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
            "AND c.id != :excludeId " +
-           "AND ((c.fechaini BETWEEN :startDateTime AND :endDateTime) " +
-           "OR (c.fechafin BETWEEN :startDateTime AND :endDateTime) " +
-           "OR (c.fechaini <= :startDateTime AND c.fechafin >= :endDateTime))")
-    List<Cita> findConflictingAppointmentsExcluding(@Param("nutricionistaId") Integer nutricionistaId,
-                                                    @Param("startDateTime") LocalDateTime startDateTime,
-                                                    @Param("endDateTime") LocalDateTime endDateTime,
-                                                    @Param("excludeId") Integer excludeId);
+           "AND c.fechaini >= :inicioMinimo AND c.fechaini <= :endDateTime " +
+           "AND c.fechafin >= :startDateTime")
+    List<Cita> findConflictingAppointmentsInRangeExcluding(@Param("nutricionistaId") Integer nutricionistaId,
+                                                           @Param("inicioMinimo") LocalDateTime inicioMinimo,
+                                                           @Param("startDateTime") LocalDateTime startDateTime,
+                                                           @Param("endDateTime") LocalDateTime endDateTime,
+                                                           @Param("excludeId") Integer excludeId);
+
+    /**
+     * Loads the time intervals of a nutritionist's appointments that end at or after
+     * a point in time, for the in-memory conflict index.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param desde lower bound for the appointment end time
+     * @return rows of [id, fechaini, fechafin]
+     */
+    default List<Object[]> findIntervalosDesde(Integer nutricionistaId, LocalDateTime desde) {
+        return findIntervalosDesde(nutricionistaId, desde, desde.minusMinutes(DURACION_MAXIMA_MINUTOS));
+    }
     
+    /**
+     * Loads the time intervals of a nutritionist's appointments that start at or after
+     * {@code inicioMinimo} and end at or after {@code desde}.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param desde lower bound for the appointment end time
+     * @param inicioMinimo lower bound for the appointment start time
+     * @return rows of [id, fechaini, fechafin]
+     */
+    @Query("SELECT c.id, c.fechaini, c.fechafin FROM Cita c " +
+           "WHERE c.nutricionista.id = :nutricionistaId " +
+           "AND c.fechaini >= :inicioMinimo AND c.fechafin >= :desde")
+    List<Object[]> findIntervalosDesde(@Param("nutricionistaId") Integer nutricionistaId,
+                                       @Param("desde") LocalDateTime desde,
+                                       @Param("inicioMinimo") LocalDateTime inicioMinimo);
+
+    /**
+     * Loads the time intervals of the appointments of the given nutritionists that
+     * overlap {@code [desde, hasta)}, for the availability search and recurring bookings.
+     *
+     * @param nutricionistaIds the nutritionist IDs
+     * @param desde start of the range (inclusive)
+     * @param hasta end of the range (exclusive)
+     * @return rows of [nutricionistaId, fechaini, fechafin, id, serie] ordered by start
+     */
+    default List<Object[]> findIntervalosEntre(Collection<Integer> nutricionistaIds, LocalDateTime desde,
+                                               LocalDateTime hasta) {
+        return findIntervalosEntre(nutricionistaIds, desde, hasta, desde.minusMinutes(DURACION_MAXIMA_MINUTOS));
+    }
+    
+    /**
+     * Same as {@link #findIntervalosEntre(Collection, LocalDateTime, LocalDateTime)} with an
+     * explicit lower bound on the start.
+     *
+     * @param nutricionistaIds the nutritionist IDs
+     * @param desde start of the range (inclusive)
+     * @param hasta end of the range (exclusive)
+     * @param inicioMinimo earliest start an overlapping appointment can have
+     * @return rows of [nutricionistaId, fechaini, fechafin, id, serie] ordered by start
+     */
+    @Query("SELECT c.nutricionista.id, c.fechaini, c.fechafin, c.id, c.serie FROM Cita c " +
+           "WHERE c.nutricionista.id IN :nutricionistaIds " +
+           "AND c.fechaini >= :inicioMinimo AND c.fechaini < :hasta AND c.fechafin > :desde " +
+           "ORDER BY c.fechaini")
+    List<Object[]> findIntervalosEntre(@Param("nutricionistaIds") Collection<Integer> nutricionistaIds,
+                                       @Param("desde") LocalDateTime desde,
+                                       @Param("hasta") LocalDateTime hasta,
+                                       @Param("inicioMinimo") LocalDateTime inicioMinimo);
+
+    /**
+     * Finds the occurrences of a recurring series in chronological order.
+     *
+     * @param serie the series identifier
+     * @return the series' appointments
+     */
+    @Query("SELECT c FROM Cita c WHERE c.serie = :serie ORDER BY c.fechaini")
+    List<Cita> findBySerie(@Param("serie") String serie);
+
+    /**
+     * Emails of the nutritionist and the patient of each appointment of a series.
+     *
+     * @param serie the series identifier
+     * @return one [nutritionist email, patient email] pair per distinct couple
+     */
+    @RestResource(exported = false)
+    @Query("SELECT DISTINCT n.email, p.email FROM Cita c LEFT JOIN c.nutricionista n LEFT JOIN c.paciente p " +
+           "WHERE c.serie = :serie")
+    List<Object[]> findParticipantesDeSerie(@Param("serie") String serie);
+
+    /**
+     * Locks the occurrences of a series starting at or after a date and returns their
+     * nutritionist. A locking read sees the latest committed rows without fixing the
+     * REPEATABLE READ snapshot, so it can run before {@code lockAgenda}; the plain
+     * reads of the series must come after both locks.
+     *
+     * @param serie the series identifier
+     * @param desde first start time included
+     * @return the nutritionist of each locked occurrence, empty if none is pending
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT id_nutricionista FROM cita WHERE serie = :serie AND fechaini >= :desde ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Integer> lockPendientesDeSerie(@Param("serie") String serie, @Param("desde") LocalDateTime desde);
+
     /**
      * Counts total appointments for a nutritionist.
      * 
@@ -184,18 +462,31 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * @param endDate the end date
      * @return count of appointments in date range
      */
+    default Long countByNutricionistaIdAndDateRange(Integer nutricionistaId, LocalDate startDate, LocalDate endDate) {
+        return countByNutricionistaIdAndStartRange(nutricionistaId, startDate.atStartOfDay(),
+                                                   endDate.plusDays(1).atStartOfDay());
+    }
+    
+    /**
+     * Counts appointments for a nutritionist starting in {@code [desde, hasta)}.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param desde lower bound for the start (inclusive)
+     * @param hasta upper bound for the start (exclusive)
+     * @return count of appointments in the range
+     */
     @Query("SELECT COUNT(c) FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
-           "AND DATE(c.fechaini) BETWEEN :startDate AND :endDate")
-    Long countByNutricionistaIdAndDateRange(@Param("nutricionistaId") Integer nutricionistaId,
-                                           @Param("startDate") LocalDate startDate,
-                                           @Param("endDate") LocalDate endDate);
+           "AND c.fechaini >= :desde AND c.fechaini < :hasta")
+    Long countByNutricionistaIdAndStartRange(@Param("nutricionistaId") Integer nutricionistaId,
+                                             @Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta);
     
     /**
      * Gets appointment statistics by status for a nutritionist.
      * 
      * @param nutricionistaId the nutritionist ID
-     * @param startDate the start date
-     * @param endDate the end date
+     * @param desde lower bound for the start (inclusive)
+     * @param hasta upper bound for the start (exclusive)
      * @return appointment statistics
      */
     @Query("SELECT " +
@@ -203,18 +494,43 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
            "COUNT(CASE WHEN c.fechaini <= CURRENT_TIMESTAMP AND c.fechafin >= CURRENT_TIMESTAMP THEN 1 END) as ongoing, " +
            "COUNT(CASE WHEN c.fechafin < CURRENT_TIMESTAMP THEN 1 END) as completed " +
            "FROM Cita c WHERE c.nutricionista.id = :nutricionistaId " +
-           "AND DATE(c.fechaini) BETWEEN :startDate AND :endDate")
-    Object[] getAppointmentStatistics(@Param("nutricionistaId") Integer nutricionistaId,
-                                     @Param("startDate") LocalDate startDate,
-                                     @Param("endDate") LocalDate endDate);
+           "AND c.fechaini >= :desde AND c.fechaini < :hasta")
+    Object[] getAppointmentStatisticsInRange(@Param("nutricionistaId") Integer nutricionistaId,
+                                             @Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta);
+    
+    /**
+     * Gets appointment statistics by status for a nutritionist over whole days.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return appointment statistics
+     */
+    default Object[] getAppointmentStatistics(Integer nutricionistaId, LocalDate startDate, LocalDate endDate) {
+        return getAppointmentStatisticsInRange(nutricionistaId, startDate.atStartOfDay(),
+                                               endDate.plusDays(1).atStartOfDay());
+    }
+    
+    /**
+     * Gets calendar events optimized for calendar display over whole days.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return list of calendar event data
+     */
+    default List<Object[]> getCalendarEvents(Integer nutricionistaId, LocalDate startDate, LocalDate endDate) {
+        return getCalendarEventsInRange(nutricionistaId, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+    }
     
     /**
      * Gets calendar events optimized for calendar display.
      * Uses native query for performance with date formatting.
      * 
      * @param nutricionistaId the nutritionist ID
-     * @param startDate the start date
-     * @param endDate the end date
+     * @param desde lower bound for the start (inclusive)
+     * @param hasta upper bound for the start (exclusive)
      * @return list of calendar event data
      */
     @Query(value = "SELECT c.id, " +
@@ -225,12 +541,171 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
                    "FROM cita c " +
                    "LEFT JOIN paciente p ON c.id_paciente = p.id " +
                    "WHERE c.id_nutricionista = :nutricionistaId " +
-                   "AND DATE(c.fechaini) BETWEEN :startDate AND :endDate " +
+                   "AND c.fechaini >= :desde AND c.fechaini < :hasta " +
                    "ORDER BY c.fechaini ASC", 
            nativeQuery = true)
-    List<Object[]> getCalendarEvents(@Param("nutricionistaId") Integer nutricionistaId,
-                                    @Param("startDate") LocalDate startDate,
-                                    @Param("endDate") LocalDate endDate);
+    List<Object[]> getCalendarEventsInRange(@Param("nutricionistaId") Integer nutricionistaId,
+                                            @Param("desde") LocalDateTime desde,
+                                            @Param("hasta") LocalDateTime hasta);
+    
+    // =====================================
+    // CALENDAR SYNC
+    // =====================================
+    
+    /**
+     * Nutritionist an appointment currently belongs to.
+     * 
+     * @param id the appointment ID
+     * @return the nutritionist ID, or empty if the appointment does not exist
+     */
+    @Query("SELECT c.nutricionista.id FROM Cita c WHERE c.id = :id")
+    Optional<Integer> findNutricionistaIdById(@Param("id") Integer id);
+
+    /**
+     * Locks an appointment's row and returns its nutritionist. Unlike
+     * {@link #findNutricionistaIdById} this is a locking read, which does not fix the
+     * REPEATABLE READ snapshot, so writers call it before {@code lockAgenda} and the
+     * conflict check still sees every booking committed before the agenda lock.
+     *
+     * @param id the appointment ID
+     * @return the nutritionist ID, or empty if the appointment does not exist
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT id_nutricionista FROM cita WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockNutricionistaIdById(@Param("id") Integer id);
+
+    /**
+     * Locks the appointments of a patient and returns their IDs and nutritionists,
+     * before a patient delete cascades to them.
+     *
+     * @param pacienteId the patient ID
+     * @return pairs of appointment ID and nutritionist ID
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT id, id_nutricionista FROM cita WHERE id_paciente = :pacienteId ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockByPacienteId(@Param("pacienteId") Integer pacienteId);
+    
+    /**
+     * Appointments of a nutritionist created or updated after a sync position, in
+     * version order, up to a committed version. Served by idx_cita_nutricionista_version.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param version agenda version of the last row the client has seen
+     * @param id ID of the last row the client has seen (tie-breaker for rows sharing a version)
+     * @param hasta highest agenda version to return
+     * @param limit maximum number of rows
+     * @return changed appointments with the patient name
+     */
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.CalendarioEventoDTO(" +
+           "c.id, c.fechaini, c.fechafin, p.id, CONCAT(p.nombre, ' ', COALESCE(p.apellidos, '')), c.versionAgenda) " +
+           "FROM Cita c LEFT JOIN c.paciente p WHERE c.nutricionista.id = :nutricionistaId " +
+           "AND (c.versionAgenda > :version OR (c.versionAgenda = :version AND c.id > :id)) " +
+           "AND c.versionAgenda <= :hasta " +
+           "ORDER BY c.versionAgenda, c.id")
+    List<CalendarioEventoDTO> findCambiosAgenda(@Param("nutricionistaId") Integer nutricionistaId,
+                                                @Param("version") long version,
+                                                @Param("id") Integer id,
+                                                @Param("hasta") long hasta,
+                                                Limit limit);
+    
+    /**
+     * Appointments of a nutritionist deleted after a sync version, in version order.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param version agenda version of the last row the client has seen
+     * @param hasta highest agenda version to return
+     * @param limit maximum number of rows
+     * @return rows of [citaId, versionAgenda]
+     */
+    @Query("SELECT b.citaId, b.versionAgenda FROM CitaCancelada b WHERE b.nutricionistaId = :nutricionistaId " +
+           "AND b.versionAgenda > :version AND b.versionAgenda <= :hasta ORDER BY b.versionAgenda")
+    List<Object[]> findCancelacionesAgenda(@Param("nutricionistaId") Integer nutricionistaId,
+                                           @Param("version") long version,
+                                           @Param("hasta") long hasta,
+                                           Limit limit);
+    
+    /**
+     * Records the deletion of an appointment for calendar sync clients.
+     * 
+     * @param citaId ID of the deleted appointment
+     * @param nutricionistaId nutritionist whose agenda lost it
+     * @param version agenda version reserved for the deletion
+     * @return number of rows inserted
+     */
+    @Modifying
+    @RestResource(exported = false)
+    @Query(value = "INSERT INTO cita_cancelada (id_cita, id_nutricionista, version_agenda, fecha) " +
+                   "VALUES (:citaId, :nutricionistaId, :version, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int registrarCancelacion(@Param("citaId") Integer citaId,
+                             @Param("nutricionistaId") Integer nutricionistaId,
+                             @Param("version") long version);
+    
+    // =====================================
+    // REMINDERS
+    // =====================================
+    
+    /**
+     * Appointments with a patient starting in {@code [desde, hasta)}, for the reminder
+     * timing wheel. One range scan of idx_cita_fechaini_id for every nutritionist.
+     * 
+     * @param desde start of the range (inclusive)
+     * @param hasta end of the range (exclusive)
+     * @return reminders with no offset set, ordered by start
+     */
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO(" +
+           "c.id, c.fechaini, c.fechafin, p.id, CONCAT(p.nombre, ' ', COALESCE(p.apellidos, '')), " +
+           "n.id, CONCAT(n.nombre, ' ', COALESCE(n.apellidos, '')), 0L, p.email) " +
+           "FROM Cita c JOIN c.paciente p LEFT JOIN c.nutricionista n " +
+           "WHERE c.fechaini >= :desde AND c.fechaini < :hasta ORDER BY c.fechaini, c.id")
+    List<RecordatorioCitaDTO> findRecordatoriosEntre(@Param("desde") LocalDateTime desde,
+                                                     @Param("hasta") LocalDateTime hasta);
+    
+    /**
+     * Current state of the appointments whose reminders are about to fire, so a
+     * reminder for a cancelled or moved appointment is not sent.
+     * 
+     * @param ids the appointment IDs
+     * @return reminders with no offset set for the appointments that still exist
+     */
+    @Query("SELECT new com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO(" +
+           "c.id, c.fechaini, c.fechafin, p.id, CONCAT(p.nombre, ' ', COALESCE(p.apellidos, '')), " +
+           "n.id, CONCAT(n.nombre, ' ', COALESCE(n.apellidos, '')), 0L, p.email) " +
+           "FROM Cita c JOIN c.paciente p LEFT JOIN c.nutricionista n WHERE c.id IN :ids")
+    List<RecordatorioCitaDTO> findRecordatoriosPorIds(@Param("ids") Collection<Integer> ids);
+    
+    // =====================================
+    // KEYSET (SEEK) PAGINATION
+    // =====================================
+    
+    /**
+     * First page of the keyset listing, newest appointments first.
+     * Ordered by (fechaini, id) so the idx_cita_fechaini_id index serves both sort and seek.
+     * Appointments without a start date are left out: they have no place in a date ordering
+     * and could not be encoded in the cursor, so both pages must agree on excluding them.
+     * 
+     * @param limit page size plus one, used to detect whether a next page exists without a COUNT
+     * @return appointments ordered by start date and id, descending
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c WHERE c.fechaini IS NOT NULL ORDER BY c.fechaini DESC, c.id DESC")
+    List<Cita> findKeysetFirstPage(Limit limit);
+    
+    /**
+     * Next page of the keyset listing, seeking past the last row already returned.
+     * Cost is independent of page depth because no rows are skipped with OFFSET.
+     * Like the first page, appointments without a start date are excluded.
+     * 
+     * @param fechaini start date of the last appointment returned
+     * @param id id of the last appointment returned
+     * @param limit page size plus one
+     * @return appointments strictly after the cursor in (fechaini, id) descending order
+     */
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
+    @Query("SELECT c FROM Cita c WHERE c.fechaini IS NOT NULL AND (c.fechaini, c.id) < (:fechaini, :id) ORDER BY c.fechaini DESC, c.id DESC")
+    List<Cita> findKeysetPageAfter(@Param("fechaini") LocalDateTime fechaini,
+                                   @Param("id") Integer id,
+                                   Limit limit);
     
     // =====================================
     // LEGACY METHODS (Backward Compatibility)
@@ -241,22 +716,26 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * Legacy method for backward compatibility.
      */
     @Deprecated
-    @Query(value = "SELECT * FROM cita WHERE id_nutricionista = ?1 AND fechaini BETWEEN ?2 AND ?3", nativeQuery = true)
-    List<Cita> encontrarCitasNutricionistaFechas(int idNutricionista, LocalDate start, LocalDate end);
+    default List<Cita> encontrarCitasNutricionistaFechas(int idNutricionista, LocalDate start, LocalDate end) {
+        return findByNutricionistaIdAndStartRange(idNutricionista, start.atStartOfDay(),
+                                                  end.plusDays(1).atStartOfDay(), Pageable.unpaged()).getContent();
+    }
     
     /**
      * @deprecated Use {@link #findNextAppointmentForPatient(Integer, LocalDateTime)} instead.
      * Legacy method for backward compatibility.
      */
     @Deprecated
-    @Query(value = "SELECT * FROM cita WHERE id_paciente = ?1 AND fechaini >= ?2 ORDER BY fechaini ASC LIMIT 1", nativeQuery = true)
-    Cita proximacita(int idPaciente, LocalDate fechaDesde);
+    default Cita proximacita(int idPaciente, LocalDate fechaDesde) {
+        return findNextAppointmentForPatient(idPaciente, fechaDesde.atStartOfDay()).orElse(null);
+    }
     
     /**
      * @deprecated Use {@link #findByPacienteId(Integer, Pageable)} instead.
      * Legacy method for backward compatibility.
      */
     @Deprecated
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.paciente.id = ?1")
     List<Cita> buscarPorPaciente(int idPaciente);
     
@@ -265,6 +744,7 @@ public interface CitaRepository extends BaseRepository<Cita, Integer> {
      * Legacy method for backward compatibility.
      */
     @Deprecated
+    @EntityGraph(attributePaths = {"paciente", "nutricionista"})
     @Query("SELECT c FROM Cita c WHERE c.nutricionista.id = ?1")
     List<Cita> buscarPorNutricionista(int idNutricionista);
 }
@@ -4,13 +4,16 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO;
 import com.thunderfat.springboot.backend.model.entity.Comida;
 
 /**
@@ -46,6 +49,45 @@ public interface ComidaRepository extends JpaRepository<Comida, Integer> {
            "WHERE n.id = :nutricionistaId ORDER BY d.fecha DESC, c.hora", nativeQuery = true)
     Page<Comida> findByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free listing of all meals for infinite scroll
+     */
+    @Query("SELECT c FROM Comida c")
+    Slice<Comida> findAllSliced(Pageable pageable);
+    
+    /**
+     * Count-free variant of {@link #findByPlanDietaId(Integer, Pageable)}
+     */
+    @Query(value = "SELECT c.* FROM comidas c " +
+           "JOIN diadieta d ON c.comidas_id = d.id " +
+           "WHERE d.id_plandieta = :planDietaId ORDER BY c.hora", nativeQuery = true)
+    Slice<Comida> findSliceByPlanDietaId(@Param("planDietaId") Integer planDietaId, Pageable pageable);
+    
+    /**
+     * Meal list rows of a diet plan, ordered by day and time. Dishes are counted, not loaded.
+     * 
+     * @param planDietaId the diet plan ID
+     * @param pageable pagination information
+     * @return page of list rows
+     */
+    @Query(value = "SELECT new com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO(" +
+                   "c.id, d.fecha, c.hora, c.valoracion, SIZE(c.platos)) " +
+                   "FROM PlanDieta pd JOIN pd.dias d JOIN d.comidas c WHERE pd.id = :planDietaId ORDER BY d.fecha, c.hora",
+           countQuery = "SELECT COUNT(c) FROM PlanDieta pd JOIN pd.dias d JOIN d.comidas c WHERE pd.id = :planDietaId")
+    Page<ComidaListadoDTO> findListadoByPlanDietaId(@Param("planDietaId") Integer planDietaId, Pageable pageable);
+    
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)}.
+     * Avoids re-running the four-way join just to count rows.
+     */
+    @Query(value = "SELECT c.* FROM comidas c " +
+           "JOIN diadieta d ON c.comidas_id = d.id " +
+           "JOIN plan_dieta pd ON d.id_plandieta = pd.id " +
+           "JOIN paciente p ON pd.id_paciente = p.id " +
+           "JOIN nutricionista n ON p.id_nutricionista = n.id " +
+           "WHERE n.id = :nutricionistaId ORDER BY d.fecha DESC, c.hora", nativeQuery = true)
+    Slice<Comida> findSliceByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Find today's meals for a patient
      */
@@ -161,6 +203,22 @@ public interface ComidaRepository extends JpaRepository<Comida, Integer> {
                                                @Param("fechaFin") LocalDate fechaFin,
                                                Pageable pageable);
     
+    // ================================
+    // KEYSET (SEEK) PAGINATION
+    // ================================
+    
+    /**
+     * First page of the keyset listing, most recently created meals first.
+     */
+    @Query("SELECT c FROM Comida c ORDER BY c.id DESC")
+    List<Comida> findKeysetFirstPage(Limit limit);
+    
+    /**
+     * Next page of the keyset listing, seeking past the last meal already returned.
+     */
+    @Query("SELECT c FROM Comida c WHERE c.id < :id ORDER BY c.id DESC")
+    List<Comida> findKeysetPageAfter(@Param("id") Integer id, Limit limit);
+    
     // ================================
     // LEGACY SUPPORT (DEPRECATED)
     // ================================
@@ -3,8 +3,14 @@
  */
 package com.thunderfat.springboot.backend.model.dao;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,15 +23,126 @@ import com.thunderfat.springboot.backend.model.entity.Mensaje;
 @Repository
 public interface MensajeRepository extends BaseRepository<Mensaje, Integer> {
 
+    /**
+     * JPQL condition of a message {@code m} of chat {@code c} its recipient has not read:
+     * newer than the recipient's watermark.
+     */
+    String NO_LEIDO = "m.id_mensaje > CASE WHEN m.emisor.id = c.paciente.id " +
+                      "THEN COALESCE(c.leidoHastaNutricionista, 0) ELSE COALESCE(c.leidoHastaPaciente, 0) END";
+
     /**
      * Find all mensajes for the given chat id ordered by timestamp asc.
      */
-    @Query("SELECT m FROM Mensaje m WHERE m.chat.id_chat = :idChat ORDER BY m.timestamp ASC")
+    @Query("SELECT m FROM Mensaje m WHERE m.chat.id_chat = :idChat ORDER BY m.timestamp ASC, m.secuencia ASC")
     List<Mensaje> findByChatId(@Param("idChat") int idChat);
 
+    /**
+     * Count unread mensajes sent to a chat by the given sender.
+     */
+    @Query("SELECT COUNT(m) FROM Mensaje m JOIN m.chat c WHERE c.id_chat = :idChat AND m.emisor.id = :idEmisor AND " + NO_LEIDO)
+    long countNoLeidosByChatIdAndEmisorId(@Param("idChat") int idChat, @Param("idEmisor") int idEmisor);
+
     /**
      * Delete mensajes belonging to a chat.
      */
+    @Modifying
     @Query("DELETE FROM Mensaje m WHERE m.chat.id_chat = :idChat")
     void deleteByChatId(@Param("idChat") int idChat);
+
+    /**
+     * Highest message sequence of each of the given chats; chats without sequenced messages are absent.
+     */
+    @Query("SELECT m.chat.id_chat, MAX(m.secuencia) FROM Mensaje m " +
+           "WHERE m.chat.id_chat IN :ids AND m.secuencia IS NOT NULL GROUP BY m.chat.id_chat")
+    List<Object[]> findUltimasSecuencias(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Content of the message stored with the given sequence in a chat, if any.
+     */
+    @Query("SELECT m.contenido FROM Mensaje m WHERE m.chat.id_chat = :chatId AND m.secuencia = :secuencia")
+    Optional<String> findContenidoBySecuencia(@Param("chatId") int chatId, @Param("secuencia") long secuencia);
+
+    /**
+     * Unread messages of every chat grouped by sender, with the participants of the chat:
+     * chat id, patient id, nutritionist id, sender id and count.
+     */
+    @Query("SELECT c.id_chat, p.id, n.id, m.emisor.id, COUNT(m) FROM Mensaje m JOIN m.chat c " +
+           "LEFT JOIN c.paciente p LEFT JOIN c.nutricionista n " +
+           "WHERE " + NO_LEIDO + " GROUP BY c.id_chat, p.id, n.id, m.emisor.id")
+    List<Object[]> findNoLeidosPorChatYEmisor();
+
+    /**
+     * Unread messages of one chat grouped by sender: sender id and count.
+     */
+    @Query("SELECT m.emisor.id, COUNT(m) FROM Mensaje m JOIN m.chat c " +
+           "WHERE c.id_chat = :chatId AND " + NO_LEIDO + " GROUP BY m.emisor.id")
+    List<Object[]> findNoLeidosPorEmisor(@Param("chatId") int chatId);
+
+    /**
+     * Id of the newest message of a chat, 0 if it has none.
+     */
+    @Query("SELECT COALESCE(MAX(m.id_mensaje), 0) FROM Mensaje m WHERE m.chat.id_chat = :idChat")
+    int findUltimoId(@Param("idChat") int idChat);
+
+    /**
+     * Messages of a chat sent by anyone but the reader with an id in (desde, hasta]:
+     * those a read receipt moving the reader's watermark from desde to hasta marks as read.
+     */
+    @Query("SELECT COUNT(m) FROM Mensaje m WHERE m.chat.id_chat = :idChat AND m.emisor.id <> :idLector " +
+           "AND m.id_mensaje > :desde AND m.id_mensaje <= :hasta")
+    long countRecibidosEntre(@Param("idChat") int idChat, @Param("idLector") int idLector,
+                             @Param("desde") int desde, @Param("hasta") int hasta);
+
+    // ================================
+    // HISTORY (KEYSET PAGINATION)
+    // ================================
+
+    /**
+     * Newest messages of a chat, newest first.
+     * Ordered by (timestamp, id) so the idx_mensaje_chat_timestamp_id index serves both sort and seek.
+     *
+     * @param limit page size plus one, used to detect whether an older page exists
+     */
+    @EntityGraph(attributePaths = {"chat"})
+    @Query("SELECT m FROM Mensaje m WHERE m.chat.id_chat = :idChat ORDER BY m.timestamp DESC, m.id_mensaje DESC")
+    List<Mensaje> findHistorialReciente(@Param("idChat") int idChat, Limit limit);
+
+    /**
+     * Messages of a chat older than the given one, newest first.
+     *
+     * @param timestamp timestamp of the oldest message the client already has
+     * @param id id of that message
+     * @param limit page size plus one
+     */
+    @EntityGraph(attributePaths = {"chat"})
+    @Query("SELECT m FROM Mensaje m WHERE m.chat.id_chat = :idChat " +
+           "AND (m.timestamp, m.id_mensaje) < (:timestamp, :id) ORDER BY m.timestamp DESC, m.id_mensaje DESC")
+    List<Mensaje> findHistorialAnterior(@Param("idChat") int idChat,
+                                        @Param("timestamp") LocalDateTime timestamp,
+                                        @Param("id") int id,
+                                        Limit limit);
+
+    /**
+     * Timestamp of a message, if it belongs to the given chat.
+     */
+    @Query("SELECT m.timestamp FROM Mensaje m WHERE m.id_mensaje = :id AND m.chat.id_chat = :idChat")
+    Optional<LocalDateTime> findTimestampEnChat(@Param("idChat") int idChat, @Param("id") int id);
+
+    // ================================
+    // FULL-TEXT INDEX
+    // ================================
+
+    /**
+     * Messages with an id above the given one, in id order, for the search index:
+     * id, chat id, sender id, timestamp and content.
+     */
+    @Query("SELECT m.id_mensaje, m.chat.id_chat, e.id, m.timestamp, m.contenido FROM Mensaje m " +
+           "LEFT JOIN m.emisor e WHERE m.id_mensaje > :desde ORDER BY m.id_mensaje ASC")
+    List<Object[]> findParaIndexar(@Param("desde") int desde, Limit limit);
+
+    /**
+     * The given message ids that are still stored.
+     */
+    @Query("SELECT m.id_mensaje FROM Mensaje m WHERE m.id_mensaje IN :ids")
+    List<Integer> findIdsExistentes(@Param("ids") Collection<Integer> ids);
 }
@@ -7,6 +7,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RestResource;
@@ -214,6 +215,69 @@ public interface NutricionistaRepository extends BaseRepository<Nutricionista, I
     @Query("SELECT n FROM Nutricionista n WHERE SIZE(n.pacientes) < :maxCapacity AND n.enabled = true")
     Page<Nutricionista> findAvailableNutricionistas(@Param("maxCapacity") int maxCapacity, Pageable pageable);
     
+    /**
+     * IDs of all enabled nutritionists, for clinic-wide availability searches.
+     * 
+     * @return IDs of enabled nutritionists
+     */
+    @Query("SELECT n.id FROM Nutricionista n WHERE n.enabled = true ORDER BY n.id")
+    List<Integer> findIdsActivos();
+
+    // ================================
+    // SCHEDULE LOCKING
+    // ================================
+
+    /**
+     * Locks a nutritionist's row until the current transaction ends, so bookings for
+     * the same nutritionist run their conflict check and insert one at a time while
+     * bookings for other nutritionists proceed in parallel. Must run inside a write
+     * transaction, before the conflict check reads any appointment.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @return the locked ID, or empty if the nutritionist does not exist
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT id FROM nutricionista WHERE id = :nutricionistaId FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockAgenda(@Param("nutricionistaId") Integer nutricionistaId);
+
+    /**
+     * Current agenda version of a nutritionist. Read outside the agenda lock it is the
+     * last committed value, so every appointment and tombstone up to it is visible.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @return the agenda version, or empty if the nutritionist does not exist
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT version_agenda FROM nutricionista WHERE id = :nutricionistaId", nativeQuery = true)
+    Optional<Long> findVersionAgenda(@Param("nutricionistaId") Integer nutricionistaId);
+
+    /**
+     * Advances a nutritionist's agenda version.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param cuantas number of versions to reserve
+     * @return number of rows updated
+     */
+    @Modifying
+    @RestResource(exported = false)
+    @Query(value = "UPDATE nutricionista SET version_agenda = version_agenda + :cuantas WHERE id = :nutricionistaId",
+           nativeQuery = true)
+    int incrementarVersionAgenda(@Param("nutricionistaId") Integer nutricionistaId, @Param("cuantas") int cuantas);
+
+    /**
+     * Reserves consecutive agenda versions for appointments written in the current
+     * transaction. Callers hold {@link #lockAgenda}, so versions of one nutritionist
+     * commit in increasing order and a sync client never skips a lower one.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param cuantas number of versions to reserve
+     * @return the first reserved version
+     */
+    default long reservarVersionesAgenda(Integer nutricionistaId, int cuantas) {
+        incrementarVersionAgenda(nutricionistaId, cuantas);
+        return findVersionAgenda(nutricionistaId).orElse((long) cuantas) - cuantas + 1;
+    }
+
     // ================================
     // SPRING DATA JPA METHOD NAMING CONVENTIONS
     // ================================
@@ -5,8 +5,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -14,6 +16,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 
+import com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO;
 import com.thunderfat.springboot.backend.model.entity.Paciente;
 
 /**
@@ -44,6 +47,31 @@ public interface PacienteRepository extends BaseRepository<Paciente, Integer> {
     @RestResource(path = "byNutricionistaIdPaged", rel = "byNutricionistaIdPaged")
     Page<Paciente> findByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)} for infinite scroll.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return slice of patients without total count
+     */
+    @Query("SELECT p FROM Paciente p WHERE p.nutricionista.id = :nutricionistaId")
+    @RestResource(exported = false)
+    Slice<Paciente> findSliceByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+    
+    /**
+     * Patient list rows for a nutritionist, selecting only the listed columns.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return page of list rows
+     */
+    @Query(value = "SELECT new com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO(" +
+                   "p.id, p.nombre, p.apellidos, p.dni, p.email, p.telefono, p.fechanacimiento, p.localidad, p.enabled) " +
+                   "FROM Paciente p WHERE p.nutricionista.id = :nutricionistaId",
+           countQuery = "SELECT COUNT(p) FROM Paciente p WHERE p.nutricionista.id = :nutricionistaId")
+    @RestResource(exported = false)
+    Page<PacienteListadoDTO> findListadoByNutricionistaId(@Param("nutricionistaId") Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Finds patients by nutritionist ID (non-paginated for backward compatibility).
      * Consider migrating to paginated version.
@@ -203,6 +231,25 @@ public interface PacienteRepository extends BaseRepository<Paciente, Integer> {
         @Param("newNutricionistaId") Integer newNutricionistaId
     );
     
+    /**
+     * First page of the keyset listing, most recently registered patients first.
+     * 
+     * @param limit page size plus one, used to detect a next page without a COUNT
+     * @return patients ordered by id descending
+     */
+    @Query("SELECT p FROM Paciente p ORDER BY p.id DESC")
+    List<Paciente> findKeysetFirstPage(Limit limit);
+    
+    /**
+     * Next page of the keyset listing, seeking past the last patient already returned.
+     * 
+     * @param id id of the last patient returned
+     * @param limit page size plus one
+     * @return patients with a lower id, ordered by id descending
+     */
+    @Query("SELECT p FROM Paciente p WHERE p.id < :id ORDER BY p.id DESC")
+    List<Paciente> findKeysetPageAfter(@Param("id") Integer id, Limit limit);
+    
     /**
      * Spring Data JPA method naming convention examples.
      * These methods are automatically implemented by Spring Data.
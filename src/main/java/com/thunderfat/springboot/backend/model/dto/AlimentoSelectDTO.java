@@ -0,0 +1,23 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Option of the food select/dropdown components.
+ * Built by a JPQL constructor expression that reads four of the ~30 columns of alimento.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlimentoSelectDTO {
+
+    private Integer id;
+    private String nombre;
+    private String estado;
+    private Double cal;
+}
@@ -18,6 +18,7 @@ public class AntecedentesClinicosDTO {
     private String observacion;
     private String descripcion;   
     private String condicion;
+    private Integer categorias;
     private int idPaciente;
 
 }
@@ -0,0 +1,32 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Appointment as seen by a calendar client: times, patient and the agenda version
+ * of its last change. Built by a JPQL constructor expression in one statement.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarioEventoDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer id;
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+    private Integer pacienteId;
+    private String pacienteNombre;
+    private long version;
+}
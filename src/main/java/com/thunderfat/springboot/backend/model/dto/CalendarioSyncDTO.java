@@ -0,0 +1,43 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a nutritionist's calendar changes since a sync token.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Calendar changes since the last sync token")
+public class CalendarioSyncDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "Token to send on the next call; opaque to clients")
+    private String token;
+
+    @Schema(description = "True while reading the full snapshot started without a token: once hayMas is false, the events received replace the client's copy")
+    private boolean completo;
+
+    @Schema(description = "True when more changes are pending; call again with the new token")
+    private boolean hayMas;
+
+    @Schema(description = "Appointments created or updated since the token")
+    private List<CalendarioEventoDTO> eventos;
+
+    @Schema(description = "IDs of appointments cancelled since the token")
+    private List<Integer> cancelados;
+}
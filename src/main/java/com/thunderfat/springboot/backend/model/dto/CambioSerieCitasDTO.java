@@ -0,0 +1,46 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService.PoliticaConflictos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change applied to the pending occurrences of a recurring series.
+ * Fields left null keep the current value of each occurrence.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Change to the pending occurrences of a recurring series")
+public class CambioSerieCitasDTO {
+
+    @Schema(description = "First day changed; defaults to today", example = "2030-02-01")
+    private LocalDate desde;
+
+    @JsonFormat(pattern = "HH:mm")
+    @Schema(description = "New start time of day", example = "17:30")
+    private LocalTime nuevaHora;
+
+    @Min(value = 15, message = "La duración mínima de una cita es de 15 minutos")
+    @Max(value = 240, message = "La duración máxima de una cita es de 4 horas")
+    @Schema(description = "New length in minutes", example = "60")
+    private Integer duracionMinutos;
+
+    @Builder.Default
+    @Schema(description = "What to do with occurrences whose new time clashes", example = "DESPLAZAR")
+    private PoliticaConflictos politica = PoliticaConflictos.RECHAZAR;
+}
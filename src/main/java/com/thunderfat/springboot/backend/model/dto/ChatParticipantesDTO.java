@@ -0,0 +1,84 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The two participants of a chat, as STOMP users (emails) and user ids, and how far
+ * each has read it. Built by a JPQL constructor expression.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatParticipantesDTO {
+
+    private Integer chatId;
+    private Integer pacienteId;
+    private String pacienteEmail;
+    private Integer nutricionistaId;
+    private String nutricionistaEmail;
+
+    /** Id of the newest message read by the patient; only set by read-state queries */
+    private Integer leidoHastaPaciente;
+
+    /** Id of the newest message read by the nutritionist; only set by read-state queries */
+    private Integer leidoHastaNutricionista;
+
+    public ChatParticipantesDTO(Integer chatId, Integer pacienteId, String pacienteEmail,
+                                Integer nutricionistaId, String nutricionistaEmail) {
+        this(chatId, pacienteId, pacienteEmail, nutricionistaId, nutricionistaEmail, null, null);
+    }
+
+    /**
+     * @param email STOMP user name of the sender
+     * @return user id of the participant with that email, or null if the sender is not in the chat
+     */
+    public Integer participante(String email) {
+        if (email == null) {
+            return null;
+        }
+        if (email.equalsIgnoreCase(pacienteEmail)) {
+            return pacienteId;
+        }
+        if (email.equalsIgnoreCase(nutricionistaEmail)) {
+            return nutricionistaId;
+        }
+        return null;
+    }
+
+    /**
+     * @param usuarioId user id of a participant
+     * @return id of the newest message that participant has read, 0 if none
+     */
+    public int leidoHasta(Integer usuarioId) {
+        if (usuarioId != null && usuarioId.equals(pacienteId)) {
+            return leidoHastaPaciente != null ? leidoHastaPaciente : 0;
+        }
+        if (usuarioId != null && usuarioId.equals(nutricionistaId)) {
+            return leidoHastaNutricionista != null ? leidoHastaNutricionista : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * @param mensajeId id of a message of the chat
+     * @param emisorId user id of its sender
+     * @return whether the other participant has read the message
+     */
+    public boolean leido(int mensajeId, Integer emisorId) {
+        if (emisorId == null) {
+            return false;
+        }
+        if (emisorId.equals(pacienteId)) {
+            return mensajeId <= leidoHasta(nutricionistaId);
+        }
+        if (emisorId.equals(nutricionistaId)) {
+            return mensajeId <= leidoHasta(pacienteId);
+        }
+        return false;
+    }
+}
@@ -77,6 +77,13 @@ public class CitaDTO {
     @Positive(message = "El ID del nutricionista debe ser positivo")
     private Integer nutricionistaId;
     
+    /**
+     * Recurring series this appointment belongs to.
+     * Null for one-off appointments.
+     */
+    @Size(max = 36, message = "El identificador de serie no puede exceder 36 caracteres")
+    private String serie;
+    
     // =====================================
     // COMPUTED FIELDS FOR API CONVENIENCE
     // =====================================
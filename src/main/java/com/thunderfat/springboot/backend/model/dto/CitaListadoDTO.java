@@ -0,0 +1,28 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the appointment list screen.
+ * Built by a JPQL constructor expression that selects only these columns plus the
+ * patient's name, in the same statement as the appointments.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitaListadoDTO {
+
+    private Integer id;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private Integer pacienteId;
+    private String pacienteNombre;
+    private Integer nutricionistaId;
+}
@@ -0,0 +1,28 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the meal list of a diet plan.
+ * Built by a JPQL constructor expression; dishes are counted in the query
+ * instead of being loaded and mapped.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComidaListadoDTO {
+
+    private Integer id;
+    private LocalDate fecha;
+    private LocalTime hora;
+    private Integer valoracion;
+    private Integer numeroPlatos;
+}
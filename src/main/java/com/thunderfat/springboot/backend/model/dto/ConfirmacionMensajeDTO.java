@@ -0,0 +1,32 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Delivery status of a chat message, sent to the sender's {@code /user/queue/confirmations}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfirmacionMensajeDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String DELIVERED = "DELIVERED";
+    public static final String REJECTED = "REJECTED";
+
+    /** Id the client gave the message */
+    private String messageId;
+
+    /** DELIVERED or REJECTED */
+    private String status;
+}
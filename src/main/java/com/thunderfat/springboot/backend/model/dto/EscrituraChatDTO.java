@@ -0,0 +1,30 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Typing indicator of a chat participant, broadcast to {@code /topic/chat/{chatId}/typing}.
+ * Keeps the property names of the inbound {@code TypingIndicator}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EscrituraChatDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String user;
+    private String chatId;
+    private boolean typing;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,29 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A free slot in a nutritionist's agenda that an appointment of the requested
+ * duration can be booked into.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HuecoDisponibleDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer nutricionistaId;
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+}
@@ -0,0 +1,65 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Report of a bulk patient import.
+ * Rows that fail validation or duplicate an existing DNI or email are skipped
+ * and listed in {@code errores} with their row number; the rest are imported.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Bulk patient import report")
+public class ImportacionPacientesDTO {
+
+    /**
+     * A rejected row and the reason it was rejected.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Rejected import row")
+    public static class ErrorFila {
+
+        @Schema(description = "Row number in the file (first data row is 1)", example = "12")
+        private long fila;
+
+        @Schema(description = "Why the row was rejected", example = "dni: El DNI debe tener el formato correcto (8 dígitos + letra)")
+        private String mensaje;
+    }
+
+    @Schema(description = "Data rows read from the file", example = "350")
+    private long filasLeidas;
+
+    @Schema(description = "Patients inserted", example = "342")
+    private long importados;
+
+    @Schema(description = "Rows skipped because the DNI or email already exists", example = "5")
+    private long duplicados;
+
+    @Schema(description = "Rows skipped because they failed validation", example = "3")
+    private long invalidos;
+
+    @Schema(description = "Rejected rows, capped at the configured maximum")
+    private List<ErrorFila> errores;
+
+    @Schema(description = "Whether more rows were rejected than are listed in errores")
+    private boolean erroresTruncados;
+
+    @Schema(description = "Wall-clock time spent on the import in milliseconds", example = "850")
+    private long tiempoMs;
+}
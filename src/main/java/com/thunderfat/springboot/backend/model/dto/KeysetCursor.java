@@ -0,0 +1,88 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque cursor for keyset (seek) pagination.
+ * Encodes the sort key and id of the last row of a page, so the next page is
+ * resolved with {@code WHERE (sortKey, id) < (?, ?)} instead of an OFFSET.
+ * The wire format is Base64URL of {@code "sortKey|id"}; clients must treat it as opaque.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Getter
+@AllArgsConstructor
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /** Upper bound for keyset page sizes requested by clients */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** Sort key of the last row returned, empty when the listing is ordered by id only */
+    private final String sortKey;
+
+    /** Id of the last row returned (tie-breaker) */
+    private final Integer id;
+
+    public static KeysetCursor of(LocalDateTime sortKey, Integer id) {
+        return new KeysetCursor(sortKey != null ? sortKey.toString() : "", id);
+    }
+
+    public static KeysetCursor of(Integer id) {
+        return new KeysetCursor("", id);
+    }
+
+    /**
+     * Decodes a cursor received from a client. A null or blank value means "first page".
+     *
+     * @throws BusinessValidationException if the cursor has been tampered with or is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            if (sep < 0) {
+                throw new BusinessValidationException("Cursor de paginación no válido");
+            }
+            return new KeysetCursor(raw.substring(0, sep), Integer.valueOf(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessValidationException("Cursor de paginación no válido", e);
+        }
+    }
+
+    /**
+     * Clamps a client-supplied page size to [1, MAX_PAGE_SIZE].
+     */
+    public static int tamanoPagina(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public String encode() {
+        String raw = sortKey + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sort key interpreted as a timestamp, for listings ordered by date.
+     */
+    public LocalDateTime getSortKeyAsDateTime() {
+        try {
+            return LocalDateTime.parse(sortKey);
+        } catch (DateTimeParseException e) {
+            throw new BusinessValidationException("Cursor de paginación no válido", e);
+        }
+    }
+}
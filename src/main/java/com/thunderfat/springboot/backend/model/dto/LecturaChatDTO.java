@@ -0,0 +1,34 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read receipt of a chat participant: every message of the chat up to {@code hasta}
+ * counts as read by it. Received on {@code /app/chat/{chatId}/read}, where only
+ * {@code hasta} is read, and broadcast to {@code /topic/chat/{chatId}/read}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LecturaChatDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String user;
+    private String chatId;
+
+    /** Id of the newest message read; absent in a receipt for the whole chat */
+    private Integer hasta;
+
+    private LocalDateTime timestamp;
+}
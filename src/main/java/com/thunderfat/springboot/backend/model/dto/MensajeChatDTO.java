@@ -0,0 +1,42 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live chat message as broadcast to {@code /topic/chat/{chatId}} once it is stored.
+ * Keeps the property names of the inbound {@code ChatMessage} so existing clients
+ * read it unchanged, and adds the stored id and the position within the chat.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MensajeChatDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Id the client gave the message, echoed back so it can match its own messages */
+    private String id;
+    private String content;
+    private String sender;
+    private String chatId;
+    private LocalDateTime timestamp;
+    private String messageType;
+
+    /** Id of the stored {@code Mensaje} */
+    private Integer mensajeId;
+
+    /** Position within the chat: 1, 2, 3... in the order the server received the messages */
+    private Long secuencia;
+}
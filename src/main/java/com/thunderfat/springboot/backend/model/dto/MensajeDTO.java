@@ -12,6 +12,8 @@ public class MensajeDTO {
     private UsuarioDTO emisor;
     private ChatDTO chat;
     private boolean leido;
+    /** Position within the chat; null for messages stored before live messages were persisted */
+    private Long secuencia;
 
     // Otros atributos relevantes
 }
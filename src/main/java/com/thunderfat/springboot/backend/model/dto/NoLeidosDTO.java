@@ -0,0 +1,32 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unread messages of one user in one chat, and in all of that user's chats.
+ * Sent to the user's {@code /user/queue/unread} whenever either count changes.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoLeidosDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer chatId;
+
+    /** Messages of the other participant of the chat the user has not read */
+    private long noLeidos;
+
+    /** Unread messages across every chat of the user */
+    private long total;
+}
@@ -0,0 +1,83 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Composite view of everything the UI shows when a patient is opened.
+ * Sections are loaded independently; a section that failed or timed out is
+ * left null and listed in {@code seccionesNoDisponibles} with the reason.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Patient dashboard aggregate")
+public class PacienteDashboardDTO {
+
+    /**
+     * Dashboard sections, each loaded concurrently in its own read-only transaction.
+     */
+    public enum Seccion {
+        PLAN_ACTIVO,
+        PROXIMA_CITA,
+        MEDICION_GENERAL,
+        MEDICION_SEGMENTAL,
+        CHAT,
+        ANTECEDENTES
+    }
+
+    /**
+     * Why a section is missing from the response.
+     */
+    public enum MotivoFallo {
+        TIMEOUT,
+        ACCESO_DENEGADO,
+        ERROR
+    }
+
+    @Schema(description = "Patient ID", example = "1")
+    private Integer pacienteId;
+
+    @Schema(description = "Diet plan active today")
+    private PlanDietaDTO planActivo;
+
+    @Schema(description = "Next appointment from now on")
+    private CitaDTO proximaCita;
+
+    @Schema(description = "Latest general measurement")
+    private MedicionGeneralDTO ultimaMedicionGeneral;
+
+    @Schema(description = "Latest segmental measurement")
+    private MedicionSegmentalDTO ultimaMedicionSegmental;
+
+    @Schema(description = "Chat between the patient and the nutritionist")
+    private ChatDTO chat;
+
+    @Schema(description = "Messages sent by the patient not yet read by the nutritionist", example = "3")
+    private Long mensajesSinLeer;
+
+    @Schema(description = "Clinical history")
+    private List<AntecedentesClinicosDTO> antecedentesClinicos;
+
+    @Schema(description = "Sections that could not be loaded, with the reason")
+    private Map<Seccion, MotivoFallo> seccionesNoDisponibles;
+
+    @Schema(description = "Whether every section was loaded")
+    private boolean completo;
+
+    @Schema(description = "Wall-clock time spent building the dashboard in milliseconds", example = "85")
+    private long tiempoMs;
+}
@@ -0,0 +1,31 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the patient list screen.
+ * Built by a JPQL constructor expression that selects only these columns, so no
+ * entity is hydrated and no lazy collection is touched.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteListadoDTO {
+
+    private Integer id;
+    private String nombre;
+    private String apellidos;
+    private String dni;
+    private String email;
+    private String telefono;
+    private LocalDate fechanacimiento;
+    private String localidad;
+    private Boolean enabled;
+}
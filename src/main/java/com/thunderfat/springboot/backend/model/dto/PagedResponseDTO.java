@@ -1,6 +1,7 @@
 package com.thunderfat.springboot.backend.model.dto;
 
 import java.util.List;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -26,17 +27,17 @@ public class PagedResponseDTO<T> {
     @Schema(description = "List of items for current page")
     private List<T> items;
     
-    @Schema(description = "Current page number (0-based)", example = "0")
-    private int page;
+    @Schema(description = "Current page number (0-based); absent in keyset mode", example = "0")
+    private Integer page;
     
     @Schema(description = "Number of items per page", example = "20")
     private int size;
     
-    @Schema(description = "Total number of items across all pages", example = "150")
-    private long total;
+    @Schema(description = "Total number of items across all pages; absent in slice and keyset modes", example = "150")
+    private Long total;
     
-    @Schema(description = "Total number of pages", example = "8")
-    private int totalPages;
+    @Schema(description = "Total number of pages; absent in slice and keyset modes", example = "8")
+    private Integer totalPages;
     
     @Schema(description = "Whether this is the first page")
     private boolean first;
@@ -50,6 +51,9 @@ public class PagedResponseDTO<T> {
     @Schema(description = "Whether there is a previous page")
     private boolean hasPrevious;
     
+    @Schema(description = "Opaque cursor to request the next page in keyset mode; absent on the last page")
+    private String nextCursor;
+    
     /**
      * Factory method to create paginated response from Spring Data Page
      */
@@ -67,6 +71,22 @@ public class PagedResponseDTO<T> {
             .build();
     }
     
+    /**
+     * Factory method to create a count-free response from a Spring Data Slice.
+     * Only hasNext is known, so total and totalPages are left out of the response.
+     */
+    public static <T> PagedResponseDTO<T> of(org.springframework.data.domain.Slice<T> slice) {
+        return PagedResponseDTO.<T>builder()
+            .items(slice.getContent())
+            .page(slice.getNumber())
+            .size(slice.getSize())
+            .first(slice.isFirst())
+            .last(slice.isLast())
+            .hasNext(slice.hasNext())
+            .hasPrevious(slice.hasPrevious())
+            .build();
+    }
+    
     /**
      * Factory method for non-paginated lists (converts to single page)
      */
@@ -75,7 +95,7 @@ public class PagedResponseDTO<T> {
             .items(items)
             .page(0)
             .size(items.size())
-            .total(items.size())
+            .total((long) items.size())
             .totalPages(1)
             .first(true)
             .last(true)
@@ -84,6 +104,41 @@ public class PagedResponseDTO<T> {
             .build();
     }
     
+    /**
+     * Factory method for keyset (seek) pagination. No COUNT is executed in this mode,
+     * so page, total and totalPages are left out of the response.
+     *
+     * @param items rows of the current page
+     * @param size requested page size
+     * @param first whether the request carried no cursor
+     * @param nextCursor cursor for the next page, or null when this is the last page
+     */
+    public static <T> PagedResponseDTO<T> ofKeyset(List<T> items, int size, boolean first, String nextCursor) {
+        return PagedResponseDTO.<T>builder()
+            .items(items)
+            .size(size)
+            .first(first)
+            .last(nextCursor == null)
+            .hasNext(nextCursor != null)
+            .hasPrevious(!first)
+            .nextCursor(nextCursor)
+            .build();
+    }
+    
+    /**
+     * Builds a keyset page from a query that fetched {@code size + 1} rows.
+     * The extra row only signals that a next page exists; it is dropped, and the
+     * cursor is taken from the last row actually returned.
+     */
+    public static <E, T> PagedResponseDTO<T> ofKeyset(List<E> rows, int size, boolean first,
+                                                       Function<E, T> mapper,
+                                                       Function<E, KeysetCursor> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(pageRows.get(size - 1)).encode() : null;
+        return ofKeyset(pageRows.stream().map(mapper).toList(), size, first, nextCursor);
+    }
+    
     /**
      * Legacy compatibility method - maps old field names to new contract
      * @deprecated Use the new factory methods instead
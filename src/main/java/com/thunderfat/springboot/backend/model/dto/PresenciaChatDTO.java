@@ -0,0 +1,35 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Presence change of a chat participant, broadcast to {@code /topic/chat/{chatId}/presence}.
+ * Keeps the property names of the former {@code PresenceNotification}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenciaChatDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String JOINED = "JOINED";
+    public static final String LEFT = "LEFT";
+
+    private String user;
+
+    /** JOINED or LEFT */
+    private String status;
+    private LocalDateTime timestamp;
+    private String chatId;
+}
@@ -0,0 +1,44 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reminder of an upcoming appointment, pushed to the patient's {@code /user/queue/recordatorios}
+ * and handed to every reminder notifier. Built by a JPQL constructor expression.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordatorioCitaDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer citaId;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private Integer pacienteId;
+    private String pacienteNombre;
+    private Integer nutricionistaId;
+    private String nutricionistaNombre;
+
+    /** How long before the appointment this reminder is due, in minutes */
+    private long antelacionMinutos;
+
+    /** STOMP user the reminder is addressed to; not part of the pushed payload */
+    @JsonIgnore
+    private String pacienteEmail;
+}
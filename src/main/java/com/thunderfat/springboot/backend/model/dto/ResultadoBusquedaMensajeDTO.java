@@ -0,0 +1,35 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A chat message matching a search, with the matched terms highlighted.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoBusquedaMensajeDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer idMensaje;
+    private Integer chatId;
+    private Integer emisorId;
+    private LocalDateTime timestamp;
+
+    /** Best passages of the message, matched terms wrapped in {@code <mark>}, other text HTML-escaped */
+    private String fragmento;
+
+    /** Relevance of the message to the query; higher is better */
+    private float relevancia;
+}
@@ -0,0 +1,107 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Report of booking or changing a recurring series.
+ * Lists every occurrence with its outcome, so the client can show which dates
+ * clashed and where shifted ones ended up.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Recurring appointment series report")
+public class ResultadoSerieCitasDTO {
+
+    /**
+     * Outcome of one occurrence.
+     */
+    public enum Estado {
+        /** Booked (or changed) at the requested time */
+        CREADA,
+        /** Booked at the nearest free slot of the same day */
+        DESPLAZADA,
+        /** Left out (or left unchanged) because it clashed */
+        OMITIDA,
+        /** Clashed and the request was rejected */
+        CONFLICTO
+    }
+
+    /**
+     * One occurrence of the series.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Occurrence of a recurring series")
+    public static class Ocurrencia {
+
+        @Schema(description = "Position in the series (first is 1)", example = "3")
+        private int indice;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        @Schema(description = "Start requested by the rule", example = "2030-01-21 10:00:00")
+        private LocalDateTime inicioSolicitado;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        @Schema(description = "Start booked; absent when the occurrence was not booked", example = "2030-01-21 12:00:00")
+        private LocalDateTime inicio;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        @Schema(description = "End booked", example = "2030-01-21 12:45:00")
+        private LocalDateTime fin;
+
+        @Schema(description = "Appointment ID", example = "481")
+        private Integer citaId;
+
+        @Schema(description = "Outcome", example = "DESPLAZADA")
+        private Estado estado;
+
+        @Schema(description = "IDs of the appointments the requested time clashed with")
+        private List<Integer> conflictoCon;
+    }
+
+    @Schema(description = "Series identifier", example = "5f0c2a6e-8a8b-4d0e-9a53-0d7f6f4b8a11")
+    private String serie;
+
+    @Schema(description = "Whether anything was written; false when the request was rejected")
+    private boolean creada;
+
+    @Schema(description = "Occurrences expanded from the rule", example = "10")
+    private int solicitadas;
+
+    @Schema(description = "Occurrences booked at the requested time", example = "8")
+    private int creadas;
+
+    @Schema(description = "Occurrences shifted to another slot", example = "1")
+    private int desplazadas;
+
+    @Schema(description = "Occurrences left out", example = "1")
+    private int omitidas;
+
+    @Schema(description = "Occurrences that clashed with an existing appointment", example = "2")
+    private int conflictos;
+
+    @Schema(description = "Every occurrence in chronological order")
+    private List<Ocurrencia> ocurrencias;
+
+    @Schema(description = "Wall-clock time spent in milliseconds", example = "35")
+    private long tiempoMs;
+}
@@ -0,0 +1,78 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService.Frecuencia;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService.PoliticaConflictos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request to book a recurring series of appointments.
+ * The series ends after {@code ocurrencias} appointments or on {@code hastaFecha},
+ * whichever comes first; at least one of them is required.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Recurring appointment series request")
+public class SerieCitasDTO {
+
+    @NotNull(message = "El ID del paciente es obligatorio")
+    @Positive(message = "El ID del paciente debe ser positivo")
+    @Schema(description = "Patient ID", example = "12")
+    private Integer pacienteId;
+
+    @NotNull(message = "El ID del nutricionista es obligatorio")
+    @Positive(message = "El ID del nutricionista debe ser positivo")
+    @Schema(description = "Nutritionist ID", example = "3")
+    private Integer nutricionistaId;
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    @Future(message = "La fecha de inicio debe ser futura")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Schema(description = "Start of the first occurrence", example = "2030-01-07 10:00:00")
+    private LocalDateTime fechaInicio;
+
+    @NotNull(message = "La duración es obligatoria")
+    @Min(value = 15, message = "La duración mínima de una cita es de 15 minutos")
+    @Max(value = 240, message = "La duración máxima de una cita es de 4 horas")
+    @Schema(description = "Length of every occurrence in minutes", example = "45")
+    private Integer duracionMinutos;
+
+    @NotNull(message = "La frecuencia es obligatoria")
+    @Schema(description = "Repetition unit", example = "SEMANAL")
+    private Frecuencia frecuencia;
+
+    @Builder.Default
+    @Min(value = 1, message = "El intervalo debe ser al menos 1")
+    @Max(value = 12, message = "El intervalo no puede superar 12")
+    @Schema(description = "Units between occurrences (2 with SEMANAL is every other week)", example = "1")
+    private Integer intervalo = 1;
+
+    @Positive(message = "El número de ocurrencias debe ser positivo")
+    @Schema(description = "Number of occurrences", example = "10")
+    private Integer ocurrencias;
+
+    @Schema(description = "Last day an occurrence may fall on (inclusive)", example = "2030-03-31")
+    private LocalDate hastaFecha;
+
+    @Builder.Default
+    @Schema(description = "What to do with clashing occurrences", example = "OMITIR")
+    private PoliticaConflictos politica = PoliticaConflictos.RECHAZAR;
+}
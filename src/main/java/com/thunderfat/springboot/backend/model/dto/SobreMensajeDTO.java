@@ -0,0 +1,47 @@
+package com.thunderfat.springboot.backend.model.dto;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compact envelope of a stored chat message, sent to the {@code /user/queue/inbox} of
+ * both participants so a user sees every chat from one subscription. Carries a preview
+ * instead of the whole content; the client loads the message from the chat history or
+ * its topic when the chat is opened.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SobreMensajeDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Integer chatId;
+
+    /** Id of the stored {@code Mensaje} */
+    private Integer mensajeId;
+
+    /** Position of the message within its chat, starting at 1 */
+    private Long secuencia;
+
+    /** STOMP user name of the sender */
+    private String emisor;
+
+    private LocalDateTime timestamp;
+
+    private String tipo;
+
+    /** Start of the content, cut at {@code longitud-resumen-bandeja} characters */
+    private String resumen;
+}
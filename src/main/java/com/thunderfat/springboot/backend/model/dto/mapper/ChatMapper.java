@@ -28,6 +28,8 @@ public interface ChatMapper {
     @Mapping(target = "paciente", ignore = true) // Will be set separately in service
     @Mapping(target = "nutricionista", ignore = true) // Will be set separately in service
     @Mapping(target = "mensajes", ignore = true) // Messages are handled separately
+    @Mapping(target = "leidoHastaPaciente", ignore = true) // Read watermarks only move through ContadorNoLeidos
+    @Mapping(target = "leidoHastaNutricionista", ignore = true)
     Chat toEntity(ChatDTO chatDTO);
 
     List<ChatDTO> toDtoList(List<Chat> chats);
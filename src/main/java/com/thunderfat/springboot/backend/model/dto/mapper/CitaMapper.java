@@ -33,6 +33,7 @@ public interface CitaMapper {
     @Mapping(source = "fechaFin", target = "fechafin")
     @Mapping(source = "pacienteId", target = "paciente", qualifiedByName = "mapPacienteId")
     @Mapping(source = "nutricionistaId", target = "nutricionista", qualifiedByName = "mapNutricionistaId")
+    @Mapping(target = "versionAgenda", ignore = true) // Reserved by the service under the agenda lock
     Cita toEntity(CitaDTO citaDTO);
 
     
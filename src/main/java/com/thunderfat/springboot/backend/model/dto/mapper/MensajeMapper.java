@@ -28,6 +28,8 @@ public interface MensajeMapper {
     @Mapping(target = "chat.paciente", ignore = true) // Set manually based on chat.pacienteId
     @Mapping(target = "chat.nutricionista", ignore = true) // Set manually based on chat.nutricionistaId
     @Mapping(target = "chat.mensajes", ignore = true) // Complex collection mapping
+    @Mapping(target = "chat.leidoHastaPaciente", ignore = true) // Read watermarks only move through ContadorNoLeidos
+    @Mapping(target = "chat.leidoHastaNutricionista", ignore = true)
     @Mapping(target = "emisor", ignore = true)
     Mensaje toEntity(MensajeDTO mensajeDTO);
     
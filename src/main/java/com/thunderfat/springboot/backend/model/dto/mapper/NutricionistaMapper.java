@@ -29,6 +29,7 @@ public interface NutricionistaMapper {
     @Mapping(target = "citas", ignore = true)
     @Mapping(target = "roles", ignore = true)
     @Mapping(target = "authorities", ignore = true)
+    @Mapping(target = "versionAgenda", ignore = true) // Solo lo incrementa el servicio de agenda
    @Mapping(source = "numeroColegiadoProfesional", target = "numeroColegiadoProfesional")
     Nutricionista toEntity(NutricionistaDTO nutricionistaDTO);
 
@@ -36,6 +36,19 @@ public interface PacienteMapper {
     @Mapping(target = "psw", ignore = true) // Nunca mapear la contraseña al DTO de salida
     PacienteDTO toDto(Paciente paciente);
 
+    // Solo columnas propias: no inicializa colecciones lazy (índice de búsqueda, listados)
+    @Named("toResumenDto")
+    @Mapping(source = "nutricionista.id", target = "nutricionistaId")
+    @Mapping(target = "citasIds", ignore = true)
+    @Mapping(target = "medicionesEspecificasIds", ignore = true)
+    @Mapping(target = "medicionesGeneralesIds", ignore = true)
+    @Mapping(target = "medicionesSegmentalesIds", ignore = true)
+    @Mapping(target = "antecedentesClinicosIds", ignore = true)
+    @Mapping(target = "antecedentesTratamientosIds", ignore = true)
+    @Mapping(target = "planesDietaIds", ignore = true)
+    @Mapping(target = "psw", ignore = true)
+    PacienteDTO toResumenDto(Paciente paciente);
+
     @Mapping(source = "nutricionistaId", target = "nutricionista", qualifiedByName = "mapNutricionistaId")
     @Mapping(target = "citas", ignore = true)
     @Mapping(target = "medicionesespecificas", ignore = true)
@@ -2,11 +2,22 @@ package com.thunderfat.springboot.backend.model.entity;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.text.Normalizer;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
 
@@ -21,7 +32,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "antecedentesclinicos")
+@Table(name = "antecedentesclinicos", indexes = {
+    @Index(name = "idx_antecedente_paciente_categorias", columnList = "paciente_id, categorias")
+})
 @Data
 @NoArgsConstructor
 public class AntecedentesClinicos implements Serializable {
@@ -41,6 +54,12 @@ public class AntecedentesClinicos implements Serializable {
 	private String descripcion;
 	private String condicion;
 	
+	/**
+	 * Máscara de bits con las categorías clínicas detectadas en {@link #condicion}.
+	 * Se calcula al escribir; {@code null} indica una fila aún no clasificada.
+	 */
+	@Column(name = "categorias")
+	private Integer categorias;
 	
 	@ManyToOne(fetch = FetchType.LAZY, optional = false)
 	@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
@@ -54,4 +73,98 @@ public class AntecedentesClinicos implements Serializable {
 		this.descripcion = descripcion;
 		this.condicion = condicion;
 	}
+
+	@PrePersist
+	@PreUpdate
+	protected void clasificarCondicion() {
+		this.categorias = CategoriaClinica.clasificar(this.condicion);
+	}
+
+	/**
+	 * Categorías clínicas relevantes para la planificación nutricional.
+	 * Cada categoría ocupa un bit de la columna {@code categorias} y se detecta
+	 * mediante un diccionario de raíces sin tildes sobre el texto normalizado.
+	 */
+	public enum CategoriaClinica {
+		ALERGIA(1, "alergia", "intolerancia", "celiac", "lactosa"),
+		CARDIOVASCULAR(1 << 1, "cardio", "hipertens", "corazon", "presion"),
+		DIABETES(1 << 2, "diabetes", "glucos", "insulin", "azucar"),
+		GASTROINTESTINAL(1 << 3, "gastro", "intestin", "digestiv", "estomago");
+
+		private final int bit;
+		private final String[] raices;
+
+		CategoriaClinica(int bit, String... raices) {
+			this.bit = bit;
+			this.raices = raices;
+		}
+
+		public int getBit() {
+			return bit;
+		}
+
+		/**
+		 * Calcula la máscara de categorías de un texto libre.
+		 *
+		 * @param texto texto de la condición (puede ser {@code null})
+		 * @return máscara de bits, {@code 0} si no coincide ninguna categoría
+		 */
+		public static int clasificar(String texto) {
+			String normalizado = normalizar(texto);
+			if (normalizado.isEmpty()) {
+				return 0;
+			}
+			int mascara = 0;
+			for (CategoriaClinica categoria : values()) {
+				for (String raiz : categoria.raices) {
+					if (normalizado.contains(raiz)) {
+						mascara |= categoria.bit;
+						break;
+					}
+				}
+			}
+			return mascara;
+		}
+
+		/**
+		 * Devuelve las categorías presentes en una máscara.
+		 */
+		public static Set<CategoriaClinica> desdeMascara(Integer mascara) {
+			EnumSet<CategoriaClinica> categorias = EnumSet.noneOf(CategoriaClinica.class);
+			if (mascara != null) {
+				for (CategoriaClinica categoria : values()) {
+					if ((mascara & categoria.bit) != 0) {
+						categorias.add(categoria);
+					}
+				}
+			}
+			return categorias;
+		}
+
+		/**
+		 * Todas las máscaras posibles que contienen esta categoría, para consultar
+		 * con {@code IN} sobre el índice en lugar de usar operadores de bits.
+		 */
+		public List<Integer> mascarasQueContienen() {
+			int todas = (1 << values().length) - 1;
+			List<Integer> mascaras = new ArrayList<>();
+			for (int mascara = 1; mascara <= todas; mascara++) {
+				if ((mascara & bit) != 0) {
+					mascaras.add(mascara);
+				}
+			}
+			return mascaras;
+		}
+
+		/**
+		 * Pasa a minúsculas y elimina tildes y diacríticos.
+		 */
+		public static String normalizar(String texto) {
+			if (texto == null || texto.isBlank()) {
+				return "";
+			}
+			String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+			return descompuesto.replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+		}
+	}
 }
@@ -9,6 +9,7 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.Id;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -16,6 +17,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -49,11 +51,37 @@ public class Chat implements Serializable {
 	 * 
 	 */
 	private LocalDateTime fechahora;
+	/**
+	 * Id of the newest message the patient has read; every message of the chat up to
+	 * it counts as read by the patient. 0 until the first read receipt; null only on chats
+	 * stored before there were watermarks, until ContadorNoLeidos seeds them.
+	 */
+	@Column(name = "leido_hasta_paciente")
+	private Integer leidoHastaPaciente;
+	/**
+	 * Id of the newest message the nutritionist has read, as for the patient.
+	 */
+	@Column(name = "leido_hasta_nutricionista")
+	private Integer leidoHastaNutricionista;
 	@OneToMany(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_chat")
 	@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 	private List<Mensaje> mensajes;
 
+	/**
+	 * New chats start with both watermarks at 0, so a null watermark always means
+	 * "not seeded yet" and the startup seeding has nothing left to do after one run.
+	 */
+	@PrePersist
+	protected void iniciarLeidoHasta() {
+		if (leidoHastaPaciente == null) {
+			leidoHastaPaciente = 0;
+		}
+		if (leidoHastaNutricionista == null) {
+			leidoHastaNutricionista = 0;
+		}
+	}
+
 	public void addMensaje(Mensaje mensaje) {
 		if (this.mensajes == null) {
 			this.mensajes = new ArrayList<Mensaje>();
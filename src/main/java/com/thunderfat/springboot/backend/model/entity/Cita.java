@@ -2,27 +2,42 @@ package com.thunderfat.springboot.backend.model.entity;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Id;
 
+import org.hibernate.annotations.Check;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.thunderfat.springboot.backend.exception.BusinessException;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity 
-@Table(name="cita")
+@Table(name="cita", indexes = {
+    @Index(name = "idx_cita_fechaini_id", columnList = "fechaini, id"),
+    @Index(name = "idx_cita_nutricionista_fechaini", columnList = "id_nutricionista, fechaini"),
+    @Index(name = "idx_cita_nutricionista_version", columnList = "id_nutricionista, version_agenda, id"),
+    @Index(name = "idx_cita_paciente_fechaini", columnList = "id_paciente, fechaini"),
+    @Index(name = "idx_cita_serie", columnList = "serie, fechaini")
+})
+@Check(name = "ck_cita_duracion_maxima", constraints = "fechaini IS NULL OR fechafin IS NULL OR "
+        + "TIMESTAMPDIFF(MINUTE, fechaini, fechafin) <= " + Cita.DURACION_MAXIMA_MINUTOS)
 @Data
 @NoArgsConstructor
 public class Cita implements Serializable {
@@ -30,6 +45,13 @@ public class Cita implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Longest appointment that can be stored (4 hours). Checked by {@link #comprobarDuracion()}
+     * on every JPA write and by the ck_cita_duracion_maxima constraint for plain SQL writes,
+     * because the overlap queries of CitaRepository rely on it as a lower bound on fechaini.
+     */
+    public static final long DURACION_MAXIMA_MINUTOS = 240;
+    
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private int id;
@@ -49,4 +71,25 @@ public class Cita implements Serializable {
 	@JoinColumn(name="id_nutricionista")	
 	@JsonIgnoreProperties({"hibernateLazyInitializer","handler","citas","pacientes"})
 	private Nutricionista nutricionista;
+	
+	/** Identifier shared by the occurrences of a recurring series; null for one-off appointments */
+	@Column(length = 36)
+	private String serie;
+	
+	/**
+	 * Agenda version of the last create or update, taken from the nutritionist's
+	 * counter under the agenda lock; calendar sync clients ask for rows above the
+	 * version they last saw. Rows written before the column existed have 0.
+	 */
+	@Column(name = "version_agenda", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+	private long versionAgenda;
+
+	@PrePersist
+	@PreUpdate
+	protected void comprobarDuracion() {
+		if (fechaini != null && fechafin != null
+				&& Duration.between(fechaini, fechafin).toMinutes() > DURACION_MAXIMA_MINUTOS) {
+			throw new BusinessException("La duración máxima de una cita es de 4 horas");
+		}
+	}
 }
\ No newline at end of file
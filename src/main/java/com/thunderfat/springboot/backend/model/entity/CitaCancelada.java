@@ -0,0 +1,50 @@
+package com.thunderfat.springboot.backend.model.entity;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tombstone of a deleted appointment, so calendar sync clients learn about the
+ * cancellation. Written in the same transaction as the delete, with a version from
+ * the same per-nutritionist counter as {@link Cita#getVersionAgenda()}.
+ */
+@Entity
+@Table(name = "cita_cancelada", indexes = {
+    @Index(name = "idx_cita_cancelada_nutricionista_version", columnList = "id_nutricionista, version_agenda")
+})
+@Data
+@NoArgsConstructor
+public class CitaCancelada implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /** ID the appointment had; the row itself is gone */
+    @Column(name = "id_cita", nullable = false)
+    private Integer citaId;
+
+    /** Nutritionist whose agenda lost the appointment */
+    @Column(name = "id_nutricionista", nullable = false)
+    private Integer nutricionistaId;
+
+    @Column(name = "version_agenda", nullable = false)
+    private long versionAgenda;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+}
@@ -14,9 +14,11 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.FetchType;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -28,7 +30,9 @@ import lombok.NoArgsConstructor;
  * 
  */
 @Entity
-@Table(name = "mensaje")
+@Table(name = "mensaje",
+	uniqueConstraints = @UniqueConstraint(name = "uk_mensaje_chat_secuencia", columnNames = {"id_chat", "secuencia"}),
+	indexes = @Index(name = "idx_mensaje_chat_timestamp_id", columnList = "id_chat, timestamp, id_mensaje"))
 @Data
 @NoArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -51,6 +55,11 @@ public class Mensaje implements Serializable {
 	@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 	private Usuario emisor;
 
+	/**
+	 * Per-message read flag of messages stored before read receipts moved to the
+	 * chat's watermarks ({@link Chat#getLeidoHastaPaciente()}); no longer written, only
+	 * read once to seed the watermarks.
+	 */
 	@Column(name = "leido")
 	private boolean leido;
 
@@ -59,4 +68,11 @@ public class Mensaje implements Serializable {
 	@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 	private Chat chat;
 
+	/**
+	 * Position of the message within its chat, 1, 2, 3... in the order the server
+	 * received it. Null for messages stored before live messages were persisted.
+	 */
+	@Column(name = "secuencia")
+	private Long secuencia;
+
 }
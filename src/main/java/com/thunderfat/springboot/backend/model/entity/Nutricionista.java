@@ -8,6 +8,7 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.OneToMany;
@@ -38,6 +39,15 @@ public class Nutricionista extends Usuario {
     */
    private String numeroColegiadoProfesional;
 
+   /**
+    * Last agenda version handed out to this nutritionist's appointments. Only bumped
+    * through {@code NutricionistaRepository.reservarVersionesAgenda}, never written by
+    * Hibernate, so saving a stale entity cannot move it backwards.
+    */
+   @Column(name = "version_agenda", nullable = false, insertable = false, updatable = false,
+           columnDefinition = "BIGINT DEFAULT 0")
+   private long versionAgenda;
+
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "nutricionista", orphanRemoval = true)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "nutricionista"})
     private List<Paciente> pacientes = new ArrayList<>();
@@ -0,0 +1,52 @@
+package com.thunderfat.springboot.backend.model.entity;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Claim on a reminder, inserted just before it is sent. The unique key makes the
+ * insert fail for a reminder already sent, by this node before a restart or by another
+ * node, so each reminder goes out at most once. The appointment start is part of the
+ * key: moving an appointment makes its reminders due again.
+ */
+@Entity
+@Table(name = "recordatorio_cita",
+    uniqueConstraints = @UniqueConstraint(name = "uk_recordatorio_cita",
+        columnNames = {"id_cita", "antelacion_minutos", "fechaini"}),
+    indexes = @Index(name = "idx_recordatorio_cita_fechaini", columnList = "fechaini"))
+@Data
+@NoArgsConstructor
+public class RecordatorioEnviado implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "id_cita", nullable = false)
+    private Integer citaId;
+
+    @Column(name = "antelacion_minutos", nullable = false)
+    private long antelacionMinutos;
+
+    /** Appointment start the reminder was sent for */
+    @Column(nullable = false)
+    private LocalDateTime fechaini;
+
+    @Column(nullable = false)
+    private LocalDateTime enviado;
+}
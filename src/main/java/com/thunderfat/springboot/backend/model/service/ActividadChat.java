@@ -0,0 +1,287 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.EscrituraChatDTO;
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
+import com.thunderfat.springboot.backend.model.dto.PresenciaChatDTO;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typing indicators, presence and read receipts of chat participants, coalesced on the server.
+ *
+ * Inbound frames only record what each participant is doing. Every
+ * {@code ventana-actividad} a single thread compares that with what was last broadcast
+ * and sends the differences to {@code /topic/chat/{chatId}/typing} and
+ * {@code /presence}, so a participant causes at most one typing and one presence frame
+ * per window however many frames it sends, and none while nothing changes.
+ *
+ * Typing stops by itself after {@code expiracion-escritura} without a typing frame.
+ * Presence is kept by heartbeats: a participant is present from its first heartbeat
+ * (or any other frame for the chat) until {@code expiracion-presencia} passes without
+ * one. Both deadlines are kept in {@link TimingWheel}s with one tick per window.
+ *
+ * Read receipts, once stored, are broadcast to {@code /topic/chat/{chatId}/read} the
+ * same way: only the furthest one of each participant in a window is sent.
+ *
+ * The registry belongs to the node the participant's connection is on; the broadcasts
+ * reach the other nodes through the broker fan-out like any other topic message.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+public class ActividadChat {
+
+    private static final String TOPIC_CHAT = "/topic/chat/";
+    private static final int SLOTS = 64;
+    private static final int NIVELES = 3;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long ventanaNanos;
+    private final long ticksEscritura;
+    private final long ticksPresencia;
+
+    // Guarded by this
+    private final Map<Clave, Estado> estados = new HashMap<>();
+    private final Set<Clave> cambiados = new LinkedHashSet<>();
+    private final Map<Integer, Set<String>> presentesPorChat = new HashMap<>();
+    private final Map<Clave, Integer> lecturas = new LinkedHashMap<>();
+    private final TimingWheel<Clave, Clave> finEscritura;
+    private final TimingWheel<Clave, Clave> finPresencia;
+    private long tick;
+
+    private ScheduledExecutorService ejecutor;
+
+    public ActividadChat(SimpMessagingTemplate messagingTemplate, ThunderFatProperties properties) {
+        ThunderFatProperties.Websocket config = properties.getWebsocket();
+        this.messagingTemplate = messagingTemplate;
+        this.ventanaNanos = config.getVentanaActividad().toNanos();
+        if (ventanaNanos <= 0) {
+            throw new IllegalStateException("thunderfat.websocket.ventana-actividad must be positive");
+        }
+        this.ticksEscritura = ticks(config.getExpiracionEscritura().toNanos());
+        this.ticksPresencia = ticks(config.getExpiracionPresencia().toNanos());
+        this.finEscritura = new TimingWheel<>(SLOTS, NIVELES, 0);
+        this.finPresencia = new TimingWheel<>(SLOTS, NIVELES, 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        long origen = System.nanoTime();
+        ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "actividad-chat");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long ventanaMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(ventanaNanos));
+        ejecutor.scheduleAtFixedRate(() -> {
+            try {
+                avanzar((System.nanoTime() - origen) / ventanaNanos);
+            } catch (RuntimeException e) {
+                log.error("Chat activity tick failed", e);
+            }
+        }, ventanaMs, ventanaMs, TimeUnit.MILLISECONDS);
+        log.info("Chat typing and presence coalesced every {} ms", ventanaMs);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    // ================================
+    // INBOUND FRAMES
+    // ================================
+
+    /**
+     * Heartbeat of a participant: keeps it present for another {@code expiracion-presencia}.
+     */
+    public synchronized void latido(int chatId, String usuario) {
+        Clave clave = new Clave(chatId, usuario);
+        Estado estado = estados.computeIfAbsent(clave, c -> new Estado());
+        estado.presente = true;
+        finPresencia.programar(clave, tick + ticksPresencia, clave);
+        cambiados.add(clave);
+    }
+
+    /**
+     * Typing frame of a participant; also counts as a heartbeat.
+     */
+    public synchronized void escribiendo(int chatId, String usuario, boolean escribiendo) {
+        latido(chatId, usuario);
+        Clave clave = new Clave(chatId, usuario);
+        estados.get(clave).escribiendo = escribiendo;
+        if (escribiendo) {
+            finEscritura.programar(clave, tick + ticksEscritura, clave);
+        } else {
+            finEscritura.cancelar(clave);
+        }
+    }
+
+    /**
+     * The participant left the chat without waiting for its presence to expire.
+     */
+    public synchronized void salir(int chatId, String usuario) {
+        Clave clave = new Clave(chatId, usuario);
+        Estado estado = estados.get(clave);
+        if (estado == null) {
+            return;
+        }
+        estado.presente = false;
+        estado.escribiendo = false;
+        finPresencia.cancelar(clave);
+        finEscritura.cancelar(clave);
+        cambiados.add(clave);
+    }
+
+    /**
+     * Read receipt of a participant, already stored; broadcast with the next window.
+     *
+     * @param hasta id of the newest message the participant has read
+     */
+    public synchronized void leido(int chatId, String usuario, int hasta) {
+        lecturas.merge(new Clave(chatId, usuario), hasta, Math::max);
+    }
+
+    /**
+     * Participants of the chat currently shown as present, for a client that has just
+     * subscribed to its presence topic.
+     */
+    public synchronized List<PresenciaChatDTO> presentes(int chatId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<PresenciaChatDTO> presentes = new ArrayList<>();
+        for (String usuario : presentesPorChat.getOrDefault(chatId, Set.of())) {
+            presentes.add(new PresenciaChatDTO(usuario, PresenciaChatDTO.JOINED, ahora, String.valueOf(chatId)));
+        }
+        return presentes;
+    }
+
+    // ================================
+    // BROADCAST
+    // ================================
+
+    /**
+     * Expires the deadlines up to the given tick and broadcasts what changed since the
+     * previous one.
+     *
+     * @param hasta windows elapsed since the start
+     * @return number of frames sent
+     */
+    int avanzar(long hasta) {
+        List<Salida> salidas = new ArrayList<>();
+        synchronized (this) {
+            tick = Math.max(tick, hasta);
+            for (Clave clave : finEscritura.avanzar(tick)) {
+                estados.get(clave).escribiendo = false;
+                cambiados.add(clave);
+            }
+            for (Clave clave : finPresencia.avanzar(tick)) {
+                Estado estado = estados.get(clave);
+                estado.presente = false;
+                estado.escribiendo = false;
+                finEscritura.cancelar(clave);
+                cambiados.add(clave);
+            }
+            LocalDateTime ahora = LocalDateTime.now();
+            for (Clave clave : cambiados) {
+                Estado estado = estados.get(clave);
+                if (estado == null) {
+                    continue;
+                }
+                anunciar(clave, estado, ahora, salidas);
+                if (!estado.presente && !estado.escribiendo) {
+                    estados.remove(clave);
+                }
+            }
+            cambiados.clear();
+            lecturas.forEach((clave, leidoHasta) -> {
+                String chatId = String.valueOf(clave.chatId());
+                salidas.add(new Salida(TOPIC_CHAT + chatId + "/read",
+                        new LecturaChatDTO(clave.usuario(), chatId, leidoHasta, ahora)));
+            });
+            lecturas.clear();
+        }
+
+        int enviadas = 0;
+        for (Salida salida : salidas) {
+            try {
+                messagingTemplate.convertAndSend(salida.destino(), salida.carga());
+                enviadas++;
+            } catch (RuntimeException e) {
+                log.warn("Could not broadcast chat activity to {}: {}", salida.destino(), e.getMessage());
+            }
+        }
+        return enviadas;
+    }
+
+    /**
+     * Queues the frames for what changed; a participant arriving is announced before it
+     * types, one leaving stops typing before it is gone.
+     */
+    private void anunciar(Clave clave, Estado estado, LocalDateTime ahora, List<Salida> salidas) {
+        String chatId = String.valueOf(clave.chatId());
+        boolean llega = estado.presente && !estado.presenteAnunciado;
+        boolean sale = !estado.presente && estado.presenteAnunciado;
+        if (llega) {
+            presentesPorChat.computeIfAbsent(clave.chatId(), id -> new HashSet<>()).add(clave.usuario());
+            salidas.add(new Salida(TOPIC_CHAT + chatId + "/presence",
+                    new PresenciaChatDTO(clave.usuario(), PresenciaChatDTO.JOINED, ahora, chatId)));
+        }
+        if (estado.escribiendo != estado.escribiendoAnunciado) {
+            salidas.add(new Salida(TOPIC_CHAT + chatId + "/typing",
+                    new EscrituraChatDTO(clave.usuario(), chatId, estado.escribiendo, ahora)));
+        }
+        if (sale) {
+            Set<String> presentes = presentesPorChat.get(clave.chatId());
+            presentes.remove(clave.usuario());
+            if (presentes.isEmpty()) {
+                presentesPorChat.remove(clave.chatId());
+            }
+            salidas.add(new Salida(TOPIC_CHAT + chatId + "/presence",
+                    new PresenciaChatDTO(clave.usuario(), PresenciaChatDTO.LEFT, ahora, chatId)));
+        }
+        estado.presenteAnunciado = estado.presente;
+        estado.escribiendoAnunciado = estado.escribiendo;
+    }
+
+    private long ticks(long nanos) {
+        return Math.max(1, (nanos + ventanaNanos - 1) / ventanaNanos);
+    }
+
+    private record Clave(int chatId, String usuario) {
+    }
+
+    private record Salida(String destino, Object carga) {
+    }
+
+    /** What the participant is doing and what was last broadcast about it */
+    private static final class Estado {
+        boolean presente;
+        boolean escribiendo;
+        boolean presenteAnunciado;
+        boolean escribiendoAnunciado;
+    }
+}
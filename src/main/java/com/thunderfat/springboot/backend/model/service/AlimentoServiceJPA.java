@@ -14,6 +14,7 @@ import com.thunderfat.springboot.backend.exception.BusinessException;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dao.AlimentoRepository;
 import com.thunderfat.springboot.backend.model.dto.AlimentoDTO;
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.AlimentoMapper;
 import com.thunderfat.springboot.backend.model.entity.Alimento;
 
@@ -218,11 +219,10 @@ public class AlimentoServiceJPA implements IAlimentoService {
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = "alimentos-select")
-    public List<AlimentoDTO> listarParaSelect() {
+    public List<AlimentoSelectDTO> listarParaSelect() {
         log.debug("Listando alimentos para select (sin paginación)");
         
-        List<Alimento> alimentos = alimentoRepository.findAll();
-        return alimentoMapper.toDtoList(alimentos);
+        return alimentoRepository.findAllForSelect();
     }
     
     // ====================== BUSINESS VALIDATION METHODS ======================
@@ -0,0 +1,35 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.Map;
+
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+
+/**
+ * Storage of the unread message counters kept by {@link ContadorNoLeidos}: per user and
+ * chat, plus a running total per user. Counts never go below zero.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface AlmacenNoLeidos {
+
+    /**
+     * Adds delta (negative when messages are read) to a user's count in a chat.
+     *
+     * @return the new count of the chat and the new total of the user
+     */
+    NoLeidosDTO sumar(int usuarioId, int chatId, long delta);
+
+    /** Unread messages across every chat of the user */
+    long total(int usuarioId);
+
+    /** Chats of the user with unread messages, by chat id */
+    Map<Integer, Long> porChat(int usuarioId);
+
+    /**
+     * Replaces every counter with the given ones.
+     *
+     * @param conteos unread messages by user id, then by chat id
+     */
+    void reemplazar(Map<Integer, Map<Integer, Long>> conteos);
+}
@@ -0,0 +1,69 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+
+/**
+ * Unread counters held in this node's memory, the default {@link AlmacenNoLeidos}.
+ * Each user's counters change under that user's lock only, and the total is read
+ * without locking.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public class AlmacenNoLeidosEnMemoria implements AlmacenNoLeidos {
+
+    private volatile Map<Integer, Usuario> usuarios = new ConcurrentHashMap<>();
+
+    @Override
+    public NoLeidosDTO sumar(int usuarioId, int chatId, long delta) {
+        return usuarios.computeIfAbsent(usuarioId, id -> new Usuario()).sumar(chatId, delta);
+    }
+
+    @Override
+    public long total(int usuarioId) {
+        Usuario usuario = usuarios.get(usuarioId);
+        return usuario != null ? usuario.total : 0;
+    }
+
+    @Override
+    public Map<Integer, Long> porChat(int usuarioId) {
+        Usuario usuario = usuarios.get(usuarioId);
+        return usuario != null ? usuario.copia() : Map.of();
+    }
+
+    @Override
+    public void reemplazar(Map<Integer, Map<Integer, Long>> conteos) {
+        Map<Integer, Usuario> nuevos = new ConcurrentHashMap<>();
+        conteos.forEach((usuarioId, porChat) -> {
+            Usuario usuario = new Usuario();
+            porChat.forEach(usuario::sumar);
+            nuevos.put(usuarioId, usuario);
+        });
+        usuarios = nuevos;
+    }
+
+    private static final class Usuario {
+        private final Map<Integer, Long> porChat = new HashMap<>();
+        private volatile long total;
+
+        private synchronized NoLeidosDTO sumar(int chatId, long delta) {
+            long actual = porChat.getOrDefault(chatId, 0L);
+            long nuevo = Math.max(actual + delta, 0);
+            if (nuevo == 0) {
+                porChat.remove(chatId);
+            } else {
+                porChat.put(chatId, nuevo);
+            }
+            total = Math.max(total + nuevo - actual, 0);
+            return new NoLeidosDTO(chatId, nuevo, total);
+        }
+
+        private synchronized Map<Integer, Long> copia() {
+            return Map.copyOf(porChat);
+        }
+    }
+}
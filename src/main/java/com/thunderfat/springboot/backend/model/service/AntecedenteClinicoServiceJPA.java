@@ -1,16 +1,25 @@
 package com.thunderfat.springboot.backend.model.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.thunderfat.springboot.backend.exception.BusinessException;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
@@ -19,8 +28,11 @@ import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
 import com.thunderfat.springboot.backend.model.dto.AntecedentesClinicosDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.AntecedentesClinicosMapper;
 import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos;
+import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos.CategoriaClinica;
 
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -52,6 +64,13 @@ public class AntecedenteClinicoServiceJPA implements IAntecedenteClinicoService
     // MapStruct mapper
     private final AntecedentesClinicosMapper antecedentesClinicosMapper;
     
+    private final PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private static final int LOTE_CLASIFICACION = 500;
+    
     // ...existing code...
     
     // ================================
@@ -315,6 +334,110 @@ public class AntecedenteClinicoServiceJPA implements IAntecedenteClinicoService
         }
     }
     
+    /**
+     * Find every classified condition of a patient grouped by clinical category.
+     * A single indexed query feeds all categories; an antecedent matching several
+     * categories appears under each of them.
+     * 
+     * @param pacienteId Patient ID
+     * @return Map from category name to its clinical antecedent DTOs
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "antecedentes", key = "'categorias-' + #pacienteId")
+    @PreAuthorize("hasRole('NUTRICIONISTA') or @securityService.isPacienteOwner(#pacienteId, authentication)")
+    public Map<String, List<AntecedentesClinicosDTO>> findCondicionesClasificadasByPacienteId(Integer pacienteId) {
+        log.debug("Finding classified conditions for patient ID: {}", pacienteId);
+        
+        try {
+            Map<String, List<AntecedentesClinicosDTO>> porCategoria = new LinkedHashMap<>();
+            for (CategoriaClinica categoria : CategoriaClinica.values()) {
+                porCategoria.put(categoria.name(), new ArrayList<>());
+            }
+            for (AntecedentesClinicos antecedente : antecedentesRepo.findClasificadosByPacienteId(pacienteId)) {
+                AntecedentesClinicosDTO dto = antecedentesClinicosMapper.toDto(antecedente);
+                for (CategoriaClinica categoria : CategoriaClinica.desdeMascara(antecedente.getCategorias())) {
+                    porCategoria.get(categoria.name()).add(dto);
+                }
+            }
+            return porCategoria;
+        } catch (Exception e) {
+            log.error("Error finding classified conditions for patient ID: {}", pacienteId, e);
+            throw new BusinessException("Error al buscar condiciones clasificadas del paciente", e);
+        }
+    }
+    
+    /**
+     * Recompute the category bitmask of stored clinical antecedents.
+     * Used to backfill rows written before classification existed or after the
+     * keyword dictionary changes. Rows are processed in ID order in fixed-size batches,
+     * each committed on its own and cleared from the persistence context, so memory
+     * and transaction size stay flat however many rows there are.
+     * 
+     * @param soloPendientes true to touch only rows never classified
+     * @return Number of rows whose bitmask changed
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @CacheEvict(value = {"antecedentes", "antecedentes-stats"}, allEntries = true)
+    @PreAuthorize("hasRole('ADMIN')")
+    public int reclasificarCondiciones(boolean soloPendientes) {
+        log.info("Reclassifying antecedentes clinicos (soloPendientes={})", soloPendientes);
+        
+        try {
+            return reclasificar(soloPendientes);
+        } catch (Exception e) {
+            log.error("Error reclassifying antecedentes clinicos", e);
+            throw new BusinessException("Error al reclasificar antecedentes clínicos", e);
+        }
+    }
+    
+    /**
+     * Classifies at startup the rows never classified, e.g. written before the bitmask
+     * existed or by SQL outside the application: the category lookups only match the
+     * bitmask, and would miss them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @CacheEvict(value = {"antecedentes", "antecedentes-stats"}, allEntries = true)
+    public void clasificarPendientes() {
+        reclasificar(true);
+    }
+    
+    private int reclasificar(boolean soloPendientes) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int actualizados = 0;
+        int ultimoId = 0;
+        int leidos;
+        do {
+            int desde = ultimoId;
+            int[] lote = transaccion.execute(status -> {
+                List<AntecedentesClinicos> antecedentes = antecedentesRepo.findLoteParaClasificar(desde, soloPendientes,
+                        PageRequest.of(0, LOTE_CLASIFICACION));
+                int cambiados = 0;
+                int ultimo = desde;
+                for (AntecedentesClinicos antecedente : antecedentes) {
+                    int categorias = CategoriaClinica.clasificar(antecedente.getCondicion());
+                    if (antecedente.getCategorias() == null || antecedente.getCategorias() != categorias) {
+                        antecedente.setCategorias(categorias);
+                        cambiados++;
+                    }
+                    ultimo = antecedente.getId();
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return new int[] {antecedentes.size(), cambiados, ultimo};
+            });
+            leidos = lote[0];
+            actualizados += lote[1];
+            ultimoId = lote[2];
+            log.debug("Reclassified batch up to antecedente {}: {} changed so far", ultimoId, actualizados);
+        } while (leidos == LOTE_CLASIFICACION);
+        
+        log.info("Reclassified {} antecedentes clinicos", actualizados);
+        return actualizados;
+    }
+    
     /**
      * Count clinical antecedents for a patient
      * 
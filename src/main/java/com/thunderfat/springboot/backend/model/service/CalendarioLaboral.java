@@ -0,0 +1,178 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+
+/**
+ * Working hours of the clinic and its nutritionists, compiled from
+ * {@code thunderfat.agenda.*} into per-weekday bit ranges (one bit per
+ * {@code granularidad} minutes), and the free-slot scan over them.
+ *
+ * Shared by the availability search and by recurring bookings that shift
+ * clashing occurrences. Holds no appointment data; callers pass the
+ * appointments they have already loaded.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+public class CalendarioLaboral {
+
+    private static final int MINUTOS_DIA = 24 * 60;
+
+    private final int granularidad;
+    private final int bitsDia;
+    private final int bitsPaso;
+    private final int bufferMinutos;
+    private final Map<DayOfWeek, int[][]> jornadaClinica;
+    private final Map<Integer, Map<DayOfWeek, int[][]>> jornadaNutricionista = new HashMap<>();
+
+    public CalendarioLaboral(ThunderFatProperties properties) {
+        ThunderFatProperties.Agenda agenda = properties.getAgenda();
+        this.granularidad = minutos(agenda.getGranularidad());
+        int paso = minutos(agenda.getPaso());
+        if (granularidad <= 0 || MINUTOS_DIA % granularidad != 0 || paso <= 0
+                || paso % granularidad != 0 || MINUTOS_DIA % paso != 0) {
+            throw new IllegalStateException("thunderfat.agenda: la granularidad y el paso deben dividir el día "
+                    + "y el paso ser múltiplo de la granularidad");
+        }
+        this.bitsDia = MINUTOS_DIA / granularidad;
+        this.bitsPaso = paso / granularidad;
+        this.bufferMinutos = minutos(agenda.getBuffer());
+
+        List<int[]> descansos = agenda.getDescansos().stream().map(texto -> tramo(texto, false)).toList();
+        this.jornadaClinica = compilar(agenda.getJornada(), descansos);
+        agenda.getJornadaNutricionista().forEach((id, jornada) -> {
+            Map<DayOfWeek, int[][]> propia = new EnumMap<>(jornadaClinica);
+            propia.putAll(compilar(jornada, descansos));
+            jornadaNutricionista.put(id, propia);
+        });
+    }
+
+    /**
+     * Free time kept before and after each appointment, in minutes.
+     *
+     * @return the buffer in minutes
+     */
+    public int getBufferMinutos() {
+        return bufferMinutos;
+    }
+
+    /**
+     * Builds the free-time bitmap of one nutritionist over a date range and returns
+     * the first slots that fit, earliest first.
+     *
+     * @param nutricionistaId nutritionist whose working hours apply
+     * @param citas existing appointments as [start, end] pairs; widened by the buffer
+     * @param desde first day (inclusive)
+     * @param hasta last day (inclusive)
+     * @param duracionMinutos slot length
+     * @param limite maximum number of slots
+     * @param noAntesDe nothing starting before this instant is offered
+     * @return free slots
+     */
+    public List<HuecoDisponibleDTO> huecos(Integer nutricionistaId, List<LocalDateTime[]> citas, LocalDate desde,
+                                           LocalDate hasta, int duracionMinutos, int limite, LocalDateTime noAntesDe) {
+        LocalDateTime origen = desde.atStartOfDay();
+        int dias = (int) ChronoUnit.DAYS.between(desde, hasta) + 1;
+        int total = dias * bitsDia;
+        Map<DayOfWeek, int[][]> jornada = jornadaNutricionista.getOrDefault(nutricionistaId, jornadaClinica);
+
+        BitSet libre = new BitSet(total);
+        for (int dia = 0; dia < dias; dia++) {
+            int base = dia * bitsDia;
+            for (int[] tramo : jornada.getOrDefault(desde.plusDays(dia).getDayOfWeek(), new int[0][])) {
+                libre.set(base + tramo[0], base + tramo[1]);
+            }
+        }
+        if (noAntesDe.isAfter(origen)) {
+            libre.clear(0, (int) Math.min(total, techo(ChronoUnit.MINUTES.between(origen, noAntesDe), granularidad)));
+        }
+        for (LocalDateTime[] cita : citas) {
+            long inicio = ChronoUnit.MINUTES.between(origen, cita[0]) - bufferMinutos;
+            long fin = ChronoUnit.MINUTES.between(origen, cita[1]) + bufferMinutos;
+            int desdeBit = (int) Math.max(0, Math.floorDiv(inicio, granularidad));
+            int hastaBit = (int) Math.min(total, techo(fin, granularidad));
+            if (desdeBit < hastaBit) {
+                libre.clear(desdeBit, hastaBit);
+            }
+        }
+
+        int bitsDuracion = (int) techo(duracionMinutos, granularidad);
+        List<HuecoDisponibleDTO> huecos = new ArrayList<>();
+        for (int bit = libre.nextSetBit(0); bit >= 0 && huecos.size() < limite; ) {
+            int finLibre = libre.nextClearBit(bit);
+            for (int inicio = (int) techo(bit, bitsPaso) * bitsPaso;
+                 inicio + bitsDuracion <= finLibre && huecos.size() < limite;
+                 inicio += bitsPaso) {
+                LocalDateTime inicioHueco = origen.plusMinutes((long) inicio * granularidad);
+                huecos.add(new HuecoDisponibleDTO(nutricionistaId, inicioHueco, inicioHueco.plusMinutes(duracionMinutos)));
+            }
+            bit = libre.nextSetBit(finLibre);
+        }
+        return huecos;
+    }
+
+    private Map<DayOfWeek, int[][]> compilar(Map<DayOfWeek, List<String>> jornada, List<int[]> descansos) {
+        Map<DayOfWeek, int[][]> compilada = new EnumMap<>(DayOfWeek.class);
+        jornada.forEach((dia, tramos) -> {
+            BitSet bits = new BitSet(bitsDia);
+            tramos.stream().map(texto -> tramo(texto, true)).forEach(tramo -> bits.set(tramo[0], tramo[1]));
+            descansos.forEach(descanso -> bits.clear(descanso[0], descanso[1]));
+
+            List<int[]> rangos = new ArrayList<>();
+            for (int inicio = bits.nextSetBit(0); inicio >= 0; inicio = bits.nextSetBit(bits.nextClearBit(inicio))) {
+                rangos.add(new int[] {inicio, bits.nextClearBit(inicio)});
+            }
+            compilada.put(dia, rangos.toArray(int[][]::new));
+        });
+        return compilada;
+    }
+
+    /**
+     * Parses "HH:mm-HH:mm" into a [from, to) bit range; "24:00" is accepted as an end.
+     * Working time is rounded inwards to the bitmap granularity, breaks outwards.
+     */
+    private int[] tramo(String texto, boolean trabajo) {
+        String[] partes = texto.trim().split("-");
+        if (partes.length != 2) {
+            throw new IllegalStateException("Tramo horario no válido en thunderfat.agenda: " + texto);
+        }
+        int inicio = minutoDelDia(partes[0]);
+        int fin = minutoDelDia(partes[1]);
+        if (inicio >= fin) {
+            throw new IllegalStateException("Tramo horario no válido en thunderfat.agenda: " + texto);
+        }
+        return trabajo
+                ? new int[] {(int) techo(inicio, granularidad), fin / granularidad}
+                : new int[] {inicio / granularidad, (int) techo(fin, granularidad)};
+    }
+
+    private static int minutoDelDia(String hora) {
+        String valor = hora.trim();
+        return "24:00".equals(valor) ? MINUTOS_DIA : LocalTime.parse(valor).toSecondOfDay() / 60;
+    }
+
+    private static int minutos(Duration duracion) {
+        return (int) duracion.toMinutes();
+    }
+
+    private static long techo(long valor, long divisor) {
+        return Math.floorDiv(valor + divisor - 1, divisor);
+    }
+}
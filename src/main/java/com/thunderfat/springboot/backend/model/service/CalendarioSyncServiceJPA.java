@@ -0,0 +1,299 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dto.CalendarioEventoDTO;
+import com.thunderfat.springboot.backend.model.dto.CalendarioSyncDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Incremental calendar sync and iCalendar export.
+ * Features:
+ * - Every appointment write takes a version from the nutritionist's agenda counter under
+ *   the agenda lock, so versions commit in order and a client can resume from the last one it saw
+ * - Deletions leave a tombstone in {@code cita_cancelada} with a version from the same counter
+ * - A sync call is two index range scans (idx_cita_nutricionista_version and
+ *   idx_cita_cancelada_nutricionista_version) bounded by the last committed version
+ * - The iCalendar export streams a JDBC cursor straight to the response; its ETag is the
+ *   agenda version, so an unchanged calendar is answered with 304 without touching the appointments
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CalendarioSyncServiceJPA implements ICalendarioSyncService {
+
+    private static final String SELECT_ICS =
+            "SELECT c.id, c.fechaini, c.fechafin, c.version_agenda, p.nombre, p.apellidos "
+            + "FROM cita c LEFT JOIN paciente p ON p.id = c.id_paciente "
+            + "WHERE c.id_nutricionista = ? AND c.fechaini >= ? AND c.fechaini < ? ORDER BY c.fechaini";
+    private static final String TOKEN_NO_VALIDO = "Token de sincronización no válido";
+    private static final DateTimeFormatter FECHA_LOCAL = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter FECHA_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CitaRepository citaRepository;
+    private final NutricionistaRepository nutricionistaRepository;
+    private final ThunderFatProperties properties;
+
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    public CalendarioSyncDTO sincronizar(Integer nutricionistaId, String token, int size) {
+        if (nutricionistaId == null) {
+            throw new IllegalArgumentException("Nutritionist ID is required");
+        }
+        long tope = versionAgenda(nutricionistaId);
+        Posicion posicion = Posicion.leer(nutricionistaId, token);
+        if (posicion.version > tope) {
+            // The counter can only go backwards after a restore; the client's copy is unreliable
+            log.warn("Sync token of nutritionist {} is ahead of the agenda (version {} > {}); sending a full sync",
+                     nutricionistaId, posicion.version, tope);
+            posicion = Posicion.INICIAL;
+        }
+        int limite = Math.max(1, Math.min(size, properties.getCalendarioSync().getMaxCambios()));
+
+        // One extra row per stream tells whether another page follows. Only the first page of a
+        // full snapshot skips tombstones; later pages need them for rows deleted after page one
+        List<CalendarioEventoDTO> cambios = citaRepository.findCambiosAgenda(nutricionistaId,
+                posicion.version, posicion.id, tope, Limit.of(limite + 1));
+        List<Object[]> bajas = posicion == Posicion.INICIAL ? List.of()
+                : citaRepository.findCancelacionesAgenda(nutricionistaId, posicion.version, tope, Limit.of(limite + 1));
+
+        // Merge both streams by version; a tombstone sorts after every appointment of its version
+        List<CalendarioEventoDTO> eventos = new ArrayList<>();
+        List<Integer> cancelados = new ArrayList<>();
+        long ultimaVersion = posicion.version;
+        int ultimoId = posicion.id;
+        int i = 0;
+        int j = 0;
+        while (eventos.size() + cancelados.size() < limite && (i < cambios.size() || j < bajas.size())) {
+            boolean baja = j < bajas.size()
+                    && (i == cambios.size() || ((Number) bajas.get(j)[1]).longValue() < cambios.get(i).getVersion());
+            if (baja) {
+                cancelados.add((Integer) bajas.get(j)[0]);
+                ultimaVersion = ((Number) bajas.get(j)[1]).longValue();
+                ultimoId = Integer.MAX_VALUE;
+                j++;
+            } else {
+                CalendarioEventoDTO evento = cambios.get(i++);
+                eventos.add(evento);
+                ultimaVersion = evento.getVersion();
+                ultimoId = evento.getId();
+            }
+        }
+        boolean hayMas = i < cambios.size() || j < bajas.size();
+
+        // Once caught up the client resumes from the committed version, skipping rows it can never see
+        Posicion siguiente = hayMas ? new Posicion(ultimaVersion, ultimoId, posicion.completo)
+                : new Posicion(tope, Integer.MAX_VALUE, false);
+        log.debug("Sync of nutritionist {}: {} events, {} cancellations up to version {}{}",
+                  nutricionistaId, eventos.size(), cancelados.size(), tope, hayMas ? " (more pending)" : "");
+        return CalendarioSyncDTO.builder()
+                .token(siguiente.token(nutricionistaId))
+                .completo(posicion.completo)
+                .hayMas(hayMas)
+                .eventos(eventos)
+                .cancelados(cancelados)
+                .build();
+    }
+
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    public String etagCalendario(Integer nutricionistaId, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        // Weak: DTSTAMP differs between two exports of the same agenda version
+        return "W/\"" + nutricionistaId + "-" + versionAgenda(nutricionistaId) + "-" + desde + "-" + hasta + "\"";
+    }
+
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    public long exportarIcs(Integer nutricionistaId, LocalDate desde, LocalDate hasta, OutputStream salida) {
+        if (nutricionistaId == null || salida == null) {
+            throw new IllegalArgumentException("Nutritionist ID and output are required");
+        }
+        validarRango(desde, hasta);
+        log.debug("Exporting calendar of nutritionist {} from {} to {}", nutricionistaId, desde, hasta);
+
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            linea(writer, "BEGIN:VCALENDAR");
+            linea(writer, "VERSION:2.0");
+            linea(writer, "PRODID:-//ThunderFat//Agenda de citas//ES");
+            linea(writer, "CALSCALE:GREGORIAN");
+            linea(writer, "METHOD:PUBLISH");
+
+            EscrituraIcs escritura = new EscrituraIcs(writer,
+                    LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS).format(FECHA_UTC));
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_ICS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(properties.getCalendarioSync().getIcsFetchSize());
+                ps.setInt(1, nutricionistaId);
+                ps.setTimestamp(2, Timestamp.valueOf(desde.atStartOfDay()));
+                ps.setTimestamp(3, Timestamp.valueOf(hasta.plusDays(1).atStartOfDay()));
+                return ps;
+            }, escritura);
+
+            linea(writer, "END:VCALENDAR");
+            writer.flush();
+            log.debug("Exported {} events of nutritionist {}", escritura.eventos, nutricionistaId);
+            return escritura.eventos;
+        } catch (IOException e) {
+            throw new BusinessException("Error al exportar el calendario", e);
+        }
+    }
+
+    // =====================================
+    // PRIVATE HELPER METHODS
+    // =====================================
+
+    private long versionAgenda(Integer nutricionistaId) {
+        return nutricionistaRepository.findVersionAgenda(nutricionistaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Nutricionista no encontrado con ID: " + nutricionistaId));
+    }
+
+    private void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            throw new BusinessValidationException("Las fechas de inicio y fin son obligatorias");
+        }
+        if (hasta.isBefore(desde)) {
+            throw new BusinessValidationException("La fecha de fin debe ser posterior a la fecha de inicio");
+        }
+        int maximo = properties.getCalendarioSync().getMaxDiasIcs();
+        if (ChronoUnit.DAYS.between(desde, hasta) >= maximo) {
+            throw new BusinessValidationException("El calendario no puede abarcar más de " + maximo + " días");
+        }
+    }
+
+    /**
+     * Writes a content line folded at 75 octets, as RFC 5545 requires; continuation
+     * lines start with a space, and multi-byte characters are never split.
+     */
+    private static void linea(Writer writer, String contenido) throws IOException {
+        int octetos = 0;
+        for (int i = 0; i < contenido.length(); ) {
+            int codigo = contenido.codePointAt(i);
+            int tamano = codigo < 0x80 ? 1 : codigo < 0x800 ? 2 : codigo < 0x10000 ? 3 : 4;
+            if (octetos + tamano > 75) {
+                writer.write("\r\n ");
+                octetos = 1;
+            }
+            writer.write(Character.toChars(codigo));
+            octetos += tamano;
+            i += Character.charCount(codigo);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Escapes a TEXT property value (RFC 5545 section 3.3.11).
+     */
+    private static String texto(String valor) {
+        return valor.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\n", "\\n").replace("\r", "");
+    }
+
+    /**
+     * Resume point of a sync client: agenda version and appointment ID of the last
+     * change it received, and whether it is still reading a full snapshot. Travels as a {@link KeysetCursor} whose sort key also carries the
+     * nutritionist, so a token cannot be replayed against another agenda.
+     */
+    private record Posicion(long version, int id, boolean completo) {
+
+        private static final Posicion INICIAL = new Posicion(-1, 0, true);
+
+        private static Posicion leer(Integer nutricionistaId, String token) {
+            if (token == null || token.isBlank()) {
+                return INICIAL;
+            }
+            KeysetCursor cursor;
+            long version;
+            try {
+                cursor = KeysetCursor.decode(token);
+                version = Long.parseLong(cursor.getSortKey().substring(cursor.getSortKey().indexOf(':') + 1,
+                        cursor.getSortKey().lastIndexOf(':')));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BusinessValidationException e) {
+                throw new BusinessValidationException(TOKEN_NO_VALIDO, e);
+            }
+            String[] partes = cursor.getSortKey().split(":");
+            if (partes.length != 3 || !partes[0].equals(String.valueOf(nutricionistaId))) {
+                throw new BusinessValidationException(TOKEN_NO_VALIDO);
+            }
+            return new Posicion(version, cursor.getId(), "1".equals(partes[2]));
+        }
+
+        private String token(Integer nutricionistaId) {
+            return new KeysetCursor(nutricionistaId + ":" + version + ":" + (completo ? 1 : 0), id).encode();
+        }
+    }
+
+    private static final class EscrituraIcs implements RowCallbackHandler {
+        private final Writer writer;
+        private final String dtstamp;
+        private long eventos;
+
+        private EscrituraIcs(Writer writer, String dtstamp) {
+            this.writer = writer;
+            this.dtstamp = dtstamp;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            Timestamp fechafin = rs.getTimestamp("fechafin");
+            String nombre = rs.getString("nombre");
+            String apellidos = rs.getString("apellidos");
+            String paciente = nombre == null ? null : apellidos == null ? nombre : nombre + " " + apellidos;
+            try {
+                linea(writer, "BEGIN:VEVENT");
+                linea(writer, "UID:cita-" + rs.getInt("id") + "@thunderfat");
+                linea(writer, "DTSTAMP:" + dtstamp);
+                // Floating local times: appointments are stored without a zone
+                linea(writer, "DTSTART:" + rs.getTimestamp("fechaini").toLocalDateTime().format(FECHA_LOCAL));
+                if (fechafin != null) {
+                    linea(writer, "DTEND:" + fechafin.toLocalDateTime().format(FECHA_LOCAL));
+                }
+                linea(writer, "SEQUENCE:" + Math.min(rs.getLong("version_agenda"), Integer.MAX_VALUE));
+                linea(writer, "SUMMARY:" + (paciente == null ? "Cita" : texto("Cita con " + paciente)));
+                linea(writer, "END:VEVENT");
+            } catch (IOException e) {
+                throw new BusinessException("Error al escribir el calendario", e);
+            }
+            eventos++;
+        }
+    }
+}
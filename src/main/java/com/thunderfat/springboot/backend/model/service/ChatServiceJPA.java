@@ -7,15 +7,20 @@ import java.util.stream.Collectors;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.thunderfat.springboot.backend.model.dao.ChatRepository;
 import com.thunderfat.springboot.backend.model.dto.ChatDTO;
 import com.thunderfat.springboot.backend.model.dto.ChatUnreadCountDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.ChatMapper;
+import com.thunderfat.springboot.backend.model.entity.Chat;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +47,7 @@ import lombok.extern.slf4j.Slf4j;
 public class ChatServiceJPA implements IChatService {
 	
 	private final ChatRepository chatRepository;
+	private final ContadorNoLeidos contadorNoLeidos;
 
 	// ================================
 	// LEGACY CRUD OPERATIONS
@@ -120,6 +126,31 @@ public class ChatServiceJPA implements IChatService {
 				.map(ChatMapper.INSTANCE::toDto);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public Slice<ChatDTO> findAllSlice(Pageable pageable) {
+		log.debug("Finding all chats as slice: page {}, size {}", 
+				pageable.getPageNumber(), pageable.getPageSize());
+		return chatRepository.findAllSliced(pageable)
+				.map(ChatMapper.INSTANCE::toDto);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public PagedResponseDTO<ChatDTO> findAllKeyset(String cursor, int size) {
+		log.debug("Finding all chats with keyset pagination: cursor {}, size {}", cursor, size);
+		KeysetCursor after = KeysetCursor.decode(cursor);
+		int pageSize = KeysetCursor.tamanoPagina(size);
+		Limit limit = Limit.of(pageSize + 1);
+
+		List<Chat> chats = after == null
+				? chatRepository.findKeysetFirstPage(limit)
+				: chatRepository.findKeysetPageAfter(after.getId(), limit);
+
+		return PagedResponseDTO.ofKeyset(chats, pageSize, after == null, ChatMapper.INSTANCE::toDto,
+				chat -> KeysetCursor.of(chat.getId_chat()));
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	@Cacheable(value = "chats", key = "'single_' + #idChat")
@@ -147,6 +178,14 @@ public class ChatServiceJPA implements IChatService {
 				.map(ChatMapper.INSTANCE::toDto);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public Slice<ChatDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable) {
+		log.debug("Finding chats slice for nutritionist: {}", nutricionistaId);
+		return chatRepository.findSliceByNutricionistaId(nutricionistaId, pageable)
+				.map(ChatMapper.INSTANCE::toDto);
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	@Cacheable(value = "chats", key = "'conversation_' + #pacienteId + '_' + #nutricionistaId")
@@ -182,10 +221,10 @@ public class ChatServiceJPA implements IChatService {
 
 	@Override
 	@Transactional(readOnly = true)
-	@Cacheable(value = "chats", key = "'unread_' + #userId")
 	public List<ChatDTO> findChatsWithUnreadMessages(Integer userId) {
 		log.debug("Finding chats with unread messages for user: {}", userId);
-		return chatRepository.findChatsWithUnreadMessages(userId).stream()
+		// Chat ids come from the unread counters, which are never stale
+		return chatRepository.findAllById(contadorNoLeidos.porChat(userId).keySet()).stream()
 				.map(ChatMapper.INSTANCE::toDto)
 				.collect(Collectors.toList());
 	}
@@ -261,10 +300,15 @@ public class ChatServiceJPA implements IChatService {
 	}
 
 	@Override
-	@Transactional(readOnly = true)
-	@Cacheable(value = "chat-stats", key = "'unread_counts_' + #nutricionistaId")
 	public List<ChatUnreadCountDTO> getChatsWithUnreadCounts(Integer nutricionistaId) {
 		log.debug("Getting chats with unread counts for nutritionist: {}", nutricionistaId);
-		return chatRepository.findChatsWithUnreadCount(nutricionistaId);
+		return contadorNoLeidos.porChat(nutricionistaId).entrySet().stream()
+				.map(chat -> new ChatUnreadCountDTO(chat.getKey(), chat.getValue()))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Long countUnreadMessages(Integer userId) {
+		return contadorNoLeidos.total(userId);
 	}
 }
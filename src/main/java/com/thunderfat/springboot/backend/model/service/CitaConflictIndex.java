@@ -0,0 +1,495 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory interval tree of upcoming appointments, partitioned by nutritionist,
+ * used to answer scheduling-conflict checks without a range query.
+ *
+ * Each nutritionist's partition is loaded lazily with one query (appointments
+ * ending at or after the load time) and then kept current by {@link CitaServiceJPA}
+ * on create, update and delete, after the surrounding transaction commits.
+ * Partitions are reloaded once older than {@code thunderfat.cita-conflictos.ttl},
+ * which bounds staleness from writes made by other nodes.
+ *
+ * Overlap uses the same closed-interval rule as
+ * {@code CitaRepository.findConflictingAppointments}. Ranges starting before the
+ * partition was loaded, and partitions still loading, are not covered and are reported
+ * as unknown, so callers fall back to the database. The database remains the final
+ * authority for writes, and clashes found here are confirmed by it before they are shown.
+ *
+ * Partitions load outside the map's locks: a placeholder is installed first and writes
+ * committed while the query runs are applied to it and win over the loaded rows. The
+ * appointment-to-nutritionist map only holds appointments of loaded partitions and is
+ * emptied with them, so it is bounded by the partitions in memory.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CitaConflictIndex {
+
+    private final CitaRepository citaRepository;
+    private final ThunderFatProperties properties;
+
+    private final Map<Integer, Particion> particiones = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> nutricionistaPorCita = new ConcurrentHashMap<>();
+
+    /**
+     * Appointments of a nutritionist overlapping a time range.
+     *
+     * @param nutricionistaId nutritionist ID
+     * @param inicio start of the range
+     * @param fin end of the range
+     * @param excluirId appointment to ignore (the one being updated), or {@code null}
+     * @return IDs of the overlapping appointments, or empty if the range is not covered by the index
+     */
+    public Optional<List<Integer>> buscarSolapes(Integer nutricionistaId, LocalDateTime inicio,
+                                                 LocalDateTime fin, Integer excluirId) {
+        if (nutricionistaId == null || inicio == null || fin == null) {
+            return Optional.empty();
+        }
+        Particion particion = particion(nutricionistaId);
+        if (particion == null || inicio.isBefore(particion.desde)) {
+            return Optional.empty();
+        }
+        return Optional.of(particion.solapes(segundos(inicio), segundos(fin), excluirId));
+    }
+
+    /**
+     * Adds or moves an appointment once the current transaction commits.
+     * Partitions that have not been loaded yet are left alone.
+     *
+     * @param citaId appointment ID
+     * @param nutricionistaId nutritionist the appointment now belongs to
+     * @param inicio appointment start
+     * @param fin appointment end
+     */
+    public void registrar(Integer citaId, Integer nutricionistaId, LocalDateTime inicio, LocalDateTime fin) {
+        if (citaId == null || nutricionistaId == null || inicio == null || fin == null) {
+            return;
+        }
+        trasCommit(() -> {
+            Integer anterior = nutricionistaPorCita.remove(citaId);
+            if (anterior == null) {
+                eliminarDeCargas(citaId, nutricionistaId);
+            } else if (!anterior.equals(nutricionistaId)) {
+                particiones.computeIfPresent(anterior, (id, particion) -> particion.eliminar(citaId));
+            }
+            particiones.computeIfPresent(nutricionistaId, (id, particion) -> {
+                nutricionistaPorCita.put(citaId, nutricionistaId);
+                return particion.registrar(citaId, segundos(inicio), segundos(fin));
+            });
+        });
+    }
+
+    /**
+     * Removes an appointment once the current transaction commits.
+     *
+     * @param citaId appointment ID
+     */
+    public void eliminar(Integer citaId) {
+        if (citaId == null) {
+            return;
+        }
+        trasCommit(() -> {
+            Integer nutricionistaId = nutricionistaPorCita.remove(citaId);
+            if (nutricionistaId != null) {
+                particiones.computeIfPresent(nutricionistaId, (id, particion) -> particion.eliminar(citaId));
+            } else {
+                eliminarDeCargas(citaId, null);
+            }
+        });
+    }
+
+    /**
+     * An appointment missing from the map may still be in the rows of a partition being
+     * loaded; removing it there keeps the load from bringing it back.
+     */
+    private void eliminarDeCargas(Integer citaId, Integer salvo) {
+        particiones.forEach((id, particion) -> {
+            if (!particion.isCargada() && !id.equals(salvo)) {
+                particion.eliminar(citaId);
+            }
+        });
+    }
+
+    /**
+     * Drops a nutritionist's partition so it is reloaded on next use, e.g. when the
+     * database found a conflict the index had missed.
+     *
+     * @param nutricionistaId nutritionist ID
+     */
+    public void invalidar(Integer nutricionistaId) {
+        if (nutricionistaId != null) {
+            Particion particion = particiones.remove(nutricionistaId);
+            if (particion != null) {
+                olvidar(nutricionistaId, particion, null);
+            }
+        }
+    }
+
+    /**
+     * Drops every partition, e.g. after bulk changes made outside the service.
+     */
+    public void invalidarTodo() {
+        particiones.clear();
+        nutricionistaPorCita.clear();
+    }
+
+    /** Appointments whose partition is known; bounded by the partitions in memory */
+    int citasConocidas() {
+        return nutricionistaPorCita.size();
+    }
+
+    /**
+     * Loaded partition of a nutritionist, loading it if missing or expired.
+     *
+     * @return the partition, or {@code null} while another thread is loading it
+     */
+    private Particion particion(Integer nutricionistaId) {
+        Particion actual = particiones.get(nutricionistaId);
+        if (actual != null && !caducada(actual)) {
+            return actual.isCargada() ? actual : null;
+        }
+        // Only the placeholder is installed under the map's bin lock; the query runs outside it
+        Particion nueva = new Particion(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES), System.nanoTime());
+        Particion vigente = particiones.compute(nutricionistaId,
+                (id, particion) -> particion == null || caducada(particion) ? nueva : particion);
+        if (vigente != nueva) {
+            return vigente.isCargada() ? vigente : null;
+        }
+        try {
+            cargar(nutricionistaId, nueva);
+        } catch (RuntimeException e) {
+            particiones.remove(nutricionistaId, nueva);
+            throw e;
+        }
+        if (actual != null) {
+            olvidar(nutricionistaId, actual, nueva);
+        }
+        return nueva;
+    }
+
+    /**
+     * Removes the appointments of a dropped partition from the appointment map, except
+     * those its replacement holds.
+     */
+    private void olvidar(Integer nutricionistaId, Particion particion, Particion sustituta) {
+        for (Integer citaId : particion.citas()) {
+            if (sustituta == null || !sustituta.contiene(citaId)) {
+                nutricionistaPorCita.remove(citaId, nutricionistaId);
+            }
+        }
+    }
+
+    private boolean caducada(Particion particion) {
+        return System.nanoTime() - particion.cargadaEn > properties.getCitaConflictos().getTtl().toNanos();
+    }
+
+    private void cargar(Integer nutricionistaId, Particion particion) {
+        long inicio = System.nanoTime();
+        for (Object[] fila : citaRepository.findIntervalosDesde(nutricionistaId, particion.desde)) {
+            if (fila[1] == null || fila[2] == null) {
+                continue;
+            }
+            Integer citaId = (Integer) fila[0];
+            if (particion.cargar(citaId, segundos((LocalDateTime) fila[1]), segundos((LocalDateTime) fila[2]))) {
+                nutricionistaPorCita.putIfAbsent(citaId, nutricionistaId);
+            }
+        }
+        particion.terminarCarga();
+        log.debug("Loaded appointment conflict index for nutritionist {} ({} appointments) in {} µs",
+                 nutricionistaId, particion.tamano(), (System.nanoTime() - inicio) / 1_000);
+    }
+
+    private static long segundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * One nutritionist's appointments. Reads run concurrently; writes take the write lock.
+     * While loading, the appointments written by committed transactions are remembered so
+     * the rows of the load query, which may predate those commits, do not overwrite them.
+     */
+    private static final class Particion {
+
+        private final LocalDateTime desde;
+        private final long cargadaEn;
+        private final IntervalTree arbol = new IntervalTree();
+        private final Map<Integer, long[]> intervalos = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private Set<Integer> escritasDuranteCarga = new HashSet<>();
+        private volatile boolean cargada;
+
+        Particion(LocalDateTime desde, long cargadaEn) {
+            this.desde = desde;
+            this.cargadaEn = cargadaEn;
+        }
+
+        boolean isCargada() {
+            return cargada;
+        }
+
+        /**
+         * Adds a row of the load query unless a commit already wrote that appointment.
+         *
+         * @return whether the row was added
+         */
+        boolean cargar(int citaId, long inicio, long fin) {
+            lock.writeLock().lock();
+            try {
+                if (escritasDuranteCarga.contains(citaId)) {
+                    return false;
+                }
+                poner(citaId, inicio, fin);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void terminarCarga() {
+            lock.writeLock().lock();
+            try {
+                escritasDuranteCarga = null;
+                cargada = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Particion registrar(int citaId, long inicio, long fin) {
+            lock.writeLock().lock();
+            try {
+                anotar(citaId);
+                poner(citaId, inicio, fin);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return this;
+        }
+
+        Particion eliminar(int citaId) {
+            lock.writeLock().lock();
+            try {
+                anotar(citaId);
+                long[] anterior = intervalos.remove(citaId);
+                if (anterior != null) {
+                    arbol.eliminar(anterior[0], citaId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return this;
+        }
+
+        private void anotar(int citaId) {
+            if (escritasDuranteCarga != null) {
+                escritasDuranteCarga.add(citaId);
+            }
+        }
+
+        private void poner(int citaId, long inicio, long fin) {
+            long[] anterior = intervalos.put(citaId, new long[] {inicio, fin});
+            if (anterior != null) {
+                arbol.eliminar(anterior[0], citaId);
+            }
+            arbol.insertar(inicio, fin, citaId);
+        }
+
+        boolean contiene(int citaId) {
+            lock.readLock().lock();
+            try {
+                return intervalos.containsKey(citaId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Integer> citas() {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(intervalos.keySet());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Integer> solapes(long inicio, long fin, Integer excluirId) {
+            lock.readLock().lock();
+            try {
+                return arbol.solapes(inicio, fin, excluirId == null ? null : excluirId.intValue());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int tamano() {
+            lock.readLock().lock();
+            try {
+                return intervalos.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Augmented treap keyed by (start, id); each node keeps the maximum end of its
+     * subtree, so overlap searches skip subtrees that end before the queried range.
+     * Insert and delete are O(log n) expected; an overlap search is O(log n + k) for
+     * k results. Not thread-safe.
+     */
+    static final class IntervalTree {
+
+        private static final class Nodo {
+            final long inicio;
+            final long fin;
+            final int id;
+            final int prioridad = ThreadLocalRandom.current().nextInt();
+            long maxFin;
+            Nodo izquierdo;
+            Nodo derecho;
+
+            Nodo(long inicio, long fin, int id) {
+                this.inicio = inicio;
+                this.fin = fin;
+                this.id = id;
+                this.maxFin = fin;
+            }
+        }
+
+        private Nodo raiz;
+
+        void insertar(long inicio, long fin, int id) {
+            Nodo nuevo = new Nodo(inicio, fin, id);
+            Nodo[] partes = dividir(raiz, inicio, id, false);
+            raiz = unir(unir(partes[0], nuevo), partes[1]);
+        }
+
+        void eliminar(long inicio, int id) {
+            Nodo[] menores = dividir(raiz, inicio, id, false);
+            Nodo[] resto = dividir(menores[1], inicio, id, true);
+            raiz = unir(menores[0], resto[1]);
+        }
+
+        /**
+         * Closed-interval overlap: an appointment [s, e] clashes with [inicio, fin]
+         * when s <= fin and e >= inicio.
+         */
+        List<Integer> solapes(long inicio, long fin, Integer excluirId) {
+            List<Integer> resultado = new ArrayList<>();
+            buscar(raiz, inicio, fin, excluirId, resultado);
+            return resultado;
+        }
+
+        private static void buscar(Nodo nodo, long inicio, long fin, Integer excluirId, List<Integer> resultado) {
+            if (nodo == null || nodo.maxFin < inicio) {
+                return;
+            }
+            buscar(nodo.izquierdo, inicio, fin, excluirId, resultado);
+            if (nodo.inicio > fin) {
+                return;
+            }
+            if (nodo.fin >= inicio && (excluirId == null || nodo.id != excluirId)) {
+                resultado.add(nodo.id);
+            }
+            buscar(nodo.derecho, inicio, fin, excluirId, resultado);
+        }
+
+        private static int comparar(Nodo nodo, long inicio, int id) {
+            int porInicio = Long.compare(nodo.inicio, inicio);
+            return porInicio != 0 ? porInicio : Integer.compare(nodo.id, id);
+        }
+
+        /**
+         * Splits into nodes before the key and the rest; with {@code incluirIgual}
+         * the node equal to the key goes to the first half.
+         */
+        private static Nodo[] dividir(Nodo nodo, long inicio, int id, boolean incluirIgual) {
+            if (nodo == null) {
+                return new Nodo[2];
+            }
+            int comparacion = comparar(nodo, inicio, id);
+            if (comparacion < 0 || (incluirIgual && comparacion == 0)) {
+                Nodo[] partes = dividir(nodo.derecho, inicio, id, incluirIgual);
+                nodo.derecho = partes[0];
+                actualizar(nodo);
+                partes[0] = nodo;
+                return partes;
+            }
+            Nodo[] partes = dividir(nodo.izquierdo, inicio, id, incluirIgual);
+            nodo.izquierdo = partes[1];
+            actualizar(nodo);
+            partes[1] = nodo;
+            return partes;
+        }
+
+        private static Nodo unir(Nodo izquierdo, Nodo derecho) {
+            if (izquierdo == null) {
+                return derecho;
+            }
+            if (derecho == null) {
+                return izquierdo;
+            }
+            if (izquierdo.prioridad > derecho.prioridad) {
+                izquierdo.derecho = unir(izquierdo.derecho, derecho);
+                actualizar(izquierdo);
+                return izquierdo;
+            }
+            derecho.izquierdo = unir(izquierdo, derecho.izquierdo);
+            actualizar(derecho);
+            return derecho;
+        }
+
+        private static void actualizar(Nodo nodo) {
+            long maximo = nodo.fin;
+            if (nodo.izquierdo != null) {
+                maximo = Math.max(maximo, nodo.izquierdo.maxFin);
+            }
+            if (nodo.derecho != null) {
+                maximo = Math.max(maximo, nodo.derecho.maxFin);
+            }
+            nodo.maxFin = maximo;
+        }
+    }
+}
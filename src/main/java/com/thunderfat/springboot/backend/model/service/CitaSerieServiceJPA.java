@@ -0,0 +1,534 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.thunderfat.springboot.backend.config.CacheConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.CambioSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO.Estado;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO.Ocurrencia;
+import com.thunderfat.springboot.backend.model.dto.SerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recurring appointment series over one range query and plain JDBC batches.
+ * Features:
+ * - The rule is expanded in memory and every occurrence is checked against an
+ *   {@link CitaConflictIndex.IntervalTree} built from a single query covering the whole series
+ * - Accepted occurrences go into the same tree, so a series never clashes with itself
+ * - Shifted occurrences take the nearest free slot of the same day from {@link CalendarioLaboral}
+ * - Inserts and updates are single JDBC batches (IDENTITY ids rule out Hibernate batching)
+ * - Appointment caches are evicted once per series, not once per occurrence
+ * - Creating or changing a series holds the nutritionist's row lock, like a single booking
+ * - Every written occurrence takes its own agenda version and cancellations leave tombstones,
+ *   so calendar sync clients see series changes like single ones
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CitaSerieServiceJPA implements ICitaSerieService {
+
+    private static final String INSERT_CITA =
+            "INSERT INTO cita (fechaini, fechafin, id_paciente, id_nutricionista, serie, version_agenda) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_CITA =
+            "UPDATE cita SET fechaini = ?, fechafin = ?, version_agenda = ? WHERE id = ?";
+    private static final String SELECT_PENDIENTES =
+            "SELECT id, id_nutricionista FROM cita WHERE serie = ? AND fechaini >= ? ORDER BY id FOR UPDATE";
+    private static final String INSERT_CANCELACION =
+            "INSERT INTO cita_cancelada (id_cita, id_nutricionista, version_agenda, fecha) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_PENDIENTES = "DELETE FROM cita WHERE serie = ? AND fechaini >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CitaRepository citaRepository;
+    private final PacienteRepository pacienteRepository;
+    private final NutricionistaRepository nutricionistaRepository;
+    private final CitaMapper citaMapper;
+    private final CitaConflictIndex citaConflictIndex;
+    private final CalendarioLaboral calendario;
+    private final ThunderFatProperties properties;
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(value = CacheConfig.CITAS_BY_PATIENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST_DATES, allEntries = true),
+        @CacheEvict(value = CacheConfig.NEXT_APPOINTMENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CALENDAR_EVENTS, allEntries = true)
+    })
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.isNutricionistaOwner(#serie.nutricionistaId, authentication.name))")
+    public ResultadoSerieCitasDTO crear(SerieCitasDTO serie) {
+        long inicio = System.nanoTime();
+        List<LocalDateTime> inicios = expandir(serie);
+        // Same per-nutritionist lock as single bookings, taken before any appointment is read
+        if (nutricionistaRepository.lockAgenda(serie.getNutricionistaId()).isEmpty()) {
+            throw new ResourceNotFoundException("Nutricionista no encontrado con ID: " + serie.getNutricionistaId());
+        }
+        if (!pacienteRepository.existsById(serie.getPacienteId())) {
+            throw new ResourceNotFoundException("Paciente no encontrado con ID: " + serie.getPacienteId());
+        }
+        log.info("Booking {} {} occurrences for patient {} with nutritionist {}",
+                 inicios.size(), serie.getFrecuencia(), serie.getPacienteId(), serie.getNutricionistaId());
+
+        List<Ocurrencia> ocurrencias = new ArrayList<>(inicios.size());
+        for (int i = 0; i < inicios.size(); i++) {
+            ocurrencias.add(Ocurrencia.builder().indice(i + 1).inicioSolicitado(inicios.get(i)).build());
+        }
+        Agenda agenda = cargarAgenda(serie.getNutricionistaId(), inicios, serie.getDuracionMinutos(), Set.of());
+        planificar(agenda, ocurrencias, serie.getDuracionMinutos(), serie.getPolitica());
+
+        String id = UUID.randomUUID().toString();
+        ResultadoSerieCitasDTO resultado = resumir(id, ocurrencias, serie.getPolitica());
+        List<Ocurrencia> aceptadas = aceptadas(ocurrencias);
+        if (resultado.isCreada() && !aceptadas.isEmpty()) {
+            insertar(id, serie.getPacienteId(), serie.getNutricionistaId(), aceptadas);
+        } else {
+            resultado.setCreada(false);
+            resultado.setSerie(null);
+        }
+
+        resultado.setTiempoMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        log.info("Series {} for nutritionist {}: {} requested, {} booked, {} shifted, {} skipped, {} clashing in {} ms",
+                 resultado.getSerie(), serie.getNutricionistaId(), resultado.getSolicitadas(), resultado.getCreadas(),
+                 resultado.getDesplazadas(), resultado.getOmitidas(), resultado.getConflictos(), resultado.getTiempoMs());
+        return resultado;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.canViewSerieCitas(#serie, authentication.name))")
+    public List<CitaDTO> findBySerie(String serie) {
+        List<Cita> citas = citaRepository.findBySerie(serie);
+        if (citas.isEmpty()) {
+            throw new ResourceNotFoundException("Serie de citas no encontrada: " + serie);
+        }
+        return citaMapper.toDtoList(citas);
+    }
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(value = CacheConfig.CITAS_BY_PATIENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST_DATES, allEntries = true),
+        @CacheEvict(value = CacheConfig.NEXT_APPOINTMENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CALENDAR_EVENTS, allEntries = true)
+    })
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.isSerieCitasOwner(#serie, authentication.name))")
+    public ResultadoSerieCitasDTO modificar(String serie, CambioSerieCitasDTO cambio) {
+        long inicio = System.nanoTime();
+        if (cambio == null || (cambio.getNuevaHora() == null && cambio.getDuracionMinutos() == null)) {
+            throw new BusinessValidationException("Indique la nueva hora o la nueva duración de la serie");
+        }
+        LocalDateTime desde = desde(cambio.getDesde());
+        // Locking reads only until the agenda lock is held: under REPEATABLE READ the first plain
+        // read fixes the snapshot, and the agenda must be read as committed once the lock is ours
+        List<Integer> nutricionistas = citaRepository.lockPendientesDeSerie(serie, desde);
+        if (nutricionistas.isEmpty()) {
+            if (citaRepository.findBySerie(serie).isEmpty()) {
+                throw new ResourceNotFoundException("Serie de citas no encontrada: " + serie);
+            }
+            throw new BusinessValidationException("La serie no tiene citas pendientes a partir de " + desde.toLocalDate());
+        }
+        Integer nutricionistaId = nutricionistas.get(0);
+        nutricionistaRepository.lockAgenda(nutricionistaId);
+        List<Cita> pendientes = citaRepository.findBySerie(serie).stream()
+                .filter(cita -> !cita.getFechaini().isBefore(desde))
+                .toList();
+
+        // Every pending occurrence gets the same length: the new one, or the first pending occurrence's
+        int duracion = cambio.getDuracionMinutos() != null ? cambio.getDuracionMinutos()
+                : (int) ChronoUnit.MINUTES.between(pendientes.get(0).getFechaini(), pendientes.get(0).getFechafin());
+        List<LocalDateTime> inicios = new ArrayList<>(pendientes.size());
+        List<Ocurrencia> ocurrencias = new ArrayList<>(pendientes.size());
+        Set<Integer> propias = new HashSet<>();
+        for (int i = 0; i < pendientes.size(); i++) {
+            Cita cita = pendientes.get(i);
+            LocalDateTime nuevoInicio = cambio.getNuevaHora() == null ? cita.getFechaini()
+                    : cita.getFechaini().toLocalDate().atTime(cambio.getNuevaHora());
+            inicios.add(nuevoInicio);
+            propias.add(cita.getId());
+            ocurrencias.add(Ocurrencia.builder().indice(i + 1).inicioSolicitado(nuevoInicio).citaId(cita.getId()).build());
+        }
+        log.info("Changing {} pending occurrences of series {} from {}", pendientes.size(), serie, desde);
+
+        // The occurrences being changed are left out of the agenda so they never clash with themselves
+        Agenda agenda = cargarAgenda(nutricionistaId, inicios, duracion, propias);
+        planificar(agenda, ocurrencias, duracion, cambio.getPolitica());
+        ResultadoSerieCitasDTO resultado = resumir(serie, ocurrencias, cambio.getPolitica());
+        List<Ocurrencia> aceptadas = aceptadas(ocurrencias);
+        if (resultado.isCreada() && !aceptadas.isEmpty()) {
+            actualizar(nutricionistaId, aceptadas);
+        } else {
+            resultado.setCreada(false);
+        }
+        // Occurrences left out of a change keep their current time
+        for (int i = 0; i < ocurrencias.size(); i++) {
+            Ocurrencia ocurrencia = ocurrencias.get(i);
+            if (ocurrencia.getInicio() == null) {
+                ocurrencia.setInicio(pendientes.get(i).getFechaini());
+                ocurrencia.setFin(pendientes.get(i).getFechafin());
+            }
+        }
+
+        resultado.setTiempoMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        log.info("Series {} changed: {} moved, {} shifted, {} left unchanged, {} clashing in {} ms",
+                 serie, resultado.getCreadas(), resultado.getDesplazadas(), resultado.getOmitidas(),
+                 resultado.getConflictos(), resultado.getTiempoMs());
+        return resultado;
+    }
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+        @CacheEvict(value = CacheConfig.CITAS_BY_PATIENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST, allEntries = true),
+        @CacheEvict(value = CacheConfig.CITAS_BY_NUTRITIONIST_DATES, allEntries = true),
+        @CacheEvict(value = CacheConfig.NEXT_APPOINTMENT, allEntries = true),
+        @CacheEvict(value = CacheConfig.CALENDAR_EVENTS, allEntries = true)
+    })
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.isSerieCitasOwner(#serie, authentication.name))")
+    public int cancelar(String serie, LocalDate aPartirDe) {
+        if (!StringUtils.hasText(serie)) {
+            throw new BusinessValidationException("El identificador de serie es obligatorio");
+        }
+        Timestamp desde = Timestamp.valueOf(desde(aPartirDe));
+        // Locks the pending rows before the agenda, as modificar does, so both take their locks in the same order
+        List<Integer[]> pendientes = jdbcTemplate.query(SELECT_PENDIENTES,
+                (rs, fila) -> new Integer[] {rs.getInt(1), (Integer) rs.getObject(2)}, serie, desde);
+        if (pendientes.isEmpty()) {
+            if (citaRepository.findBySerie(serie).isEmpty()) {
+                throw new ResourceNotFoundException("Serie de citas no encontrada: " + serie);
+            }
+            return 0;
+        }
+        List<Integer> ids = pendientes.stream().map(fila -> fila[0]).toList();
+        Integer nutricionistaId = pendientes.get(0)[1];
+        if (nutricionistaId != null) {
+            nutricionistaRepository.lockAgenda(nutricionistaId);
+            registrarCancelaciones(nutricionistaId, ids);
+        }
+
+        int canceladas = jdbcTemplate.update(DELETE_PENDIENTES, serie, desde);
+        ids.forEach(citaConflictIndex::eliminar);
+        log.info("Cancelled {} pending occurrences of series {} from {}", canceladas, serie, desde);
+        return canceladas;
+    }
+
+    // =====================================
+    // PRIVATE HELPER METHODS
+    // =====================================
+
+    private List<LocalDateTime> expandir(SerieCitasDTO serie) {
+        if (serie == null || serie.getNutricionistaId() == null || serie.getPacienteId() == null
+                || serie.getFechaInicio() == null || serie.getDuracionMinutos() == null || serie.getFrecuencia() == null) {
+            throw new BusinessValidationException("Paciente, nutricionista, fecha de inicio, duración y frecuencia son obligatorios");
+        }
+        if (serie.getOcurrencias() == null && serie.getHastaFecha() == null) {
+            throw new BusinessValidationException("Indique el número de ocurrencias o la fecha de fin de la serie");
+        }
+        if (serie.getFechaInicio().isBefore(LocalDateTime.now())) {
+            throw new BusinessException("No se pueden crear citas en el pasado");
+        }
+        int intervalo = serie.getIntervalo() == null ? 1 : serie.getIntervalo();
+        if (intervalo < 1) {
+            throw new BusinessValidationException("El intervalo debe ser al menos 1");
+        }
+
+        int maximo = properties.getCitaSeries().getMaxOcurrencias();
+        int limite = serie.getOcurrencias() == null ? Integer.MAX_VALUE : serie.getOcurrencias();
+        List<LocalDateTime> inicios = new ArrayList<>();
+        for (int i = 0; i < limite; i++) {
+            LocalDateTime siguiente = switch (serie.getFrecuencia()) {
+                case DIARIA -> serie.getFechaInicio().plusDays((long) i * intervalo);
+                case SEMANAL -> serie.getFechaInicio().plusWeeks((long) i * intervalo);
+                // Always from the first occurrence, so 31 Jan -> 28 Feb -> 31 Mar
+                case MENSUAL -> serie.getFechaInicio().plusMonths((long) i * intervalo);
+            };
+            if (serie.getHastaFecha() != null && siguiente.toLocalDate().isAfter(serie.getHastaFecha())) {
+                break;
+            }
+            if (inicios.size() == maximo) {
+                throw new BusinessValidationException("Una serie no puede tener más de " + maximo + " citas");
+            }
+            inicios.add(siguiente);
+        }
+        if (inicios.isEmpty()) {
+            throw new BusinessValidationException("La fecha de fin de la serie es anterior a la primera cita");
+        }
+        return inicios;
+    }
+
+    /**
+     * Loads every appointment of the nutritionist on the days the series spans,
+     * with one range query, into an interval tree and the slot list used for shifting.
+     */
+    private Agenda cargarAgenda(Integer nutricionistaId, List<LocalDateTime> inicios, int duracion, Set<Integer> excluidas) {
+        LocalDate primerDia = inicios.stream().min(Comparator.naturalOrder()).orElseThrow().toLocalDate();
+        LocalDate ultimoDia = inicios.stream().max(Comparator.naturalOrder()).orElseThrow()
+                .plusMinutes(duracion).toLocalDate();
+        int buffer = calendario.getBufferMinutos();
+
+        Agenda agenda = new Agenda(nutricionistaId);
+        for (Object[] fila : citaRepository.findIntervalosEntre(List.of(nutricionistaId),
+                primerDia.atStartOfDay().minusMinutes(buffer), ultimoDia.plusDays(1).atStartOfDay().plusMinutes(buffer))) {
+            Integer id = (Integer) fila[3];
+            if (fila[1] != null && fila[2] != null && !excluidas.contains(id)) {
+                agenda.ocupar(id, (LocalDateTime) fila[1], (LocalDateTime) fila[2]);
+            }
+        }
+        log.debug("Loaded {} appointments of nutritionist {} between {} and {}",
+                 agenda.ocupadas.size(), nutricionistaId, primerDia, ultimoDia);
+        return agenda;
+    }
+
+    /**
+     * Decides the outcome of every occurrence in order. Accepted occurrences are
+     * added to the agenda under negative IDs so later occurrences are checked against them.
+     */
+    private void planificar(Agenda agenda, List<Ocurrencia> ocurrencias, int duracion, PoliticaConflictos politica) {
+        PoliticaConflictos efectiva = politica == null ? PoliticaConflictos.RECHAZAR : politica;
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Ocurrencia ocurrencia : ocurrencias) {
+            LocalDateTime inicio = ocurrencia.getInicioSolicitado();
+            LocalDateTime fin = inicio.plusMinutes(duracion);
+            List<Integer> conflictos = agenda.solapes(inicio, fin);
+            if (conflictos.isEmpty()) {
+                aceptar(agenda, ocurrencia, inicio, fin, Estado.CREADA);
+                continue;
+            }
+
+            ocurrencia.setConflictoCon(conflictos.stream().filter(id -> id > 0).toList());
+            if (efectiva == PoliticaConflictos.RECHAZAR) {
+                ocurrencia.setEstado(Estado.CONFLICTO);
+            } else if (efectiva == PoliticaConflictos.DESPLAZAR) {
+                HuecoDisponibleDTO hueco = huecoMasCercano(agenda, inicio, duracion, ahora);
+                if (hueco != null) {
+                    aceptar(agenda, ocurrencia, hueco.getInicio(), hueco.getFin(), Estado.DESPLAZADA);
+                } else {
+                    ocurrencia.setEstado(Estado.OMITIDA);
+                }
+            } else {
+                ocurrencia.setEstado(Estado.OMITIDA);
+            }
+        }
+    }
+
+    private static void aceptar(Agenda agenda, Ocurrencia ocurrencia, LocalDateTime inicio, LocalDateTime fin, Estado estado) {
+        ocurrencia.setInicio(inicio);
+        ocurrencia.setFin(fin);
+        ocurrencia.setEstado(estado);
+        agenda.ocupar(-ocurrencia.getIndice(), inicio, fin);
+    }
+
+    /**
+     * Free slot of the same day whose start is nearest to the requested one.
+     */
+    private HuecoDisponibleDTO huecoMasCercano(Agenda agenda, LocalDateTime inicio, int duracion, LocalDateTime ahora) {
+        LocalDate dia = inicio.toLocalDate();
+        List<HuecoDisponibleDTO> huecos = calendario.huecos(agenda.nutricionistaId, agenda.ocupadas, dia, dia,
+                duracion, Integer.MAX_VALUE, ahora);
+        return huecos.stream()
+                .min(Comparator.comparingLong(hueco -> Math.abs(ChronoUnit.MINUTES.between(inicio, hueco.getInicio()))))
+                .orElse(null);
+    }
+
+    private static ResultadoSerieCitasDTO resumir(String serie, List<Ocurrencia> ocurrencias, PoliticaConflictos politica) {
+        int creadas = 0;
+        int desplazadas = 0;
+        int omitidas = 0;
+        int conflictos = 0;
+        for (Ocurrencia ocurrencia : ocurrencias) {
+            switch (ocurrencia.getEstado()) {
+                case CREADA -> creadas++;
+                case DESPLAZADA -> desplazadas++;
+                case OMITIDA -> omitidas++;
+                case CONFLICTO -> { }
+            }
+            if (ocurrencia.getConflictoCon() != null) {
+                conflictos++;
+            }
+        }
+        boolean rechazada = (politica == null || politica == PoliticaConflictos.RECHAZAR) && conflictos > 0;
+        return ResultadoSerieCitasDTO.builder()
+                .serie(serie)
+                .creada(!rechazada)
+                .solicitadas(ocurrencias.size())
+                .creadas(rechazada ? 0 : creadas)
+                .desplazadas(desplazadas)
+                .omitidas(omitidas)
+                .conflictos(conflictos)
+                .ocurrencias(ocurrencias)
+                .build();
+    }
+
+    private static List<Ocurrencia> aceptadas(List<Ocurrencia> ocurrencias) {
+        return ocurrencias.stream()
+                .filter(ocurrencia -> ocurrencia.getEstado() == Estado.CREADA || ocurrencia.getEstado() == Estado.DESPLAZADA)
+                .toList();
+    }
+
+    /**
+     * Inserts the accepted occurrences in one JDBC batch and collects their generated IDs.
+     */
+    private void insertar(String serie, Integer pacienteId, Integer nutricionistaId, List<Ocurrencia> aceptadas) {
+        long version = nutricionistaRepository.reservarVersionesAgenda(nutricionistaId, aceptadas.size());
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_CITA, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Ocurrencia ocurrencia = aceptadas.get(i);
+                        ps.setTimestamp(1, Timestamp.valueOf(ocurrencia.getInicio()));
+                        ps.setTimestamp(2, Timestamp.valueOf(ocurrencia.getFin()));
+                        ps.setInt(3, pacienteId);
+                        ps.setInt(4, nutricionistaId);
+                        ps.setString(5, serie);
+                        ps.setLong(6, version + i);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return aceptadas.size();
+                    }
+                }, claves);
+
+        List<Map<String, Object>> generadas = claves.getKeyList();
+        if (generadas.size() != aceptadas.size()) {
+            throw new BusinessException("Error al crear la serie de citas: el driver JDBC devolvió "
+                    + generadas.size() + " claves para " + aceptadas.size() + " citas");
+        }
+        for (int i = 0; i < aceptadas.size(); i++) {
+            Ocurrencia ocurrencia = aceptadas.get(i);
+            ocurrencia.setCitaId(((Number) generadas.get(i).values().iterator().next()).intValue());
+            citaConflictIndex.registrar(ocurrencia.getCitaId(), nutricionistaId, ocurrencia.getInicio(), ocurrencia.getFin());
+        }
+    }
+
+    private void actualizar(Integer nutricionistaId, List<Ocurrencia> aceptadas) {
+        long version = nutricionistaRepository.reservarVersionesAgenda(nutricionistaId, aceptadas.size());
+        jdbcTemplate.batchUpdate(UPDATE_CITA, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Ocurrencia ocurrencia = aceptadas.get(i);
+                ps.setTimestamp(1, Timestamp.valueOf(ocurrencia.getInicio()));
+                ps.setTimestamp(2, Timestamp.valueOf(ocurrencia.getFin()));
+                ps.setLong(3, version + i);
+                ps.setInt(4, ocurrencia.getCitaId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return aceptadas.size();
+            }
+        });
+        aceptadas.forEach(ocurrencia -> citaConflictIndex.registrar(ocurrencia.getCitaId(), nutricionistaId,
+                ocurrencia.getInicio(), ocurrencia.getFin()));
+    }
+
+    /**
+     * One tombstone per cancelled occurrence, with consecutive agenda versions.
+     * The caller holds the nutritionist's lock.
+     */
+    private void registrarCancelaciones(Integer nutricionistaId, List<Integer> ids) {
+        long version = nutricionistaRepository.reservarVersionesAgenda(nutricionistaId, ids.size());
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_CANCELACION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, ids.get(i));
+                ps.setInt(2, nutricionistaId);
+                ps.setLong(3, version + i);
+                ps.setTimestamp(4, ahora);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    private static LocalDateTime desde(LocalDate aPartirDe) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (aPartirDe == null) {
+            return ahora;
+        }
+        LocalDateTime inicioDia = aPartirDe.atStartOfDay();
+        return inicioDia.isAfter(ahora) ? inicioDia : ahora;
+    }
+
+    /**
+     * A nutritionist's appointments over the days a series spans: an interval tree
+     * for the clash checks and the plain list the free-slot scan needs.
+     */
+    private static final class Agenda {
+        private final Integer nutricionistaId;
+        private final CitaConflictIndex.IntervalTree arbol = new CitaConflictIndex.IntervalTree();
+        private final List<LocalDateTime[]> ocupadas = new ArrayList<>();
+
+        private Agenda(Integer nutricionistaId) {
+            this.nutricionistaId = nutricionistaId;
+        }
+
+        private void ocupar(int id, LocalDateTime inicio, LocalDateTime fin) {
+            arbol.insertar(segundos(inicio), segundos(fin), id);
+            ocupadas.add(new LocalDateTime[] {inicio, fin});
+        }
+
+        /**
+         * IDs clashing with [inicio, fin], using the same closed-interval rule as
+         * single bookings; occurrences of the series itself have negative IDs.
+         */
+        private List<Integer> solapes(LocalDateTime inicio, LocalDateTime fin) {
+            return arbol.solapes(segundos(inicio), segundos(fin), null);
+        }
+
+        private static long segundos(LocalDateTime fecha) {
+            return fecha.toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+}
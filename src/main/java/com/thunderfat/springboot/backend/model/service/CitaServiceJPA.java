@@ -7,12 +7,15 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import org.hibernate.Hibernate;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -23,9 +26,15 @@ import com.thunderfat.springboot.backend.config.CacheConfig;
 import com.thunderfat.springboot.backend.exception.BusinessException;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
 import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
 import com.thunderfat.springboot.backend.model.entity.Cita;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
 import com.thunderfat.springboot.backend.validation.ValidationGroups;
 
 import jakarta.validation.Valid;
@@ -56,7 +65,9 @@ import lombok.extern.slf4j.Slf4j;
 public class CitaServiceJPA implements ICitaService {
     
     private final CitaRepository citaRepository;
+    private final NutricionistaRepository nutricionistaRepository;
     private final CitaMapper citaMapper;
+    private final CitaConflictIndex citaConflictIndex;
     
     // =====================================
     // MODERN CRUD OPERATIONS WITH PAGINATION
@@ -146,11 +157,15 @@ public class CitaServiceJPA implements ICitaService {
         // Business validations
         validateAppointmentBusinessRules(citaDTO);
         
-        // Check for scheduling conflicts
+        // Check for scheduling conflicts under the nutritionist's lock
+        lockSchedule(citaDTO.getNutricionistaId());
         validateNoConflicts(citaDTO);
         
         Cita cita = citaMapper.toEntity(citaDTO);
+        cita.setVersionAgenda(nutricionistaRepository.reservarVersionesAgenda(citaDTO.getNutricionistaId(), 1));
         Cita savedCita = citaRepository.save(cita);
+        citaConflictIndex.registrar(savedCita.getId(), citaDTO.getNutricionistaId(),
+                                    savedCita.getFechaini(), savedCita.getFechafin());
         
         log.info("Successfully created appointment with ID: {}", savedCita.getId());
         return enrichCitaDTO(savedCita);
@@ -172,6 +187,21 @@ public class CitaServiceJPA implements ICitaService {
             throw new BusinessException("ID es requerido para actualizar una cita");
         }
         
+        // Only locking reads until the agenda locks are held: under REPEATABLE READ the first
+        // plain read fixes the snapshot, and the conflict read must see every booking committed
+        // before the lock. The appointment's row is locked first, then the agendas it touches,
+        // in ID order when it moves to another nutritionist
+        Integer nutricionistaAnterior = citaRepository.lockNutricionistaIdById(citaDTO.getId()).orElse(null);
+        boolean cambiaNutricionista = nutricionistaAnterior != null
+                && !nutricionistaAnterior.equals(citaDTO.getNutricionistaId());
+        if (cambiaNutricionista && nutricionistaAnterior < citaDTO.getNutricionistaId()) {
+            lockSchedule(nutricionistaAnterior);
+        }
+        lockSchedule(citaDTO.getNutricionistaId());
+        if (cambiaNutricionista && nutricionistaAnterior > citaDTO.getNutricionistaId()) {
+            lockSchedule(nutricionistaAnterior);
+        }
+        
         // Verify appointment exists
         if (!citaRepository.existsById(citaDTO.getId())) {
             throw new ResourceNotFoundException("Cita no encontrada con ID: " + citaDTO.getId());
@@ -184,7 +214,14 @@ public class CitaServiceJPA implements ICitaService {
         validateNoConflictsForUpdate(citaDTO);
         
         Cita cita = citaMapper.toEntity(citaDTO);
+        cita.setVersionAgenda(nutricionistaRepository.reservarVersionesAgenda(citaDTO.getNutricionistaId(), 1));
+        if (cambiaNutricionista) {
+            // Sync clients of the previous nutritionist see the move as a cancellation
+            registrarCancelacion(citaDTO.getId(), nutricionistaAnterior);
+        }
         Cita updatedCita = citaRepository.save(cita);
+        citaConflictIndex.registrar(updatedCita.getId(), citaDTO.getNutricionistaId(),
+                                    updatedCita.getFechaini(), updatedCita.getFechafin());
         
         log.info("Successfully updated appointment with ID: {}", updatedCita.getId());
         return enrichCitaDTO(updatedCita);
@@ -201,11 +238,17 @@ public class CitaServiceJPA implements ICitaService {
     public void deleteById(@NotNull @Positive Integer id) {
         log.info("Deleting appointment with ID: {}", id);
         
-        if (!citaRepository.existsById(id)) {
+        // Appointment row first, then the agenda: the lock order of updates and series changes
+        Optional<Integer> nutricionistaId = citaRepository.lockNutricionistaIdById(id);
+        if (nutricionistaId.isEmpty() && !citaRepository.existsById(id)) {
             throw new ResourceNotFoundException("Cita no encontrada con ID: " + id);
         }
-        
+        if (nutricionistaId.isPresent()) {
+            lockSchedule(nutricionistaId.get());
+            registrarCancelacion(id, nutricionistaId.get());
+        }
         citaRepository.deleteById(id);
+        citaConflictIndex.eliminar(id);
         log.info("Successfully deleted appointment with ID: {}", id);
     }
     
@@ -289,6 +332,31 @@ public class CitaServiceJPA implements ICitaService {
         return citasPage.map(this::enrichCitaDTO);
     }
     
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or hasRole('NUTRICIONISTA')")
+    public Slice<CitaDTO> findAllSlice(Pageable pageable) {
+        log.info("Finding all appointments as slice: {}", pageable);
+        
+        return citaRepository.findAllSliced(pageable).map(this::enrichCitaDTO);
+    }
+    
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or hasRole('NUTRICIONISTA')")
+    public PagedResponseDTO<CitaDTO> findAllKeyset(String cursor, int size) {
+        log.info("Finding all appointments with keyset pagination [cursor: {}, size: {}]", cursor, size);
+        
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.tamanoPagina(size);
+        Limit limit = Limit.of(pageSize + 1);
+        
+        List<Cita> citas = after == null
+                ? citaRepository.findKeysetFirstPage(limit)
+                : citaRepository.findKeysetPageAfter(after.getSortKeyAsDateTime(), after.getId(), limit);
+        
+        return PagedResponseDTO.ofKeyset(citas, pageSize, after == null, this::enrichCitaDTO,
+                cita -> KeysetCursor.of(cita.getFechaini(), cita.getId()));
+    }
+    
     @Override
     @Transactional
     @Validated(ValidationGroups.Create.class)
@@ -323,6 +391,22 @@ public class CitaServiceJPA implements ICitaService {
         return citasPage.map(this::enrichCitaDTO);
     }
     
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.isNutricionistaOwner(#nutricionistaId, authentication.name))")
+    public Slice<CitaDTO> findByNutricionistaIdSlice(@NotNull @Positive Integer nutricionistaId, Pageable pageable) {
+        log.info("Finding appointments slice for nutritionist ID: {} with pageable: {}", nutricionistaId, pageable);
+        
+        return citaRepository.findSliceByNutricionistaId(nutricionistaId, pageable).map(this::enrichCitaDTO);
+    }
+    
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or (@securityService.isNutricionistaOwner(#nutricionistaId, authentication.name))")
+    public Page<CitaListadoDTO> findListadoByNutricionistaId(@NotNull @Positive Integer nutricionistaId, Pageable pageable) {
+        log.info("Finding appointment list rows for nutritionist ID: {} with pageable: {}", nutricionistaId, pageable);
+        
+        return citaRepository.findListadoByNutricionistaId(nutricionistaId, pageable);
+    }
+    
     @Override
     @PreAuthorize("hasRole('ADMIN') or hasRole('NUTRICIONISTA') or (@securityService.isPacienteOwner(#pacienteId, authentication.name))")
     public Page<CitaDTO> findByPacienteId(@NotNull @Positive Integer pacienteId, Pageable pageable) {
@@ -332,6 +416,14 @@ public class CitaServiceJPA implements ICitaService {
         return citasPage.map(this::enrichCitaDTO);
     }
     
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or hasRole('NUTRICIONISTA') or (@securityService.isPacienteOwner(#pacienteId, authentication.name))")
+    public Slice<CitaDTO> findByPacienteIdSlice(@NotNull @Positive Integer pacienteId, Pageable pageable) {
+        log.info("Finding appointments slice for patient ID: {} with pageable: {}", pacienteId, pageable);
+        
+        return citaRepository.findSliceByPacienteId(pacienteId, pageable).map(this::enrichCitaDTO);
+    }
+    
     @Override
     @PreAuthorize("hasRole('ADMIN') or (@securityService.isNutricionistaOwner(#nutricionistaId, authentication.name))")
     public Page<CitaDTO> findByNutricionistaIdAndDateRange(@NotNull @Positive Integer nutricionistaId,
@@ -390,6 +482,16 @@ public class CitaServiceJPA implements ICitaService {
         log.info("Finding conflicting appointments for nutritionist ID: {} between {} and {}", 
                  nutricionistaId, startDateTime, endDateTime);
         
+        // A free range in the in-memory index needs no query; clashes are read from the
+        // database, which also drops appointments the index still holds but no longer clash
+        boolean libreEnIndice = citaConflictIndex.buscarSolapes(
+            nutricionistaId, startDateTime, endDateTime, excludeId)
+            .map(List::isEmpty)
+            .orElse(false);
+        if (libreEnIndice) {
+            return List.of();
+        }
+        
         List<Cita> conflicts;
         if (excludeId != null) {
             conflicts = citaRepository.findConflictingAppointmentsExcluding(
@@ -479,7 +581,15 @@ public class CitaServiceJPA implements ICitaService {
         try {
             validateAppointmentBusinessRules(citaDTO);
             
-            if (citaDTO.getId() == null) {
+            // Advisory check for the UI: a free slot in the in-memory index is answered from memory,
+            // a clash is confirmed by the database because the index may hold a stale appointment
+            boolean libreEnIndice = citaConflictIndex.buscarSolapes(
+                citaDTO.getNutricionistaId(), citaDTO.getFechaInicio(), citaDTO.getFechaFin(), citaDTO.getId())
+                .map(List::isEmpty)
+                .orElse(false);
+            if (libreEnIndice) {
+                return true;
+            } else if (citaDTO.getId() == null) {
                 validateNoConflicts(citaDTO);
             } else {
                 validateNoConflictsForUpdate(citaDTO);
@@ -561,8 +671,8 @@ public class CitaServiceJPA implements ICitaService {
             throw new BusinessException("La duración mínima de una cita es de 15 minutos");
         }
         
-        // Validate maximum duration (e.g., 4 hours)
-        if (duration != null && duration > 240) {
+        // Validate maximum duration (4 hours, also enforced by the entity)
+        if (duration != null && duration > Cita.DURACION_MAXIMA_MINUTOS) {
             throw new BusinessException("La duración máxima de una cita es de 4 horas");
         }
         
@@ -572,12 +682,33 @@ public class CitaServiceJPA implements ICitaService {
         }
     }
     
+    /**
+     * Serializes bookings per nutritionist: the row lock is held until commit, so a
+     * concurrent booking for the same nutritionist waits and then sees this one in its
+     * conflict query. Bookings for other nutritionists are not blocked.
+     */
+    private void lockSchedule(Integer nutricionistaId) {
+        if (nutricionistaRepository.lockAgenda(nutricionistaId).isEmpty()) {
+            throw new ResourceNotFoundException("Nutricionista no encontrado con ID: " + nutricionistaId);
+        }
+    }
+    
+    /**
+     * Leaves a tombstone so calendar sync clients drop the appointment. The caller
+     * holds the nutritionist's lock, which keeps the reserved version in commit order.
+     */
+    private void registrarCancelacion(Integer citaId, Integer nutricionistaId) {
+        citaRepository.registrarCancelacion(citaId, nutricionistaId,
+                nutricionistaRepository.reservarVersionesAgenda(nutricionistaId, 1));
+    }
+    
     private void validateNoConflicts(CitaDTO citaDTO) {
         List<Cita> conflicts = citaRepository.findConflictingAppointments(
             citaDTO.getNutricionistaId(),
             citaDTO.getFechaInicio(),
             citaDTO.getFechaFin()
         );
+        reconcileIndex(citaDTO, null, conflicts);
         
         if (!conflicts.isEmpty()) {
             throw new BusinessException("Ya existe una cita programada en ese horario");
@@ -591,18 +722,37 @@ public class CitaServiceJPA implements ICitaService {
             citaDTO.getFechaFin(),
             citaDTO.getId()
         );
+        reconcileIndex(citaDTO, citaDTO.getId(), conflicts);
         
         if (!conflicts.isEmpty()) {
             throw new BusinessException("Ya existe una cita programada en ese horario");
         }
     }
     
+    /**
+     * Writes are decided by the database query, which runs under the agenda lock and sees
+     * bookings from every node; the in-memory index only answers reads. When the index
+     * disagrees with the database (a clash it missed, or one the database no longer has)
+     * the nutritionist's partition is stale and is dropped so the next read reloads it.
+     */
+    private void reconcileIndex(CitaDTO citaDTO, Integer excludeId, List<Cita> conflicts) {
+        citaConflictIndex.buscarSolapes(citaDTO.getNutricionistaId(),
+                citaDTO.getFechaInicio(), citaDTO.getFechaFin(), excludeId)
+            .filter(ids -> ids.isEmpty() != conflicts.isEmpty())
+            .ifPresent(ids -> citaConflictIndex.invalidar(citaDTO.getNutricionistaId()));
+    }
+    
     private void validateDateRange(LocalDate startDate, LocalDate endDate) {
         if (startDate.isAfter(endDate)) {
             throw new BusinessException("La fecha de inicio debe ser anterior a la fecha de fin");
         }
     }
     
+    /**
+     * Builds the DTO from an appointment whose patient and nutritionist were fetch-joined
+     * by the repository query. Associations that were not fetched are left without a name
+     * rather than loaded one row at a time, so a page costs the same statements whatever its size.
+     */
     private CitaDTO enrichCitaDTO(Cita cita) {
         CitaDTO dto = citaMapper.toDto(cita);
         
@@ -610,17 +760,24 @@ public class CitaServiceJPA implements ICitaService {
         dto.setDuracionMinutos(dto.calculateDuration());
         dto.setEstado(dto.determineStatus());
         
-        // Enrich with related entity names if available
-        if (cita.getPaciente() != null) {
-            dto.setPacienteNombre(cita.getPaciente().getNombre() + " " + 
-                                 (cita.getPaciente().getApellidos() != null ? cita.getPaciente().getApellidos() : ""));
+        // Enrich with related entity names if already loaded
+        Paciente paciente = cita.getPaciente();
+        if (paciente != null && Hibernate.isInitialized(paciente)) {
+            dto.setPacienteNombre(nombreCompleto(paciente.getNombre(), paciente.getApellidos()));
         }
         
-        if (cita.getNutricionista() != null) {
-            dto.setNutricionistaNombre(cita.getNutricionista().getNombre() + " " + 
-                                     (cita.getNutricionista().getApellidos() != null ? cita.getNutricionista().getApellidos() : ""));
+        Nutricionista nutricionista = cita.getNutricionista();
+        if (nutricionista != null && Hibernate.isInitialized(nutricionista)) {
+            dto.setNutricionistaNombre(nombreCompleto(nutricionista.getNombre(), nutricionista.getApellidos()));
         }
         
         return dto;
     }
+    
+    private static String nombreCompleto(String nombre, String apellidos) {
+        if (nombre == null) {
+            return null;
+        }
+        return nombre + " " + (apellidos != null ? apellidos : "");
+    }
 }
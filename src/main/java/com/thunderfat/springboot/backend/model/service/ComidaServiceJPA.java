@@ -8,8 +8,10 @@ import java.util.stream.Collectors;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.stereotype.Service;
@@ -23,6 +25,9 @@ import com.thunderfat.springboot.backend.model.dao.PlanDietaRepository;
 import com.thunderfat.springboot.backend.model.dao.PlatoPlanDietaRepository;
 import com.thunderfat.springboot.backend.model.dao.PlatoPredeterminadoRepository;
 import com.thunderfat.springboot.backend.model.dto.ComidaDTO;
+import com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.PlatoPredeterminadoDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.ComidaMapper;
 import com.thunderfat.springboot.backend.model.dto.mapper.PlatoPredeterminadoMapper;
@@ -163,6 +168,41 @@ public class ComidaServiceJPA implements IComidaService {
         }
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<ComidaDTO> findAllSlice(Pageable pageable) {
+        log.debug("Finding all comidas as slice: page {}, size {}", 
+                  pageable.getPageNumber(), pageable.getPageSize());
+        
+        try {
+            return comidaRepository.findAllSliced(pageable).map(comidaMapper::toDto);
+        } catch (Exception e) {
+            log.error("Error finding all comidas as slice", e);
+            throw new BusinessException("Error al listar comidas", e);
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public PagedResponseDTO<ComidaDTO> findAllKeyset(String cursor, int size) {
+        log.debug("Finding all comidas with keyset pagination: cursor {}, size {}", cursor, size);
+        
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.tamanoPagina(size);
+        Limit limit = Limit.of(pageSize + 1);
+        
+        try {
+            List<Comida> comidas = after == null
+                    ? comidaRepository.findKeysetFirstPage(limit)
+                    : comidaRepository.findKeysetPageAfter(after.getId(), limit);
+            return PagedResponseDTO.ofKeyset(comidas, pageSize, after == null, comidaMapper::toDto,
+                    comida -> KeysetCursor.of(comida.getId()));
+        } catch (Exception e) {
+            log.error("Error finding all comidas with keyset pagination", e);
+            throw new BusinessException("Error al listar comidas", e);
+        }
+    }
+    
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = "comidas", key = "#id")
@@ -243,6 +283,34 @@ public class ComidaServiceJPA implements IComidaService {
         }
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("@securityService.canAccessPlanDieta(#planDietaId, authentication)")
+    public Slice<ComidaDTO> findByPlanDietaIdSlice(Integer planDietaId, Pageable pageable) {
+        log.debug("Finding comidas slice by plan dieta ID: {}", planDietaId);
+        
+        try {
+            return comidaRepository.findSliceByPlanDietaId(planDietaId, pageable).map(comidaMapper::toDto);
+        } catch (Exception e) {
+            log.error("Error finding comidas slice by plan dieta ID: {}", planDietaId, e);
+            throw new BusinessException("Error al buscar comidas por plan de dieta", e);
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("@securityService.canAccessPlanDieta(#planDietaId, authentication)")
+    public Page<ComidaListadoDTO> findListadoByPlanDietaId(Integer planDietaId, Pageable pageable) {
+        log.debug("Finding meal list rows by plan dieta ID: {}", planDietaId);
+        
+        try {
+            return comidaRepository.findListadoByPlanDietaId(planDietaId, pageable);
+        } catch (Exception e) {
+            log.error("Error finding meal list rows by plan dieta ID: {}", planDietaId, e);
+            throw new BusinessException("Error al buscar comidas por plan de dieta", e);
+        }
+    }
+    
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = "comidas", key = "#nutricionistaId + '-nutritionist-' + #pageable.pageNumber")
@@ -259,6 +327,20 @@ public class ComidaServiceJPA implements IComidaService {
         }
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('NUTRICIONISTA') and @securityService.isNutricionistaOwner(#nutricionistaId, authentication) or hasRole('ADMIN')")
+    public Slice<ComidaDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable) {
+        log.debug("Finding comidas slice by nutritionist ID: {}", nutricionistaId);
+        
+        try {
+            return comidaRepository.findSliceByNutricionistaId(nutricionistaId, pageable).map(comidaMapper::toDto);
+        } catch (Exception e) {
+            log.error("Error finding comidas slice by nutritionist ID: {}", nutricionistaId, e);
+            throw new BusinessException("Error al buscar comidas por nutricionista", e);
+        }
+    }
+    
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = "comidas", key = "#pacienteId + '-today-' + #date")
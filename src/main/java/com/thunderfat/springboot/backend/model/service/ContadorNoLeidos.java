@@ -0,0 +1,232 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO;
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Unread message counters per user and chat, kept current as messages are stored and
+ * read instead of being counted from the messages on every request.
+ *
+ * The counters are rebuilt from the database once at startup, before the chat message
+ * writer starts, and then moved by {@link MensajeWriteBehind} after each batch commits
+ * and by read receipts after theirs does. Changes made any other way, such as deleted
+ * messages or messages created through the repository resource, recount the unread
+ * messages of their chat once they commit. Every change is sent to the user's
+ * {@code /user/queue/unread}, so clients need not poll for it.
+ *
+ * They live in this node's memory unless an {@link AlmacenNoLeidos} bean is defined,
+ * such as {@link RedisAlmacenNoLeidos} for several nodes. Read receipts that commit
+ * while the counters are being rebuilt may be counted twice; counts never go below zero
+ * and the next reconciliation corrects them.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+public class ContadorNoLeidos {
+
+    /** User destination of counter changes, under {@code /user} */
+    public static final String COLA_NO_LEIDOS = "/queue/unread";
+
+    private final ChatRepository chatRepository;
+    private final MensajeRepository mensajeRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AlmacenNoLeidos almacen;
+
+    public ContadorNoLeidos(ChatRepository chatRepository,
+                            MensajeRepository mensajeRepository,
+                            SimpMessagingTemplate messagingTemplate,
+                            ObjectProvider<AlmacenNoLeidos> almacen) {
+        this.chatRepository = chatRepository;
+        this.mensajeRepository = mensajeRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.almacen = almacen.getIfAvailable(AlmacenNoLeidosEnMemoria::new);
+    }
+
+    /**
+     * Rebuilds every counter from the unread messages in the database, those newer than
+     * their recipient's watermark. Chats stored before there were watermarks are first
+     * seeded, once, from the read flags of their messages; later startups find no unseeded
+     * chat and skip the correlated updates.
+     * Runs ahead of the other startup listeners, the chat message writer among them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconciliar() {
+        long inicio = System.nanoTime();
+        if (chatRepository.existsLeidoHastaSinSembrar()) {
+            int sembradas = chatRepository.sembrarLeidoHastaPaciente() + chatRepository.sembrarLeidoHastaNutricionista();
+            log.info("Seeded {} read watermarks from the per-message read flags", sembradas);
+        }
+        Map<Integer, Map<Integer, Long>> conteos = new HashMap<>();
+        for (Object[] fila : mensajeRepository.findNoLeidosPorChatYEmisor()) {
+            Integer destinatario = destinatario((Integer) fila[1], (Integer) fila[2], (Integer) fila[3]);
+            if (destinatario != null) {
+                conteos.computeIfAbsent(destinatario, id -> new HashMap<>())
+                       .merge((Integer) fila[0], ((Number) fila[4]).longValue(), Long::sum);
+            }
+        }
+        almacen.reemplazar(conteos);
+        log.info("Unread counters of {} users rebuilt in {} ms with {}", conteos.size(),
+                 (System.nanoTime() - inicio) / 1_000_000, almacen.getClass().getSimpleName());
+    }
+
+    /**
+     * Counts messages just stored for the other participant of the chat.
+     * Called once the messages are committed.
+     */
+    public void recibidos(ChatParticipantesDTO chat, int emisorId, int cuantos) {
+        Integer destinatario = destinatario(chat.getPacienteId(), chat.getNutricionistaId(), emisorId);
+        if (destinatario == null || cuantos == 0) {
+            return;
+        }
+        String email = destinatario.equals(chat.getPacienteId()) ? chat.getPacienteEmail() : chat.getNutricionistaEmail();
+        sumar(destinatario, email, chat.getChatId(), cuantos);
+    }
+
+    /**
+     * Discounts messages the reader's watermark just moved past, once the surrounding
+     * transaction commits.
+     */
+    public void leidos(ChatParticipantesDTO chat, int lectorId, String lector, int cuantos) {
+        if (cuantos == 0) {
+            return;
+        }
+        trasCommit(() -> sumar(lectorId, lector, chat.getChatId(), -cuantos));
+    }
+
+    /**
+     * Recounts the unread messages of both participants of a chat from the database, once
+     * the surrounding transaction commits, and moves their counters to match. For changes
+     * that neither the writer nor read receipts see, such as deleted messages.
+     */
+    public void recontar(int chatId) {
+        trasCommit(() -> {
+            try {
+                recontarAhora(chatId);
+            } catch (RuntimeException e) {
+                log.warn("Could not recount the unread messages of chat {}: {}", chatId, e.getMessage());
+            }
+        });
+    }
+
+    private void recontarAhora(int chatId) {
+        List<ChatParticipantesDTO> chats = chatRepository.findParticipantes(List.of(chatId));
+        if (chats.isEmpty()) {
+            return;
+        }
+        ChatParticipantesDTO chat = chats.get(0);
+        Map<Integer, Long> noLeidos = new HashMap<>();
+        for (Object[] fila : mensajeRepository.findNoLeidosPorEmisor(chatId)) {
+            Integer destinatario = destinatario(chat.getPacienteId(), chat.getNutricionistaId(), (Integer) fila[0]);
+            if (destinatario != null) {
+                noLeidos.merge(destinatario, ((Number) fila[1]).longValue(), Long::sum);
+            }
+        }
+        ajustar(chat.getPacienteId(), chat.getPacienteEmail(), chatId, noLeidos);
+        ajustar(chat.getNutricionistaId(), chat.getNutricionistaEmail(), chatId, noLeidos);
+    }
+
+    private void ajustar(Integer usuarioId, String email, int chatId, Map<Integer, Long> noLeidos) {
+        if (usuarioId == null) {
+            return;
+        }
+        long delta = noLeidos.getOrDefault(usuarioId, 0L) - almacen.porChat(usuarioId).getOrDefault(chatId, 0L);
+        if (delta != 0) {
+            sumar(usuarioId, email, chatId, delta);
+        }
+    }
+
+    /** Unread messages across every chat of the user */
+    public long total(int usuarioId) {
+        return almacen.total(usuarioId);
+    }
+
+    /** Chats of the user with unread messages, by chat id */
+    public Map<Integer, Long> porChat(int usuarioId) {
+        return almacen.porChat(usuarioId);
+    }
+
+    /**
+     * Current counters of a STOMP user, one per chat with unread messages, for a client
+     * that has just subscribed to {@link #COLA_NO_LEIDOS}.
+     */
+    public List<NoLeidosDTO> resumen(String usuario) {
+        List<ChatParticipantesDTO> chats = chatRepository.findParticipantesPorEmail(usuario);
+        Integer usuarioId = chats.isEmpty() ? null : chats.get(0).participante(usuario);
+        if (usuarioId == null) {
+            return List.of();
+        }
+        long total = almacen.total(usuarioId);
+        List<NoLeidosDTO> resumen = new ArrayList<>();
+        almacen.porChat(usuarioId).forEach((chatId, noLeidos) -> resumen.add(new NoLeidosDTO(chatId, noLeidos, total)));
+        return resumen;
+    }
+
+    private void sumar(int usuarioId, String email, int chatId, long delta) {
+        NoLeidosDTO cambio;
+        try {
+            cambio = almacen.sumar(usuarioId, chatId, delta);
+        } catch (RuntimeException e) {
+            log.warn("Could not update the unread counter of user {} in chat {}: {}", usuarioId, chatId, e.getMessage());
+            return;
+        }
+        if (email == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(email, COLA_NO_LEIDOS, cambio);
+        } catch (RuntimeException e) {
+            log.warn("Could not notify {} of unread messages in chat {}: {}", email, chatId, e.getMessage());
+        }
+    }
+
+    private static void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * The participant who did not send the messages, or null if the sender is not in the chat.
+     */
+    private static Integer destinatario(Integer pacienteId, Integer nutricionistaId, Integer emisorId) {
+        if (emisorId == null) {
+            return null;
+        }
+        if (emisorId.equals(pacienteId)) {
+            return nutricionistaId;
+        }
+        if (emisorId.equals(nutricionistaId)) {
+            return pacienteId;
+        }
+        return null;
+    }
+}
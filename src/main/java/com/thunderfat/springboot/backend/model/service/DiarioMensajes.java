@@ -0,0 +1,205 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local append-only journal of the live chat messages accepted by {@link MensajeWriteBehind},
+ * so the messages still queued when the process dies are stored when it starts again.
+ *
+ * One JSON line per event: a message is accepted ({@code A}) before it is queued, numbered
+ * ({@code S}) before the insert of its batch, and done ({@code H}) once its batch is stored
+ * or it is rejected. What is accepted and not done when the journal is opened is handed
+ * back by {@link #recuperar()}; a numbered one may have been committed just before the
+ * crash, which the caller checks against the database before storing it again. The file
+ * is emptied whenever nothing is left open, so it only ever holds the current backlog.
+ *
+ * Appends go through the page cache and survive the death of the process; with
+ * {@code sincronizar} every append is also flushed to disk, to survive the machine.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+final class DiarioMensajes implements Closeable {
+
+    static final String ACEPTADO = "A";
+    static final String NUMERADO = "S";
+    static final String HECHO = "H";
+
+    private final Path ruta;
+    private final boolean sincronizar;
+    private final ObjectMapper json = new ObjectMapper();
+    private final FileOutputStream salida;
+    private long siguienteId = 1;
+    private long abiertos;
+
+    DiarioMensajes(Path ruta, boolean sincronizar) throws IOException {
+        this.ruta = ruta;
+        this.sincronizar = sincronizar;
+        Path directorio = ruta.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+        this.salida = new FileOutputStream(ruta.toFile(), true);
+    }
+
+    /**
+     * Reads the messages accepted and not done before the journal was last closed, in the
+     * order they were accepted. Call once, before anything is appended.
+     */
+    synchronized List<Recuperado> recuperar() throws IOException {
+        Map<Long, Recuperado> abiertas = new LinkedHashMap<>();
+        String linea;
+        try (BufferedReader lector = Files.newBufferedReader(ruta, StandardCharsets.UTF_8)) {
+            while ((linea = lector.readLine()) != null) {
+                if (linea.isBlank()) {
+                    continue;
+                }
+                Entrada entrada;
+                try {
+                    entrada = json.readValue(linea, Entrada.class);
+                } catch (JsonProcessingException e) {
+                    // The last line of a crash may be cut short
+                    log.warn("Skipping unreadable line of chat message journal {}: {}", ruta, e.getOriginalMessage());
+                    continue;
+                }
+                switch (entrada.t()) {
+                    case ACEPTADO -> {
+                        abiertas.put(entrada.id(), new Recuperado(entrada.id(), entrada.cliente(), entrada.chat(),
+                                entrada.emisor(), entrada.contenido(), entrada.tipo(), null));
+                        siguienteId = Math.max(siguienteId, entrada.id() + 1);
+                    }
+                    case NUMERADO -> abiertas.computeIfPresent(entrada.id(),
+                            (id, recuperado) -> recuperado.numerado(entrada.secuencia()));
+                    case HECHO -> entrada.ids().forEach(abiertas::remove);
+                    default -> log.warn("Skipping unknown entry {} of chat message journal {}", entrada.t(), ruta);
+                }
+            }
+        }
+        boolean terminada = Files.size(ruta) == 0 || ultimoByte() == '\n';
+        abiertos = abiertas.size();
+        if (abiertos == 0) {
+            salida.getChannel().truncate(0);
+        } else if (!terminada) {
+            // Never glue the next entry to a cut line
+            salida.write('\n');
+        }
+        return new ArrayList<>(abiertas.values());
+    }
+
+    /**
+     * Records a message about to be queued.
+     *
+     * @return its id in the journal
+     */
+    synchronized long aceptado(String idCliente, int chatId, String emisor, String contenido, String tipo)
+            throws IOException {
+        long id = siguienteId++;
+        anotar(List.of(new Entrada(ACEPTADO, id, idCliente, chatId, emisor, contenido, tipo, null, null)));
+        abiertos++;
+        return id;
+    }
+
+    /**
+     * Records the sequences given to messages of a batch about to be inserted.
+     *
+     * @param secuencias sequence of each message, by journal id
+     */
+    synchronized void numerados(Map<Long, Long> secuencias) {
+        List<Entrada> entradas = new ArrayList<>(secuencias.size());
+        secuencias.forEach((id, secuencia) ->
+                entradas.add(new Entrada(NUMERADO, id, null, null, null, null, null, secuencia, null)));
+        try {
+            anotar(entradas);
+        } catch (IOException e) {
+            // Inserting without it could store the message twice after a crash
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records messages stored or rejected; empties the journal when none is left open.
+     */
+    synchronized void terminados(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            abiertos -= ids.size();
+            if (abiertos <= 0) {
+                abiertos = 0;
+                salida.getChannel().truncate(0);
+            } else {
+                anotar(List.of(new Entrada(HECHO, 0, null, null, null, null, null, null, List.copyOf(ids))));
+            }
+        } catch (IOException e) {
+            // They are checked against the database on the next start
+            log.warn("Could not mark {} chat messages as done in journal {}: {}", ids.size(), ruta, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        salida.close();
+    }
+
+    private void anotar(List<Entrada> entradas) throws IOException {
+        StringBuilder lineas = new StringBuilder();
+        for (Entrada entrada : entradas) {
+            lineas.append(json.writeValueAsString(entrada)).append('\n');
+        }
+        salida.write(lineas.toString().getBytes(StandardCharsets.UTF_8));
+        if (sincronizar) {
+            salida.getFD().sync();
+        }
+    }
+
+    private int ultimoByte() throws IOException {
+        try (SeekableByteChannel canal = Files.newByteChannel(ruta)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            canal.position(canal.size() - 1).read(buffer);
+            return buffer.get(0);
+        }
+    }
+
+    /**
+     * A message accepted and not done before the journal was opened.
+     *
+     * @param secuencia sequence it was being inserted with, or null if it never got that far
+     */
+    record Recuperado(long id, String idCliente, int chatId, String emisor, String contenido, String tipo,
+                      Long secuencia) {
+
+        private Recuperado numerado(Long secuencia) {
+            return new Recuperado(id, idCliente, chatId, emisor, contenido, tipo, secuencia);
+        }
+    }
+
+    /**
+     * One line of the journal.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Entrada(String t, long id, String cliente, Integer chat, String emisor, String contenido,
+                           String tipo, Long secuencia, List<Long> ids) {
+    }
+}
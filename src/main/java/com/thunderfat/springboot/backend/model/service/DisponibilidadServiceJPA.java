@@ -0,0 +1,131 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Free-slot search over nutritionists' agendas.
+ * Features:
+ * - Working hours and breaks compiled once at startup by {@link CalendarioLaboral}
+ * - One indexed range query for the appointments of every nutritionist searched
+ * - Appointments, widened by the buffer, cleared from a bitmap covering the whole
+ *   date range; free runs are then scanned with {@code BitSet.nextSetBit}
+ * - Slot starts aligned to {@code thunderfat.agenda.paso}
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class DisponibilidadServiceJPA implements IDisponibilidadService {
+
+    // Same limits CitaServiceJPA enforces when the appointment is booked
+    private static final int DURACION_MINIMA = 15;
+    private static final int DURACION_MAXIMA = 240;
+
+    private final CitaRepository citaRepository;
+    private final NutricionistaRepository nutricionistaRepository;
+    private final CalendarioLaboral calendario;
+    private final int maxDias;
+    private final int maxResultados;
+
+    public DisponibilidadServiceJPA(CitaRepository citaRepository,
+                                    NutricionistaRepository nutricionistaRepository,
+                                    CalendarioLaboral calendario,
+                                    ThunderFatProperties properties) {
+        this.citaRepository = citaRepository;
+        this.nutricionistaRepository = nutricionistaRepository;
+        this.calendario = calendario;
+        this.maxDias = properties.getAgenda().getMaxDias();
+        this.maxResultados = properties.getAgenda().getMaxResultados();
+    }
+
+    @Override
+    @PreAuthorize("hasAnyRole('ADMIN', 'NUTRICIONISTA', 'PACIENTE')")
+    public List<HuecoDisponibleDTO> buscarHuecos(Integer nutricionistaId, LocalDate desde, LocalDate hasta,
+                                                 int duracionMinutos, int limite) {
+        validar(desde, hasta, duracionMinutos, limite);
+        log.debug("Searching {} free {}-minute slots for nutritionist {} between {} and {}",
+                 limite, duracionMinutos, nutricionistaId, desde, hasta);
+
+        Map<Integer, List<LocalDateTime[]>> citas = cargarCitas(List.of(nutricionistaId), desde, hasta);
+        return calendario.huecos(nutricionistaId, citas.getOrDefault(nutricionistaId, List.of()),
+                desde, hasta, duracionMinutos, limite, LocalDateTime.now());
+    }
+
+    @Override
+    @PreAuthorize("hasAnyRole('ADMIN', 'NUTRICIONISTA', 'PACIENTE')")
+    public List<HuecoDisponibleDTO> buscarHuecosClinica(LocalDate desde, LocalDate hasta,
+                                                        int duracionMinutos, int limite) {
+        validar(desde, hasta, duracionMinutos, limite);
+        List<Integer> nutricionistas = nutricionistaRepository.findIdsActivos();
+        if (nutricionistas.isEmpty()) {
+            return List.of();
+        }
+        log.debug("Searching {} free {}-minute slots across {} nutritionists between {} and {}",
+                 limite, duracionMinutos, nutricionistas.size(), desde, hasta);
+
+        Map<Integer, List<LocalDateTime[]>> citas = cargarCitas(nutricionistas, desde, hasta);
+        LocalDateTime ahora = LocalDateTime.now();
+        List<HuecoDisponibleDTO> todos = new ArrayList<>();
+        for (Integer nutricionistaId : nutricionistas) {
+            todos.addAll(calendario.huecos(nutricionistaId, citas.getOrDefault(nutricionistaId, List.of()),
+                    desde, hasta, duracionMinutos, limite, ahora));
+        }
+        return todos.stream()
+                .sorted(Comparator.comparing(HuecoDisponibleDTO::getInicio)
+                        .thenComparing(HuecoDisponibleDTO::getNutricionistaId))
+                .limit(limite)
+                .toList();
+    }
+
+    private void validar(LocalDate desde, LocalDate hasta, int duracionMinutos, int limite) {
+        if (desde == null || hasta == null || desde.isAfter(hasta)) {
+            throw new BusinessValidationException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= maxDias) {
+            throw new BusinessValidationException("El rango de búsqueda no puede superar " + maxDias + " días");
+        }
+        if (duracionMinutos < DURACION_MINIMA || duracionMinutos > DURACION_MAXIMA) {
+            throw new BusinessValidationException("La duración de la cita debe estar entre "
+                    + DURACION_MINIMA + " y " + DURACION_MAXIMA + " minutos");
+        }
+        if (limite < 1 || limite > maxResultados) {
+            throw new BusinessValidationException("El número de huecos debe estar entre 1 y " + maxResultados);
+        }
+    }
+
+    private Map<Integer, List<LocalDateTime[]>> cargarCitas(Collection<Integer> nutricionistaIds,
+                                                            LocalDate desde, LocalDate hasta) {
+        Map<Integer, List<LocalDateTime[]>> porNutricionista = new HashMap<>();
+        for (Object[] fila : citaRepository.findIntervalosEntre(nutricionistaIds,
+                desde.atStartOfDay().minusMinutes(calendario.getBufferMinutos()),
+                hasta.plusDays(1).atStartOfDay().plusMinutes(calendario.getBufferMinutos()))) {
+            if (fila[1] != null && fila[2] != null) {
+                porNutricionista.computeIfAbsent((Integer) fila[0], id -> new ArrayList<>())
+                        .add(new LocalDateTime[] {(LocalDateTime) fila[1], (LocalDateTime) fila[2]});
+            }
+        }
+        return porNutricionista;
+    }
+}
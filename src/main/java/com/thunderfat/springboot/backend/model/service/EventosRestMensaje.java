@@ -0,0 +1,74 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.List;
+
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.entity.Mensaje;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Messages created through the exported {@code /mensajes} resource, which bypass
+ * {@link MensajeWriteBehind}. They are numbered after the highest stored sequence of
+ * their chat, whatever the client sent, so the history and the read receipts see them
+ * like any live message.
+ *
+ * A number taken meanwhile by the writer, or by another request, is rejected by the
+ * unique key of (chat, sequence) and the request fails with a conflict; the writer
+ * stores its batch again with sequences reloaded from the database.
+ *
+ * Once such a message is created or deleted, the unread counters of its chat are
+ * recounted through {@link ContadorNoLeidos}; a created one is also announced to the
+ * inboxes of both participants, like the messages stored by the writer.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@RepositoryEventHandler(Mensaje.class)
+@RequiredArgsConstructor
+@Slf4j
+public class EventosRestMensaje {
+
+    private final MensajeRepository mensajeRepository;
+    private final ContadorNoLeidos contadorNoLeidos;
+    private final MensajeWriteBehind mensajeWriteBehind;
+
+    @HandleBeforeCreate
+    public void antesDeCrear(Mensaje mensaje) {
+        if (mensaje.getChat() == null) {
+            return;
+        }
+        int chatId = mensaje.getChat().getId_chat();
+        long ultima = 0;
+        for (Object[] fila : mensajeRepository.findUltimasSecuencias(List.of(chatId))) {
+            ultima = ((Number) fila[1]).longValue();
+        }
+        mensaje.setSecuencia(ultima + 1);
+        log.debug("Numbered message created through REST in chat {} as {}", chatId, mensaje.getSecuencia());
+    }
+
+    @HandleAfterCreate
+    public void creado(Mensaje mensaje) {
+        recontar(mensaje);
+        mensajeWriteBehind.anunciar(mensaje);
+    }
+
+    @HandleAfterDelete
+    public void eliminado(Mensaje mensaje) {
+        recontar(mensaje);
+    }
+
+    private void recontar(Mensaje mensaje) {
+        if (mensaje.getChat() != null) {
+            contadorNoLeidos.recontar(mensaje.getChat().getId_chat());
+        }
+    }
+}
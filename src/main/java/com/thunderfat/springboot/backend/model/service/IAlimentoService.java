@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.thunderfat.springboot.backend.model.dto.AlimentoDTO;
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
 
 /**
  * Service interface for Alimento operations
@@ -81,7 +82,7 @@ public interface IAlimentoService {
                                                Pageable pageable);
     
     /**
-     * Legacy method for backward compatibility - simple list for select dropdowns
+     * Simple list for select dropdowns: id, name, status and calories only
      */
-    List<AlimentoDTO> listarParaSelect();
+    List<AlimentoSelectDTO> listarParaSelect();
 }
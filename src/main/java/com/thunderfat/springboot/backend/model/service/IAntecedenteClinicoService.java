@@ -1,6 +1,7 @@
 package com.thunderfat.springboot.backend.model.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
@@ -103,6 +104,20 @@ public interface IAntecedenteClinicoService {
      */
     List<AntecedentesClinicosDTO> findCondicionesGastrointestinalByPacienteId(Integer pacienteId);
     
+    /**
+     * Find every classified condition of a patient grouped by clinical category
+     * @param pacienteId Patient ID
+     * @return Map from category name to its clinical antecedent DTOs
+     */
+    Map<String, List<AntecedentesClinicosDTO>> findCondicionesClasificadasByPacienteId(Integer pacienteId);
+    
+    /**
+     * Recompute the stored category bitmask of clinical antecedents
+     * @param soloPendientes true to process only rows never classified
+     * @return Number of rows whose bitmask changed
+     */
+    int reclasificarCondiciones(boolean soloPendientes);
+    
     /**
      * Count clinical antecedents for a patient
      * @param pacienteId Patient ID
@@ -0,0 +1,52 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+import com.thunderfat.springboot.backend.model.dto.CalendarioSyncDTO;
+
+/**
+ * Service interface for external calendar clients.
+ * Lets a client keep a copy of a nutritionist's agenda up to date by asking only
+ * for what changed since its last call, instead of re-downloading every appointment.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface ICalendarioSyncService {
+
+    /**
+     * Appointments created, updated or cancelled since a sync token. Without a token
+     * the feed starts with a full snapshot of the agenda. Changes come in the order
+     * they were committed, so a client applying them in order never misses one.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param token token returned by the previous call, or null for a full sync
+     * @param size maximum number of changes returned
+     * @return the changes and the token for the next call
+     */
+    CalendarioSyncDTO sincronizar(Integer nutricionistaId, String token, int size);
+
+    /**
+     * Validator for the iCalendar export of a date range. Changes whenever an
+     * appointment of the nutritionist is created, updated or cancelled.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param desde first day exported (inclusive)
+     * @param hasta last day exported (inclusive)
+     * @return a weak entity tag
+     */
+    String etagCalendario(Integer nutricionistaId, LocalDate desde, LocalDate hasta);
+
+    /**
+     * Writes the appointments of a nutritionist in a date range as an iCalendar
+     * (RFC 5545) document, row by row, without loading them into memory.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param desde first day exported (inclusive)
+     * @param hasta last day exported (inclusive)
+     * @param salida output stream, flushed but not closed
+     * @return number of events written
+     */
+    long exportarIcs(Integer nutricionistaId, LocalDate desde, LocalDate hasta, OutputStream salida);
+}
@@ -6,9 +6,11 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.thunderfat.springboot.backend.model.dto.ChatDTO;
 import com.thunderfat.springboot.backend.model.dto.ChatUnreadCountDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 
 /**
  * Modern Spring Boot 2025 service interface for Chat operations.
@@ -69,6 +71,16 @@ public interface IChatService {
      */
     Page<ChatDTO> findAll(Pageable pageable);
 
+    /**
+     * Count-free variant of {@link #findAll(Pageable)} for infinite scroll.
+     */
+    Slice<ChatDTO> findAllSlice(Pageable pageable);
+
+    /**
+     * Find all chats using keyset (seek) pagination, newest first, without a COUNT query.
+     */
+    PagedResponseDTO<ChatDTO> findAllKeyset(String cursor, int size);
+
     /**
      * Find chat by ID with Optional return for null safety.
      */
@@ -84,6 +96,11 @@ public interface IChatService {
      */
     Page<ChatDTO> findByNutricionistaId(Integer nutricionistaId, Pageable pageable);
 
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)} for infinite scroll.
+     */
+    Slice<ChatDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable);
+
     /**
      * Find conversation between patient and nutritionist.
      */
@@ -155,4 +172,9 @@ public interface IChatService {
      * Get chats with unread message counts for notifications.
      */
     List<ChatUnreadCountDTO> getChatsWithUnreadCounts(Integer nutricionistaId);
+
+    /**
+     * Count unread messages across all chats of a user, from the maintained counters.
+     */
+    Long countUnreadMessages(Integer userId);
 }
@@ -0,0 +1,76 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.thunderfat.springboot.backend.model.dto.CambioSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.SerieCitasDTO;
+
+/**
+ * Service interface for recurring appointment series.
+ * A series is booked, moved and cancelled as a whole instead of the client
+ * posting and checking every occurrence through {@link ICitaService}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface ICitaSerieService {
+
+    /**
+     * How often a series repeats. Monthly series keep the day of month of the
+     * first occurrence, falling back to the last day of shorter months.
+     */
+    enum Frecuencia {
+        DIARIA, SEMANAL, MENSUAL
+    }
+
+    /**
+     * What to do with occurrences that clash with an existing appointment.
+     * RECHAZAR books nothing and reports the clashes; OMITIR leaves clashing
+     * occurrences out; DESPLAZAR moves each one to the nearest free slot of the
+     * same day, leaving it out when the day has none.
+     */
+    enum PoliticaConflictos {
+        RECHAZAR, OMITIR, DESPLAZAR
+    }
+
+    /**
+     * Expands the recurrence rule, checks every occurrence against the
+     * nutritionist's agenda with one range query and inserts the accepted ones in
+     * one JDBC batch within a single transaction.
+     *
+     * @param serie the recurrence rule and the appointment to repeat
+     * @return the outcome of every occurrence; nothing is booked when
+     *         {@link ResultadoSerieCitasDTO#isCreada()} is false
+     */
+    ResultadoSerieCitasDTO crear(SerieCitasDTO serie);
+
+    /**
+     * Finds the occurrences of a series in chronological order.
+     *
+     * @param serie the series identifier
+     * @return the series' appointments
+     */
+    List<CitaDTO> findBySerie(String serie);
+
+    /**
+     * Moves or resizes the pending occurrences of a series, from a date onwards,
+     * with the same single range query and batched write as {@link #crear}.
+     *
+     * @param serie the series identifier
+     * @param cambio new time of day and/or duration
+     * @return the outcome of every pending occurrence
+     */
+    ResultadoSerieCitasDTO modificar(String serie, CambioSerieCitasDTO cambio);
+
+    /**
+     * Cancels the pending occurrences of a series with one delete statement.
+     *
+     * @param serie the series identifier
+     * @param aPartirDe first day cancelled; null cancels everything not yet started
+     * @return number of appointments cancelled
+     */
+    int cancelar(String serie, LocalDate aPartirDe);
+}
@@ -8,8 +8,11 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 
 /**
  * Service interface for managing Cita (Appointment) entities.
@@ -32,6 +35,26 @@ public interface ICitaService {
      */
     Page<CitaDTO> findAllPaginated(Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findAllPaginated(Pageable)}: fetches size + 1 rows
+     * to know whether a next page exists, without a COUNT query.
+     * 
+     * @param pageable pagination information
+     * @return slice of appointments
+     */
+    Slice<CitaDTO> findAllSlice(Pageable pageable);
+    
+    /**
+     * Retrieves appointments using keyset (seek) pagination, newest first.
+     * No COUNT query is executed; clients follow {@code nextCursor} until it is absent.
+     * Appointments without a start date are not listed.
+     * 
+     * @param cursor opaque cursor from the previous page, or null for the first page
+     * @param size page size
+     * @return page of appointments with the cursor for the next page
+     */
+    PagedResponseDTO<CitaDTO> findAllKeyset(String cursor, int size);
+    
     /**
      * Finds an appointment by ID using Optional pattern.
      * 
@@ -83,6 +106,15 @@ public interface ICitaService {
      */
     Page<CitaDTO> findByPacienteId(Integer pacienteId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByPacienteId(Integer, Pageable)}.
+     * 
+     * @param pacienteId the patient ID
+     * @param pageable pagination information
+     * @return slice of patient appointments
+     */
+    Slice<CitaDTO> findByPacienteIdSlice(Integer pacienteId, Pageable pageable);
+    
     /**
      * Finds appointments for a specific nutritionist with pagination.
      * 
@@ -92,6 +124,25 @@ public interface ICitaService {
      */
     Page<CitaDTO> findByNutricionistaId(Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)}.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return slice of nutritionist appointments
+     */
+    Slice<CitaDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable);
+    
+    /**
+     * Appointment list screen rows for a nutritionist, with the patient name,
+     * read in one statement without hydrating appointments.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return page of list rows
+     */
+    Page<CitaListadoDTO> findListadoByNutricionistaId(Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Finds appointments for a nutritionist within a date range with pagination.
      * 
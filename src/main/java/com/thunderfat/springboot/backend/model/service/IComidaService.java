@@ -7,8 +7,11 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.thunderfat.springboot.backend.model.dto.ComidaDTO;
+import com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.PlatoPredeterminadoDTO;
 
 /**
@@ -72,6 +75,16 @@ public interface IComidaService {
      */
     Page<ComidaDTO> findAll(Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findAll(Pageable)} for infinite scroll.
+     */
+    Slice<ComidaDTO> findAllSlice(Pageable pageable);
+    
+    /**
+     * Find all meals using keyset (seek) pagination, newest first, without a COUNT query.
+     */
+    PagedResponseDTO<ComidaDTO> findAllKeyset(String cursor, int size);
+    
     /**
      * Find meal by ID
      * @param id Meal ID
@@ -104,6 +117,20 @@ public interface IComidaService {
      */
     Page<ComidaDTO> findByPlanDietaId(Integer planDietaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByPlanDietaId(Integer, Pageable)} for infinite scroll.
+     */
+    Slice<ComidaDTO> findByPlanDietaIdSlice(Integer planDietaId, Pageable pageable);
+    
+    /**
+     * Meal list screen rows of a diet plan: day, time, rating and dish count,
+     * without loading the dishes.
+     * @param planDietaId Diet plan ID
+     * @param pageable Pagination information
+     * @return Page of list rows
+     */
+    Page<ComidaListadoDTO> findListadoByPlanDietaId(Integer planDietaId, Pageable pageable);
+    
     /**
      * Find meals by nutritionist ID
      * @param nutricionistaId Nutritionist ID
@@ -112,6 +139,12 @@ public interface IComidaService {
      */
     Page<ComidaDTO> findByNutricionistaId(Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)}.
+     * Skips the count over the comidas/diadieta/plan_dieta/paciente join.
+     */
+    Slice<ComidaDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Find today's meals for a patient
      * @param pacienteId Patient ID
@@ -0,0 +1,45 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+
+/**
+ * Service interface for appointment availability.
+ * Answers "next free slots of a given duration" on the server instead of the
+ * client fetching appointments and computing the gaps itself.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface IDisponibilidadService {
+
+    /**
+     * First free slots of a nutritionist, in chronological order. A slot lies inside
+     * working hours, outside breaks, and keeps the configured buffer from every
+     * existing appointment. Slots in the past are never offered.
+     *
+     * @param nutricionistaId the nutritionist ID
+     * @param desde first day searched (inclusive)
+     * @param hasta last day searched (inclusive)
+     * @param duracionMinutos length of the appointment to book
+     * @param limite maximum number of slots returned
+     * @return free slots, earliest first
+     */
+    List<HuecoDisponibleDTO> buscarHuecos(Integer nutricionistaId, LocalDate desde, LocalDate hasta,
+                                          int duracionMinutos, int limite);
+
+    /**
+     * First free slots across every enabled nutritionist of the clinic, merged in
+     * chronological order. Uses one appointment query for all nutritionists.
+     *
+     * @param desde first day searched (inclusive)
+     * @param hasta last day searched (inclusive)
+     * @param duracionMinutos length of the appointment to book
+     * @param limite maximum number of slots returned
+     * @return free slots, earliest first
+     */
+    List<HuecoDisponibleDTO> buscarHuecosClinica(LocalDate desde, LocalDate hasta,
+                                                 int duracionMinutos, int limite);
+}
@@ -2,6 +2,10 @@ package com.thunderfat.springboot.backend.model.service;
 
 import java.util.List;
 
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
+import com.thunderfat.springboot.backend.model.dto.MensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
 import com.thunderfat.springboot.backend.model.entity.Mensaje;
 
 public interface IMensajeService {
@@ -9,6 +13,11 @@ public interface IMensajeService {
 	List<Mensaje>buscarPorChat(int id_chat);
 	void eliminarPorId(int id_mensaje);
 	void eliminarPorChat(int id_chat);
+	long contarNoLeidos(int id_chat, int id_emisor);
+	int marcarLeidos(int id_chat, String lector);
+	LecturaChatDTO marcarLeidosHasta(int id_chat, String lector, Integer hasta);
+	PagedResponseDTO<MensajeDTO> historial(int id_chat, String cursor, Integer antesDe, int size);
+	PagedResponseDTO<ResultadoBusquedaMensajeDTO> buscar(String usuario, String texto, Integer chatId, int page, int size);
 	
 
 }
@@ -0,0 +1,50 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO;
+
+/**
+ * Service interface for bulk patient import and export.
+ * Intended for onboarding a clinic in one request instead of posting
+ * patients one at a time through {@link IPacienteService#create}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface IPacienteBulkService {
+
+    /**
+     * Supported file formats. JSON is an array of patient objects; CSV has a header row
+     * with the patient field names.
+     */
+    enum Formato {
+        CSV, JSON
+    }
+
+    /**
+     * Imports patients for a nutritionist from a stream. Rows are validated and
+     * deduplicated by DNI and email (against the database and earlier rows of the
+     * same file); invalid or duplicate rows are skipped and reported, the rest are
+     * inserted in JDBC batches. Patient caches are invalidated once at the end.
+     *
+     * @param nutricionistaId nutritionist the patients are assigned to
+     * @param formato format of the input
+     * @param entrada input stream, read sequentially and not closed
+     * @return the import report
+     */
+    ImportacionPacientesDTO importar(Integer nutricionistaId, Formato formato, InputStream entrada);
+
+    /**
+     * Writes every patient of a nutritionist to a stream, row by row, without
+     * loading them all into memory. The output uses the same layout accepted by
+     * {@link #importar}.
+     *
+     * @param nutricionistaId nutritionist whose patients are exported
+     * @param formato output format
+     * @param salida output stream, flushed but not closed
+     * @return number of patients written
+     */
+    long exportar(Integer nutricionistaId, Formato formato, OutputStream salida);
+}
@@ -0,0 +1,25 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO;
+
+/**
+ * Service interface for the patient dashboard aggregate.
+ * Replaces the separate calls the UI makes when a patient is opened with a single
+ * request whose latency is bounded by the slowest section instead of their sum.
+ * Served at {@code GET /paciente/{id}/dashboard} by {@code PacienteRestController}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface IPacienteDashboardService {
+
+    /**
+     * Builds the dashboard of a patient. Sections are loaded concurrently; any section
+     * that fails or exceeds its timeout is reported in {@code seccionesNoDisponibles}
+     * while the rest are still returned.
+     *
+     * @param pacienteId the patient ID
+     * @return the composite dashboard, possibly partial
+     */
+    PacienteDashboardDTO getDashboard(Integer pacienteId);
+}
@@ -6,8 +6,11 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 
 /**
  * Service interface for managing Paciente entities.
@@ -30,6 +33,25 @@ public interface IPacienteService {
      */
     Page<PacienteDTO> findAllPaginated(Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findAllPaginated(Pageable)} for infinite scroll.
+     * 
+     * @param pageable pagination information
+     * @return slice of patients
+     */
+    Slice<PacienteDTO> findAllSlice(Pageable pageable);
+    
+    /**
+     * Retrieves all patients using keyset (seek) pagination, newest first.
+     * No COUNT query is executed; clients follow {@code nextCursor} until it is absent.
+     * Items carry the patient's own fields only; the related-record id lists are not filled.
+     * 
+     * @param cursor opaque cursor from the previous page, or null for the first page
+     * @param size page size
+     * @return page of patients with the cursor for the next page
+     */
+    PagedResponseDTO<PacienteDTO> findAllKeyset(String cursor, int size);
+    
     /**
      * Retrieves patients for a specific nutritionist with pagination.
      * 
@@ -39,6 +61,25 @@ public interface IPacienteService {
      */
     Page<PacienteDTO> findByNutricionistaId(Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Count-free variant of {@link #findByNutricionistaId(Integer, Pageable)} for infinite scroll.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return slice of patients
+     */
+    Slice<PacienteDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable);
+    
+    /**
+     * Patient list screen rows for a nutritionist. Selects only the listed columns
+     * instead of loading entities and mapping their collections.
+     * 
+     * @param nutricionistaId the nutritionist ID
+     * @param pageable pagination information
+     * @return page of list rows
+     */
+    Page<PacienteListadoDTO> findListadoByNutricionistaId(Integer nutricionistaId, Pageable pageable);
+    
     /**
      * Finds a patient by ID using Optional pattern.
      * 
@@ -121,6 +162,19 @@ public interface IPacienteService {
      */
     Page<PacienteDTO> findByFullNameContaining(String nombres, Integer nutricionistaId, Pageable pageable);
     
+    /**
+     * Ranked search-as-you-type over a nutritionist's patients, served from the
+     * in-memory {@link PacienteSearchIndex} instead of LIKE queries.
+     * 
+     * @param termino partial text typed by the user
+     * @param nutricionistaId the nutritionist ID
+     * @param campo field(s) to match
+     * @param limite maximum number of results
+     * @return matching patients, best match first
+     */
+    List<PacienteDTO> typeAheadSearch(String termino, Integer nutricionistaId, 
+                                      PacienteSearchIndex.Campo campo, int limite);
+    
     /**
      * Finds patients with appointments in a specific date range.
      * 
@@ -0,0 +1,29 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reminder channel for local runs: writes each reminder to the log instead of
+ * contacting the patient. Disabled with {@code thunderfat.recordatorios.log=false}
+ * once a real channel is deployed.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "thunderfat.recordatorios.log", havingValue = "true", matchIfMissing = true)
+public class LogNotificadorRecordatorios implements NotificadorRecordatorios {
+
+    @Override
+    public void notificar(RecordatorioCitaDTO recordatorio) {
+        log.info("Reminder for appointment {} of patient {} at {} ({} minutes before)",
+                 recordatorio.getCitaId(), recordatorio.getPacienteId(), recordatorio.getFechaInicio(),
+                 recordatorio.getAntelacionMinutos());
+    }
+}
@@ -0,0 +1,518 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-text index of chat messages, embedded in the application (Lucene).
+ *
+ * Messages are analysed for Spanish: lower-cased, stop words dropped, accents folded
+ * and light-stemmed, so "dieta", "Dietas" and "DIETA" match one another and "nutricion"
+ * matches "nutrición". A search only reaches the chats of the user running it.
+ *
+ * The index is kept current by the persistence path: {@link MensajeWriteBehind} indexes
+ * each batch of live messages once it commits, and {@link MensajeServiceJPA} removes
+ * deleted messages after their transaction commits. Messages stored any other way (by
+ * another node, or while this one was down) are caught up every {@code sincronizacion}
+ * by reading the ids above the highest one already read, which is kept with each commit
+ * of the index. Every page of results is checked against the database, so a message
+ * deleted on another node is never returned and is dropped from the index on sight.
+ *
+ * A search is led by its rarest clause: the chat filter is answered from the chat points
+ * when the user's chats hold few messages, and otherwise checked hit by hit from the chat
+ * doc values, so a rare word costs the same over a thousand messages or millions.
+ *
+ * With an empty {@code directorio} the index lives in memory and is rebuilt from the
+ * database on every start; an index on disk written with other fields is rebuilt too.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@ConditionalOnProperty(name = "thunderfat.busqueda-mensajes.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class MensajeSearchIndex {
+
+    private static final String ID = "id";
+    private static final String CHAT = "chat";
+    private static final String EMISOR = "emisor";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String CONTENIDO = "contenido";
+    private static final String ULTIMO_LEIDO = "ultimoMensajeLeido";
+    private static final String VERSION = "version";
+    /** Changes whenever the fields change: an index on disk of another version is rebuilt */
+    private static final String VERSION_INDICE = "2";
+    private static final int MAX_TERMINOS = 16;
+    private static final int MAX_FRAGMENTOS = 2;
+
+    /** Content is indexed with offsets, so highlighting does not analyse the text again */
+    private static final FieldType TIPO_CONTENIDO = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        TIPO_CONTENIDO.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TIPO_CONTENIDO.freeze();
+    }
+
+    private final MensajeRepository mensajeRepository;
+    private final ChatRepository chatRepository;
+    private final ThunderFatProperties.BusquedaMensajes config;
+    private final Analyzer analizador = new AnalizadorEspanol();
+    private final Directory directorio;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    /** Highest message id read from the database by {@link #sincronizar()} */
+    private volatile int ultimoLeido;
+    private ScheduledExecutorService ejecutor;
+
+    public MensajeSearchIndex(MensajeRepository mensajeRepository,
+                              ChatRepository chatRepository,
+                              ThunderFatProperties properties) {
+        this.mensajeRepository = mensajeRepository;
+        this.chatRepository = chatRepository;
+        this.config = properties.getBusquedaMensajes();
+        if (config.getLote() <= 0 || config.getMaxResultados() <= 0) {
+            throw new IllegalStateException("thunderfat.busqueda-mensajes.lote and max-resultados must be positive");
+        }
+        try {
+            this.directorio = config.getDirectorio() == null || config.getDirectorio().isBlank()
+                    ? new ByteBuffersDirectory()
+                    : FSDirectory.open(Path.of(config.getDirectorio()));
+            boolean vigente = vigente(directorio);
+            if (!vigente) {
+                log.info("Chat message index in '{}' has other fields, rebuilding it", config.getDirectorio());
+            }
+            this.writer = new IndexWriter(directorio, new IndexWriterConfig(analizador)
+                    .setOpenMode(vigente ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE));
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the chat message index in '" + config.getDirectorio() + "'", e);
+        }
+        for (Map.Entry<String, String> dato : writer.getLiveCommitData()) {
+            if (ULTIMO_LEIDO.equals(dato.getKey())) {
+                ultimoLeido = Integer.parseInt(dato.getValue());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void iniciar() {
+        if (ejecutor != null) {
+            return;
+        }
+        ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "indice-mensajes");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = Math.max(1, config.getSincronizacion().toMillis());
+        ejecutor.scheduleWithFixedDelay(() -> {
+            try {
+                sincronizar();
+            } catch (RuntimeException e) {
+                log.error("Chat message index catch-up failed", e);
+            }
+        }, 0, intervalo, TimeUnit.MILLISECONDS);
+        log.info("Chat message index started from message {}, caught up every {}", ultimoLeido, config.getSincronizacion());
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+            ejecutor = null;
+        }
+        try {
+            confirmar();
+            searcherManager.close();
+            writer.close();
+            directorio.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not close the chat message index cleanly: {}", e.getMessage());
+        }
+    }
+
+    // ================================
+    // UPDATES
+    // ================================
+
+    /**
+     * Adds or replaces messages that are already committed, and makes them searchable.
+     */
+    public void indexar(List<Documento> mensajes) {
+        if (mensajes.isEmpty()) {
+            return;
+        }
+        try {
+            for (Documento mensaje : mensajes) {
+                writer.updateDocument(new Term(ID, String.valueOf(mensaje.id())), documento(mensaje));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not index chat messages", e);
+        }
+    }
+
+    /**
+     * Removes a message once the current transaction commits.
+     */
+    public void eliminar(int mensajeId) {
+        trasCommit(() -> borrar(new TermQuery(new Term(ID, String.valueOf(mensajeId)))));
+    }
+
+    /**
+     * Removes every message of a chat once the current transaction commits.
+     */
+    public void eliminarChat(int chatId) {
+        trasCommit(() -> borrar(IntPoint.newExactQuery(CHAT, chatId)));
+    }
+
+    /**
+     * Indexes the messages stored since the last catch-up and commits the index.
+     *
+     * @return number of messages read from the database
+     */
+    public synchronized int sincronizar() {
+        int leidos = 0;
+        List<Object[]> filas;
+        do {
+            filas = mensajeRepository.findParaIndexar(ultimoLeido, Limit.of(config.getLote()));
+            List<Documento> mensajes = new ArrayList<>(filas.size());
+            for (Object[] fila : filas) {
+                mensajes.add(new Documento((Integer) fila[0], (Integer) fila[1], (Integer) fila[2],
+                                           (LocalDateTime) fila[3], (String) fila[4]));
+            }
+            indexar(mensajes);
+            if (!mensajes.isEmpty()) {
+                ultimoLeido = mensajes.get(mensajes.size() - 1).id();
+            }
+            leidos += mensajes.size();
+        } while (filas.size() == config.getLote());
+        confirmar();
+        if (leidos > 0) {
+            log.info("Indexed {} chat messages up to id {}", leidos, ultimoLeido);
+        }
+        return leidos;
+    }
+
+    // ================================
+    // SEARCH
+    // ================================
+
+    /**
+     * Messages of the user's chats containing every word of the text, most relevant
+     * first and, between equally relevant ones, newest first.
+     *
+     * A page may hold fewer than {@code size} results when messages were deleted since
+     * they were indexed. Results go no deeper than {@code max-resultados}.
+     *
+     * @param usuario STOMP user (email) running the search
+     * @param texto words to look for
+     * @param chatId chat to search in, or null for all the user's chats
+     * @param page zero-based page
+     * @param size page size (max 100)
+     * @throws BusinessValidationException if the text has no word to look for
+     * @throws AccessDeniedException if the user is not a participant of the given chat
+     */
+    @Transactional(readOnly = true)
+    public PagedResponseDTO<ResultadoBusquedaMensajeDTO> buscar(String usuario, String texto, Integer chatId,
+                                                               int page, int size) {
+        Set<String> terminos = terminos(texto);
+        if (terminos.isEmpty()) {
+            throw new BusinessValidationException("The search text has no words to look for");
+        }
+        int pageSize = KeysetCursor.tamanoPagina(size);
+        int pagina = Math.max(0, page);
+        PageRequest pageable = PageRequest.of(pagina, pageSize);
+
+        int[] chats = alcance(usuario, chatId);
+        long desde = (long) pagina * pageSize;
+        if (chats.length == 0 || desde >= config.getMaxResultados()) {
+            return PagedResponseDTO.of(new PageImpl<>(List.of(), pageable, 0));
+        }
+
+        BooleanQuery.Builder palabras = new BooleanQuery.Builder();
+        for (String termino : terminos) {
+            palabras.add(new TermQuery(new Term(CONTENIDO, termino)), BooleanClause.Occur.MUST);
+        }
+        Query consulta = new BooleanQuery.Builder()
+                .add(palabras.build(), BooleanClause.Occur.MUST)
+                .add(new IndexOrDocValuesQuery(IntPoint.newSetQuery(CHAT, chats),
+                        NumericDocValuesField.newSlowSetQuery(CHAT, Arrays.stream(chats).asLongStream().toArray())),
+                        BooleanClause.Occur.FILTER)
+                .build();
+        Sort orden = new Sort(SortField.FIELD_SCORE, new SortField(TIMESTAMP, SortField.Type.LONG, true));
+        int hasta = (int) Math.min(desde + pageSize, config.getMaxResultados());
+
+        try {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopFieldDocs encontrados = searcher.search(consulta, hasta, orden, true);
+                int inicio = (int) Math.min(desde, encontrados.scoreDocs.length);
+                ScoreDoc[] enPagina = Arrays.copyOfRange(encontrados.scoreDocs, inicio, encontrados.scoreDocs.length);
+                List<ResultadoBusquedaMensajeDTO> resultados = resultados(searcher, consulta, encontrados, enPagina);
+                long total = Math.min(encontrados.totalHits.value, config.getMaxResultados());
+                return PagedResponseDTO.of(new PageImpl<>(resultados, pageable, total));
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not search chat messages", e);
+        }
+    }
+
+    /**
+     * Ids of the chats a search of the user may reach.
+     */
+    private int[] alcance(String usuario, Integer chatId) {
+        Set<Integer> propios = new HashSet<>();
+        for (ChatParticipantesDTO chat : chatRepository.findParticipantesPorEmail(usuario)) {
+            propios.add(chat.getChatId());
+        }
+        if (chatId != null) {
+            if (!propios.contains(chatId)) {
+                throw new AccessDeniedException("User " + usuario + " is not a participant of chat " + chatId);
+            }
+            return new int[] {chatId};
+        }
+        return propios.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Reads and highlights the hits of a page, leaving out (and unindexing) the messages
+     * no longer in the database.
+     */
+    private List<ResultadoBusquedaMensajeDTO> resultados(IndexSearcher searcher, Query consulta,
+                                                        TopFieldDocs encontrados, ScoreDoc[] enPagina)
+            throws IOException {
+        if (enPagina.length == 0) {
+            return List.of();
+        }
+        StoredFields campos = searcher.storedFields();
+        List<Document> documentos = new ArrayList<>(enPagina.length);
+        List<Integer> ids = new ArrayList<>(enPagina.length);
+        for (ScoreDoc hit : enPagina) {
+            Document documento = campos.document(hit.doc);
+            documentos.add(documento);
+            ids.add(Integer.valueOf(documento.get(ID)));
+        }
+        Set<Integer> existentes = new HashSet<>(mensajeRepository.findIdsExistentes(ids));
+
+        UnifiedHighlighter resaltador = UnifiedHighlighter.builder(searcher, analizador)
+                .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", "… ", true))
+                .build();
+        String[] fragmentos = resaltador.highlight(CONTENIDO, consulta,
+                new TopDocs(encontrados.totalHits, enPagina), MAX_FRAGMENTOS);
+
+        List<ResultadoBusquedaMensajeDTO> resultados = new ArrayList<>(enPagina.length);
+        for (int i = 0; i < enPagina.length; i++) {
+            Document documento = documentos.get(i);
+            int id = ids.get(i);
+            if (!existentes.contains(id)) {
+                borrar(new TermQuery(new Term(ID, String.valueOf(id))));
+                continue;
+            }
+            Number emisor = documento.getField(EMISOR) != null ? documento.getField(EMISOR).numericValue() : null;
+            long milisegundos = documento.getField(TIMESTAMP).numericValue().longValue();
+            resultados.add(new ResultadoBusquedaMensajeDTO(
+                    id,
+                    documento.getField(CHAT).numericValue().intValue(),
+                    emisor != null ? emisor.intValue() : null,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(milisegundos), ZoneOffset.UTC),
+                    fragmentos[i],
+                    enPagina[i].score));
+        }
+        return resultados;
+    }
+
+    /**
+     * The distinct analysed words of a search text, as they are in the index.
+     */
+    Set<String> terminos(String texto) {
+        Set<String> terminos = new LinkedHashSet<>();
+        if (texto == null || texto.isBlank()) {
+            return terminos;
+        }
+        try (TokenStream tokens = analizador.tokenStream(CONTENIDO, texto)) {
+            CharTermAttribute termino = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken() && terminos.size() < MAX_TERMINOS) {
+                terminos.add(termino.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terminos;
+    }
+
+    // ================================
+    // INTERNALS
+    // ================================
+
+    private static Document documento(Documento mensaje) {
+        Document documento = new Document();
+        documento.add(new StringField(ID, String.valueOf(mensaje.id()), Field.Store.YES));
+        documento.add(new IntPoint(CHAT, mensaje.chatId()));
+        documento.add(new NumericDocValuesField(CHAT, mensaje.chatId()));
+        documento.add(new StoredField(CHAT, mensaje.chatId()));
+        if (mensaje.emisorId() != null) {
+            documento.add(new StoredField(EMISOR, mensaje.emisorId()));
+        }
+        long milisegundos = mensaje.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        documento.add(new NumericDocValuesField(TIMESTAMP, milisegundos));
+        documento.add(new StoredField(TIMESTAMP, milisegundos));
+        documento.add(new Field(CONTENIDO, mensaje.contenido() != null ? mensaje.contenido() : "", TIPO_CONTENIDO));
+        return documento;
+    }
+
+    /**
+     * Whether the index in the directory, if any, was written with the current fields.
+     */
+    private static boolean vigente(Directory directorio) throws IOException {
+        return !DirectoryReader.indexExists(directorio)
+                || VERSION_INDICE.equals(SegmentInfos.readLatestCommit(directorio).getUserData().get(VERSION));
+    }
+
+    private void borrar(Query query) {
+        try {
+            writer.deleteDocuments(query);
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Could not remove chat messages from the index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Commits the index with the highest message id read so far, from which the next
+     * start catches up.
+     */
+    private void confirmar() {
+        writer.setLiveCommitData(Map.of(ULTIMO_LEIDO, String.valueOf(ultimoLeido), VERSION, VERSION_INDICE).entrySet());
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not commit the chat message index", e);
+        }
+    }
+
+    private static void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * A stored message as indexed.
+     */
+    public record Documento(int id, int chatId, Integer emisorId, LocalDateTime timestamp, String contenido) {
+    }
+
+    /**
+     * Spanish analysis with accents folded after the stop words (which carry them) are removed.
+     */
+    private static final class AnalizadorEspanol extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer origen = new StandardTokenizer();
+            TokenStream tokens = new LowerCaseFilter(origen);
+            tokens = new StopFilter(tokens, SpanishAnalyzer.getDefaultStopSet());
+            tokens = new ASCIIFoldingFilter(tokens);
+            tokens = new SpanishLightStemFilter(tokens);
+            return new TokenStreamComponents(origen, tokens);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.thunderfat.springboot.backend.model.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
 import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
 import com.thunderfat.springboot.backend.model.dto.MensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.MensajeMapper;
 import com.thunderfat.springboot.backend.model.entity.Mensaje;
 
@@ -22,7 +32,13 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class MensajeServiceJPA implements IMensajeService {
 
+    /** Page size of the chat history; only the newest page of this size is cached */
+    public static final int TAMANO_PAGINA_HISTORIAL = 50;
+
     private final MensajeRepository repo;
+    private final ChatRepository chatRepository;
+    private final ContadorNoLeidos contadorNoLeidos;
+    private final ObjectProvider<MensajeSearchIndex> indiceBusqueda;
 
     @Override
     @Transactional(readOnly = true)
@@ -31,9 +47,12 @@ public class MensajeServiceJPA implements IMensajeService {
         return repo.findById(id_mensaje).orElse(null);
     }
 
+    /**
+     * Whole conversation, not cached: it grows without bound. Clients read
+     * {@link #historial(int, String, Integer, int)} instead.
+     */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "mensajes-by-chat", key = "#id_chat")
     public List<Mensaje> buscarPorChat(int id_chat) {
         log.debug("Listing mensajes for chat id: {}", id_chat);
         // Derived query: findByChat_Id or custom query in repository may be needed
@@ -56,6 +75,10 @@ public class MensajeServiceJPA implements IMensajeService {
             throw new ResourceNotFoundException("Mensaje not found with id: " + id_mensaje);
         }
         repo.deleteById(id_mensaje);
+        if (opt.get().getChat() != null) {
+            contadorNoLeidos.recontar(opt.get().getChat().getId_chat());
+        }
+        indiceBusqueda.ifAvailable(indice -> indice.eliminar(id_mensaje));
     }
 
     @Override
@@ -70,6 +93,143 @@ public class MensajeServiceJPA implements IMensajeService {
             List<Mensaje> mensajes = buscarPorChat(id_chat);
             repo.deleteAll(mensajes);
         }
+        contadorNoLeidos.recontar(id_chat);
+        indiceBusqueda.ifAvailable(indice -> indice.eliminarChat(id_chat));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long contarNoLeidos(int id_chat, int id_emisor) {
+        log.debug("Counting unread mensajes in chat id: {} from emisor: {}", id_chat, id_emisor);
+        return repo.countNoLeidosByChatIdAndEmisorId(id_chat, id_emisor);
+    }
+
+    /**
+     * Read receipt for the whole chat: see {@link #marcarLeidosHasta(int, String, Integer)}.
+     *
+     * @param lector STOMP user (email) of the reader
+     * @return number of messages of the other participant that were unread
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = "mensajes-by-chat", key = "#id_chat")
+    public int marcarLeidos(int id_chat, String lector) {
+        return leer(id_chat, lector, null).leidos();
+    }
+
+    /**
+     * Read receipt: moves the reader's watermark of the chat up to the given message,
+     * which marks as read every message before it with a single-row update, and lowers
+     * the reader's unread counter once that commits. The watermark never moves back; a
+     * receipt at or behind it changes nothing.
+     *
+     * @param lector STOMP user (email) of the reader
+     * @param hasta id of the newest message read, or null for the newest of the chat
+     * @return the receipt to broadcast to the chat, or null if the watermark did not move
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = "mensajes-by-chat", key = "#id_chat")
+    public LecturaChatDTO marcarLeidosHasta(int id_chat, String lector, Integer hasta) {
+        Lectura lectura = leer(id_chat, lector, hasta);
+        return lectura.movida()
+                ? new LecturaChatDTO(lector, String.valueOf(id_chat), lectura.hasta(), LocalDateTime.now())
+                : null;
+    }
+
+    private Lectura leer(int id_chat, String lector, Integer hasta) {
+        List<ChatParticipantesDTO> chats = chatRepository.findLecturas(List.of(id_chat));
+        if (chats.isEmpty()) {
+            throw new ResourceNotFoundException("Chat not found with id: " + id_chat);
+        }
+        ChatParticipantesDTO chat = chats.get(0);
+        Integer lectorId = chat.participante(lector);
+        if (lectorId == null) {
+            throw new AccessDeniedException("User " + lector + " is not a participant of chat " + id_chat);
+        }
+        int anterior = chat.leidoHasta(lectorId);
+        int ultimo = repo.findUltimoId(id_chat);
+        int objetivo = hasta == null ? ultimo : Math.min(hasta, ultimo);
+        if (objetivo <= anterior) {
+            return new Lectura(false, 0, anterior);
+        }
+        // Compare-and-set: if another receipt of the reader moved the watermark meanwhile,
+        // that one is counted and this one is dropped; the client's next receipt goes further
+        int movidas = lectorId.equals(chat.getPacienteId())
+                ? chatRepository.moverLeidoHastaPaciente(id_chat, anterior, objetivo)
+                : chatRepository.moverLeidoHastaNutricionista(id_chat, anterior, objetivo);
+        if (movidas == 0) {
+            log.debug("Read watermark of {} in chat id: {} moved concurrently; dropping receipt up to {}",
+                      lector, id_chat, objetivo);
+            return new Lectura(false, 0, anterior);
+        }
+        int leidos = (int) repo.countRecibidosEntre(id_chat, lectorId, anterior, objetivo);
+        log.debug("Read watermark of {} in chat id: {} moved to {}: {} mensajes read", lector, id_chat, objetivo, leidos);
+        contadorNoLeidos.leidos(chat, lectorId, lector, leidos);
+        return new Lectura(true, leidos, objetivo);
+    }
+
+    /**
+     * One page of a chat's history, newest message first, seeking on (timestamp, id).
+     *
+     * Without cursor nor antesDe the newest page is returned; only that page, at the
+     * default size, is cached, and storing or reading a message of the chat evicts it.
+     * A client that has live messages of the chat passes the id of the oldest one as
+     * antesDe and gets the messages just before it.
+     *
+     * @param cursor nextCursor of the previous page
+     * @param antesDe id of a message of the chat; the page holds the messages older than it
+     * @throws ResourceNotFoundException if antesDe is not a message of the chat
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "mensajes-by-chat", key = "#id_chat",
+               condition = "#cursor == null && #antesDe == null && #size == T(com.thunderfat.springboot.backend.model.service.MensajeServiceJPA).TAMANO_PAGINA_HISTORIAL")
+    public PagedResponseDTO<MensajeDTO> historial(int id_chat, String cursor, Integer antesDe, int size) {
+        log.debug("Listing history of chat id: {} [cursor: {}, antesDe: {}, size: {}]", id_chat, cursor, antesDe, size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        if (after == null && antesDe != null) {
+            LocalDateTime timestamp = repo.findTimestampEnChat(id_chat, antesDe)
+                    .orElseThrow(() -> new ResourceNotFoundException(
+                            "Mensaje not found with id: " + antesDe + " in chat: " + id_chat));
+            after = KeysetCursor.of(timestamp, antesDe);
+        }
+        int pageSize = KeysetCursor.tamanoPagina(size);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Mensaje> mensajes = after == null
+                ? repo.findHistorialReciente(id_chat, limit)
+                : repo.findHistorialAnterior(id_chat, after.getSortKeyAsDateTime(), after.getId(), limit);
+
+        // Whether a message was read follows from the recipient's watermark
+        List<ChatParticipantesDTO> lecturas = mensajes.isEmpty() ? List.of() : chatRepository.findLecturas(List.of(id_chat));
+        ChatParticipantesDTO lectura = lecturas.isEmpty() ? new ChatParticipantesDTO() : lecturas.get(0);
+        return PagedResponseDTO.ofKeyset(mensajes, pageSize, after == null, mensaje -> {
+                    MensajeDTO dto = MensajeMapper.INSTANCE.toDto(mensaje);
+                    dto.setLeido(lectura.leido(mensaje.getId_mensaje(),
+                                               mensaje.getEmisor() != null ? mensaje.getEmisor().getId() : null));
+                    return dto;
+                },
+                mensaje -> KeysetCursor.of(mensaje.getTimestamp(), mensaje.getId_mensaje()));
+    }
+
+    /**
+     * Full-text search over the messages of the user's chats, most relevant first,
+     * with the matched words highlighted.
+     *
+     * @param usuario STOMP user (email) running the search
+     * @param chatId chat to search in, or null for all the user's chats
+     * @throws IllegalStateException if message search is disabled on this node
+     */
+    @Override
+    public PagedResponseDTO<ResultadoBusquedaMensajeDTO> buscar(String usuario, String texto, Integer chatId,
+                                                               int page, int size) {
+        log.debug("Searching mensajes of {} [chat: {}, page: {}, size: {}]", usuario, chatId, page, size);
+        MensajeSearchIndex indice = indiceBusqueda.getIfAvailable();
+        if (indice == null) {
+            throw new IllegalStateException("Chat message search is disabled (thunderfat.busqueda-mensajes.enabled)");
+        }
+        return indice.buscar(usuario, texto, chatId, page, size);
     }
 
     // Convenience modern method returning DTOs
@@ -78,4 +238,11 @@ public class MensajeServiceJPA implements IMensajeService {
         List<Mensaje> mensajes = buscarPorChat(id_chat);
         return MensajeMapper.INSTANCE.toDtoList(mensajes);
     }
+
+    /**
+     * Outcome of a read receipt: whether the watermark moved, how many messages it
+     * marked as read and where it is now.
+     */
+    private record Lectura(boolean movida, int leidos, int hasta) {
+    }
 }
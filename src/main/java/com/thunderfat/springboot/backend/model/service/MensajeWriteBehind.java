@@ -0,0 +1,743 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dto.ChatParticipantesDTO;
+import com.thunderfat.springboot.backend.model.dto.ConfirmacionMensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.MensajeChatDTO;
+import com.thunderfat.springboot.backend.model.dto.SobreMensajeDTO;
+import com.thunderfat.springboot.backend.model.entity.Mensaje;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores live chat messages in batches off the WebSocket inbound threads.
+ *
+ * Senders only put the message in a bounded queue. A single writer thread drains it,
+ * numbers each message within its chat in queue order and stores the whole batch with
+ * one JDBC batch insert in one transaction, so the cost of a round trip is shared by
+ * every message that arrived meanwhile. When the queue is full the sender waits up to
+ * {@code espera-encolar} and the message is then rejected, which slows the inbound
+ * channel down instead of growing the heap.
+ *
+ * A message is broadcast to {@code /topic/chat/{chatId}}, and counted as unread for the
+ * other participant by {@link ContadorNoLeidos}, only after its batch commits:
+ * a participant never sees a message that a crash could still lose. Committed batches are also added
+ * to the {@link MensajeSearchIndex}, when search is enabled. Shutdown stops accepting
+ * messages and drains the queue before the context closes.
+ *
+ * With {@code diario} set, every accepted message is first written to a local
+ * {@link DiarioMensajes} and marked done once stored or rejected. On start the messages
+ * left open by a crash are queued again before anything else, skipping those whose
+ * batch had committed, so an accepted message is never lost nor stored twice.
+ *
+ * Each message also goes, as a compact {@link SobreMensajeDTO}, to the {@link #BANDEJA}
+ * of both participants, found in the same chat-to-participants index used to validate
+ * senders. A user with hundreds of chats follows all of them with one subscription, and
+ * gets one frame per batch with every envelope of the batch addressed to it. Messages
+ * stored another way, through the exported {@code /mensajes} resource, are announced to
+ * the same inboxes by {@link #anunciar(Mensaje)}.
+ *
+ * Sequences are kept in memory and seeded from the highest stored one; if another node
+ * took the same numbers the unique key rejects the batch, and it is stored again one
+ * message at a time with sequences reloaded from the database.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@Slf4j
+public class MensajeWriteBehind {
+
+    /** User destination of rejected messages, under {@code /user} */
+    public static final String CONFIRMACIONES = "/queue/confirmations";
+
+    /** User destination of the envelopes of messages of every chat of the user, under {@code /user} */
+    public static final String BANDEJA = "/queue/inbox";
+
+    private static final String TOPIC_CHAT = "/topic/chat/";
+    private static final String TIPO_TEXTO = "TEXT";
+    private static final String CACHE_MENSAJES = "mensajes-by-chat";
+    private static final String INSERT_MENSAJE =
+            "INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat, secuencia) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final long ESPERA_COLA_VACIA_MS = 100;
+    private static final int MAX_CHATS_EN_MEMORIA = 10_000;
+
+    private final ChatRepository chatRepository;
+    private final MensajeRepository mensajeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectProvider<CacheManager> cacheManager;
+    private final ContadorNoLeidos contadorNoLeidos;
+    private final ObjectProvider<MensajeSearchIndex> indiceBusqueda;
+    private final ThunderFatProperties.MensajesChat config;
+    private final BlockingQueue<Pendiente> cola;
+    /** Null when the journal is disabled */
+    private final DiarioMensajes diario;
+
+    /** Only read and written by the writer thread */
+    private final Map<Integer, ChatParticipantesDTO> participantes = lru();
+    private final Map<Integer, Long> ultimasSecuencias = lru();
+    private LocalDateTime ultimoTimestamp = LocalDateTime.MIN;
+
+    private final AtomicLong encolados = new AtomicLong();
+    private final Object progreso = new Object();
+    private long procesados;
+    private volatile boolean aceptando = true;
+    private ExecutorService ejecutor;
+
+    public MensajeWriteBehind(ChatRepository chatRepository,
+                              MensajeRepository mensajeRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              SimpMessagingTemplate messagingTemplate,
+                              ObjectProvider<CacheManager> cacheManager,
+                              ContadorNoLeidos contadorNoLeidos,
+                              ObjectProvider<MensajeSearchIndex> indiceBusqueda,
+                              ThunderFatProperties properties) {
+        this.chatRepository = chatRepository;
+        this.mensajeRepository = mensajeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.messagingTemplate = messagingTemplate;
+        this.cacheManager = cacheManager;
+        this.contadorNoLeidos = contadorNoLeidos;
+        this.indiceBusqueda = indiceBusqueda;
+        this.config = properties.getMensajesChat();
+        this.cola = new ArrayBlockingQueue<>(config.getCapacidad());
+        this.diario = abrirDiario(config);
+    }
+
+    private static DiarioMensajes abrirDiario(ThunderFatProperties.MensajesChat config) {
+        if (!StringUtils.hasText(config.getDiario())) {
+            return null;
+        }
+        try {
+            return new DiarioMensajes(Path.of(config.getDiario()), config.isSincronizarDiario());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open chat message journal " + config.getDiario(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void iniciar() {
+        if (ejecutor != null) {
+            return;
+        }
+        ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "mensajes-chat-writer");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        ejecutor.execute(this::escribir);
+        log.info("Chat message writer started: queue of {}, batches of up to {}", config.getCapacidad(), config.getLote());
+        if (diario != null) {
+            recuperar();
+        }
+    }
+
+    /**
+     * Queues again the messages the journal holds open from before a crash, waiting for room
+     * in the queue. Those that were being inserted are skipped when the row is there.
+     */
+    private void recuperar() {
+        List<DiarioMensajes.Recuperado> abiertos;
+        try {
+            abiertos = diario.recuperar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read chat message journal " + config.getDiario(), e);
+        }
+        if (abiertos.isEmpty()) {
+            return;
+        }
+        List<Long> guardados = new ArrayList<>();
+        int reencolados = 0;
+        for (DiarioMensajes.Recuperado abierto : abiertos) {
+            if (abierto.secuencia() != null && mensajeRepository
+                    .findContenidoBySecuencia(abierto.chatId(), abierto.secuencia())
+                    .filter(contenido -> contenido.equals(abierto.contenido()))
+                    .isPresent()) {
+                guardados.add(abierto.id());
+                continue;
+            }
+            try {
+                cola.put(new Pendiente(abierto.id(), abierto.idCliente(), abierto.chatId(), abierto.emisor(),
+                        abierto.contenido(), abierto.tipo()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while replaying the chat message journal; the rest waits for the next start");
+                break;
+            }
+            encolados.incrementAndGet();
+            reencolados++;
+        }
+        diario.terminados(guardados);
+        log.info("Replayed chat message journal {}: {} messages queued again, {} already stored",
+                 config.getDiario(), reencolados, guardados.size());
+    }
+
+    /**
+     * Stops accepting messages and waits for the queued ones to be stored and broadcast.
+     */
+    @PreDestroy
+    public void detener() {
+        aceptando = false;
+        ExecutorService actual;
+        synchronized (this) {
+            actual = ejecutor;
+        }
+        if (actual == null) {
+            return;
+        }
+        actual.shutdown();
+        try {
+            if (!actual.awaitTermination(config.getEsperaCierre().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("Chat message writer did not drain in {}: {} messages were not stored",
+                          config.getEsperaCierre(), cola.size());
+                actual.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            actual.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        cerrarDiario();
+    }
+
+    /**
+     * Queues a live message to be stored and then broadcast to the chat.
+     * Blocks while the queue is full, up to {@code espera-encolar}.
+     *
+     * @param idCliente id the client gave the message, echoed in the broadcast
+     * @param chatId chat the message belongs to
+     * @param emisor STOMP user (email) of the sender; must be a participant of the chat
+     * @param contenido message text
+     * @param tipo message type, e.g. TEXT
+     * @return false if the queue stayed full, the journal could not be written or the
+     *         application is shutting down
+     */
+    public boolean encolar(String idCliente, int chatId, String emisor, String contenido, String tipo) {
+        if (!aceptando) {
+            return false;
+        }
+        long idDiario = 0;
+        if (diario != null) {
+            try {
+                idDiario = diario.aceptado(idCliente, chatId, emisor, contenido, tipo);
+            } catch (IOException e) {
+                log.error("Could not journal message of {} to chat {}: rejecting it", emisor, chatId, e);
+                return false;
+            }
+        }
+        Pendiente pendiente = new Pendiente(idDiario, idCliente, chatId, emisor, contenido, tipo);
+        boolean encolado;
+        try {
+            encolado = cola.offer(pendiente, config.getEsperaEncolar().toMillis(), TimeUnit.MILLISECONDS);
+            if (!encolado) {
+                log.warn("Chat message queue full for {}: rejecting message of {} to chat {}",
+                         config.getEsperaEncolar(), emisor, chatId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            encolado = false;
+        }
+        if (!encolado) {
+            if (diario != null) {
+                diario.terminados(List.of(idDiario));
+            }
+            return false;
+        }
+        encolados.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits until every message queued before the call has been stored or rejected.
+     *
+     * @return false if that did not happen within the given time
+     */
+    public boolean vaciar(Duration espera) throws InterruptedException {
+        long objetivo = encolados.get();
+        long limite = System.nanoTime() + espera.toNanos();
+        synchronized (progreso) {
+            while (procesados < objetivo) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(progreso, restante);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the envelope of a message stored without going through the queue to the
+     * {@link #BANDEJA} of both participants. Call once the message is committed.
+     */
+    public void anunciar(Mensaje mensaje) {
+        if (mensaje.getChat() == null) {
+            return;
+        }
+        int chatId = mensaje.getChat().getId_chat();
+        List<ChatParticipantesDTO> chats = chatRepository.findParticipantes(List.of(chatId));
+        if (chats.isEmpty()) {
+            return;
+        }
+        ChatParticipantesDTO chat = chats.get(0);
+        String emisor = null;
+        if (mensaje.getEmisor() != null) {
+            int emisorId = mensaje.getEmisor().getId();
+            if (Integer.valueOf(emisorId).equals(chat.getPacienteId())) {
+                emisor = chat.getPacienteEmail();
+            } else if (Integer.valueOf(emisorId).equals(chat.getNutricionistaId())) {
+                emisor = chat.getNutricionistaEmail();
+            }
+        }
+        SobreMensajeDTO sobre = SobreMensajeDTO.builder()
+                .chatId(chatId)
+                .mensajeId(mensaje.getId_mensaje())
+                .secuencia(mensaje.getSecuencia())
+                .emisor(emisor)
+                .timestamp(mensaje.getTimestamp())
+                // The resource carries no message type
+                .tipo(TIPO_TEXTO)
+                .resumen(resumen(mensaje.getContenido()))
+                .build();
+        Map<String, List<SobreMensajeDTO>> porUsuario = new LinkedHashMap<>();
+        dirigir(porUsuario, chat, sobre);
+        entregar(porUsuario);
+    }
+
+    /** Messages waiting to be stored */
+    public int pendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Kills the writer thread without draining the queue, as a crash would.
+     */
+    void abortar() {
+        aceptando = false;
+        synchronized (this) {
+            if (ejecutor != null) {
+                ejecutor.shutdownNow();
+                try {
+                    ejecutor.awaitTermination(config.getEsperaCierre().toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        cerrarDiario();
+    }
+
+    private void cerrarDiario() {
+        if (diario == null) {
+            return;
+        }
+        try {
+            diario.close();
+        } catch (IOException e) {
+            log.warn("Could not close chat message journal {}: {}", config.getDiario(), e.getMessage());
+        }
+    }
+
+    // =====================================
+    // WRITER THREAD
+    // =====================================
+
+    private void escribir() {
+        List<Pendiente> lote = new ArrayList<>(config.getLote());
+        while (!Thread.currentThread().isInterrupted()) {
+            Pendiente primero;
+            try {
+                primero = cola.poll(ESPERA_COLA_VACIA_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (primero == null) {
+                if (!aceptando && cola.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            lote.add(primero);
+            cola.drainTo(lote, config.getLote() - 1);
+            try {
+                escribirLote(lote);
+                terminar(lote);
+            } catch (RuntimeException e) {
+                // An exception would stop the writer thread for good; the journal keeps the batch for the next start
+                log.error("Chat message writer failed on a batch of {} messages", lote.size(), e);
+            }
+            synchronized (progreso) {
+                procesados += lote.size();
+                progreso.notifyAll();
+            }
+            lote.clear();
+        }
+    }
+
+    private void escribirLote(List<Pendiente> lote) {
+        long inicio = System.nanoTime();
+        List<Fila> filas = validar(lote);
+        if (filas.isEmpty()) {
+            return;
+        }
+        try {
+            guardar(filas);
+        } catch (DataAccessException | TransactionException e) {
+            // Sequences taken by another node, or a chat deleted meanwhile: store one at a time
+            log.warn("Batch insert of {} chat messages failed, retrying one by one: {}", filas.size(), e.getMessage());
+            olvidar(filas);
+            List<Fila> guardadas = new ArrayList<>(filas.size());
+            for (Fila fila : filas) {
+                try {
+                    guardar(List.of(fila));
+                    guardadas.add(fila);
+                } catch (DataAccessException | TransactionException ex) {
+                    log.error("Could not store message of {} to chat {}", fila.pendiente.emisor(),
+                              fila.pendiente.chatId(), ex);
+                    olvidar(List.of(fila));
+                    rechazar(fila.pendiente);
+                }
+            }
+            filas = guardadas;
+        }
+        publicar(filas);
+        repartir(filas);
+        contar(filas);
+        indexar(filas);
+        log.debug("Stored {} chat messages in {} µs", filas.size(), (System.nanoTime() - inicio) / 1_000);
+    }
+
+    /**
+     * Resolves the sender of each message against the participants of its chat and
+     * rejects the messages of unknown chats or of users outside the chat.
+     */
+    private List<Fila> validar(List<Pendiente> lote) {
+        Set<Integer> desconocidos = new TreeSet<>();
+        for (Pendiente pendiente : lote) {
+            if (!participantes.containsKey(pendiente.chatId())) {
+                desconocidos.add(pendiente.chatId());
+            }
+        }
+        if (!desconocidos.isEmpty()) {
+            for (ChatParticipantesDTO chat : chatRepository.findParticipantes(desconocidos)) {
+                participantes.put(chat.getChatId(), chat);
+            }
+        }
+
+        List<Fila> filas = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            ChatParticipantesDTO chat = participantes.get(pendiente.chatId());
+            Integer emisorId = chat != null ? chat.participante(pendiente.emisor()) : null;
+            if (emisorId == null) {
+                log.warn("Rejecting message of {} to chat {}: no such chat or not a participant",
+                         pendiente.emisor(), pendiente.chatId());
+                rechazar(pendiente);
+                continue;
+            }
+            filas.add(new Fila(pendiente, chat, emisorId, marcaTemporal()));
+        }
+        return filas;
+    }
+
+    /**
+     * Numbers the messages within their chats and inserts them in one transaction.
+     */
+    private void guardar(List<Fila> filas) {
+        Set<Integer> sinSecuencia = new TreeSet<>();
+        for (Fila fila : filas) {
+            if (!ultimasSecuencias.containsKey(fila.pendiente.chatId())) {
+                sinSecuencia.add(fila.pendiente.chatId());
+            }
+        }
+        if (!sinSecuencia.isEmpty()) {
+            for (Integer chatId : sinSecuencia) {
+                ultimasSecuencias.put(chatId, 0L);
+            }
+            for (Object[] fila : mensajeRepository.findUltimasSecuencias(sinSecuencia)) {
+                ultimasSecuencias.put((Integer) fila[0], ((Number) fila[1]).longValue());
+            }
+        }
+        for (Fila fila : filas) {
+            fila.secuencia = ultimasSecuencias.merge(fila.pendiente.chatId(), 1L, Long::sum);
+        }
+        if (diario != null) {
+            Map<Long, Long> secuencias = new LinkedHashMap<>();
+            for (Fila fila : filas) {
+                secuencias.put(fila.pendiente.idDiario(), fila.secuencia);
+            }
+            diario.numerados(secuencias);
+        }
+
+        GeneratedKeyHolder claves = new GeneratedKeyHolder();
+        transaccion.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                conexion -> conexion.prepareStatement(INSERT_MENSAJE, new String[] {"id_mensaje"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Fila fila = filas.get(i);
+                        ps.setString(1, fila.pendiente.contenido());
+                        ps.setTimestamp(2, Timestamp.valueOf(fila.timestamp));
+                        ps.setInt(3, fila.emisorId);
+                        ps.setBoolean(4, false);
+                        ps.setInt(5, fila.pendiente.chatId());
+                        ps.setLong(6, fila.secuencia);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return filas.size();
+                    }
+                },
+                claves));
+
+        List<Map<String, Object>> generadas = claves.getKeyList();
+        for (int i = 0; i < filas.size() && i < generadas.size(); i++) {
+            Object clave = generadas.get(i).values().iterator().next();
+            filas.get(i).mensajeId = ((Number) clave).intValue();
+        }
+    }
+
+    /**
+     * Marks a batch done in the journal: its messages are stored or were rejected.
+     */
+    private void terminar(List<Pendiente> lote) {
+        if (diario == null) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            ids.add(pendiente.idDiario());
+        }
+        diario.terminados(ids);
+    }
+
+    /**
+     * Drops what is known about the chats of a failed insert, so it is read again.
+     */
+    private void olvidar(List<Fila> filas) {
+        for (Fila fila : filas) {
+            ultimasSecuencias.remove(fila.pendiente.chatId());
+            participantes.remove(fila.pendiente.chatId());
+        }
+    }
+
+    private void publicar(List<Fila> filas) {
+        CacheManager caches = cacheManager.getIfAvailable();
+        Cache cache = caches != null ? caches.getCache(CACHE_MENSAJES) : null;
+        for (Fila fila : filas) {
+            Pendiente pendiente = fila.pendiente;
+            if (cache != null) {
+                cache.evict(pendiente.chatId());
+            }
+            MensajeChatDTO mensaje = MensajeChatDTO.builder()
+                    .id(pendiente.idCliente())
+                    .content(pendiente.contenido())
+                    .sender(pendiente.emisor())
+                    .chatId(String.valueOf(pendiente.chatId()))
+                    .timestamp(fila.timestamp)
+                    .messageType(pendiente.tipo())
+                    .mensajeId(fila.mensajeId)
+                    .secuencia(fila.secuencia)
+                    .build();
+            try {
+                messagingTemplate.convertAndSend(TOPIC_CHAT + pendiente.chatId(), mensaje);
+            } catch (RuntimeException e) {
+                log.warn("Could not broadcast stored message {} of chat {}: {}", fila.mensajeId,
+                         pendiente.chatId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the envelopes of the batch to the inboxes of the participants, one frame per user.
+     */
+    private void repartir(List<Fila> filas) {
+        Map<String, List<SobreMensajeDTO>> porUsuario = new LinkedHashMap<>();
+        for (Fila fila : filas) {
+            Pendiente pendiente = fila.pendiente;
+            SobreMensajeDTO sobre = SobreMensajeDTO.builder()
+                    .chatId(pendiente.chatId())
+                    .mensajeId(fila.mensajeId)
+                    .secuencia(fila.secuencia)
+                    .emisor(pendiente.emisor())
+                    .timestamp(fila.timestamp)
+                    .tipo(pendiente.tipo())
+                    .resumen(resumen(pendiente.contenido()))
+                    .build();
+            dirigir(porUsuario, fila.chat, sobre);
+        }
+        entregar(porUsuario);
+    }
+
+    private static void dirigir(Map<String, List<SobreMensajeDTO>> porUsuario, ChatParticipantesDTO chat,
+                                SobreMensajeDTO sobre) {
+        for (String usuario : new String[] {chat.getPacienteEmail(), chat.getNutricionistaEmail()}) {
+            if (usuario != null) {
+                porUsuario.computeIfAbsent(usuario, u -> new ArrayList<>()).add(sobre);
+            }
+        }
+    }
+
+    private void entregar(Map<String, List<SobreMensajeDTO>> porUsuario) {
+        porUsuario.forEach((usuario, sobres) -> {
+            try {
+                messagingTemplate.convertAndSendToUser(usuario, BANDEJA, sobres);
+            } catch (RuntimeException e) {
+                log.warn("Could not send {} message envelopes to the inbox of {}: {}", sobres.size(), usuario,
+                         e.getMessage());
+            }
+        });
+    }
+
+    private String resumen(String contenido) {
+        int longitud = config.getLongitudResumenBandeja();
+        if (contenido == null || contenido.codePointCount(0, contenido.length()) <= longitud) {
+            return contenido;
+        }
+        return contenido.substring(0, contenido.offsetByCodePoints(0, longitud)) + "…";
+    }
+
+    /**
+     * Moves the unread counters of the recipients, once per chat and sender.
+     */
+    private void contar(List<Fila> filas) {
+        Map<Remitente, Integer> porRemitente = new LinkedHashMap<>();
+        for (Fila fila : filas) {
+            porRemitente.merge(new Remitente(fila.chat, fila.emisorId), 1, Integer::sum);
+        }
+        porRemitente.forEach((remitente, cuantos) ->
+                contadorNoLeidos.recibidos(remitente.chat(), remitente.emisorId(), cuantos));
+    }
+
+    /**
+     * Makes the stored messages searchable; one the index misses is caught up by its next
+     * synchronisation.
+     */
+    private void indexar(List<Fila> filas) {
+        MensajeSearchIndex indice = indiceBusqueda.getIfAvailable();
+        if (indice == null) {
+            return;
+        }
+        List<MensajeSearchIndex.Documento> documentos = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            if (fila.mensajeId != null) {
+                documentos.add(new MensajeSearchIndex.Documento(fila.mensajeId, fila.pendiente.chatId(),
+                        fila.emisorId, fila.timestamp, fila.pendiente.contenido()));
+            }
+        }
+        try {
+            indice.indexar(documentos);
+        } catch (RuntimeException e) {
+            log.warn("Could not index {} stored chat messages: {}", documentos.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Timestamps are taken in queue order and never go back, so the (timestamp, id) order
+     * of the stored history is the order in which messages were broadcast.
+     */
+    private LocalDateTime marcaTemporal() {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (ahora.isBefore(ultimoTimestamp)) {
+            ahora = ultimoTimestamp;
+        }
+        ultimoTimestamp = ahora;
+        return ahora;
+    }
+
+    private void rechazar(Pendiente pendiente) {
+        try {
+            messagingTemplate.convertAndSendToUser(pendiente.emisor(), CONFIRMACIONES,
+                    new ConfirmacionMensajeDTO(pendiente.idCliente(), ConfirmacionMensajeDTO.REJECTED));
+        } catch (RuntimeException e) {
+            log.warn("Could not notify {} of a rejected message: {}", pendiente.emisor(), e.getMessage());
+        }
+    }
+
+    private static <V> Map<Integer, V> lru() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > MAX_CHATS_EN_MEMORIA;
+            }
+        };
+    }
+
+    /**
+     * A message as received, waiting in the queue.
+     *
+     * @param idDiario id of the message in the journal, 0 when the journal is disabled
+     */
+    private record Pendiente(long idDiario, String idCliente, int chatId, String emisor, String contenido, String tipo) {
+    }
+
+    /**
+     * A validated message being stored.
+     */
+    private static final class Fila {
+        private final Pendiente pendiente;
+        private final ChatParticipantesDTO chat;
+        private final int emisorId;
+        private final LocalDateTime timestamp;
+        private long secuencia;
+        private Integer mensajeId;
+
+        private Fila(Pendiente pendiente, ChatParticipantesDTO chat, int emisorId, LocalDateTime timestamp) {
+            this.pendiente = pendiente;
+            this.chat = chat;
+            this.emisorId = emisorId;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * A sender within one chat.
+     */
+    private record Remitente(ChatParticipantesDTO chat, int emisorId) {
+    }
+}
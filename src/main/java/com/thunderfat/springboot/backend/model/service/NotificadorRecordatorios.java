@@ -0,0 +1,22 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO;
+
+/**
+ * Delivery channel for appointment reminders besides the WebSocket push, e.g. email
+ * or SMS. Every bean implementing it receives each reminder once; a failure in one
+ * channel does not stop the others.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public interface NotificadorRecordatorios {
+
+    /**
+     * Delivers a reminder. Called from the reminder dispatcher thread, so
+     * implementations should hand slow work off instead of blocking it.
+     *
+     * @param recordatorio the reminder
+     */
+    void notificar(RecordatorioCitaDTO recordatorio);
+}
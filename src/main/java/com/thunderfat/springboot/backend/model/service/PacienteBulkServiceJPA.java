@@ -0,0 +1,434 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO;
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO.ErrorFila;
+import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk patient import and export over plain JDBC.
+ * Features:
+ * - Input is parsed row by row (CSV reader or Jackson {@link MappingIterator}), never held in memory as a whole
+ * - Bean Validation on every row, plus DNI/email dedupe against in-memory sets preloaded from the database
+ * - Inserts in JDBC batches of {@code thunderfat.paciente-bulk.batch-size} rows, one transaction for the import
+ * - Patient caches and the search index are invalidated once, not once per patient
+ * - Export streams a JDBC cursor straight to the response without creating entities
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PacienteBulkServiceJPA implements IPacienteBulkService {
+
+    private static final String INSERT_USUARIO =
+            "INSERT INTO usuario (email, psw, createtime, enabled) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_PACIENTE =
+            "INSERT INTO paciente (id, nombre, apellidos, fechanacimiento, direccion, localidad, codigopostal, "
+            + "provincia, dni, altura, telefono, sexo, id_nutricionista) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_EXPORTACION =
+            "SELECT u.id, u.email, u.enabled, u.createtime, p.nombre, p.apellidos, p.fechanacimiento, p.direccion, "
+            + "p.localidad, p.codigopostal, p.provincia, p.dni, p.altura, p.telefono, p.sexo "
+            + "FROM paciente p JOIN usuario u ON u.id = p.id WHERE p.id_nutricionista = ? ORDER BY p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NutricionistaRepository nutricionistaRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final PacienteSearchIndex pacienteSearchIndex;
+    private final ThunderFatProperties properties;
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(value = "pacientes", allEntries = true),
+        @CacheEvict(value = "pacientes-by-nutritionist", allEntries = true),
+        @CacheEvict(value = "paciente-stats", allEntries = true)
+    })
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    @Transactional
+    public ImportacionPacientesDTO importar(Integer nutricionistaId, Formato formato, InputStream entrada) {
+        if (nutricionistaId == null || formato == null || entrada == null) {
+            throw new IllegalArgumentException("Nutritionist ID, format and input are required");
+        }
+        if (!nutricionistaRepository.existsById(nutricionistaId)) {
+            throw new ResourceNotFoundException("Nutritionist not found with id " + nutricionistaId);
+        }
+
+        log.info("Starting bulk {} import of patients for nutritionist {}", formato, nutricionistaId);
+        Importacion importacion = new Importacion(nutricionistaId, LocalDateTime.now());
+        cargarClavesExistentes(importacion);
+
+        try {
+            if (formato == Formato.CSV) {
+                leerCsv(entrada, importacion);
+            } else {
+                leerJson(entrada, importacion);
+            }
+        } catch (IOException e) {
+            throw new BusinessException("Error al leer el fichero de importación de pacientes", e);
+        }
+        insertarLote(importacion);
+
+        // Single invalidation for the whole import (applied after commit)
+        pacienteSearchIndex.invalidar(nutricionistaId);
+
+        ImportacionPacientesDTO resultado = importacion.resultado();
+        log.info("Bulk import for nutritionist {} finished: {} rows, {} imported, {} duplicated, {} invalid in {} ms",
+                nutricionistaId, resultado.getFilasLeidas(), resultado.getImportados(),
+                resultado.getDuplicados(), resultado.getInvalidos(), resultado.getTiempoMs());
+        return resultado;
+    }
+
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    @Transactional(readOnly = true)
+    public long exportar(Integer nutricionistaId, Formato formato, OutputStream salida) {
+        if (nutricionistaId == null || formato == null || salida == null) {
+            throw new IllegalArgumentException("Nutritionist ID, format and output are required");
+        }
+        log.debug("Exporting patients of nutritionist {} as {}", nutricionistaId, formato);
+
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            JsonGenerator json = null;
+            if (formato == Formato.CSV) {
+                PacienteCsv.escribirCabecera(writer);
+            } else {
+                json = objectMapper.getFactory().createGenerator(writer);
+                json.writeStartArray();
+            }
+
+            // One flush at the end instead of one per patient
+            ObjectWriter escritorJson = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            EscrituraExportacion escritura = new EscrituraExportacion(writer, json, escritorJson);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_EXPORTACION,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(properties.getPacienteBulk().getExportFetchSize());
+                ps.setInt(1, nutricionistaId);
+                return ps;
+            }, escritura);
+
+            if (json != null) {
+                json.writeEndArray();
+                json.flush();
+            }
+            writer.flush();
+            log.debug("Exported {} patients of nutritionist {}", escritura.filas, nutricionistaId);
+            return escritura.filas;
+        } catch (IOException e) {
+            throw new BusinessException("Error al exportar los pacientes", e);
+        }
+    }
+
+    // =====================================
+    // PRIVATE HELPER METHODS
+    // =====================================
+
+    private void cargarClavesExistentes(Importacion importacion) {
+        jdbcTemplate.query("SELECT email FROM usuario WHERE email IS NOT NULL",
+                (RowCallbackHandler) rs -> importacion.emails.add(claveEmail(rs.getString(1))));
+        jdbcTemplate.query("SELECT dni FROM paciente WHERE dni IS NOT NULL",
+                (RowCallbackHandler) rs -> importacion.dnis.add(claveDni(rs.getString(1))));
+    }
+
+    private void leerCsv(InputStream entrada, Importacion importacion) throws IOException {
+        PacienteCsv csv = new PacienteCsv(new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)));
+        while (true) {
+            long fila = importacion.filasLeidas + 1;
+            PacienteDTO paciente;
+            try {
+                paciente = csv.siguiente();
+            } catch (IllegalArgumentException e) {
+                importacion.filasLeidas++;
+                importacion.rechazar(fila, e.getMessage(), false);
+                continue;
+            }
+            if (paciente == null) {
+                return;
+            }
+            importacion.filasLeidas++;
+            procesar(fila, paciente, importacion);
+        }
+    }
+
+    private void leerJson(InputStream entrada, Importacion importacion) throws IOException {
+        try (MappingIterator<PacienteDTO> iterador = objectMapper.readerFor(PacienteDTO.class).readValues(entrada)) {
+            while (true) {
+                long fila = importacion.filasLeidas + 1;
+                PacienteDTO paciente;
+                try {
+                    if (!iterador.hasNextValue()) {
+                        return;
+                    }
+                    paciente = iterador.nextValue();
+                } catch (JsonMappingException e) {
+                    // The iterator resyncs to the next object on the following call
+                    importacion.filasLeidas++;
+                    importacion.rechazar(fila, "JSON no válido: " + e.getOriginalMessage(), false);
+                    continue;
+                }
+                importacion.filasLeidas++;
+                procesar(fila, paciente, importacion);
+            }
+        } catch (JsonProcessingException e) {
+            throw new BusinessValidationException("Fichero JSON mal formado: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private void procesar(long fila, PacienteDTO paciente, Importacion importacion) {
+        if (paciente == null) {
+            importacion.rechazar(fila, "Registro vacío", false);
+            return;
+        }
+        Set<ConstraintViolation<PacienteDTO>> violaciones = validator.validate(paciente);
+        if (!violaciones.isEmpty()) {
+            importacion.rechazar(fila, violaciones.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")), false);
+            return;
+        }
+
+        String email = claveEmail(paciente.getEmail());
+        String dni = claveDni(paciente.getDni());
+        if (importacion.emails.contains(email)) {
+            importacion.rechazar(fila, "email: ya existe un usuario con el email " + paciente.getEmail().trim(), true);
+            return;
+        }
+        if (importacion.dnis.contains(dni)) {
+            importacion.rechazar(fila, "dni: ya existe un paciente con el DNI " + paciente.getDni().trim(), true);
+            return;
+        }
+        importacion.emails.add(email);
+        importacion.dnis.add(dni);
+
+        paciente.setEmail(paciente.getEmail().trim());
+        paciente.setDni(paciente.getDni().trim().toUpperCase(Locale.ROOT));
+        if (StringUtils.hasText(paciente.getPsw())) {
+            paciente.setPsw(passwordEncoder.encode(paciente.getPsw()));
+        }
+        importacion.lote.add(paciente);
+        if (importacion.lote.size() >= properties.getPacienteBulk().getBatchSize()) {
+            insertarLote(importacion);
+        }
+    }
+
+    /**
+     * Inserts the pending rows: one batch into usuario (collecting generated ids)
+     * and one batch into paciente.
+     */
+    private void insertarLote(Importacion importacion) {
+        List<PacienteDTO> lote = importacion.lote;
+        if (lote.isEmpty()) {
+            return;
+        }
+        Timestamp createtime = Timestamp.valueOf(importacion.inicio);
+
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_USUARIO, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        PacienteDTO paciente = lote.get(i);
+                        ps.setString(1, paciente.getEmail());
+                        ps.setString(2, paciente.getPsw());
+                        ps.setTimestamp(3, createtime);
+                        ps.setBoolean(4, paciente.getEnabled() == null || paciente.getEnabled());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lote.size();
+                    }
+                }, claves);
+
+        List<Map<String, Object>> generadas = claves.getKeyList();
+        if (generadas.size() != lote.size()) {
+            throw new BusinessException("Error al importar pacientes: el driver JDBC devolvió "
+                    + generadas.size() + " claves para " + lote.size() + " usuarios");
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i).setId(((Number) generadas.get(i).values().iterator().next()).intValue());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PACIENTE, lote, lote.size(), (ps, paciente) -> {
+            ps.setInt(1, paciente.getId());
+            ps.setString(2, paciente.getNombre());
+            ps.setString(3, paciente.getApellidos());
+            ps.setDate(4, Date.valueOf(paciente.getFechanacimiento()));
+            ps.setString(5, paciente.getDireccion());
+            ps.setString(6, paciente.getLocalidad());
+            ps.setString(7, paciente.getCodigopostal());
+            ps.setString(8, paciente.getProvincia());
+            ps.setString(9, paciente.getDni());
+            ps.setDouble(10, paciente.getAltura() == null ? 0 : paciente.getAltura());
+            ps.setString(11, paciente.getTelefono());
+            ps.setString(12, paciente.getSexo());
+            ps.setInt(13, importacion.nutricionistaId);
+        });
+
+        importacion.importados += lote.size();
+        log.debug("Inserted batch of {} patients for nutritionist {}", lote.size(), importacion.nutricionistaId);
+        lote.clear();
+    }
+
+    private static String claveEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String claveDni(String dni) {
+        return dni.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Mutable state of one import run.
+     */
+    private final class Importacion {
+        private final Integer nutricionistaId;
+        private final LocalDateTime inicio;
+        private final long inicioNanos = System.nanoTime();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> dnis = new HashSet<>();
+        private final List<PacienteDTO> lote = new ArrayList<>();
+        private final List<ErrorFila> errores = new ArrayList<>();
+        private long filasLeidas;
+        private long importados;
+        private long duplicados;
+        private long invalidos;
+
+        private Importacion(Integer nutricionistaId, LocalDateTime inicio) {
+            this.nutricionistaId = nutricionistaId;
+            this.inicio = inicio;
+        }
+
+        private void rechazar(long fila, String mensaje, boolean duplicado) {
+            if (duplicado) {
+                duplicados++;
+            } else {
+                invalidos++;
+            }
+            if (errores.size() < properties.getPacienteBulk().getMaxReportedErrors()) {
+                errores.add(new ErrorFila(fila, mensaje));
+            }
+        }
+
+        private ImportacionPacientesDTO resultado() {
+            return ImportacionPacientesDTO.builder()
+                    .filasLeidas(filasLeidas)
+                    .importados(importados)
+                    .duplicados(duplicados)
+                    .invalidos(invalidos)
+                    .errores(errores)
+                    .erroresTruncados(duplicados + invalidos > errores.size())
+                    .tiempoMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos))
+                    .build();
+        }
+    }
+
+    /**
+     * Writes each exported row as soon as the driver hands it over.
+     */
+    private final class EscrituraExportacion implements RowCallbackHandler {
+        private final Writer writer;
+        private final JsonGenerator json;
+        private final ObjectWriter escritorJson;
+        private long filas;
+
+        private EscrituraExportacion(Writer writer, JsonGenerator json, ObjectWriter escritorJson) {
+            this.writer = writer;
+            this.json = json;
+            this.escritorJson = escritorJson;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            PacienteDTO paciente = new PacienteDTO();
+            paciente.setId(rs.getInt("id"));
+            paciente.setEmail(rs.getString("email"));
+            paciente.setEnabled(rs.getBoolean("enabled"));
+            Timestamp createtime = rs.getTimestamp("createtime");
+            paciente.setCreatetime(createtime == null ? null : createtime.toLocalDateTime());
+            paciente.setNombre(rs.getString("nombre"));
+            paciente.setApellidos(rs.getString("apellidos"));
+            Date fechanacimiento = rs.getDate("fechanacimiento");
+            paciente.setFechanacimiento(fechanacimiento == null ? null : fechanacimiento.toLocalDate());
+            paciente.setDireccion(rs.getString("direccion"));
+            paciente.setLocalidad(rs.getString("localidad"));
+            paciente.setCodigopostal(rs.getString("codigopostal"));
+            paciente.setProvincia(rs.getString("provincia"));
+            paciente.setDni(rs.getString("dni"));
+            // altura is a primitive column; 0 means it was never set
+            double altura = rs.getDouble("altura");
+            paciente.setAltura(altura > 0 ? altura : null);
+            paciente.setTelefono(rs.getString("telefono"));
+            paciente.setSexo(rs.getString("sexo"));
+            try {
+                if (json != null) {
+                    escritorJson.writeValue(json, paciente);
+                } else {
+                    PacienteCsv.escribir(writer, paciente);
+                }
+            } catch (IOException e) {
+                throw new BusinessException("Error al escribir la exportación de pacientes", e);
+            }
+            filas++;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+
+/**
+ * Minimal RFC 4180 reader and writer for the patient bulk import/export format.
+ *
+ * Columns are matched by header name (case-insensitive, any order); unknown columns
+ * are ignored so an export can be imported back as is. Records are read one at a
+ * time from the underlying reader, never buffered as a whole.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+final class PacienteCsv {
+
+    static final List<String> COLUMNAS = List.of("id", "nombre", "apellidos", "fechanacimiento", "direccion",
+            "localidad", "codigopostal", "provincia", "dni", "altura", "telefono", "sexo", "email", "enabled");
+
+    private static final List<String> COLUMNAS_OBLIGATORIAS = List.of("nombre", "apellidos", "email", "dni");
+
+    private final Reader entrada;
+    private final Map<String, Integer> cabecera = new HashMap<>();
+    private int pendiente = -2;
+
+    PacienteCsv(Reader entrada) throws IOException {
+        this.entrada = entrada;
+        List<String> nombres = leerRegistro();
+        if (nombres == null) {
+            throw new BusinessValidationException("El fichero CSV está vacío");
+        }
+        for (int i = 0; i < nombres.size(); i++) {
+            cabecera.put(nombres.get(i).trim().replace("\uFEFF", "").toLowerCase(Locale.ROOT), i);
+        }
+        for (String obligatoria : COLUMNAS_OBLIGATORIAS) {
+            if (!cabecera.containsKey(obligatoria)) {
+                throw new BusinessValidationException("Falta la columna obligatoria '" + obligatoria + "' en la cabecera CSV");
+            }
+        }
+    }
+
+    /**
+     * Reads the next data row.
+     *
+     * @return the patient, or null at end of input
+     * @throws IllegalArgumentException if a value cannot be converted (the row is consumed)
+     */
+    PacienteDTO siguiente() throws IOException {
+        List<String> valores = leerRegistro();
+        while (valores != null && valores.size() == 1 && valores.get(0).isBlank()) {
+            valores = leerRegistro();
+        }
+        if (valores == null) {
+            return null;
+        }
+        PacienteDTO paciente = new PacienteDTO();
+        paciente.setNombre(valor(valores, "nombre"));
+        paciente.setApellidos(valor(valores, "apellidos"));
+        paciente.setDireccion(valor(valores, "direccion"));
+        paciente.setLocalidad(valor(valores, "localidad"));
+        paciente.setCodigopostal(valor(valores, "codigopostal"));
+        paciente.setProvincia(valor(valores, "provincia"));
+        paciente.setDni(valor(valores, "dni"));
+        paciente.setTelefono(valor(valores, "telefono"));
+        paciente.setSexo(valor(valores, "sexo"));
+        paciente.setEmail(valor(valores, "email"));
+
+        String fecha = valor(valores, "fechanacimiento");
+        String altura = valor(valores, "altura");
+        String enabled = valor(valores, "enabled");
+        try {
+            paciente.setFechanacimiento(fecha == null ? null : LocalDate.parse(fecha));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("fechanacimiento: fecha no válida '" + fecha + "' (formato AAAA-MM-DD)");
+        }
+        try {
+            paciente.setAltura(altura == null ? null : Double.valueOf(altura.replace(',', '.')));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("altura: número no válido '" + altura + "'");
+        }
+        paciente.setEnabled(enabled == null ? null : Boolean.valueOf(enabled));
+        return paciente;
+    }
+
+    static void escribirCabecera(Writer salida) throws IOException {
+        salida.write(String.join(",", COLUMNAS));
+        salida.write("\r\n");
+    }
+
+    static void escribir(Writer salida, PacienteDTO paciente) throws IOException {
+        Object[] valores = {paciente.getId(), paciente.getNombre(), paciente.getApellidos(),
+                paciente.getFechanacimiento(), paciente.getDireccion(), paciente.getLocalidad(),
+                paciente.getCodigopostal(), paciente.getProvincia(), paciente.getDni(), paciente.getAltura(),
+                paciente.getTelefono(), paciente.getSexo(), paciente.getEmail(), paciente.getEnabled()};
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            if (valores[i] != null) {
+                salida.write(escapar(valores[i].toString()));
+            }
+        }
+        salida.write("\r\n");
+    }
+
+    private String valor(List<String> valores, String columna) {
+        Integer indice = cabecera.get(columna);
+        if (indice == null || indice >= valores.size()) {
+            return null;
+        }
+        String valor = valores.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static String escapar(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Reads one record, honouring quoted fields with embedded separators, quotes and line breaks.
+     */
+    private List<String> leerRegistro() throws IOException {
+        int c = leer();
+        if (c == -1) {
+            return null;
+        }
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new BusinessValidationException("Comillas sin cerrar en el fichero CSV");
+                }
+                if (c == '"') {
+                    int despues = leer();
+                    if (despues == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = despues;
+                        continue;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int despues = leer();
+                    if (despues != '\n') {
+                        pendiente = despues;
+                    }
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+    }
+
+    private int leer() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        return entrada.read();
+    }
+}
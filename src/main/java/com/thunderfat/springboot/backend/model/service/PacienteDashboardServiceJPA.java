@@ -0,0 +1,160 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.ChatDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO.MotivoFallo;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO.Seccion;
+import com.thunderfat.springboot.backend.model.dto.mapper.MedicionGeneralMapper;
+import com.thunderfat.springboot.backend.model.dto.mapper.MedicionSegmentalMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the patient dashboard by running every section concurrently on virtual threads.
+ * Features:
+ * - One virtual thread per section, with the caller's security context propagated
+ * - Each section in its own read-only transaction, so a slow or failing section
+ *   never holds or rolls back the others
+ * - Shared per-section timeout; late sections are cancelled and reported, not awaited
+ * - Partial results instead of an all-or-nothing failure
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@Service
+public class PacienteDashboardServiceJPA implements IPacienteDashboardService {
+
+    private final IPlanDietaService planDietaService;
+    private final ICitaService citaService;
+    private final IMedicionGeneralService medicionGeneralService;
+    private final IMedicionSegmentalService medicionSegmentalService;
+    private final IChatService chatService;
+    private final IMensajeService mensajeService;
+    private final IAntecedenteClinicoService antecedenteClinicoService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration sectionTimeout;
+    private final ExecutorService executor;
+
+    public PacienteDashboardServiceJPA(IPlanDietaService planDietaService,
+                                       ICitaService citaService,
+                                       IMedicionGeneralService medicionGeneralService,
+                                       IMedicionSegmentalService medicionSegmentalService,
+                                       IChatService chatService,
+                                       IMensajeService mensajeService,
+                                       IAntecedenteClinicoService antecedenteClinicoService,
+                                       PlatformTransactionManager transactionManager,
+                                       ThunderFatProperties properties) {
+        this.planDietaService = planDietaService;
+        this.citaService = citaService;
+        this.medicionGeneralService = medicionGeneralService;
+        this.medicionSegmentalService = medicionSegmentalService;
+        this.chatService = chatService;
+        this.mensajeService = mensajeService;
+        this.antecedenteClinicoService = antecedenteClinicoService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sectionTimeout = properties.getDashboard().getSectionTimeout();
+        this.executor = new DelegatingSecurityContextExecutorService(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or hasRole('NUTRICIONISTA') or @securityService.isPacienteOwner(#pacienteId, authentication.name)")
+    public PacienteDashboardDTO getDashboard(Integer pacienteId) {
+        log.debug("Building dashboard for patient {}", pacienteId);
+        long inicio = System.nanoTime();
+
+        // Fan out: every section starts now and shares the same deadline
+        var plan = submit(() -> planDietaService.findCurrentActivePlan(pacienteId).orElse(null));
+        var cita = submit(() -> citaService.findNextAppointmentForPatient(pacienteId, LocalDate.now()).orElse(null));
+        var medicionGeneral = submit(() -> medicionGeneralService.buscarUltimaMedicion(pacienteId)
+                .map(MedicionGeneralMapper.INSTANCE::toDto).orElse(null));
+        var medicionSegmental = submit(() -> medicionSegmentalService.findLatestByPacienteId(pacienteId)
+                .map(MedicionSegmentalMapper.INSTANCE::toDto).orElse(null));
+        var chat = submit(() -> chatService.findByPacienteId(pacienteId)
+                .map(dto -> new ResumenChat(dto, mensajeService.contarNoLeidos(dto.getIdChat(), pacienteId)))
+                .orElse(null));
+        var antecedentes = submit(() -> antecedenteClinicoService.findByPacienteId(pacienteId));
+
+        long deadline = inicio + sectionTimeout.toNanos();
+        Map<Seccion, MotivoFallo> fallos = new EnumMap<>(Seccion.class);
+
+        PacienteDashboardDTO dashboard = PacienteDashboardDTO.builder()
+                .pacienteId(pacienteId)
+                .planActivo(await(Seccion.PLAN_ACTIVO, plan, deadline, fallos))
+                .proximaCita(await(Seccion.PROXIMA_CITA, cita, deadline, fallos))
+                .ultimaMedicionGeneral(await(Seccion.MEDICION_GENERAL, medicionGeneral, deadline, fallos))
+                .ultimaMedicionSegmental(await(Seccion.MEDICION_SEGMENTAL, medicionSegmental, deadline, fallos))
+                .antecedentesClinicos(await(Seccion.ANTECEDENTES, antecedentes, deadline, fallos))
+                .build();
+
+        ResumenChat resumenChat = await(Seccion.CHAT, chat, deadline, fallos);
+        if (resumenChat != null) {
+            dashboard.setChat(resumenChat.chat());
+            dashboard.setMensajesSinLeer(resumenChat.mensajesSinLeer());
+        }
+
+        dashboard.setSeccionesNoDisponibles(fallos.isEmpty() ? null : fallos);
+        dashboard.setCompleto(fallos.isEmpty());
+        dashboard.setTiempoMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+        log.debug("Dashboard for patient {} built in {} ms, unavailable sections: {}",
+                pacienteId, dashboard.getTiempoMs(), fallos.keySet());
+        return dashboard;
+    }
+
+    private <T> Future<T> submit(Supplier<T> seccion) {
+        return executor.submit(() -> readOnlyTransaction.execute(status -> seccion.get()));
+    }
+
+    private <T> T await(Seccion seccion, Future<T> future, long deadline, Map<Seccion, MotivoFallo> fallos) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Dashboard section {} timed out after {}", seccion, sectionTimeout);
+            fallos.put(seccion, MotivoFallo.TIMEOUT);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            MotivoFallo motivo = causa instanceof AccessDeniedException ? MotivoFallo.ACCESO_DENEGADO : MotivoFallo.ERROR;
+            log.warn("Dashboard section {} failed: {}", seccion, causa.getMessage());
+            fallos.put(seccion, motivo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            fallos.put(seccion, MotivoFallo.ERROR);
+        }
+        return null;
+    }
+
+    private record ResumenChat(ChatDTO chat, long mensajesSinLeer) {
+    }
+}
@@ -0,0 +1,466 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.PacienteMapper;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory search index of patients, partitioned by nutritionist.
+ *
+ * Each nutritionist's partition is loaded lazily with a single query on first use
+ * and then kept current by {@link PacienteServiceJPA} on create, update and delete
+ * (changes are applied after the surrounding transaction commits). Only a placeholder
+ * is installed under the map's lock; the query runs outside it, concurrent searches of
+ * the same nutritionist wait for it, and writes committed meanwhile win over its rows.
+ *
+ * Index structure per nutritionist:
+ * - Sorted map of accent-folded name tokens (nombre + apellidos) for prefix lookups
+ * - Normalized DNI and phone digits, matched by prefix or substring
+ *
+ * Authorization is not checked here; callers go through the secured service methods.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PacienteSearchIndex {
+
+    /**
+     * Field(s) a type-ahead query is matched against.
+     */
+    public enum Campo {
+        NOMBRE, DNI, TELEFONO, TODOS
+    }
+
+    private static final int PUNTOS_TOKEN_EXACTO = 3;
+    private static final int PUNTOS_TOKEN_PREFIJO = 2;
+    private static final int PUNTOS_PRIMER_NOMBRE = 1;
+    private static final int PUNTOS_PREFIJO = 6;
+    private static final int PUNTOS_SUBCADENA = 4;
+
+    private final PacienteRepository pacienteRepository;
+
+    private final Map<Integer, IndiceNutricionista> indices = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> nutricionistaPorPaciente = new ConcurrentHashMap<>();
+
+    /**
+     * Ranked search-as-you-type over one nutritionist's patients.
+     *
+     * @param nutricionistaId nutritionist whose patients are searched
+     * @param termino partial text typed by the user
+     * @param campo field(s) to match
+     * @param limite maximum number of results
+     * @return matching patients, best match first
+     */
+    @Transactional(readOnly = true)
+    public List<PacienteDTO> buscar(Integer nutricionistaId, String termino, Campo campo, int limite) {
+        if (nutricionistaId == null || termino == null || termino.isBlank() || limite <= 0) {
+            return List.of();
+        }
+        return indice(nutricionistaId).buscar(termino, campo, limite);
+    }
+
+    /**
+     * Adds or replaces a patient once the current transaction commits.
+     * Partitions that have not been loaded yet are left alone; they read the
+     * committed state when first used.
+     *
+     * @param paciente patient snapshot (scalar fields only)
+     */
+    public void registrar(PacienteDTO paciente) {
+        if (paciente == null || paciente.getId() == null) {
+            return;
+        }
+        trasCommit(() -> {
+            Integer anterior = paciente.getNutricionistaId() == null
+                    ? nutricionistaPorPaciente.remove(paciente.getId())
+                    : nutricionistaPorPaciente.put(paciente.getId(), paciente.getNutricionistaId());
+            if (anterior == null) {
+                eliminarDeCargas(paciente.getId(), paciente.getNutricionistaId());
+            } else if (!anterior.equals(paciente.getNutricionistaId())) {
+                indices.computeIfPresent(anterior, (id, indice) -> indice.eliminar(paciente.getId()));
+            }
+            if (paciente.getNutricionistaId() != null) {
+                indices.computeIfPresent(paciente.getNutricionistaId(), (id, indice) -> indice.registrar(paciente));
+            }
+        });
+    }
+
+    /**
+     * Removes a patient once the current transaction commits.
+     *
+     * @param pacienteId patient ID
+     */
+    public void eliminar(Integer pacienteId) {
+        if (pacienteId == null) {
+            return;
+        }
+        trasCommit(() -> {
+            Integer nutricionistaId = nutricionistaPorPaciente.remove(pacienteId);
+            if (nutricionistaId != null) {
+                indices.computeIfPresent(nutricionistaId, (id, indice) -> indice.eliminar(pacienteId));
+            } else {
+                eliminarDeCargas(pacienteId, null);
+            }
+        });
+    }
+
+    /**
+     * A patient missing from the map may still be in the rows of a partition being
+     * loaded; removing it there keeps the load from bringing it back.
+     */
+    private void eliminarDeCargas(Integer pacienteId, Integer salvo) {
+        indices.forEach((id, indice) -> {
+            if (!indice.isCargado() && !id.equals(salvo)) {
+                indice.eliminar(pacienteId);
+            }
+        });
+    }
+
+    /**
+     * Drops a nutritionist's partition once the current transaction commits,
+     * so it is reloaded on next use (e.g. after a bulk import).
+     *
+     * @param nutricionistaId nutritionist ID
+     */
+    public void invalidar(Integer nutricionistaId) {
+        if (nutricionistaId != null) {
+            trasCommit(() -> indices.remove(nutricionistaId));
+        }
+    }
+
+    /**
+     * Drops every partition, e.g. after bulk changes made outside the service.
+     */
+    public void invalidarTodo() {
+        indices.clear();
+    }
+
+    /**
+     * Loaded partition of a nutritionist, loading it if missing or waiting for the
+     * thread that is loading it.
+     */
+    private IndiceNutricionista indice(Integer nutricionistaId) {
+        IndiceNutricionista actual = indices.get(nutricionistaId);
+        if (actual == null) {
+            IndiceNutricionista nuevo = new IndiceNutricionista();
+            actual = indices.putIfAbsent(nutricionistaId, nuevo);
+            if (actual == null) {
+                try {
+                    cargar(nutricionistaId, nuevo);
+                } catch (RuntimeException e) {
+                    indices.remove(nutricionistaId, nuevo);
+                    nuevo.fallarCarga(e);
+                    throw e;
+                }
+                return nuevo;
+            }
+        }
+        actual.esperarCarga();
+        return actual;
+    }
+
+    private void cargar(Integer nutricionistaId, IndiceNutricionista indice) {
+        long inicio = System.nanoTime();
+        for (Paciente paciente : pacienteRepository.findByNutricionistaId(nutricionistaId)) {
+            PacienteDTO dto = PacienteMapper.INSTANCE.toResumenDto(paciente);
+            dto.setNutricionistaId(nutricionistaId);
+            if (indice.cargar(dto)) {
+                nutricionistaPorPaciente.put(dto.getId(), nutricionistaId);
+            }
+        }
+        indice.terminarCarga();
+        log.debug("Loaded patient search index for nutritionist {} ({} patients) in {} µs",
+                 nutricionistaId, indice.tamano(), (System.nanoTime() - inicio) / 1_000);
+    }
+
+    private static void trasCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.trim(), Normalizer.Form.NFD);
+        return descompuesto.replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+
+    static String soloDigitos(String texto) {
+        return texto == null ? "" : texto.replaceAll("\\D", "");
+    }
+
+    private static String[] tokens(String texto) {
+        String normalizado = normalizar(texto);
+        return Arrays.stream(normalizado.split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Normalized view of one patient.
+     */
+    private record Entrada(PacienteDTO paciente, String[] tokensNombre, String primerNombre,
+                           String orden, String dni, String telefono) {
+
+        static Entrada de(PacienteDTO paciente) {
+            String[] tokensNombre = tokens(Objects.toString(paciente.getNombre(), "") + " " + Objects.toString(paciente.getApellidos(), ""));
+            String[] tokensPrimerNombre = tokens(paciente.getNombre());
+            return new Entrada(
+                    paciente,
+                    tokensNombre,
+                    tokensPrimerNombre.length > 0 ? tokensPrimerNombre[0] : "",
+                    normalizar(paciente.getApellidos()) + " " + normalizar(paciente.getNombre()),
+                    normalizar(paciente.getDni()),
+                    soloDigitos(paciente.getTelefono()));
+        }
+    }
+
+    private record Resultado(Entrada entrada, int puntos) {
+    }
+
+    /**
+     * One nutritionist's partition. Reads run concurrently; writes take the write lock.
+     * While loading, the patients written by committed transactions are remembered so
+     * the rows of the load query, which may predate those commits, do not overwrite them.
+     */
+    private static final class IndiceNutricionista {
+
+        private final Map<Integer, Entrada> entradas = new HashMap<>();
+        private final NavigableMap<String, Set<Integer>> tokens = new TreeMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final CompletableFuture<Void> carga = new CompletableFuture<>();
+        private Set<Integer> escritosDuranteCarga = new HashSet<>();
+
+        boolean isCargado() {
+            return carga.isDone();
+        }
+
+        void esperarCarga() {
+            try {
+                carga.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException causa ? causa : e;
+            }
+        }
+
+        /**
+         * Adds a row of the load query unless a commit already wrote that patient.
+         *
+         * @return whether the row was added
+         */
+        boolean cargar(PacienteDTO paciente) {
+            Entrada nueva = Entrada.de(paciente);
+            lock.writeLock().lock();
+            try {
+                if (escritosDuranteCarga.contains(paciente.getId())) {
+                    return false;
+                }
+                poner(nueva);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void terminarCarga() {
+            lock.writeLock().lock();
+            try {
+                escritosDuranteCarga = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            carga.complete(null);
+        }
+
+        void fallarCarga(RuntimeException causa) {
+            carga.completeExceptionally(causa);
+        }
+
+        IndiceNutricionista registrar(PacienteDTO paciente) {
+            Entrada nueva = Entrada.de(paciente);
+            lock.writeLock().lock();
+            try {
+                anotar(paciente.getId());
+                poner(nueva);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return this;
+        }
+
+        IndiceNutricionista eliminar(Integer pacienteId) {
+            lock.writeLock().lock();
+            try {
+                anotar(pacienteId);
+                desindexar(entradas.remove(pacienteId));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return this;
+        }
+
+        private void anotar(Integer pacienteId) {
+            if (escritosDuranteCarga != null) {
+                escritosDuranteCarga.add(pacienteId);
+            }
+        }
+
+        private void poner(Entrada nueva) {
+            Integer id = nueva.paciente().getId();
+            desindexar(entradas.put(id, nueva));
+            for (String token : nueva.tokensNombre()) {
+                tokens.computeIfAbsent(token, t -> new HashSet<>()).add(id);
+            }
+        }
+
+        int tamano() {
+            lock.readLock().lock();
+            try {
+                return entradas.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void desindexar(Entrada anterior) {
+            if (anterior == null) {
+                return;
+            }
+            Integer id = anterior.paciente().getId();
+            for (String token : anterior.tokensNombre()) {
+                Set<Integer> ids = tokens.get(token);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+
+        List<PacienteDTO> buscar(String termino, Campo campo, int limite) {
+            Map<Integer, Integer> puntos = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                if (campo == Campo.NOMBRE || campo == Campo.TODOS) {
+                    puntuarNombre(tokens(termino), puntos);
+                }
+                if (campo == Campo.DNI || campo == Campo.TODOS) {
+                    puntuarSubcadena(normalizar(termino), Entrada::dni, puntos);
+                }
+                if (campo == Campo.TELEFONO || campo == Campo.TODOS) {
+                    puntuarSubcadena(soloDigitos(termino), Entrada::telefono, puntos);
+                }
+
+                List<Resultado> resultados = new ArrayList<>(puntos.size());
+                puntos.forEach((id, total) -> resultados.add(new Resultado(entradas.get(id), total)));
+                resultados.sort(Comparator.comparingInt(Resultado::puntos).reversed()
+                        .thenComparing(r -> r.entrada().orden()));
+                return resultados.stream()
+                        .limit(limite)
+                        .map(r -> r.entrada().paciente())
+                        .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Every query token must prefix some name token; the first token narrows the
+         * candidates through the sorted token map, the rest are checked per candidate.
+         */
+        private void puntuarNombre(String[] consulta, Map<Integer, Integer> puntos) {
+            if (consulta.length == 0) {
+                return;
+            }
+            Set<Integer> candidatos = new HashSet<>();
+            for (Set<Integer> ids : conPrefijo(consulta[0]).values()) {
+                candidatos.addAll(ids);
+            }
+            for (Integer id : candidatos) {
+                Entrada entrada = entradas.get(id);
+                int total = 0;
+                for (String parte : consulta) {
+                    int mejor = 0;
+                    for (String token : entrada.tokensNombre()) {
+                        if (token.equals(parte)) {
+                            mejor = PUNTOS_TOKEN_EXACTO;
+                            break;
+                        }
+                        if (token.startsWith(parte)) {
+                            mejor = PUNTOS_TOKEN_PREFIJO;
+                        }
+                    }
+                    if (mejor == 0) {
+                        total = 0;
+                        break;
+                    }
+                    total += mejor;
+                }
+                if (total > 0) {
+                    if (entrada.primerNombre().startsWith(consulta[0])) {
+                        total += PUNTOS_PRIMER_NOMBRE;
+                    }
+                    puntos.merge(id, total, Math::max);
+                }
+            }
+        }
+
+        private void puntuarSubcadena(String consulta, Function<Entrada, String> campo,
+                                      Map<Integer, Integer> puntos) {
+            if (consulta.isEmpty()) {
+                return;
+            }
+            for (Entrada entrada : entradas.values()) {
+                String valor = campo.apply(entrada);
+                if (valor.startsWith(consulta)) {
+                    puntos.merge(entrada.paciente().getId(), PUNTOS_PREFIJO, Math::max);
+                } else if (valor.contains(consulta)) {
+                    puntos.merge(entrada.paciente().getId(), PUNTOS_SUBCADENA, Math::max);
+                }
+            }
+        }
+
+        private NavigableMap<String, Set<Integer>> conPrefijo(String prefijo) {
+            return tokens.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.thunderfat.springboot.backend.model.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 // Removed unused import
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,9 +27,13 @@ import org.springframework.util.StringUtils;
 import com.thunderfat.springboot.backend.auth.services.SecurityService;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.exception.UniqueConstraintViolationException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
 import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
 import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
 import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.PacienteMapper;
 import com.thunderfat.springboot.backend.model.entity.Nutricionista;
 import com.thunderfat.springboot.backend.model.entity.Paciente;
@@ -53,6 +62,11 @@ public class PacienteServiceJPA implements IPacienteService {
     private final NutricionistaRepository nutricionistaRepository;
     private final PasswordEncoder passwordEncoder;
     private final SecurityService securityService;
+    private final PacienteSearchIndex pacienteSearchIndex;
+    private final CitaRepository citaRepository;
+    private final CitaConflictIndex citaConflictIndex;
+    
+    private static final int MAX_TYPE_AHEAD_RESULTS = 50;
 
     // =====================================
     // MODERN METHODS (Spring Boot 2025)
@@ -69,6 +83,34 @@ public class PacienteServiceJPA implements IPacienteService {
                 .map(PacienteMapper.INSTANCE::toDto);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<PacienteDTO> findAllSlice(Pageable pageable) {
+        log.debug("Finding all patients as slice: page={}, size={}", 
+                 pageable.getPageNumber(), pageable.getPageSize());
+        
+        return pacienteRepository.findAllSliced(pageable)
+                .map(PacienteMapper.INSTANCE::toDto);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public PagedResponseDTO<PacienteDTO> findAllKeyset(String cursor, int size) {
+        log.debug("Finding all patients with keyset pagination: cursor={}, size={}", cursor, size);
+        
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.tamanoPagina(size);
+        Limit limit = Limit.of(pageSize + 1);
+        
+        List<Paciente> pacientes = after == null
+                ? pacienteRepository.findKeysetFirstPage(limit)
+                : pacienteRepository.findKeysetPageAfter(after.getId(), limit);
+        
+        // Summary rows: mapping the related-record ids would load seven lazy collections per patient
+        return PagedResponseDTO.ofKeyset(pacientes, pageSize, after == null, PacienteMapper.INSTANCE::toResumenDto,
+                paciente -> KeysetCursor.of(paciente.getId()));
+    }
+    
     @Override
     @Cacheable(value = "pacientes-by-nutritionist", 
               key = "#nutricionistaId + ':' + #pageable.pageNumber + ':' + #pageable.pageSize")
@@ -85,6 +127,33 @@ public class PacienteServiceJPA implements IPacienteService {
                 .map(PacienteMapper.INSTANCE::toDto);
     }
     
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    @Transactional(readOnly = true)
+    public Slice<PacienteDTO> findByNutricionistaIdSlice(Integer nutricionistaId, Pageable pageable) {
+        log.debug("Finding patients slice for nutritionist {}", nutricionistaId);
+        
+        if (nutricionistaId == null) {
+            throw new IllegalArgumentException("Nutritionist ID cannot be null");
+        }
+        
+        return pacienteRepository.findSliceByNutricionistaId(nutricionistaId, pageable)
+                .map(PacienteMapper.INSTANCE::toDto);
+    }
+    
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    @Transactional(readOnly = true)
+    public Page<PacienteListadoDTO> findListadoByNutricionistaId(Integer nutricionistaId, Pageable pageable) {
+        log.debug("Finding patient list rows for nutritionist {}", nutricionistaId);
+        
+        if (nutricionistaId == null) {
+            throw new IllegalArgumentException("Nutritionist ID cannot be null");
+        }
+        
+        return pacienteRepository.findListadoByNutricionistaId(nutricionistaId, pageable);
+    }
+    
     @Override
     @Cacheable(value = "pacientes", key = "#id")
     @PostAuthorize("hasRole('ADMIN') or @securityService.canViewPaciente(returnObject.orElse(null), authentication)")
@@ -148,6 +217,7 @@ public class PacienteServiceJPA implements IPacienteService {
         
         // Convert back to DTO
         PacienteDTO result = PacienteMapper.INSTANCE.toDto(savedPaciente);
+        pacienteSearchIndex.registrar(PacienteMapper.INSTANCE.toResumenDto(savedPaciente));
         log.info("Successfully created patient with ID: {}", result.getId());
         
         return result;
@@ -224,6 +294,7 @@ public class PacienteServiceJPA implements IPacienteService {
         
         // Convert back to DTO
         PacienteDTO result = PacienteMapper.INSTANCE.toDto(savedPaciente);
+        pacienteSearchIndex.registrar(PacienteMapper.INSTANCE.toResumenDto(savedPaciente));
         log.info("Successfully updated patient with ID: {}", id);
         
         return result;
@@ -245,6 +316,10 @@ public class PacienteServiceJPA implements IPacienteService {
             throw new IllegalArgumentException("Patient ID cannot be null");
         }
         
+        // The patient's appointments go with it: lock them before any plain read, in the
+        // appointment writers' order (cita rows, then agendas), and leave their tombstones
+        List<Integer> citas = registrarCancelaciones(id);
+        
         Optional<Paciente> paciente = pacienteRepository.findById(id);
         if (paciente.isEmpty()) {
             throw new ResourceNotFoundException("Patient not found with ID: " + id);
@@ -253,10 +328,39 @@ public class PacienteServiceJPA implements IPacienteService {
         // Note: Proper cascading is handled at the entity level
         // No manual relationship clearing needed with proper JPA configuration
         pacienteRepository.deleteById(id);
+        pacienteSearchIndex.eliminar(id);
+        citas.forEach(citaConflictIndex::eliminar);
         
         log.info("Successfully deleted patient with ID: {}", id);
     }
     
+    /**
+     * Locks the patient's appointments and leaves a tombstone for each, so calendar sync
+     * clients drop the appointments the delete cascades to. Agendas are locked in ID order
+     * and every appointment takes its own version, as a single cancellation does.
+     *
+     * @return IDs of the locked appointments
+     */
+    private List<Integer> registrarCancelaciones(Integer pacienteId) {
+        List<Integer> citas = new ArrayList<>();
+        Map<Integer, List<Integer>> porNutricionista = new TreeMap<>();
+        for (Object[] fila : citaRepository.lockByPacienteId(pacienteId)) {
+            Integer citaId = ((Number) fila[0]).intValue();
+            citas.add(citaId);
+            if (fila[1] != null) {
+                porNutricionista.computeIfAbsent(((Number) fila[1]).intValue(), n -> new ArrayList<>()).add(citaId);
+            }
+        }
+        porNutricionista.forEach((nutricionistaId, ids) -> {
+            nutricionistaRepository.lockAgenda(nutricionistaId);
+            long version = nutricionistaRepository.reservarVersionesAgenda(nutricionistaId, ids.size());
+            for (Integer citaId : ids) {
+                citaRepository.registrarCancelacion(citaId, nutricionistaId, version++);
+            }
+        });
+        return citas;
+    }
+    
     @Override
     @Cacheable(value = "paciente-exists", key = "#id")
     @Transactional(readOnly = true)
@@ -331,6 +435,19 @@ public class PacienteServiceJPA implements IPacienteService {
                 .map(PacienteMapper.INSTANCE::toDto);
     }
     
+    @Override
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isNutricionistaOwner(#nutricionistaId, authentication.name)")
+    public List<PacienteDTO> typeAheadSearch(String termino, Integer nutricionistaId, 
+                                             PacienteSearchIndex.Campo campo, int limite) {
+        log.debug("Type-ahead search '{}' on {} for nutritionist {}", termino, campo, nutricionistaId);
+        
+        if (!StringUtils.hasText(termino) || nutricionistaId == null) {
+            return List.of();
+        }
+        
+        return pacienteSearchIndex.buscar(nutricionistaId, termino, campo, Math.min(limite, MAX_TYPE_AHEAD_RESULTS));
+    }
+    
     @Override
     @Cacheable(value = "paciente-appointments", 
               key = "#startDate + ':' + #endDate + ':' + #nutricionistaId + ':' + #pageable.pageNumber + ':' + #pageable.pageSize")
@@ -0,0 +1,255 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends appointment reminders at the offsets in {@code thunderfat.recordatorios.antelaciones}.
+ *
+ * Every {@code recarga} the appointments starting within {@code horizonte} are loaded
+ * with one range query and reconciled into a {@link TimingWheel} of one-second ticks:
+ * new and moved appointments are (re)scheduled, appointments no longer in the window
+ * are cancelled. The wheel is advanced every {@code tick} on a single dispatcher thread.
+ *
+ * Due reminders are checked against the database in one query before sending, so a
+ * reminder for an appointment cancelled or moved since the last reload is dropped (the
+ * next reload schedules the moved one). Each reminder is claimed with an insert into
+ * {@code recordatorio_cita} before it is sent; the unique key rejects reminders already
+ * sent before a restart or by another node, so none goes out twice. A reminder missed
+ * while the node was down is still sent if it is at most one reload interval late.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecordatorioCitaScheduler {
+
+    /** User destination of the WebSocket push, under {@code /user} */
+    public static final String DESTINO = "/queue/recordatorios";
+
+    private static final String INSERT_ENVIADO =
+            "INSERT INTO recordatorio_cita (id_cita, antelacion_minutos, fechaini, enviado) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_ANTIGUOS = "DELETE FROM recordatorio_cita WHERE fechaini < ?";
+    private static final int SLOTS = 64;
+    private static final int NIVELES = 4;
+
+    private final CitaRepository citaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final List<NotificadorRecordatorios> notificadores;
+    private final ThunderFatProperties properties;
+
+    /** Appointment start each reminder was last sent for, so reloads do not reschedule it */
+    private final Map<Clave, LocalDateTime> enviados = new HashMap<>();
+    private TimingWheel<Clave, RecordatorioCitaDTO> rueda;
+    private ScheduledExecutorService ejecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        ThunderFatProperties.Recordatorios config = properties.getRecordatorios();
+        if (!config.isEnabled()) {
+            log.info("Appointment reminders are disabled on this node");
+            return;
+        }
+        Duration maxima = config.getAntelaciones().stream().max(Comparator.naturalOrder()).orElse(Duration.ZERO);
+        if (config.getHorizonte().compareTo(maxima.plus(config.getRecarga())) < 0) {
+            throw new IllegalStateException("thunderfat.recordatorios.horizonte must cover the largest offset ("
+                    + maxima + ") plus one reload (" + config.getRecarga() + ")");
+        }
+
+        ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "recordatorios-citas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        ejecutor.scheduleWithFixedDelay(() -> ejecutar(() -> recargar(LocalDateTime.now())),
+                0, config.getRecarga().toMillis(), TimeUnit.MILLISECONDS);
+        ejecutor.scheduleAtFixedRate(() -> ejecutar(() -> disparar(LocalDateTime.now())),
+                config.getTick().toMillis(), config.getTick().toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Appointment reminders started: offsets {}, window {}, reload every {}",
+                 config.getAntelaciones(), config.getHorizonte(), config.getRecarga());
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (ejecutor != null) {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reconciles the timing wheel with the appointments starting in the window.
+     *
+     * @param ahora current time
+     * @return number of pending reminders
+     */
+    synchronized int recargar(LocalDateTime ahora) {
+        long inicio = System.nanoTime();
+        ThunderFatProperties.Recordatorios config = properties.getRecordatorios();
+        if (rueda == null) {
+            rueda = new TimingWheel<>(SLOTS, NIVELES, segundos(ahora));
+        }
+        // Reminders more than one reload late are dropped rather than sent at the wrong time
+        LocalDateTime limite = ahora.minus(config.getRecarga());
+        enviados.values().removeIf(fechaInicio -> fechaInicio.isBefore(ahora));
+
+        Set<Clave> vigentes = new HashSet<>();
+        List<RecordatorioCitaDTO> citas = citaRepository.findRecordatoriosEntre(ahora, ahora.plus(config.getHorizonte()));
+        for (RecordatorioCitaDTO cita : citas) {
+            for (Duration antelacion : config.getAntelaciones()) {
+                Clave clave = new Clave(cita.getCitaId(), antelacion.toMinutes());
+                LocalDateTime vence = cita.getFechaInicio().minus(antelacion);
+                if (vence.isBefore(limite) || cita.getFechaInicio().equals(enviados.get(clave))) {
+                    continue;
+                }
+                vigentes.add(clave);
+                rueda.programar(clave, segundos(vence),
+                        cita.toBuilder().antelacionMinutos(antelacion.toMinutes()).build());
+            }
+        }
+        for (Clave clave : new ArrayList<>(rueda.claves())) {
+            if (!vigentes.contains(clave)) {
+                rueda.cancelar(clave);
+            }
+        }
+        jdbcTemplate.update(DELETE_ANTIGUOS, Timestamp.valueOf(ahora.minusDays(1)));
+
+        log.debug("Reloaded reminders for {} appointments: {} pending in {} µs",
+                  citas.size(), rueda.tamano(), (System.nanoTime() - inicio) / 1_000);
+        return rueda.tamano();
+    }
+
+    /**
+     * Advances the timing wheel and sends the reminders that came due.
+     *
+     * @param ahora current time
+     * @return number of reminders sent
+     */
+    synchronized int disparar(LocalDateTime ahora) {
+        if (rueda == null) {
+            return 0;
+        }
+        List<RecordatorioCitaDTO> vencidos = rueda.avanzar(segundos(ahora));
+        if (vencidos.isEmpty()) {
+            return 0;
+        }
+
+        // One query re-reads every appointment due in this tick
+        Map<Integer, RecordatorioCitaDTO> actuales = citaRepository.findRecordatoriosPorIds(
+                    vencidos.stream().map(RecordatorioCitaDTO::getCitaId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(RecordatorioCitaDTO::getCitaId, Function.identity()));
+        int enviadosAhora = 0;
+        for (RecordatorioCitaDTO vencido : vencidos) {
+            RecordatorioCitaDTO actual = actuales.get(vencido.getCitaId());
+            if (actual == null || !actual.getFechaInicio().equals(vencido.getFechaInicio())
+                    || !actual.getFechaInicio().isAfter(ahora)) {
+                log.debug("Dropping reminder of appointment {}: cancelled, moved or already started",
+                          vencido.getCitaId());
+                continue;
+            }
+            RecordatorioCitaDTO recordatorio = actual.toBuilder()
+                    .antelacionMinutos(vencido.getAntelacionMinutos()).build();
+            if (!reclamar(recordatorio, ahora)) {
+                continue;
+            }
+            enviados.put(new Clave(recordatorio.getCitaId(), recordatorio.getAntelacionMinutos()),
+                         recordatorio.getFechaInicio());
+            enviar(recordatorio);
+            enviadosAhora++;
+        }
+        if (enviadosAhora > 0) {
+            log.info("Sent {} appointment reminders", enviadosAhora);
+        }
+        return enviadosAhora;
+    }
+
+    // =====================================
+    // PRIVATE HELPER METHODS
+    // =====================================
+
+    /**
+     * Records the reminder as sent, committed on its own before sending.
+     *
+     * @return false if it had already been sent
+     */
+    private boolean reclamar(RecordatorioCitaDTO recordatorio, LocalDateTime ahora) {
+        try {
+            jdbcTemplate.update(INSERT_ENVIADO, recordatorio.getCitaId(), recordatorio.getAntelacionMinutos(),
+                    Timestamp.valueOf(recordatorio.getFechaInicio()), Timestamp.valueOf(ahora));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Reminder of appointment {} ({} minutes before) was already sent",
+                      recordatorio.getCitaId(), recordatorio.getAntelacionMinutos());
+            return false;
+        }
+    }
+
+    private void enviar(RecordatorioCitaDTO recordatorio) {
+        try {
+            if (recordatorio.getPacienteEmail() != null) {
+                messagingTemplate.convertAndSendToUser(recordatorio.getPacienteEmail(), DESTINO, recordatorio);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not push reminder of appointment {}: {}", recordatorio.getCitaId(), e.getMessage());
+        }
+        for (NotificadorRecordatorios notificador : notificadores) {
+            try {
+                notificador.notificar(recordatorio);
+            } catch (RuntimeException e) {
+                log.warn("Reminder notifier {} failed for appointment {}: {}",
+                         notificador.getClass().getSimpleName(), recordatorio.getCitaId(), e.getMessage());
+            }
+        }
+    }
+
+    private static void ejecutar(Runnable tarea) {
+        try {
+            tarea.run();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task for good
+            log.error("Appointment reminder dispatcher failed", e);
+        }
+    }
+
+    private static long segundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * One reminder of one appointment.
+     */
+    private record Clave(Integer citaId, long antelacionMinutos) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Unread counters shared by every node in Redis, one hash per user holding the count of
+ * each chat and the total. A change is applied by a script, so the count of the chat and
+ * the total always move together whichever node changes them.
+ *
+ * Enabled with {@code thunderfat.mensajes-chat.contadores-no-leidos=redis}; the connection
+ * is the one configured under {@code spring.data.redis}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Component
+@ConditionalOnProperty(name = "thunderfat.mensajes-chat.contadores-no-leidos", havingValue = "redis")
+@Slf4j
+public class RedisAlmacenNoLeidos implements AlmacenNoLeidos {
+
+    private static final String TOTAL = "total";
+    private static final String USUARIOS = "usuarios";
+
+    /** KEYS: hash of the user, set of users. ARGV: chat id, delta, user id */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SUMAR = new DefaultRedisScript<>("""
+            local actual = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')
+            local nuevo = math.max(actual + tonumber(ARGV[2]), 0)
+            local total = math.max(tonumber(redis.call('HGET', KEYS[1], 'total') or '0') + nuevo - actual, 0)
+            if nuevo == 0 then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+            else
+                redis.call('HSET', KEYS[1], ARGV[1], tostring(nuevo))
+            end
+            redis.call('HSET', KEYS[1], 'total', tostring(total))
+            redis.call('SADD', KEYS[2], ARGV[3])
+            return {nuevo, total}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String prefijo;
+
+    public RedisAlmacenNoLeidos(RedisConnectionFactory connectionFactory, ThunderFatProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.prefijo = properties.getMensajesChat().getPrefijoRedisNoLeidos();
+    }
+
+    @Override
+    public NoLeidosDTO sumar(int usuarioId, int chatId, long delta) {
+        List<?> resultado = redisTemplate.execute(SUMAR, List.of(clave(usuarioId), prefijo + USUARIOS),
+                String.valueOf(chatId), String.valueOf(delta), String.valueOf(usuarioId));
+        return new NoLeidosDTO(chatId, ((Number) resultado.get(0)).longValue(), ((Number) resultado.get(1)).longValue());
+    }
+
+    @Override
+    public long total(int usuarioId) {
+        Object total = redisTemplate.opsForHash().get(clave(usuarioId), TOTAL);
+        return total != null ? Long.parseLong(total.toString()) : 0;
+    }
+
+    @Override
+    public Map<Integer, Long> porChat(int usuarioId) {
+        Map<Integer, Long> porChat = new HashMap<>();
+        redisTemplate.opsForHash().entries(clave(usuarioId)).forEach((chat, cuenta) -> {
+            if (!TOTAL.equals(chat)) {
+                porChat.put(Integer.valueOf(chat.toString()), Long.valueOf(cuenta.toString()));
+            }
+        });
+        return porChat;
+    }
+
+    /**
+     * Not atomic: a change made by another node while the counters are replaced may be lost.
+     */
+    @Override
+    public void reemplazar(Map<Integer, Map<Integer, Long>> conteos) {
+        Set<String> anteriores = redisTemplate.opsForSet().members(prefijo + USUARIOS);
+        List<String> claves = new ArrayList<>();
+        if (anteriores != null) {
+            anteriores.forEach(usuarioId -> claves.add(prefijo + usuarioId));
+        }
+        claves.add(prefijo + USUARIOS);
+        redisTemplate.delete(claves);
+
+        conteos.forEach((usuarioId, porChat) -> {
+            Map<String, String> hash = new HashMap<>();
+            long total = 0;
+            for (Map.Entry<Integer, Long> chat : porChat.entrySet()) {
+                if (chat.getValue() > 0) {
+                    hash.put(chat.getKey().toString(), chat.getValue().toString());
+                    total += chat.getValue();
+                }
+            }
+            hash.put(TOTAL, String.valueOf(total));
+            redisTemplate.opsForHash().putAll(clave(usuarioId), hash);
+            redisTemplate.opsForSet().add(prefijo + USUARIOS, usuarioId.toString());
+        });
+        log.debug("Replaced the unread counters of {} users in Redis", conteos.size());
+    }
+
+    private String clave(int usuarioId) {
+        return prefijo + usuarioId;
+    }
+}
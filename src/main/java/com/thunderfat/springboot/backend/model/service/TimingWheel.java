@@ -0,0 +1,166 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel: timers keyed by an identity, each firing at a whole tick.
+ *
+ * Level 0 has one bucket per tick; every level above covers {@code slots} buckets of
+ * the level below. A timer goes into the lowest level that reaches its deadline and
+ * is moved down when its bucket comes round, so scheduling and cancelling are O(1)
+ * and advancing costs one bucket per tick, however many timers are pending.
+ * Cancelled timers are dropped lazily when their bucket is visited.
+ *
+ * Not thread-safe; callers serialize access.
+ *
+ * @param <K> timer identity; scheduling an existing key replaces its timer
+ * @param <V> value returned when the timer fires
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+public final class TimingWheel<K, V> {
+
+    private final int slots;
+    private final long[] alcance;
+    private final List<List<Temporizador<K, V>>> buckets;
+    private final Map<K, Temporizador<K, V>> porClave = new HashMap<>();
+
+    /** Last tick already processed; timers at or before it have fired */
+    private long actual;
+
+    /**
+     * @param slots buckets per level
+     * @param niveles number of levels; the wheel reaches {@code slots^niveles} ticks ahead
+     * @param inicio current tick
+     */
+    public TimingWheel(int slots, int niveles, long inicio) {
+        if (slots < 2 || niveles < 1) {
+            throw new IllegalArgumentException("A timing wheel needs at least 2 slots and 1 level");
+        }
+        this.slots = slots;
+        this.alcance = new long[niveles + 1];
+        this.alcance[0] = 1;
+        for (int nivel = 1; nivel <= niveles; nivel++) {
+            alcance[nivel] = Math.multiplyExact(alcance[nivel - 1], slots);
+        }
+        this.buckets = new ArrayList<>(slots * niveles);
+        for (int i = 0; i < slots * niveles; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.actual = inicio;
+    }
+
+    /**
+     * Schedules a timer, replacing any pending timer with the same key. Deadlines at or
+     * before the current tick fire on the next one.
+     *
+     * @throws IllegalArgumentException if the deadline is beyond the reach of the wheel
+     */
+    public void programar(K clave, long vencimiento, V valor) {
+        cancelar(clave);
+        Temporizador<K, V> temporizador = new Temporizador<>(clave, Math.max(vencimiento, actual + 1), valor);
+        if (temporizador.vencimiento - actual >= alcance[alcance.length - 1]) {
+            throw new IllegalArgumentException("Deadline " + vencimiento + " is beyond the reach of the timing wheel");
+        }
+        porClave.put(clave, temporizador);
+        colocar(temporizador);
+    }
+
+    /**
+     * @return true if a pending timer was cancelled
+     */
+    public boolean cancelar(K clave) {
+        Temporizador<K, V> temporizador = porClave.remove(clave);
+        if (temporizador == null) {
+            return false;
+        }
+        temporizador.cancelado = true;
+        return true;
+    }
+
+    /**
+     * Deadline of a pending timer, or null if the key has none.
+     */
+    public Long vencimiento(K clave) {
+        Temporizador<K, V> temporizador = porClave.get(clave);
+        return temporizador == null ? null : temporizador.vencimiento;
+    }
+
+    /**
+     * Keys with a pending timer. The set is a live view; copy it before cancelling.
+     */
+    public Set<K> claves() {
+        return porClave.keySet();
+    }
+
+    public int tamano() {
+        return porClave.size();
+    }
+
+    /**
+     * Processes every tick up to and including {@code hasta}.
+     *
+     * @return values of the timers that fired, in deadline order
+     */
+    public List<V> avanzar(long hasta) {
+        List<V> vencidos = new ArrayList<>();
+        while (actual < hasta) {
+            actual++;
+            // Higher levels first, so a timer can cascade more than one level in the same tick
+            for (int nivel = alcance.length - 2; nivel >= 1; nivel--) {
+                if (actual % alcance[nivel] == 0) {
+                    List<Temporizador<K, V>> bucket = bucket(nivel, actual);
+                    List<Temporizador<K, V>> pendientes = new ArrayList<>(bucket);
+                    bucket.clear();
+                    for (Temporizador<K, V> temporizador : pendientes) {
+                        if (!temporizador.cancelado) {
+                            colocar(temporizador);
+                        }
+                    }
+                }
+            }
+            List<Temporizador<K, V>> bucket = bucket(0, actual);
+            for (Temporizador<K, V> temporizador : bucket) {
+                if (!temporizador.cancelado) {
+                    porClave.remove(temporizador.clave);
+                    vencidos.add(temporizador.valor);
+                }
+            }
+            bucket.clear();
+        }
+        return vencidos;
+    }
+
+    /**
+     * Puts a timer in the lowest level whose reach covers its remaining delay.
+     */
+    private void colocar(Temporizador<K, V> temporizador) {
+        long espera = temporizador.vencimiento - actual;
+        int nivel = 0;
+        while (espera >= alcance[nivel + 1]) {
+            nivel++;
+        }
+        bucket(nivel, temporizador.vencimiento).add(temporizador);
+    }
+
+    private List<Temporizador<K, V>> bucket(int nivel, long tick) {
+        return buckets.get(nivel * slots + (int) ((tick / alcance[nivel]) % slots));
+    }
+
+    private static final class Temporizador<K, V> {
+        private final K clave;
+        private final long vencimiento;
+        private final V valor;
+        private boolean cancelado;
+
+        private Temporizador(K clave, long vencimiento, V valor) {
+            this.clave = clave;
+            this.vencimiento = vencimiento;
+            this.valor = valor;
+        }
+    }
+}
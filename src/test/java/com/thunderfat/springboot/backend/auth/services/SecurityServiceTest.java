@@ -0,0 +1,75 @@
+package com.thunderfat.springboot.backend.auth.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+
+/**
+ * Access rules for recurring appointment series.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Security Service Series Tests")
+class SecurityServiceTest {
+
+    private static final String SERIE = "serie-1";
+    private static final String NUTRICIONISTA = "nutri@thunderfat.com";
+    private static final String PACIENTE = "paciente@example.com";
+
+    @Mock
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Mock
+    private PacienteRepository pacienteRepository;
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @InjectMocks
+    private SecurityService securityService;
+
+    @Test
+    @DisplayName("Should let only the nutritionist of the series change it")
+    void shouldCheckSeriesOwner() {
+        when(citaRepository.findParticipantesDeSerie(SERIE))
+                .thenReturn(List.<Object[]>of(new Object[] {NUTRICIONISTA, PACIENTE}));
+
+        assertThat(securityService.isSerieCitasOwner(SERIE, NUTRICIONISTA)).isTrue();
+        assertThat(securityService.isSerieCitasOwner(SERIE, PACIENTE)).isFalse();
+        assertThat(securityService.isSerieCitasOwner(SERIE, "otra@thunderfat.com")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should let both participants of the series view it")
+    void shouldCheckSeriesParticipant() {
+        when(citaRepository.findParticipantesDeSerie(SERIE))
+                .thenReturn(List.<Object[]>of(new Object[] {NUTRICIONISTA, PACIENTE}));
+
+        assertThat(securityService.canViewSerieCitas(SERIE, NUTRICIONISTA)).isTrue();
+        assertThat(securityService.canViewSerieCitas(SERIE, PACIENTE)).isTrue();
+        assertThat(securityService.canViewSerieCitas(SERIE, "otra@thunderfat.com")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should deny an unknown series")
+    void shouldDenyUnknownSeries() {
+        when(citaRepository.findParticipantesDeSerie(SERIE)).thenReturn(List.of());
+
+        assertThat(securityService.isSerieCitasOwner(SERIE, NUTRICIONISTA)).isFalse();
+        assertThat(securityService.canViewSerieCitas(SERIE, NUTRICIONISTA)).isFalse();
+    }
+}
@@ -0,0 +1,149 @@
+package com.thunderfat.springboot.backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Slow-client policy against a session whose socket write is held open, so frames pile
+ * up in its send buffer as they would for a client on a bad network.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DisplayName("Outbound WebSocket Backpressure Tests")
+class ControlSalidaWebSocketTest {
+
+    private static final String LENTA = "sesion-lenta";
+    private static final String RAPIDA = "sesion-rapida";
+
+    private final CountDownLatch enviando = new CountDownLatch(1);
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final ExecutorService escritor = Executors.newSingleThreadExecutor();
+    private final MessageChannel canal = mock(MessageChannel.class);
+    private ThunderFatProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ThunderFatProperties();
+        properties.getWebsocket().setUmbralDescarte(1024);
+        properties.getWebsocket().setLimiteBufferEnvio(64 * 1024);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        escritor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should drop typing and presence frames for a backed-up session and measure its buffer")
+    void shouldDropEphemeralFramesForSlowSession() throws Exception {
+        ControlSalidaWebSocket control = nuevoControl();
+        atascar(control);
+
+        assertThat(control.bytesPendientes()).isEqualTo(2000);
+        assertThat(meterRegistry.get("thunderfat.websocket.send.buffer").gauge().value()).isEqualTo(2000);
+        assertThat(meterRegistry.get("thunderfat.websocket.send.buffer.max").gauge().value()).isEqualTo(2000);
+
+        assertThat(control.preSend(mensaje("/topic/chat/7/typing", LENTA), canal)).isNull();
+        assertThat(control.preSend(mensaje("/topic/chat/7/presence", LENTA), canal)).isNull();
+        assertThat(control.preSend(mensaje("/topic/chat/7", LENTA), canal)).as("chat message").isNotNull();
+        assertThat(control.preSend(mensaje("/topic/chat/7/typing", RAPIDA), canal)).as("other session").isNotNull();
+
+        assertThat(meterRegistry.get("thunderfat.websocket.frames.dropped").tag("type", "typing").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("thunderfat.websocket.frames.dropped").tag("type", "presence").counter().count())
+                .isEqualTo(1);
+
+        control.quitar(LENTA);
+        assertThat(control.bytesPendientes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should queue every frame when slow sessions are only disconnected")
+    void shouldKeepFramesWhenPolicyIsDisconnect() throws Exception {
+        properties.getWebsocket().setPoliticaLentos(ControlSalidaWebSocket.DESCONECTAR);
+        ControlSalidaWebSocket control = nuevoControl();
+        atascar(control);
+
+        assertThat(control.preSend(mensaje("/topic/chat/7/typing", LENTA), canal)).isNotNull();
+        assertThat(meterRegistry.get("thunderfat.websocket.frames.dropped").tag("type", "typing").counter().count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown policy and a threshold above the buffer limit")
+    void shouldRejectInvalidConfiguration() {
+        properties.getWebsocket().setPoliticaLentos("ignorar");
+        assertThatThrownBy(this::nuevoControl).isInstanceOf(IllegalStateException.class);
+
+        properties.getWebsocket().setPoliticaLentos(ControlSalidaWebSocket.DESCARTAR);
+        properties.getWebsocket().setUmbralDescarte(64 * 1024);
+        assertThatThrownBy(this::nuevoControl).isInstanceOf(IllegalStateException.class);
+    }
+
+    private ControlSalidaWebSocket nuevoControl() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        return new ControlSalidaWebSocket(properties, beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    /**
+     * Opens the slow session: its first frame stays on the socket until the test ends
+     * and a second one of 2000 bytes waits in the buffer.
+     */
+    private void atascar(ControlSalidaWebSocket control) throws Exception {
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn(LENTA);
+        when(socket.isOpen()).thenReturn(true);
+        doAnswer(invocacion -> {
+            enviando.countDown();
+            liberar.await();
+            return null;
+        }).when(socket).sendMessage(any());
+
+        ConcurrentWebSocketSessionDecorator sesion = new ConcurrentWebSocketSessionDecorator(socket, 60_000, 64 * 1024);
+        control.registrar(sesion);
+        escritor.submit(() -> {
+            sesion.sendMessage(new TextMessage("x".repeat(100)));
+            return null;
+        });
+        assertThat(enviando.await(5, TimeUnit.SECONDS)).isTrue();
+        sesion.sendMessage(new TextMessage("y".repeat(2000)));
+    }
+
+    private static Message<byte[]> mensaje(String destino, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destino);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
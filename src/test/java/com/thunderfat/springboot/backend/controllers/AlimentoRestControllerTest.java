@@ -42,6 +42,7 @@ import com.thunderfat.springboot.backend.config.GlobalTestConfiguration;
 import com.thunderfat.springboot.backend.exception.BusinessException;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dto.AlimentoDTO;
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
 import com.thunderfat.springboot.backend.model.service.IAlimentoService;
 
 /**
@@ -232,7 +233,8 @@ class AlimentoRestControllerTest {
         @DisplayName("GET /alimentos/select - Should return alimentos for select components")
         void shouldReturnAlimentosForSelect() throws Exception {
             // Given
-            List<AlimentoDTO> alimentos = Arrays.asList(alimentoDTO);
+            List<AlimentoSelectDTO> alimentos = Arrays.asList(new AlimentoSelectDTO(
+                alimentoDTO.getId(), alimentoDTO.getNombre(), alimentoDTO.getEstado(), alimentoDTO.getCal()));
             
             given(alimentoService.listarParaSelect()).willReturn(alimentos);
             
@@ -242,7 +244,8 @@ class AlimentoRestControllerTest {
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)))
-                .andExpect(jsonPath("$.data", hasSize(1)));
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].nombre").value(alimentoDTO.getNombre()));
         }
     }
     
@@ -26,12 +26,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thunderfat.springboot.backend.config.GlobalTestConfiguration;
 import com.thunderfat.springboot.backend.model.dto.ChatDTO;
 import com.thunderfat.springboot.backend.model.service.IChatService;
+import com.thunderfat.springboot.backend.model.service.IMensajeService;
 
 /**
  * Integration tests for Chat REST controller.
@@ -52,6 +54,9 @@ class ChatRestControllerIntegrationTest {
     @MockBean
     private IChatService chatService;
 
+    @MockitoBean
+    private IMensajeService mensajeService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
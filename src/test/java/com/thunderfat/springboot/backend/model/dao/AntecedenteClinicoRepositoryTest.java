@@ -0,0 +1,116 @@
+package com.thunderfat.springboot.backend.model.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos;
+import com.thunderfat.springboot.backend.model.entity.AntecedentesClinicos.CategoriaClinica;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Integration tests for the category bitmask queries of AntecedenteClinicoRepository.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:antecedentestest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("AntecedenteClinico Repository Tests")
+class AntecedenteClinicoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AntecedenteClinicoRepository antecedenteClinicoRepository;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail("antecedentes.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Dr. Test");
+        nutricionista.setApellidos("Nutricionista");
+        nutricionista.setEnabled(true);
+        nutricionista = entityManager.persistAndFlush(nutricionista);
+
+        paciente = new Paciente();
+        paciente.setDni("12345678A");
+        paciente.setNombre("Juan");
+        paciente.setApellidos("Pérez García");
+        paciente.setEmail("juan.perez@example.com");
+        paciente.setFechanacimiento(LocalDate.of(1990, 1, 1));
+        paciente.setNutricionista(nutricionista);
+        paciente.setEnabled(true);
+        paciente.setAntecedentesclinicos(new ArrayList<>());
+        paciente = entityManager.persistAndFlush(paciente);
+
+        persist("ALERGIA LÁCTEA", "Intolerancia a la lactosa");
+        persist("Hipertensión", "Hipertensión y DIABETES tipo 2");
+        persist("Reflujo", "Problemas de ESTÓMAGO");
+        persist("Fractura", "Fractura de tobillo");
+        entityManager.clear();
+    }
+
+    private void persist(String antecedente, String condicion) {
+        AntecedentesClinicos ac = new AntecedentesClinicos(LocalDate.now(), antecedente, null, null, condicion);
+        ac.setPaciente(paciente);
+        paciente.getAntecedentesclinicos().add(ac);
+        entityManager.persistAndFlush(ac);
+    }
+
+    @Test
+    @DisplayName("Should classify conditions accent-insensitively when persisting")
+    void shouldClassifyOnPersist() {
+        List<AntecedentesClinicos> todos = antecedenteClinicoRepository.findByPacienteId(paciente.getId());
+
+        assertThat(todos).extracting(AntecedentesClinicos::getCategorias).containsExactlyInAnyOrder(
+            CategoriaClinica.ALERGIA.getBit(),
+            CategoriaClinica.CARDIOVASCULAR.getBit() | CategoriaClinica.DIABETES.getBit(),
+            CategoriaClinica.GASTROINTESTINAL.getBit(),
+            0);
+    }
+
+    @Test
+    @DisplayName("Should resolve each category through the bitmask column")
+    void shouldFindByCategory() {
+        assertThat(antecedenteClinicoRepository.findAlergiasByPacienteId(paciente.getId()))
+            .extracting(AntecedentesClinicos::getAntecedente).containsExactly("ALERGIA LÁCTEA");
+        assertThat(antecedenteClinicoRepository.findCondicionesCardiovascularByPacienteId(paciente.getId()))
+            .extracting(AntecedentesClinicos::getAntecedente).containsExactly("Hipertensión");
+        assertThat(antecedenteClinicoRepository.findCondicionesDiabeticasByPacienteId(paciente.getId()))
+            .extracting(AntecedentesClinicos::getAntecedente).containsExactly("Hipertensión");
+        assertThat(antecedenteClinicoRepository.findCondicionesGastrointestinalByPacienteId(paciente.getId()))
+            .extracting(AntecedentesClinicos::getAntecedente).containsExactly("Reflujo");
+        assertThat(antecedenteClinicoRepository.hasAlergias(paciente.getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should return every classified condition in a single query")
+    void shouldFindAllClassified() {
+        assertThat(antecedenteClinicoRepository.findClasificadosByPacienteId(paciente.getId()))
+            .extracting(AntecedentesClinicos::getAntecedente)
+            .containsExactlyInAnyOrder("ALERGIA LÁCTEA", "Hipertensión", "Reflujo");
+    }
+}
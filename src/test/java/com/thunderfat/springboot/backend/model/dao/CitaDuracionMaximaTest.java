@@ -0,0 +1,87 @@
+package com.thunderfat.springboot.backend.model.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+
+/**
+ * The overlap queries of CitaRepository bound fechaini by the longest appointment, so
+ * no write path may store a longer one: neither JPA nor plain SQL.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:citaduraciontest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Cita Maximum Duration Tests")
+class CitaDuracionMaximaTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2030, 3, 4, 9, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static Cita cita(long minutos) {
+        Cita cita = new Cita();
+        cita.setFechaini(INICIO);
+        cita.setFechafin(INICIO.plusMinutes(minutos));
+        return cita;
+    }
+
+    @Test
+    @DisplayName("Should store an appointment of exactly the maximum duration")
+    void shouldAcceptMaximumDuration() {
+        Cita guardada = citaRepository.saveAndFlush(cita(CitaRepository.DURACION_MAXIMA_MINUTOS));
+
+        assertThat(guardada.getId()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should reject longer appointments written through JPA, on insert and on update")
+    void shouldRejectLongerAppointmentsThroughJpa() {
+        assertThatThrownBy(() -> citaRepository.saveAndFlush(cita(CitaRepository.DURACION_MAXIMA_MINUTOS + 1)))
+                .isInstanceOf(BusinessException.class);
+
+        Cita cita = citaRepository.saveAndFlush(cita(60));
+        cita.setFechafin(INICIO.plusHours(5));
+        assertThatThrownBy(() -> entityManager.flush())
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject longer appointments written with plain SQL")
+    void shouldRejectLongerAppointmentsThroughSql() {
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO cita (fechaini, fechafin, version_agenda) VALUES (?, ?, 0)",
+                INICIO, INICIO.plusMinutes(CitaRepository.DURACION_MAXIMA_MINUTOS + 1)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(jdbcTemplate.update("INSERT INTO cita (fechaini, fechafin, version_agenda) VALUES (?, ?, 0)",
+                INICIO, INICIO.plusMinutes(CitaRepository.DURACION_MAXIMA_MINUTOS))).isEqualTo(1);
+    }
+}
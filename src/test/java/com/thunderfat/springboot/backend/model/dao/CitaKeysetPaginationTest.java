@@ -0,0 +1,205 @@
+package com.thunderfat.springboot.backend.model.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dto.KeysetCursor;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keyset (seek) pagination tests for CitaRepository, including a small benchmark
+ * comparing OFFSET and keyset latency as the page depth grows.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.datasource.url=jdbc:h2:mem:citakeysettest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Cita Keyset Pagination Tests")
+class CitaKeysetPaginationTest {
+
+    private static final int TOTAL_CITAS = 3000;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        // Several appointments share each start time so the id tie-breaker is exercised
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < TOTAL_CITAS; i++) {
+            Cita cita = new Cita();
+            cita.setFechaini(base.plusMinutes((i / 3) * 30L));
+            cita.setFechafin(cita.getFechaini().plusMinutes(30));
+            entityManager.persist(cita);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private PagedResponseDTO<Integer> page(String cursor) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Limit limit = Limit.of(PAGE_SIZE + 1);
+        List<Cita> rows = after == null
+                ? citaRepository.findKeysetFirstPage(limit)
+                : citaRepository.findKeysetPageAfter(after.getSortKeyAsDateTime(), after.getId(), limit);
+        return PagedResponseDTO.ofKeyset(rows, PAGE_SIZE, after == null, Cita::getId,
+                cita -> KeysetCursor.of(cita.getFechaini(), cita.getId()));
+    }
+
+    @Test
+    @DisplayName("Should walk every appointment exactly once in (fechaini, id) descending order")
+    void shouldWalkAllRowsInOrder() {
+        List<Integer> expected = citaRepository
+                .findAll(Sort.by(Sort.Order.desc("fechaini"), Sort.Order.desc("id")))
+                .stream().map(Cita::getId).toList();
+
+        List<Integer> walked = new ArrayList<>();
+        PagedResponseDTO<Integer> current = page(null);
+        walked.addAll(current.getItems());
+        assertThat(current.isFirst()).isTrue();
+        while (current.isHasNext()) {
+            current = page(current.getNextCursor());
+            walked.addAll(current.getItems());
+        }
+
+        assertThat(current.isLast()).isTrue();
+        assertThat(current.getNextCursor()).isNull();
+        assertThat(walked).containsExactlyElementsOf(expected);
+        assertThat(new HashSet<>(walked)).hasSize(TOTAL_CITAS);
+    }
+
+    @Test
+    @DisplayName("Should skip appointments without a start date instead of breaking the next cursor")
+    void shouldSkipRowsWithoutStartDate() {
+        // TOTAL_CITAS is a whole number of pages, so these would start the page after the last one
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(new Cita());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Integer> walked = new ArrayList<>();
+        PagedResponseDTO<Integer> current = page(null);
+        walked.addAll(current.getItems());
+        while (current.isHasNext()) {
+            current = page(current.getNextCursor());
+            walked.addAll(current.getItems());
+        }
+
+        assertThat(TOTAL_CITAS % PAGE_SIZE).isZero();
+        assertThat(walked).hasSize(TOTAL_CITAS).doesNotContainNull();
+        assertThat(citaRepository.count()).isEqualTo(TOTAL_CITAS + 3);
+    }
+
+    @Test
+    @DisplayName("Should fetch each page with a single statement and no COUNT query")
+    void shouldNotIssueCountQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        PagedResponseDTO<Integer> first = page(null);
+        statistics.clear();
+
+        PagedResponseDTO<Integer> second = page(first.getNextCursor());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(second.getTotal()).isNull();
+        assertThat(second.getTotalPages()).isNull();
+        assertThat(second.getItems()).hasSize(PAGE_SIZE);
+    }
+
+    @Test
+    @DisplayName("Should reject tampered cursors")
+    void shouldRejectInvalidCursor() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not-a-cursor!"))
+                .isInstanceOf(BusinessValidationException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(new KeysetCursor("ayer", 5).encode()).getSortKeyAsDateTime())
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Benchmark: keyset latency stays flat with page depth while OFFSET grows")
+    void benchmarkPageDepth() {
+        int deepPage = TOTAL_CITAS / PAGE_SIZE - 2;
+
+        // Resolve the cursor of the deep page once, outside the timed section
+        List<Cita> beforeDeep = citaRepository.findAll(PageRequest.of(deepPage - 1, PAGE_SIZE,
+                Sort.by(Sort.Order.desc("fechaini"), Sort.Order.desc("id")))).getContent();
+        Cita last = beforeDeep.get(beforeDeep.size() - 1);
+        String deepCursor = KeysetCursor.of(last.getFechaini(), last.getId()).encode();
+        String shallowCursor = page(null).getNextCursor();
+
+        // Warm-up so that the first measured query does not pay for plan compilation
+        for (int i = 0; i < 20; i++) {
+            page(shallowCursor);
+            page(deepCursor);
+            citaRepository.findAll(PageRequest.of(deepPage, PAGE_SIZE, Sort.by(Sort.Order.desc("fechaini"))));
+        }
+
+        long keysetShallow = time(() -> page(shallowCursor));
+        long keysetDeep = time(() -> page(deepCursor));
+        long offsetShallow = time(() -> citaRepository.findAll(PageRequest.of(1, PAGE_SIZE,
+                Sort.by(Sort.Order.desc("fechaini"), Sort.Order.desc("id")))));
+        long offsetDeep = time(() -> citaRepository.findAll(PageRequest.of(deepPage, PAGE_SIZE,
+                Sort.by(Sort.Order.desc("fechaini"), Sort.Order.desc("id")))));
+
+        log.info("Page depth benchmark ({} rows, page {}): keyset shallow={}us deep={}us, offset shallow={}us deep={}us",
+                TOTAL_CITAS, deepPage, keysetShallow / 1000, keysetDeep / 1000, offsetShallow / 1000, offsetDeep / 1000);
+
+        // Same rows either way; the deep keyset page must return a full page
+        Set<Integer> keysetIds = new HashSet<>(page(deepCursor).getItems());
+        Set<Integer> offsetIds = new HashSet<>(citaRepository.findAll(PageRequest.of(deepPage, PAGE_SIZE,
+                Sort.by(Sort.Order.desc("fechaini"), Sort.Order.desc("id")))).map(Cita::getId).getContent());
+        assertThat(keysetIds).isEqualTo(offsetIds);
+    }
+
+    private long time(Runnable query) {
+        int iterations = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+            entityManager.clear();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
@@ -0,0 +1,226 @@
+package com.thunderfat.springboot.backend.model.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appointment range queries against a growing history on H2: 100,000 appointments
+ * first, then 1,000,000. The half-open {@code fechaini >= ? AND fechaini < ?} form
+ * reads the same number of index rows at both sizes, while the previous
+ * {@code DATE(fechaini) BETWEEN} form reads every appointment of the nutritionist.
+ * Rows read come from H2's EXPLAIN ANALYZE and are asserted; latency is logged and
+ * only loosely bounded.
+ *
+ * Tagged {@code carga} and left out of the normal build; run it with {@code mvn test -Pcarga}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@Tag("carga")
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:citarangebenchmark;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Appointment Range Query Benchmark Tests")
+class CitaRangeQueryBenchmarkTest {
+
+    private static final int NUTRICIONISTAS = 10;
+    private static final int PACIENTES = 100;
+    private static final int ITERACIONES = 50;
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    /** Appointments go back in time from here, one per nutritionist per hour */
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final LocalDate SEMANA_DESDE = BASE.toLocalDate().minusDays(7);
+    private static final LocalDate SEMANA_HASTA = BASE.toLocalDate().minusDays(1);
+
+    private static final String INSERT_HISTORIA =
+            "INSERT INTO cita (fechaini, fechafin, id_nutricionista, id_paciente) "
+            + "SELECT DATEADD(HOUR, -(r.X / " + NUTRICIONISTAS + ") - 1, CAST(? AS TIMESTAMP)), "
+            + "DATEADD(MINUTE, 45, DATEADD(HOUR, -(r.X / " + NUTRICIONISTAS + ") - 1, CAST(? AS TIMESTAMP))), n.id, p.id "
+            + "FROM SYSTEM_RANGE(?, ?) r "
+            + "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS k FROM nutricionista) n "
+            + "ON n.k = MOD(r.X, " + NUTRICIONISTAS + ") "
+            + "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS k FROM paciente) p "
+            + "ON p.k = MOD(r.X, " + PACIENTES + ")";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    private Integer nutricionistaId;
+    private Integer pacienteId;
+
+    private record Medida(long filasLeidas, long microsPorConsulta) {
+    }
+
+    @Test
+    @DisplayName("Should read the same index rows for range, upcoming and next-appointment queries as history grows")
+    void shouldStayFlatAsHistoryGrows() {
+        crearPersonas();
+
+        insertarHistoria(0, 100_000);
+        Medida rango100k = medirRango();
+        Medida proxima100k = medirProxima();
+        Medida solape100k = medirSolape();
+        long antigua100k = filasLeidas(consultaAntigua());
+
+        insertarHistoria(100_000, 1_000_000);
+        Medida rango1m = medirRango();
+        Medida proxima1m = medirProxima();
+        Medida solape1m = medirSolape();
+        long antigua1m = filasLeidas(consultaAntigua());
+
+        log.info("Nutritionist week      100k: {} rows read, {} µs | 1M: {} rows read, {} µs",
+                 rango100k.filasLeidas(), rango100k.microsPorConsulta(), rango1m.filasLeidas(), rango1m.microsPorConsulta());
+        log.info("Next patient cita      100k: {} rows read, {} µs | 1M: {} rows read, {} µs",
+                 proxima100k.filasLeidas(), proxima100k.microsPorConsulta(), proxima1m.filasLeidas(), proxima1m.microsPorConsulta());
+        log.info("Conflict check         100k: {} rows read, {} µs | 1M: {} rows read, {} µs",
+                 solape100k.filasLeidas(), solape100k.microsPorConsulta(), solape1m.filasLeidas(), solape1m.microsPorConsulta());
+        log.info("DATE() BETWEEN (old)   100k: {} rows read | 1M: {} rows read", antigua100k, antigua1m);
+
+        // One week of one nutritionist: 168 hourly appointments, whatever the history size
+        assertThat(citaRepository.findByNutricionistaIdAndDateRange(nutricionistaId, SEMANA_DESDE, SEMANA_HASTA,
+                PageRequest.of(0, 200)).getTotalElements()).isEqualTo(168);
+        assertThat(rango1m.filasLeidas()).isEqualTo(rango100k.filasLeidas()).isLessThan(200);
+        // H2 reads the patient's appointments in the 30-day window before applying LIMIT 1: set by the window, not the history
+        assertThat(proxima1m.filasLeidas()).isEqualTo(proxima100k.filasLeidas()).isLessThan(100);
+        assertThat(solape1m.filasLeidas()).isEqualTo(solape100k.filasLeidas()).isLessThan(10);
+
+        // The function-wrapped predicate reads the nutritionist's whole history
+        assertThat(antigua100k).isGreaterThanOrEqualTo(100_000 / NUTRICIONISTAS);
+        assertThat(antigua1m).isGreaterThanOrEqualTo(1_000_000 / NUTRICIONISTAS);
+
+        assertThat(rango1m.microsPorConsulta()).isLessThan(50_000);
+        assertThat(proxima1m.microsPorConsulta()).isLessThan(50_000);
+    }
+
+    private void crearPersonas() {
+        Nutricionista primero = null;
+        for (int i = 0; i < NUTRICIONISTAS; i++) {
+            Nutricionista nutricionista = new Nutricionista();
+            nutricionista.setEmail("rango" + i + "@thunderfat.com");
+            nutricionista.setNombre("Dr. Rango" + i);
+            nutricionista.setApellidos("Bench");
+            nutricionista.setEnabled(true);
+            entityManager.persist(nutricionista);
+            primero = primero == null ? nutricionista : primero;
+        }
+        Paciente primerPaciente = null;
+        for (int i = 0; i < PACIENTES; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Rango");
+            paciente.setEmail("rango.paciente" + i + "@example.com");
+            paciente.setDni(String.format("%08dR", i));
+            paciente.setFechanacimiento(LocalDate.of(1980, 1, 1).plusDays(i));
+            paciente.setNutricionista(primero);
+            paciente.setEnabled(true);
+            entityManager.persist(paciente);
+            primerPaciente = primerPaciente == null ? paciente : primerPaciente;
+        }
+        entityManager.flush();
+        entityManager.clear();
+        nutricionistaId = primero.getId();
+        pacienteId = primerPaciente.getId();
+    }
+
+    /** Inserts appointments {@code desde..hasta-1}, each further in the past than the previous one */
+    private void insertarHistoria(long desde, long hasta) {
+        long inicio = System.nanoTime();
+        jdbcTemplate.update(INSERT_HISTORIA, BASE, BASE, desde, hasta - 1);
+        jdbcTemplate.execute("ANALYZE");
+        log.info("Inserted {} appointments in {} ms", hasta - desde, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private Medida medirRango() {
+        String sql = "SELECT * FROM cita c WHERE c.id_nutricionista = " + nutricionistaId
+                + " AND c.fechaini >= TIMESTAMP '" + SEMANA_DESDE.atStartOfDay() + "'"
+                + " AND c.fechaini < TIMESTAMP '" + SEMANA_HASTA.plusDays(1).atStartOfDay() + "'"
+                + " ORDER BY c.fechaini";
+        return new Medida(filasLeidas(sql), micros(() -> citaRepository.findByNutricionistaIdAndStartRange(
+                nutricionistaId, SEMANA_DESDE.atStartOfDay(), SEMANA_HASTA.plusDays(1).atStartOfDay(),
+                PageRequest.of(0, 50))));
+    }
+
+    private Medida medirProxima() {
+        LocalDateTime desde = BASE.minusDays(30);
+        String sql = "SELECT * FROM cita c WHERE c.id_paciente = " + pacienteId
+                + " AND c.fechaini >= TIMESTAMP '" + desde + "' ORDER BY c.fechaini LIMIT 1";
+        return new Medida(filasLeidas(sql),
+                micros(() -> citaRepository.findNextAppointmentForPatient(pacienteId, desde)));
+    }
+
+    private Medida medirSolape() {
+        LocalDateTime inicio = BASE.minusDays(3).plusMinutes(20);
+        LocalDateTime fin = inicio.plusMinutes(45);
+        String sql = "SELECT * FROM cita c WHERE c.id_nutricionista = " + nutricionistaId
+                + " AND c.fechaini >= TIMESTAMP '" + inicio.minusMinutes(CitaRepository.DURACION_MAXIMA_MINUTOS) + "'"
+                + " AND c.fechaini <= TIMESTAMP '" + fin + "'"
+                + " AND c.fechafin >= TIMESTAMP '" + inicio + "'";
+        return new Medida(filasLeidas(sql),
+                micros(() -> citaRepository.findConflictingAppointments(nutricionistaId, inicio, fin)));
+    }
+
+    private String consultaAntigua() {
+        return "SELECT * FROM cita c WHERE c.id_nutricionista = " + nutricionistaId
+                + " AND CAST(c.fechaini AS DATE) BETWEEN DATE '" + SEMANA_DESDE + "' AND DATE '" + SEMANA_HASTA + "'"
+                + " ORDER BY c.fechaini";
+    }
+
+    private long filasLeidas(String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN ANALYZE " + sql, String.class));
+        log.debug("Plan: {}", plan);
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        long filas = 0;
+        while (matcher.find()) {
+            filas += Long.parseLong(matcher.group(1));
+        }
+        return filas;
+    }
+
+    private long micros(Supplier<?> consulta) {
+        for (int i = 0; i < 5; i++) {
+            consulta.get();
+            entityManager.clear();
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ITERACIONES; i++) {
+            consulta.get();
+            entityManager.clear();
+        }
+        return (System.nanoTime() - inicio) / 1_000 / ITERACIONES;
+    }
+}
@@ -0,0 +1,290 @@
+package com.thunderfat.springboot.backend.model.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.model.dto.AlimentoSelectDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.ComidaListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteListadoDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.AlimentoMapperImpl;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.dto.mapper.ComidaMapper;
+import com.thunderfat.springboot.backend.model.dto.mapper.PacienteMapper;
+import com.thunderfat.springboot.backend.model.entity.Alimento;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+import com.thunderfat.springboot.backend.model.entity.Comida;
+import com.thunderfat.springboot.backend.model.entity.DiaDieta;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+import com.thunderfat.springboot.backend.model.entity.PlanDieta;
+import com.thunderfat.springboot.backend.model.entity.PlatoPlanDieta;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the list-screen constructor projections with the entity + MapStruct path
+ * they replace: statements issued, entities left in the persistence context, bytes
+ * allocated and latency per page. Latency and allocation are logged, not asserted.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.datasource.url=jdbc:h2:mem:listprojectiontest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("List Projection Benchmark Tests")
+class ListProjectionBenchmarkTest {
+
+    private static final int PACIENTES = 200;
+    private static final int ALIMENTOS = 300;
+    private static final int ITERACIONES = 20;
+    private static final Pageable PAGINA = PageRequest.of(0, 50);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private ComidaRepository comidaRepository;
+
+    @Autowired
+    private AlimentoRepository alimentoRepository;
+
+    private Statistics statistics;
+    private Nutricionista nutricionista;
+    private PlanDieta plan;
+
+    @BeforeEach
+    void setUp() {
+        nutricionista = new Nutricionista();
+        nutricionista.setEmail("bench.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Dr. Bench");
+        nutricionista.setApellidos("Mark");
+        nutricionista.setEnabled(true);
+        entityManager.persist(nutricionista);
+
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < PACIENTES; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Apellido" + i);
+            paciente.setEmail("bench" + i + "@example.com");
+            paciente.setDni(String.format("%08dZ", i));
+            paciente.setFechanacimiento(LocalDate.of(1985, 1, 1).plusDays(i));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            entityManager.persist(paciente);
+            for (int j = 0; j < 2; j++) {
+                Cita cita = new Cita();
+                cita.setFechaini(base.plusHours(i * 2L + j));
+                cita.setFechafin(cita.getFechaini().plusMinutes(45));
+                cita.setPaciente(paciente);
+                cita.setNutricionista(nutricionista);
+                entityManager.persist(cita);
+            }
+        }
+
+        plan = new PlanDieta();
+        plan.setFechaini(LocalDate.of(2025, 3, 1));
+        plan.setFechafin(LocalDate.of(2025, 3, 10));
+        entityManager.persistAndFlush(plan);
+        // dias is a unidirectional collection with a NOT NULL join column, so the rows need the FK on insert
+        for (int d = 0; d < 10; d++) {
+            entityManager.getEntityManager()
+                    .createNativeQuery("INSERT INTO diadieta (fecha, id_plandieta) VALUES (?1, ?2)")
+                    .setParameter(1, LocalDate.of(2025, 3, 1).plusDays(d))
+                    .setParameter(2, plan.getId())
+                    .executeUpdate();
+        }
+        List<DiaDieta> dias = entityManager.getEntityManager()
+                .createQuery("SELECT d FROM DiaDieta d ORDER BY d.fecha", DiaDieta.class).getResultList();
+        for (DiaDieta dia : dias) {
+            List<Comida> comidas = new ArrayList<>();
+            for (int c = 0; c < 5; c++) {
+                List<PlatoPlanDieta> platos = new ArrayList<>();
+                for (int p = 0; p < 3; p++) {
+                    PlatoPlanDieta plato = new PlatoPlanDieta(100);
+                    plato.setNombre("Plato " + dia.getFecha() + "-" + c + "-" + p);
+                    entityManager.persist(plato);
+                    platos.add(plato);
+                }
+                Comida comida = new Comida();
+                comida.setHora(LocalTime.of(8 + c * 3, 0));
+                comida.setValoracion(c);
+                comida.setPlatos(platos);
+                entityManager.persist(comida);
+                comidas.add(comida);
+            }
+            dia.setComidas(comidas);
+        }
+
+        for (int i = 0; i < ALIMENTOS; i++) {
+            Alimento alimento = new Alimento();
+            alimento.setNombre(String.format("Alimento %03d", i));
+            alimento.setEstado("CRUDO");
+            alimento.setCal(100.0 + i);
+            alimento.setProteinas(10.0);
+            entityManager.persist(alimento);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory().getStatistics();
+    }
+
+    private SessionFactory entityManagerFactory() {
+        return entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class);
+    }
+
+    @Test
+    @DisplayName("Patient list: projection reads one page with two statements and no managed entities")
+    void pacienteListado() {
+        Medicion entidad = medir("paciente entity+mapper", () -> pacienteRepository
+                .findByNutricionistaId(nutricionista.getId(), PAGINA).map(PacienteMapper.INSTANCE::toDto).getContent());
+        Medicion proyeccion = medir("paciente projection", () -> pacienteRepository
+                .findListadoByNutricionistaId(nutricionista.getId(), PAGINA).getContent());
+
+        Page<PacienteListadoDTO> pagina = pacienteRepository.findListadoByNutricionistaId(nutricionista.getId(),
+                PageRequest.of(0, 50, Sort.by("apellidos", "nombre")));
+        assertThat(pagina.getTotalElements()).isEqualTo(PACIENTES);
+        assertThat(pagina.getContent()).hasSize(50);
+        assertThat(pagina.getContent().get(0).getDni()).isNotBlank();
+
+        assertThat(proyeccion.sentencias()).isEqualTo(2);
+        assertThat(proyeccion.entidades()).isZero();
+        assertThat(entidad.sentencias()).isGreaterThan(proyeccion.sentencias());
+        assertThat(entidad.entidades()).isGreaterThanOrEqualTo(PAGINA.getPageSize());
+    }
+
+    @Test
+    @DisplayName("Appointment list: projection resolves the patient name in the same statement")
+    void citaListado() {
+        Pageable pagina = PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "fechaini"));
+        Medicion entidad = medir("cita entity+mapper", () -> citaRepository
+                .findByNutricionistaId(nutricionista.getId(), pagina).map(cita -> {
+                    var dto = CitaMapper.INSTANCE.toDto(cita);
+                    dto.setPacienteNombre(cita.getPaciente().getNombre() + " " + cita.getPaciente().getApellidos());
+                    return dto;
+                }).getContent());
+        Medicion proyeccion = medir("cita projection", () -> citaRepository
+                .findListadoByNutricionistaId(nutricionista.getId(), pagina).getContent());
+
+        List<CitaListadoDTO> filas = citaRepository.findListadoByNutricionistaId(nutricionista.getId(), pagina).getContent();
+        assertThat(filas).hasSize(50);
+        assertThat(filas.get(0).getPacienteNombre()).isEqualTo("Paciente" + (PACIENTES - 1) + " Apellido" + (PACIENTES - 1));
+        assertThat(filas.get(0).getFechaInicio()).isAfter(filas.get(1).getFechaInicio());
+
+        assertThat(proyeccion.sentencias()).isEqualTo(2);
+        assertThat(proyeccion.entidades()).isZero();
+        assertThat(entidad.entidades()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Meal list: projection counts dishes instead of loading and mapping them")
+    void comidaListado() {
+        List<Integer> ids = comidaRepository
+                .findListadoByPlanDietaId(plan.getId(), PAGINA).map(ComidaListadoDTO::getId).getContent();
+        Medicion entidad = medir("comida entity+mapper", () -> comidaRepository.findAllById(ids).stream()
+                .map(ComidaMapper.INSTANCE::toDto).toList());
+        Medicion proyeccion = medir("comida projection", () -> comidaRepository
+                .findListadoByPlanDietaId(plan.getId(), PAGINA).getContent());
+
+        List<ComidaListadoDTO> filas = comidaRepository.findListadoByPlanDietaId(plan.getId(), PAGINA).getContent();
+        assertThat(filas).hasSize(50);
+        assertThat(filas).allSatisfy(fila -> assertThat(fila.getNumeroPlatos()).isEqualTo(3));
+        assertThat(filas.get(0).getFecha()).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(filas.get(0).getHora()).isBefore(filas.get(1).getHora());
+
+        assertThat(proyeccion.sentencias()).isEqualTo(2);
+        assertThat(proyeccion.entidades()).isZero();
+        assertThat(entidad.entidades()).isGreaterThan(ids.size());
+    }
+
+    @Test
+    @DisplayName("Food select list: projection reads four columns and keeps nothing in the persistence context")
+    void alimentoSelect() {
+        AlimentoMapperImpl alimentoMapper = new AlimentoMapperImpl();
+        Medicion entidad = medir("alimento entity+mapper", () -> alimentoMapper.toDtoList(alimentoRepository.findAll()));
+        Medicion proyeccion = medir("alimento projection", () -> alimentoRepository.findAllForSelect());
+
+        List<AlimentoSelectDTO> opciones = alimentoRepository.findAllForSelect();
+        assertThat(opciones).hasSize(ALIMENTOS);
+        assertThat(opciones.get(0).getNombre()).isEqualTo("Alimento 000");
+
+        assertThat(proyeccion.sentencias()).isEqualTo(1);
+        assertThat(proyeccion.entidades()).isZero();
+        assertThat(entidad.entidades()).isEqualTo(ALIMENTOS);
+    }
+
+    /**
+     * Runs the query once cold to count statements and managed entities, then
+     * times {@value #ITERACIONES} runs, clearing the persistence context each time.
+     */
+    private Medicion medir(String nombre, Supplier<List<?>> consulta) {
+        entityManager.clear();
+        statistics.clear();
+        List<?> filas = consulta.get();
+        long sentencias = statistics.getPrepareStatementCount();
+        int entidades = entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount();
+        entityManager.clear();
+
+        for (int i = 0; i < 5; i++) {
+            consulta.get();
+            entityManager.clear();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().threadId();
+        long bytesInicio = threads.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ITERACIONES; i++) {
+            consulta.get();
+            entityManager.clear();
+        }
+        long micros = (System.nanoTime() - inicio) / ITERACIONES / 1_000;
+        long kb = (threads.getThreadAllocatedBytes(hilo) - bytesInicio) / ITERACIONES / 1_024;
+
+        log.info("{}: {} rows, {} statements, {} managed entities, {} us/page, {} KB allocated/page",
+                nombre, filas.size(), sentencias, entidades, micros, kb);
+        return new Medicion(sentencias, entidades);
+    }
+
+    private record Medicion(long sentencias, int entidades) {
+    }
+}
@@ -7,6 +7,8 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,6 +19,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 
@@ -24,6 +27,8 @@ import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
 import com.thunderfat.springboot.backend.model.entity.Nutricionista;
 import com.thunderfat.springboot.backend.model.entity.Paciente;
 
+import jakarta.persistence.EntityManagerFactory;
+
 /**
  * Integration tests for PacienteRepository.
  * Demonstrates Spring Boot 2025 testing best practices including:
@@ -40,6 +45,7 @@ import com.thunderfat.springboot.backend.model.entity.Paciente;
 @Import(TestDataJpaConfig.class)
 @TestPropertySource(properties = {
     "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
     "spring.datasource.url=jdbc:h2:mem:pacientetest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
 })
 @ActiveProfiles("test")
@@ -52,6 +58,9 @@ class PacienteRepositoryTest {
     @Autowired
     private PacienteRepository pacienteRepository;
     
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
     private Nutricionista testNutricionista;
     private Paciente testPaciente1;
     private Paciente testPaciente2;
@@ -96,6 +105,46 @@ class PacienteRepositoryTest {
         return paciente;
     }
     
+    @Test
+    @DisplayName("Should slice patients by nutritionist ID without a count query")
+    void testFindSliceByNutricionistaIdWithoutCount() {
+        // Given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        // When
+        Slice<Paciente> firstSlice = pacienteRepository.findSliceByNutricionistaId(
+            testNutricionista.getId(), PageRequest.of(0, 1)
+        );
+        
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(firstSlice.getContent()).hasSize(1);
+        assertThat(firstSlice.hasNext()).isTrue();
+        
+        Slice<Paciente> lastSlice = pacienteRepository.findSliceByNutricionistaId(
+            testNutricionista.getId(), PageRequest.of(1, 1)
+        );
+        assertThat(lastSlice.getContent()).hasSize(1);
+        assertThat(lastSlice.hasNext()).isFalse();
+    }
+    
+    @Test
+    @DisplayName("Should slice all patients through the base repository without a count query")
+    void testFindAllSlicedWithoutCount() {
+        // Given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        // When
+        Slice<Paciente> result = pacienteRepository.findAllSliced(PageRequest.of(0, 10));
+        
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.hasNext()).isFalse();
+    }
+    
     @Test
     @DisplayName("Should find patients by nutritionist ID with pagination")
     void testFindByNutricionistaIdWithPagination() {
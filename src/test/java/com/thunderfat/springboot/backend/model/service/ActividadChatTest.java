@@ -0,0 +1,227 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.EscrituraChatDTO;
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
+import com.thunderfat.springboot.backend.model.dto.PresenciaChatDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typing and presence coalescing: ticks driven by hand for the state changes, and a
+ * load of concurrent typists against the real ticking thread for the frame rate. The load
+ * test runs for seconds and is tagged {@code carga}, so it only runs with {@code -Pcarga}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@DisplayName("Chat Typing and Presence Coalescing Tests")
+class ActividadChatTest {
+
+    private static final int CHAT = 7;
+    private static final String PACIENTE = "actividad.paciente@example.com";
+    private static final String NUTRICIONISTA = "actividad.nutricionista@thunderfat.com";
+
+    private final Queue<Salida> enviados = new ConcurrentLinkedQueue<>();
+    private ThunderFatProperties properties;
+    private SimpMessagingTemplate messagingTemplate;
+    private ActividadChat actividad;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ThunderFatProperties();
+        properties.getWebsocket().setVentanaActividad(Duration.ofMillis(500));
+        properties.getWebsocket().setExpiracionEscritura(Duration.ofSeconds(5));
+        properties.getWebsocket().setExpiracionPresencia(Duration.ofSeconds(30));
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        doAnswer(invocacion -> enviados.add(new Salida(invocacion.getArgument(0), invocacion.getArgument(1))))
+                .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (actividad != null) {
+            actividad.detener();
+        }
+    }
+
+    @Test
+    @DisplayName("Should broadcast a fast typist once, then stop typing and leave by timeout")
+    void shouldCoalesceTypingAndExpire() {
+        actividad = new ActividadChat(messagingTemplate, properties);
+        for (int n = 0; n < 100; n++) {
+            actividad.escribiendo(CHAT, PACIENTE, true);
+        }
+
+        assertThat(actividad.avanzar(1)).isEqualTo(2);
+        assertThat(recoger()).extracting(Salida::descripcion)
+                .containsExactly("presence " + PACIENTE + " JOINED", "typing " + PACIENTE + " true");
+
+        // Typing on through the next windows changes nothing
+        for (long tick = 2; tick <= 5; tick++) {
+            for (int n = 0; n < 20; n++) {
+                actividad.escribiendo(CHAT, PACIENTE, true);
+            }
+            assertThat(actividad.avanzar(tick)).isZero();
+        }
+
+        // Five seconds (ten windows) after the last typing frame it stops by itself
+        assertThat(actividad.avanzar(13)).isZero();
+        assertThat(actividad.avanzar(14)).isEqualTo(1);
+        assertThat(recoger()).extracting(Salida::descripcion).containsExactly("typing " + PACIENTE + " false");
+        assertThat(actividad.presentes(CHAT)).extracting(PresenciaChatDTO::getUser).containsExactly(PACIENTE);
+
+        // Thirty seconds after the last frame the participant is gone
+        assertThat(actividad.avanzar(63)).isZero();
+        assertThat(actividad.avanzar(64)).isEqualTo(1);
+        assertThat(recoger()).extracting(Salida::descripcion).containsExactly("presence " + PACIENTE + " LEFT");
+        assertThat(actividad.presentes(CHAT)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep presence alive with heartbeats and announce only changes")
+    void shouldFollowHeartbeats() {
+        actividad = new ActividadChat(messagingTemplate, properties);
+        actividad.latido(CHAT, NUTRICIONISTA);
+        actividad.latido(CHAT, PACIENTE);
+        actividad.avanzar(1);
+        assertThat(recoger()).extracting(Salida::descripcion).containsExactlyInAnyOrder(
+                "presence " + NUTRICIONISTA + " JOINED", "presence " + PACIENTE + " JOINED");
+
+        // A heartbeat every ten seconds keeps the nutritionist present; the patient expires
+        for (long tick = 20; tick <= 120; tick += 20) {
+            actividad.latido(CHAT, NUTRICIONISTA);
+            actividad.avanzar(tick);
+        }
+        assertThat(recoger()).extracting(Salida::descripcion).containsExactly("presence " + PACIENTE + " LEFT");
+        assertThat(actividad.presentes(CHAT)).extracting(PresenciaChatDTO::getUser).containsExactly(NUTRICIONISTA);
+
+        // Typing, sending and leaving within one window cancel out
+        actividad.escribiendo(CHAT, PACIENTE, true);
+        actividad.escribiendo(CHAT, PACIENTE, false);
+        actividad.salir(CHAT, PACIENTE);
+        assertThat(actividad.avanzar(121)).isZero();
+
+        actividad.salir(CHAT, NUTRICIONISTA);
+        actividad.avanzar(122);
+        assertThat(recoger()).extracting(Salida::descripcion).containsExactly("presence " + NUTRICIONISTA + " LEFT");
+    }
+
+    @Test
+    @DisplayName("Should broadcast only the furthest read receipt of each participant per window")
+    void shouldCoalesceReadReceipts() {
+        actividad = new ActividadChat(messagingTemplate, properties);
+        for (int hasta = 1; hasta <= 200; hasta++) {
+            actividad.leido(CHAT, NUTRICIONISTA, hasta);
+        }
+        actividad.leido(CHAT, NUTRICIONISTA, 150);
+        actividad.leido(CHAT, PACIENTE, 40);
+
+        assertThat(actividad.avanzar(1)).isEqualTo(2);
+        assertThat(recoger()).extracting(Salida::descripcion)
+                .containsExactly("read " + NUTRICIONISTA + " 200", "read " + PACIENTE + " 40");
+        assertThat(actividad.avanzar(2)).isZero();
+    }
+
+    @Test
+    @Tag("carga")
+    @DisplayName("Should bound the outbound frames per chat under a load of concurrent typists")
+    void shouldBoundFrameRateUnderLoad() throws Exception {
+        int chats = 200;
+        int hilos = 8;
+        Duration ventana = Duration.ofMillis(50);
+        Duration carga = Duration.ofSeconds(2);
+        properties.getWebsocket().setVentanaActividad(ventana);
+        actividad = new ActividadChat(messagingTemplate, properties);
+        actividad.iniciar();
+
+        // Every thread types and stops typing at random in random chats as fast as it can
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        long fin = System.nanoTime() + carga.toNanos();
+        List<Future<Long>> recibidos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            recibidos.add(ejecutor.submit(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                long frames = 0;
+                while (System.nanoTime() < fin) {
+                    int chat = azar.nextInt(chats);
+                    String usuario = azar.nextBoolean() ? PACIENTE : NUTRICIONISTA;
+                    actividad.escribiendo(chat, usuario, azar.nextInt(4) != 0);
+                    frames++;
+                }
+                return frames;
+            }));
+        }
+        long entrantes = 0;
+        for (Future<Long> frames : recibidos) {
+            entrantes += frames.get(carga.toSeconds() + 10, TimeUnit.SECONDS);
+        }
+        ejecutor.shutdown();
+        long ventanas = (System.nanoTime() - inicio) / ventana.toNanos() + 2;
+
+        Map<String, Integer> porChat = new HashMap<>();
+        for (Salida salida : enviados) {
+            porChat.merge(salida.chat(), 1, Integer::sum);
+        }
+        int maximo = porChat.values().stream().max(Integer::compare).orElse(0);
+        log.info("{} inbound typing frames, {} broadcasts, at most {} per chat in {} windows",
+                 entrantes, enviados.size(), maximo, ventanas);
+
+        // Two participants, each with at most one typing and one presence frame per window
+        assertThat(maximo).isLessThanOrEqualTo(2 * 2 * (int) ventanas);
+        assertThat((long) enviados.size()).isLessThan(entrantes);
+    }
+
+    private List<Salida> recoger() {
+        List<Salida> salidas = new ArrayList<>(enviados);
+        enviados.clear();
+        return salidas;
+    }
+
+    private record Salida(String destino, Object carga) {
+
+        String chat() {
+            return destino.split("/")[3];
+        }
+
+        String descripcion() {
+            if (carga instanceof EscrituraChatDTO escritura) {
+                return "typing " + escritura.getUser() + " " + escritura.isTyping();
+            }
+            if (carga instanceof LecturaChatDTO lectura) {
+                return "read " + lectura.getUser() + " " + lectura.getHasta();
+            }
+            PresenciaChatDTO presencia = (PresenciaChatDTO) carga;
+            return "presence " + presencia.getUser() + " " + presencia.getStatus();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.model.dao.AntecedenteClinicoRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.mapper.AntecedentesClinicosMapper;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Classification of clinical antecedents stored without a category bitmask, e.g. by SQL
+ * outside the application. Every batch commits on its own, so the test data is committed
+ * too and removed after each test.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import({TestDataJpaConfig.class, AntecedenteClinicoServiceJPA.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:antecedenteservicetest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("AntecedenteClinicoServiceJPA Classification Tests")
+class AntecedenteClinicoServiceJPATest {
+
+    private static final int SIN_CLASIFICAR = 1_234;
+
+    @MockitoBean
+    private AntecedentesClinicosMapper antecedentesClinicosMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private AntecedenteClinicoRepository antecedenteClinicoRepository;
+
+    @Autowired
+    private AntecedenteClinicoServiceJPA antecedenteClinicoService;
+
+    private int pacienteId;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail("clasificacion.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Dr. Test");
+        nutricionista.setApellidos("Clasificacion");
+        nutricionista.setEnabled(true);
+        nutricionista = nutricionistaRepository.save(nutricionista);
+
+        Paciente paciente = new Paciente();
+        paciente.setDni("87654321B");
+        paciente.setNombre("Ana");
+        paciente.setApellidos("Legado");
+        paciente.setEmail("ana.legado@example.com");
+        paciente.setFechanacimiento(LocalDate.of(1975, 3, 3));
+        paciente.setNutricionista(nutricionista);
+        paciente.setEnabled(true);
+        pacienteId = pacienteRepository.save(paciente).getId();
+
+        // Written around the entity callbacks, as before the bitmask existed
+        List<Object[]> filas = new ArrayList<>(SIN_CLASIFICAR);
+        for (int i = 0; i < SIN_CLASIFICAR; i++) {
+            String condicion = i % 2 == 0 ? "Enfermedad celiaca" : "Fractura de tobillo";
+            filas.add(new Object[] {Date.valueOf(LocalDate.now()), "Antecedente " + i, condicion, pacienteId, pacienteId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO antecedentesclinicos (fecha, antecedente, condicion, paciente_id, id_paciente) "
+                + "VALUES (?, ?, ?, ?, ?)", filas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM antecedentesclinicos");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should classify in batches the rows stored without a bitmask")
+    void shouldClassifyPendingRows() {
+        assertThat(antecedenteClinicoRepository.hasAlergias(pacienteId)).isFalse();
+
+        antecedenteClinicoService.clasificarPendientes();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM antecedentesclinicos WHERE categorias IS NULL", Integer.class)).isZero();
+        assertThat(antecedenteClinicoRepository.findAlergiasByPacienteId(pacienteId)).hasSize(SIN_CLASIFICAR / 2);
+        assertThat(antecedenteClinicoRepository.hasAlergias(pacienteId)).isTrue();
+    }
+}
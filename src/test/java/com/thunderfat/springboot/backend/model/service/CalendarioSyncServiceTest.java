@@ -0,0 +1,277 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.CalendarioEventoDTO;
+import com.thunderfat.springboot.backend.model.dto.CalendarioSyncDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Calendar sync feed and iCalendar export against an in-memory database. Appointments
+ * are written through {@link CitaServiceJPA}, so the feed sees the same agenda versions
+ * and tombstones a real booking produces.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:calendariosynctest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Calendar Sync Service Tests")
+class CalendarioSyncServiceTest {
+
+    private static final LocalDate DIA = LocalDate.of(2031, 2, 3);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    private CitaServiceJPA citaService;
+    private CalendarioSyncServiceJPA syncService;
+    private Nutricionista nutricionista;
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() {
+        nutricionista = crearNutricionista("sync.nutricionista@thunderfat.com");
+        paciente = new Paciente();
+        paciente.setDni("11223344S");
+        paciente.setNombre("María, José");
+        paciente.setApellidos("Pérez; López");
+        paciente.setEmail("sync.paciente@example.com");
+        paciente.setFechanacimiento(LocalDate.of(1985, 4, 12));
+        paciente.setNutricionista(nutricionista);
+        paciente.setEnabled(true);
+        entityManager.persist(paciente);
+        entityManager.flush();
+
+        citaService = new CitaServiceJPA(citaRepository, nutricionistaRepository,
+                Mappers.getMapper(CitaMapper.class), mock(CitaConflictIndex.class));
+        syncService = new CalendarioSyncServiceJPA(jdbcTemplate, citaRepository, nutricionistaRepository,
+                new ThunderFatProperties());
+    }
+
+    @Test
+    @DisplayName("Should page a full snapshot and then return nothing until the agenda changes")
+    void fullSnapshotInPages() {
+        List<Integer> ids = reservar(5);
+
+        List<CalendarioEventoDTO> vistos = new ArrayList<>();
+        CalendarioSyncDTO pagina = syncService.sincronizar(nutricionista.getId(), null, 2);
+        int paginas = 1;
+        vistos.addAll(pagina.getEventos());
+        while (pagina.isHayMas()) {
+            assertThat(pagina.isCompleto()).isTrue();
+            pagina = syncService.sincronizar(nutricionista.getId(), pagina.getToken(), 2);
+            vistos.addAll(pagina.getEventos());
+            paginas++;
+        }
+
+        assertThat(paginas).isEqualTo(3);
+        assertThat(vistos).extracting(CalendarioEventoDTO::getId).containsExactlyElementsOf(ids);
+        assertThat(vistos.get(0).getPacienteNombre()).isEqualTo("María, José Pérez; López");
+
+        CalendarioSyncDTO alDia = syncService.sincronizar(nutricionista.getId(), pagina.getToken(), 2);
+        assertThat(alDia.isCompleto()).isFalse();
+        assertThat(alDia.isHayMas()).isFalse();
+        assertThat(alDia.getEventos()).isEmpty();
+        assertThat(alDia.getCancelados()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should return updates and cancellations since the token in commit order")
+    void deltaSinceToken() {
+        List<Integer> ids = reservar(3);
+        String token = sincronizarTodo(null);
+
+        citaService.update(ids.get(0), cita(DIA.atTime(17, 0)));
+        citaService.deleteById(ids.get(1));
+        Integer nueva = citaService.create(cita(DIA.atTime(18, 0))).getId();
+        entityManager.clear();
+
+        CalendarioSyncDTO delta = syncService.sincronizar(nutricionista.getId(), token, 100);
+        assertThat(delta.isCompleto()).isFalse();
+        assertThat(delta.isHayMas()).isFalse();
+        assertThat(delta.getEventos()).extracting(CalendarioEventoDTO::getId).containsExactly(ids.get(0), nueva);
+        assertThat(delta.getEventos().get(0).getInicio()).isEqualTo(DIA.atTime(17, 0));
+        assertThat(delta.getCancelados()).containsExactly(ids.get(1));
+
+        // A page of one change at a time still yields every change exactly once
+        List<Integer> cambios = new ArrayList<>();
+        CalendarioSyncDTO pagina;
+        do {
+            pagina = syncService.sincronizar(nutricionista.getId(), token, 1);
+            pagina.getEventos().forEach(evento -> cambios.add(evento.getId()));
+            cambios.addAll(pagina.getCancelados());
+            token = pagina.getToken();
+        } while (pagina.isHayMas());
+        assertThat(cambios).containsExactly(ids.get(0), ids.get(1), nueva);
+    }
+
+    @Test
+    @DisplayName("Should report a moved appointment as cancelled to the previous nutritionist")
+    void appointmentMovedToAnotherNutritionist() {
+        Integer id = reservar(1).get(0);
+        String token = sincronizarTodo(null);
+        Nutricionista otra = crearNutricionista("sync.otra@thunderfat.com");
+
+        CitaDTO cambio = cita(DIA.atTime(9, 0));
+        cambio.setNutricionistaId(otra.getId());
+        citaService.update(id, cambio);
+
+        assertThat(syncService.sincronizar(nutricionista.getId(), token, 100).getCancelados()).containsExactly(id);
+        assertThat(syncService.sincronizar(otra.getId(), null, 100).getEventos())
+                .extracting(CalendarioEventoDTO::getId).containsExactly(id);
+    }
+
+    @Test
+    @DisplayName("Should report the appointments of a deleted patient as cancelled")
+    void patientDeleteCascadesToTombstones() {
+        List<Integer> ids = reservar(2);
+        String token = sincronizarTodo(null);
+        PacienteServiceJPA pacienteService = new PacienteServiceJPA(pacienteRepository, nutricionistaRepository,
+                null, null, mock(PacienteSearchIndex.class), citaRepository, mock(CitaConflictIndex.class));
+
+        pacienteService.deleteById(paciente.getId());
+        entityManager.flush();
+
+        CalendarioSyncDTO delta = syncService.sincronizar(nutricionista.getId(), token, 100);
+        assertThat(delta.getEventos()).isEmpty();
+        assertThat(delta.getCancelados()).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    @DisplayName("Should reject tokens issued for another nutritionist or tampered with")
+    void invalidToken() {
+        reservar(1);
+        Nutricionista otra = crearNutricionista("sync.ajena@thunderfat.com");
+        String ajeno = syncService.sincronizar(otra.getId(), null, 10).getToken();
+
+        assertThatThrownBy(() -> syncService.sincronizar(nutricionista.getId(), ajeno, 10))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Token de sincronización no válido");
+        assertThatThrownBy(() -> syncService.sincronizar(nutricionista.getId(), "no-es-un-token", 10))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Token de sincronización no válido");
+    }
+
+    @Test
+    @DisplayName("Should change the calendar ETag only when an appointment changes")
+    void etagFollowsAgendaVersion() {
+        List<Integer> ids = reservar(2);
+        String antes = syncService.etagCalendario(nutricionista.getId(), DIA, DIA);
+        assertThat(syncService.etagCalendario(nutricionista.getId(), DIA, DIA)).isEqualTo(antes).startsWith("W/\"");
+
+        citaService.deleteById(ids.get(0));
+        assertThat(syncService.etagCalendario(nutricionista.getId(), DIA, DIA)).isNotEqualTo(antes);
+        assertThatThrownBy(() -> syncService.etagCalendario(nutricionista.getId(), DIA, DIA.minusDays(1)))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should stream the date range as an RFC 5545 document")
+    void exportIcs() {
+        List<Integer> ids = reservar(3);
+        entityManager.clear();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        long eventos = syncService.exportarIcs(nutricionista.getId(), DIA, DIA, salida);
+
+        String ics = salida.toString(StandardCharsets.UTF_8);
+        assertThat(eventos).isEqualTo(3);
+        assertThat(ics).startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n").endsWith("END:VCALENDAR\r\n");
+        assertThat(ics).contains("UID:cita-" + ids.get(0) + "@thunderfat\r\n",
+                "DTSTART:20310203T090000\r\n", "DTEND:20310203T094500\r\n",
+                "SUMMARY:Cita con María\\, José Pérez\\; López\r\n");
+        assertThat(ics.split("BEGIN:VEVENT", -1)).hasSize(4);
+        for (String linea : ics.split("\r\n")) {
+            assertThat(linea.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(75);
+        }
+        assertThat(syncService.exportarIcs(nutricionista.getId(), DIA.plusDays(1), DIA.plusDays(1),
+                new ByteArrayOutputStream())).isZero();
+    }
+
+    private Nutricionista crearNutricionista(String email) {
+        Nutricionista nueva = new Nutricionista();
+        nueva.setEmail(email);
+        nueva.setNombre("Laura");
+        nueva.setApellidos("Sync");
+        nueva.setEnabled(true);
+        entityManager.persist(nueva);
+        entityManager.flush();
+        return nueva;
+    }
+
+    /** Books appointments at 9:00, 10:00, ... on {@link #DIA} and returns their IDs in booking order */
+    private List<Integer> reservar(int cuantas) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < cuantas; i++) {
+            ids.add(citaService.create(cita(DIA.atTime(9 + i, 0))).getId());
+        }
+        entityManager.clear();
+        return ids;
+    }
+
+    private CitaDTO cita(LocalDateTime inicio) {
+        return CitaDTO.builder()
+                .fechaInicio(inicio)
+                .fechaFin(inicio.plusMinutes(45))
+                .pacienteId(paciente.getId())
+                .nutricionistaId(nutricionista.getId())
+                .build();
+    }
+
+    private String sincronizarTodo(String token) {
+        CalendarioSyncDTO pagina;
+        do {
+            pagina = syncService.sincronizar(nutricionista.getId(), token, 100);
+            token = pagina.getToken();
+        } while (pagina.isHayMas());
+        return token;
+    }
+}
@@ -0,0 +1,202 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Concurrent bookings against an in-memory database. Every booking runs in its own
+ * committed transaction on a pool thread, so the per-nutritionist lock is what keeps
+ * two overlapping requests from both passing the conflict check.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:citaconcurrenttest;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+    "spring.datasource.hikari.maximum-pool-size=40"
+})
+@ActiveProfiles("test")
+@DisplayName("Concurrent Appointment Booking Tests")
+class CitaConcurrentBookingTest {
+
+    private static final int NUTRICIONISTAS = 2;
+    private static final int HUECOS = 10;
+    private static final int INTENTOS_POR_HUECO = 20;
+    private static final int HILOS = 32;
+    private static final LocalDateTime PRIMER_HUECO = LocalDateTime.of(2030, 3, 4, 8, 0);
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    private TransactionTemplate transaccion;
+    private CitaServiceJPA citaService;
+    private List<Integer> nutricionistaIds;
+    private Integer pacienteId;
+
+    @BeforeEach
+    void setUp() {
+        transaccion = new TransactionTemplate(transactionManager);
+        citaService = new CitaServiceJPA(citaRepository, nutricionistaRepository,
+                Mappers.getMapper(CitaMapper.class),
+                new CitaConflictIndex(citaRepository, new ThunderFatProperties()));
+
+        nutricionistaIds = transaccion.execute(status -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < NUTRICIONISTAS; i++) {
+                Nutricionista nutricionista = new Nutricionista();
+                nutricionista.setEmail("concurrente" + i + "@thunderfat.com");
+                nutricionista.setNombre("Dr. Concurrente" + i);
+                nutricionista.setApellidos("Reserva");
+                nutricionista.setEnabled(true);
+                ids.add(nutricionistaRepository.save(nutricionista).getId());
+            }
+            return ids;
+        });
+        pacienteId = transaccion.execute(status -> {
+            Paciente paciente = new Paciente();
+            paciente.setDni("87654321X");
+            paciente.setNombre("Paciente");
+            paciente.setApellidos("Concurrente");
+            paciente.setEmail("concurrente@example.com");
+            paciente.setFechanacimiento(LocalDate.of(1990, 5, 5));
+            paciente.setEnabled(true);
+            return pacienteRepository.save(paciente).getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM cita");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should book exactly one appointment per slot when overlapping requests race")
+    void shouldBookExactlyOnePerSlot() throws Exception {
+        // Every request for a slot starts 0-38 minutes after the slot and lasts 45 minutes,
+        // so all of them overlap each other; slots are two hours apart and never overlap
+        List<CitaDTO> solicitudes = new ArrayList<>();
+        for (Integer nutricionistaId : nutricionistaIds) {
+            for (int hueco = 0; hueco < HUECOS; hueco++) {
+                LocalDateTime base = PRIMER_HUECO.plusHours(2L * hueco);
+                for (int intento = 0; intento < INTENTOS_POR_HUECO; intento++) {
+                    LocalDateTime inicio = base.plusMinutes(2L * intento);
+                    solicitudes.add(CitaDTO.builder()
+                            .fechaInicio(inicio)
+                            .fechaFin(inicio.plusMinutes(45))
+                            .pacienteId(pacienteId)
+                            .nutricionistaId(nutricionistaId)
+                            .build());
+                }
+            }
+        }
+        Collections.shuffle(solicitudes);
+
+        AtomicInteger reservadas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        Map<String, Throwable> errores = new ConcurrentHashMap<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        long inicio = System.nanoTime();
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (CitaDTO solicitud : solicitudes) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    try {
+                        transaccion.executeWithoutResult(status -> citaService.create(solicitud));
+                        reservadas.incrementAndGet();
+                    } catch (BusinessException e) {
+                        rechazadas.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        errores.put(solicitud.getNutricionistaId() + "@" + solicitud.getFechaInicio(), e);
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        log.info("{} concurrent bookings on {} threads: {} booked, {} rejected in {} ms",
+                 solicitudes.size(), HILOS, reservadas.get(), rechazadas.get(),
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+        assertThat(errores).isEmpty();
+        assertThat(reservadas.get()).isEqualTo(NUTRICIONISTAS * HUECOS);
+        assertThat(rechazadas.get()).isEqualTo(solicitudes.size() - NUTRICIONISTAS * HUECOS);
+        for (Integer nutricionistaId : nutricionistaIds) {
+            for (int hueco = 0; hueco < HUECOS; hueco++) {
+                LocalDateTime base = PRIMER_HUECO.plusHours(2L * hueco);
+                Integer enHueco = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM cita WHERE id_nutricionista = ? AND fechaini >= ? AND fechaini < ?",
+                        Integer.class, nutricionistaId, base, base.plusHours(1));
+                assertThat(enHueco).as("appointments for nutritionist %d at %s", nutricionistaId, base).isEqualTo(1);
+            }
+        }
+    }
+}
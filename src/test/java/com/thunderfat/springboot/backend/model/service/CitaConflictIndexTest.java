@@ -0,0 +1,198 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+
+/**
+ * Unit tests for the in-memory appointment conflict index.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CitaConflictIndex Tests")
+class CitaConflictIndexTest {
+
+    private static final int NUTRICIONISTA_ID = 1;
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    private ThunderFatProperties properties;
+    private CitaConflictIndex index;
+    private LocalDateTime manana;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ThunderFatProperties();
+        index = new CitaConflictIndex(citaRepository, properties);
+        manana = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(new Object[] {10, manana.withHour(9), manana.withHour(10)});
+        filas.add(new Object[] {11, manana.withHour(11), manana.withHour(11).plusMinutes(30)});
+        filas.add(new Object[] {12, manana.withHour(16), manana.withHour(17)});
+        lenient().when(citaRepository.findIntervalosDesde(eq(NUTRICIONISTA_ID), any())).thenReturn(filas);
+    }
+
+    private Optional<List<Integer>> solapes(int desdeHora, int desdeMinuto, int hastaHora, int hastaMinuto, Integer excluir) {
+        return index.buscarSolapes(NUTRICIONISTA_ID, manana.withHour(desdeHora).withMinute(desdeMinuto),
+                manana.withHour(hastaHora).withMinute(hastaMinuto), excluir);
+    }
+
+    @Test
+    @DisplayName("Should load a nutritionist lazily once and answer overlap checks from memory")
+    void shouldLoadLazilyAndFindOverlaps() {
+        assertThat(solapes(9, 30, 10, 30, null)).contains(List.of(10));
+        assertThat(solapes(10, 15, 10, 45, null)).contains(List.of());
+        assertThat(solapes(8, 0, 18, 0, null).orElseThrow()).containsExactlyInAnyOrder(10, 11, 12);
+        // Same closed-interval rule as the repository query: touching endpoints clash
+        assertThat(solapes(10, 0, 10, 30, null)).contains(List.of(10));
+
+        verify(citaRepository, times(1)).findIntervalosDesde(eq(NUTRICIONISTA_ID), any());
+    }
+
+    @Test
+    @DisplayName("Should ignore the appointment being updated")
+    void shouldExcludeAppointmentBeingUpdated() {
+        assertThat(solapes(9, 0, 9, 45, 10)).contains(List.of());
+        assertThat(solapes(9, 0, 11, 15, 10)).contains(List.of(11));
+    }
+
+    @Test
+    @DisplayName("Should report ranges before the load time as not covered")
+    void shouldNotCoverPastRanges() {
+        LocalDateTime ayer = LocalDateTime.now().minusDays(1);
+        assertThat(index.buscarSolapes(NUTRICIONISTA_ID, ayer, ayer.plusHours(1), null)).isEmpty();
+        assertThat(index.buscarSolapes(null, manana, manana.plusHours(1), null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stay coherent on create, move and delete")
+    void shouldApplyWrites() {
+        solapes(0, 0, 0, 1, null);
+
+        index.registrar(13, NUTRICIONISTA_ID, manana.withHour(13), manana.withHour(14));
+        assertThat(solapes(13, 30, 13, 45, null)).contains(List.of(13));
+
+        index.registrar(10, NUTRICIONISTA_ID, manana.withHour(19), manana.withHour(20));
+        assertThat(solapes(9, 15, 9, 45, null)).contains(List.of());
+        assertThat(solapes(19, 15, 19, 45, null)).contains(List.of(10));
+
+        index.registrar(12, 2, manana.withHour(16), manana.withHour(17));
+        assertThat(solapes(16, 15, 16, 45, null)).contains(List.of());
+
+        index.eliminar(11);
+        assertThat(solapes(11, 0, 11, 30, null)).contains(List.of());
+
+        verify(citaRepository, times(1)).findIntervalosDesde(eq(NUTRICIONISTA_ID), any());
+    }
+
+    @Test
+    @DisplayName("Should reload a partition after invalidation or once its TTL has passed")
+    void shouldReloadAfterInvalidationOrTtl() {
+        solapes(9, 0, 9, 30, null);
+        index.invalidar(NUTRICIONISTA_ID);
+        solapes(9, 0, 9, 30, null);
+        verify(citaRepository, times(2)).findIntervalosDesde(eq(NUTRICIONISTA_ID), any());
+
+        properties.getCitaConflictos().setTtl(Duration.ZERO);
+        solapes(9, 0, 9, 30, null);
+        verify(citaRepository, times(3)).findIntervalosDesde(eq(NUTRICIONISTA_ID), any());
+    }
+
+    @Test
+    @DisplayName("Should load outside the map lock and let writes committed during the load win")
+    void shouldApplyWritesCommittedDuringLoad() {
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(new Object[] {10, manana.withHour(9), manana.withHour(10)});
+        filas.add(new Object[] {11, manana.withHour(11), manana.withHour(11).plusMinutes(30)});
+        when(citaRepository.findIntervalosDesde(eq(NUTRICIONISTA_ID), any())).thenAnswer(invocacion -> {
+            // A lookup while the partition loads is not covered instead of waiting for the query
+            assertThat(solapes(9, 0, 9, 30, null)).isEmpty();
+            index.eliminar(10);
+            index.registrar(11, NUTRICIONISTA_ID, manana.withHour(15), manana.withHour(16));
+            return filas;
+        });
+
+        assertThat(solapes(8, 0, 12, 0, null)).contains(List.of());
+        assertThat(solapes(15, 0, 15, 30, null)).contains(List.of(11));
+    }
+
+    @Test
+    @DisplayName("Should forget the appointments of dropped partitions")
+    void shouldBoundAppointmentMap() {
+        solapes(9, 0, 9, 30, null);
+        index.registrar(20, 2, manana.withHour(9), manana.withHour(10));
+        assertThat(index.citasConocidas()).isEqualTo(3);
+
+        index.invalidar(NUTRICIONISTA_ID);
+        assertThat(index.citasConocidas()).isZero();
+
+        solapes(9, 0, 9, 30, null);
+        properties.getCitaConflictos().setTtl(Duration.ZERO);
+        solapes(9, 0, 9, 30, null);
+        assertThat(index.citasConocidas()).isEqualTo(3);
+
+        index.invalidarTodo();
+        assertThat(index.citasConocidas()).isZero();
+    }
+
+    @Test
+    @DisplayName("Interval tree should agree with a linear scan under random inserts and deletes")
+    void intervalTreeShouldMatchLinearScan() {
+        CitaConflictIndex.IntervalTree arbol = new CitaConflictIndex.IntervalTree();
+        Map<Integer, long[]> referencia = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int paso = 0; paso < 5_000; paso++) {
+            int id = random.nextInt(400);
+            long[] actual = referencia.get(id);
+            if (actual != null && random.nextBoolean()) {
+                arbol.eliminar(actual[0], id);
+                referencia.remove(id);
+            } else if (actual == null) {
+                long inicio = random.nextInt(10_000);
+                long fin = inicio + 1 + random.nextInt(240);
+                arbol.insertar(inicio, fin, id);
+                referencia.put(id, new long[] {inicio, fin});
+            }
+
+            long desde = random.nextInt(10_000);
+            long hasta = desde + random.nextInt(300);
+            Integer excluir = random.nextBoolean() ? id : null;
+            List<Integer> esperado = new ArrayList<>();
+            referencia.forEach((clave, intervalo) -> {
+                if (intervalo[0] <= hasta && intervalo[1] >= desde && !clave.equals(excluir)) {
+                    esperado.add(clave);
+                }
+            });
+            assertThat(arbol.solapes(desde, hasta, excluir)).containsExactlyInAnyOrderElementsOf(esperado);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Appointment DTO assembly against an in-memory database: every listing must resolve
+ * the patient and nutritionist names in the statements of the page itself, so a page
+ * of 50 costs the same number of statements as a page of 5.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.datasource.url=jdbc:h2:mem:citadtoassemblytest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Appointment DTO Assembly Tests")
+class CitaDtoAssemblyTest {
+
+    private static final int CITAS = 60;
+    private static final LocalDate DIA = LocalDate.of(2030, 6, 3);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    private Statistics statistics;
+    private CitaServiceJPA citaService;
+    private Nutricionista nutricionista;
+    private Paciente primerPaciente;
+
+    @BeforeEach
+    void setUp() {
+        nutricionista = new Nutricionista();
+        nutricionista.setEmail("dto.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Ana");
+        nutricionista.setApellidos("García");
+        nutricionista.setEnabled(true);
+        entityManager.persist(nutricionista);
+
+        // One patient per appointment, so lazy loading would cost one select per row
+        for (int i = 0; i < CITAS; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dD", i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Apellido" + i);
+            paciente.setEmail("dto.paciente" + i + "@example.com");
+            paciente.setFechanacimiento(LocalDate.of(1980, 1, 1).plusDays(i));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            entityManager.persist(paciente);
+            primerPaciente = primerPaciente == null ? paciente : primerPaciente;
+
+            Cita cita = new Cita();
+            cita.setFechaini(DIA.atTime(8, 0).plusMinutes(10L * i));
+            cita.setFechafin(DIA.atTime(8, 0).plusMinutes(10L * i + 30));
+            cita.setPaciente(paciente);
+            cita.setNutricionista(nutricionista);
+            entityManager.persist(cita);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        citaService = new CitaServiceJPA(citaRepository, nutricionistaRepository,
+                Mappers.getMapper(CitaMapper.class), mock(CitaConflictIndex.class));
+    }
+
+    @Test
+    @DisplayName("Should assemble date-range pages with a constant number of statements")
+    void dateRangePage() {
+        assertConstant(size -> citaService.findByNutricionistaIdAndDateRange(nutricionista.getId(),
+                DIA, DIA, PageRequest.of(0, size)).getContent(), 2);
+    }
+
+    @Test
+    @DisplayName("Should assemble the upcoming agenda with a constant number of statements")
+    void upcomingPage() {
+        int dias = (int) ChronoUnit.DAYS.between(LocalDateTime.now(), DIA.plusDays(1).atStartOfDay()) + 1;
+        assertConstant(size -> citaService.findUpcomingAppointments(nutricionista.getId(), dias,
+                PageRequest.of(0, size)).getContent(), 2);
+    }
+
+    @Test
+    @DisplayName("Should assemble all-appointment pages and slices with a constant number of statements")
+    void allPages() {
+        assertConstant(size -> citaService.findAllPaginated(PageRequest.of(0, size)).getContent(), 2);
+        assertConstant(size -> citaService.findAllSlice(PageRequest.of(0, size)).getContent(), 1);
+        assertConstant(size -> citaService.findByDateRange(DIA, DIA, PageRequest.of(0, size)).getContent(), 2);
+    }
+
+    @Test
+    @DisplayName("Should assemble non-paginated listings and single appointments in one statement")
+    @SuppressWarnings("deprecation")
+    void listsAndSingleAppointment() {
+        List<CitaDTO> todas = medir(() -> citaService.buscarPorNutricionista(nutricionista.getId()), 1);
+        assertThat(todas).hasSize(CITAS).allSatisfy(this::assertNombres);
+
+        Integer citaId = todas.get(0).getId();
+        CitaDTO una = medir(() -> citaService.findById(citaId).orElseThrow(), 1);
+        assertNombres(una);
+
+        CitaDTO proxima = medir(() -> citaService.buscarProximaCita(primerPaciente.getId(), DIA), 1);
+        assertThat(proxima.getPacienteNombre()).isEqualTo("Paciente0 Apellido0");
+    }
+
+    @Test
+    @DisplayName("Should resolve the names of conflicting appointments from the database and from the index")
+    void conflictingAppointments() {
+        LocalDateTime desde = DIA.atTime(8, 0);
+        LocalDateTime hasta = DIA.atTime(8, 45);
+        List<CitaDTO> conflictos = medir(() -> citaService.findConflictingAppointments(
+                nutricionista.getId(), desde, hasta, null), 1);
+        assertThat(conflictos).hasSize(5).allSatisfy(this::assertNombres);
+
+        List<CitaDTO> sinPrimera = medir(() -> citaService.findConflictingAppointments(
+                nutricionista.getId(), desde, hasta, conflictos.get(0).getId()), 1);
+        assertThat(sinPrimera).hasSize(4).allSatisfy(this::assertNombres);
+
+        CitaConflictIndex indice = mock(CitaConflictIndex.class);
+        List<Integer> ids = conflictos.stream().map(CitaDTO::getId).toList();
+        when(indice.buscarSolapes(nutricionista.getId(), desde, hasta, null)).thenReturn(Optional.of(ids));
+        CitaServiceJPA conIndice = new CitaServiceJPA(citaRepository, nutricionistaRepository,
+                Mappers.getMapper(CitaMapper.class), indice);
+        List<CitaDTO> indexados = medir(() -> conIndice.findConflictingAppointments(
+                nutricionista.getId(), desde, hasta, null), 1);
+        assertThat(indexados).hasSize(5).allSatisfy(this::assertNombres);
+    }
+
+    private void assertConstant(IntFunction<List<CitaDTO>> pagina, long sentencias) {
+        List<CitaDTO> pequena = medir(() -> pagina.apply(5), sentencias);
+        List<CitaDTO> grande = medir(() -> pagina.apply(50), sentencias);
+        assertThat(pequena).hasSize(5).allSatisfy(this::assertNombres);
+        assertThat(grande).hasSize(50).allSatisfy(this::assertNombres);
+    }
+
+    private <T> T medir(Supplier<T> consulta, long sentencias) {
+        entityManager.clear();
+        statistics.clear();
+        T resultado = consulta.get();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(sentencias);
+        return resultado;
+    }
+
+    private void assertNombres(CitaDTO dto) {
+        assertThat(dto.getPacienteNombre()).startsWith("Paciente");
+        assertThat(dto.getNutricionistaNombre()).isEqualTo("Ana García");
+    }
+}
@@ -0,0 +1,302 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.CambioSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO.Estado;
+import com.thunderfat.springboot.backend.model.dto.ResultadoSerieCitasDTO.Ocurrencia;
+import com.thunderfat.springboot.backend.model.dto.SerieCitasDTO;
+import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService.Frecuencia;
+import com.thunderfat.springboot.backend.model.service.ICitaSerieService.PoliticaConflictos;
+
+/**
+ * Integration tests for recurring appointment series against an in-memory database.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:citaserietest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("CitaSerieServiceJPA Tests")
+class CitaSerieServiceJPATest {
+
+    private static final LocalDate LUNES = LocalDate.of(2030, 1, 7);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    private CitaRepository citaRepositoryEspia;
+    private CitaConflictIndex citaConflictIndex;
+    private ThunderFatProperties properties;
+    private CitaSerieServiceJPA serieService;
+    private Nutricionista nutricionista;
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() {
+        nutricionista = new Nutricionista();
+        nutricionista.setEmail("serie.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Dr. Serie");
+        nutricionista.setApellidos("Semanal");
+        nutricionista.setEnabled(true);
+        nutricionista = entityManager.persistAndFlush(nutricionista);
+
+        paciente = new Paciente();
+        paciente.setDni("12345678Z");
+        paciente.setNombre("Paciente");
+        paciente.setApellidos("Recurrente");
+        paciente.setEmail("recurrente@example.com");
+        paciente.setFechanacimiento(LocalDate.of(1985, 3, 3));
+        paciente.setNutricionista(nutricionista);
+        paciente.setEnabled(true);
+        paciente = entityManager.persistAndFlush(paciente);
+
+        properties = new ThunderFatProperties();
+        properties.getCitaSeries().setMaxOcurrencias(20);
+        citaRepositoryEspia = mock(CitaRepository.class, delegatesTo(citaRepository));
+        citaConflictIndex = mock(CitaConflictIndex.class);
+        serieService = new CitaSerieServiceJPA(jdbcTemplate, citaRepositoryEspia, pacienteRepository,
+                nutricionistaRepository, Mappers.getMapper(CitaMapper.class), citaConflictIndex,
+                new CalendarioLaboral(properties), properties);
+    }
+
+    private SerieCitasDTO semanal(int ocurrencias, PoliticaConflictos politica) {
+        return SerieCitasDTO.builder()
+                .pacienteId(paciente.getId())
+                .nutricionistaId(nutricionista.getId())
+                .fechaInicio(LUNES.atTime(10, 0))
+                .duracionMinutos(45)
+                .frecuencia(Frecuencia.SEMANAL)
+                .ocurrencias(ocurrencias)
+                .politica(politica)
+                .build();
+    }
+
+    private Cita citaExistente(LocalDateTime inicio, int minutos) {
+        Cita cita = new Cita();
+        cita.setFechaini(inicio);
+        cita.setFechafin(inicio.plusMinutes(minutos));
+        cita.setNutricionista(nutricionista);
+        cita.setPaciente(paciente);
+        return entityManager.persistAndFlush(cita);
+    }
+
+    private long citasDeSerie(String serie) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cita WHERE serie = ?", Long.class, serie);
+    }
+
+    @Test
+    @DisplayName("Should book every occurrence with one range query and one batch")
+    void shouldBookWeeklySeries() {
+        ResultadoSerieCitasDTO resultado = serieService.crear(semanal(8, PoliticaConflictos.RECHAZAR));
+
+        assertThat(resultado.isCreada()).isTrue();
+        assertThat(resultado.getSolicitadas()).isEqualTo(8);
+        assertThat(resultado.getCreadas()).isEqualTo(8);
+        assertThat(resultado.getConflictos()).isZero();
+        assertThat(resultado.getOcurrencias()).extracting(Ocurrencia::getInicio)
+                .containsExactly(LUNES.atTime(10, 0), LUNES.plusWeeks(1).atTime(10, 0), LUNES.plusWeeks(2).atTime(10, 0),
+                        LUNES.plusWeeks(3).atTime(10, 0), LUNES.plusWeeks(4).atTime(10, 0), LUNES.plusWeeks(5).atTime(10, 0),
+                        LUNES.plusWeeks(6).atTime(10, 0), LUNES.plusWeeks(7).atTime(10, 0));
+        assertThat(resultado.getOcurrencias()).allSatisfy(ocurrencia -> assertThat(ocurrencia.getCitaId()).isNotNull());
+        assertThat(citasDeSerie(resultado.getSerie())).isEqualTo(8);
+        verify(citaRepositoryEspia, times(1)).findIntervalosEntre(any(), any(), any());
+        verify(citaConflictIndex, times(8)).registrar(any(), any(), any(), any());
+
+        List<CitaDTO> citas = serieService.findBySerie(resultado.getSerie());
+        assertThat(citas).hasSize(8);
+        assertThat(citas).allSatisfy(cita -> assertThat(cita.getSerie()).isEqualTo(resultado.getSerie()));
+    }
+
+    @Test
+    @DisplayName("Should keep the day of month of the first occurrence in monthly series")
+    void shouldExpandMonthlySeries() {
+        SerieCitasDTO serie = semanal(0, PoliticaConflictos.RECHAZAR);
+        serie.setFrecuencia(Frecuencia.MENSUAL);
+        serie.setOcurrencias(null);
+        serie.setFechaInicio(LocalDateTime.of(2030, 1, 31, 9, 0));
+        serie.setHastaFecha(LocalDate.of(2030, 4, 15));
+
+        ResultadoSerieCitasDTO resultado = serieService.crear(serie);
+
+        assertThat(resultado.getOcurrencias()).extracting(ocurrencia -> ocurrencia.getInicio().toLocalDate())
+                .containsExactly(LocalDate.of(2030, 1, 31), LocalDate.of(2030, 2, 28), LocalDate.of(2030, 3, 31));
+    }
+
+    @Test
+    @DisplayName("Should book nothing and report the clashes when rejecting")
+    void shouldRejectClashingSeries() {
+        Cita existente = citaExistente(LUNES.plusWeeks(2).atTime(10, 30), 30);
+
+        ResultadoSerieCitasDTO resultado = serieService.crear(semanal(4, PoliticaConflictos.RECHAZAR));
+
+        assertThat(resultado.isCreada()).isFalse();
+        assertThat(resultado.getSerie()).isNull();
+        assertThat(resultado.getConflictos()).isEqualTo(1);
+        Ocurrencia tercera = resultado.getOcurrencias().get(2);
+        assertThat(tercera.getEstado()).isEqualTo(Estado.CONFLICTO);
+        assertThat(tercera.getConflictoCon()).containsExactly(existente.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cita", Long.class)).isEqualTo(1);
+        verify(citaConflictIndex, never()).registrar(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should skip clashing occurrences and book the rest")
+    void shouldSkipClashingOccurrences() {
+        citaExistente(LUNES.plusWeeks(1).atTime(9, 30), 45);
+
+        ResultadoSerieCitasDTO resultado = serieService.crear(semanal(4, PoliticaConflictos.OMITIR));
+
+        assertThat(resultado.isCreada()).isTrue();
+        assertThat(resultado.getCreadas()).isEqualTo(3);
+        assertThat(resultado.getOmitidas()).isEqualTo(1);
+        assertThat(resultado.getOcurrencias()).extracting(Ocurrencia::getEstado)
+                .containsExactly(Estado.CREADA, Estado.OMITIDA, Estado.CREADA, Estado.CREADA);
+        assertThat(resultado.getOcurrencias().get(1).getCitaId()).isNull();
+        assertThat(citasDeSerie(resultado.getSerie())).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should shift clashing occurrences to the nearest free slot of the same day")
+    void shouldShiftClashingOccurrences() {
+        // Blocks 10:05-11:10 with the buffer: 09:15 is 45 minutes away, 11:15 is 75
+        citaExistente(LUNES.plusWeeks(1).atTime(10, 15), 45);
+
+        ResultadoSerieCitasDTO resultado = serieService.crear(semanal(3, PoliticaConflictos.DESPLAZAR));
+
+        Ocurrencia segunda = resultado.getOcurrencias().get(1);
+        assertThat(segunda.getEstado()).isEqualTo(Estado.DESPLAZADA);
+        assertThat(segunda.getInicioSolicitado()).isEqualTo(LUNES.plusWeeks(1).atTime(10, 0));
+        assertThat(segunda.getInicio()).isEqualTo(LUNES.plusWeeks(1).atTime(9, 15));
+        assertThat(segunda.getFin()).isEqualTo(LUNES.plusWeeks(1).atTime(10, 0));
+        assertThat(resultado.getDesplazadas()).isEqualTo(1);
+        assertThat(citasDeSerie(resultado.getSerie())).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should reject rules without an end or beyond the configured maximum")
+    void shouldRejectInvalidRules() {
+        SerieCitasDTO sinFin = semanal(1, PoliticaConflictos.RECHAZAR);
+        sinFin.setOcurrencias(null);
+        assertThatThrownBy(() -> serieService.crear(sinFin)).isInstanceOf(BusinessValidationException.class);
+
+        assertThatThrownBy(() -> serieService.crear(semanal(21, PoliticaConflictos.RECHAZAR)))
+                .isInstanceOf(BusinessValidationException.class);
+
+        SerieCitasDTO hastaLejano = semanal(100, PoliticaConflictos.RECHAZAR);
+        hastaLejano.setOcurrencias(null);
+        hastaLejano.setHastaFecha(LUNES.plusYears(1));
+        assertThatThrownBy(() -> serieService.crear(hastaLejano)).isInstanceOf(BusinessValidationException.class);
+        verify(citaRepositoryEspia, never()).findIntervalosEntre(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should move pending occurrences and leave clashing ones unchanged")
+    void shouldChangeSeries() {
+        String serie = serieService.crear(semanal(4, PoliticaConflictos.RECHAZAR)).getSerie();
+        Cita existente = citaExistente(LUNES.plusWeeks(2).atTime(17, 0), 45);
+
+        ResultadoSerieCitasDTO resultado = serieService.modificar(serie, CambioSerieCitasDTO.builder()
+                .desde(LUNES.plusWeeks(1))
+                .nuevaHora(LocalTime.of(17, 0))
+                .politica(PoliticaConflictos.OMITIR)
+                .build());
+        entityManager.clear();
+
+        assertThat(resultado.isCreada()).isTrue();
+        assertThat(resultado.getOcurrencias()).extracting(Ocurrencia::getEstado)
+                .containsExactly(Estado.CREADA, Estado.OMITIDA, Estado.CREADA);
+        assertThat(resultado.getOcurrencias().get(1).getConflictoCon()).containsExactly(existente.getId());
+        assertThat(citaRepository.findBySerie(serie)).extracting(Cita::getFechaini)
+                .containsExactly(LUNES.atTime(10, 0), LUNES.plusWeeks(1).atTime(17, 0),
+                        LUNES.plusWeeks(2).atTime(10, 0), LUNES.plusWeeks(3).atTime(17, 0));
+        assertThat(citaRepository.findBySerie(serie).get(1).getFechafin()).isEqualTo(LUNES.plusWeeks(1).atTime(17, 45));
+        verify(citaRepositoryEspia, times(2)).findIntervalosEntre(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not report a moved occurrence as clashing with its own old time")
+    void shouldResizeWithoutSelfConflicts() {
+        String serie = serieService.crear(semanal(3, PoliticaConflictos.RECHAZAR)).getSerie();
+
+        ResultadoSerieCitasDTO resultado = serieService.modificar(serie, CambioSerieCitasDTO.builder()
+                .duracionMinutos(60)
+                .build());
+        entityManager.clear();
+
+        assertThat(resultado.isCreada()).isTrue();
+        assertThat(resultado.getConflictos()).isZero();
+        assertThat(citaRepository.findBySerie(serie)).allSatisfy(cita ->
+                assertThat(cita.getFechafin()).isEqualTo(cita.getFechaini().plusMinutes(60)));
+    }
+
+    @Test
+    @DisplayName("Should cancel the pending occurrences from a date with one delete")
+    void shouldCancelSeriesFromDate() {
+        String serie = serieService.crear(semanal(5, PoliticaConflictos.RECHAZAR)).getSerie();
+
+        int canceladas = serieService.cancelar(serie, LUNES.plusWeeks(3));
+
+        assertThat(canceladas).isEqualTo(2);
+        assertThat(citasDeSerie(serie)).isEqualTo(3);
+        verify(citaConflictIndex, times(2)).eliminar(anyInt());
+        assertThat(serieService.cancelar(serie, LUNES.plusWeeks(3))).isZero();
+        assertThatThrownBy(() -> serieService.cancelar("no-existe", null))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+}
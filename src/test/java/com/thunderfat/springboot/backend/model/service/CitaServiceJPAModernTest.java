@@ -26,6 +26,7 @@ import org.springframework.data.domain.Pageable;
 import com.thunderfat.springboot.backend.exception.BusinessException;
 import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
 import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
 import com.thunderfat.springboot.backend.model.dto.CitaDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.CitaMapper;
 import com.thunderfat.springboot.backend.model.entity.Cita;
@@ -51,9 +52,15 @@ class CitaServiceJPAModernTest {
     @Mock
     private CitaRepository citaRepository;
     
+    @Mock
+    private NutricionistaRepository nutricionistaRepository;
+    
     @Mock
     private CitaMapper citaMapper;
     
+    @Mock
+    private CitaConflictIndex citaConflictIndex;
+    
     @InjectMocks
     private CitaServiceJPA citaService;
     
@@ -136,6 +143,7 @@ class CitaServiceJPAModernTest {
             Cita newCita = new Cita();
             newCita.setId(1);
             
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.of(1));
             when(citaMapper.toEntity(testCitaDTO)).thenReturn(testCita);
             when(citaRepository.findConflictingAppointments(any(), any(), any())).thenReturn(Arrays.asList());
             when(citaRepository.save(testCita)).thenReturn(newCita);
@@ -146,6 +154,7 @@ class CitaServiceJPAModernTest {
             
             // Then
             assertThat(result).isNotNull();
+            verify(nutricionistaRepository).lockAgenda(1);
             verify(citaRepository).findConflictingAppointments(any(), any(), any());
             verify(citaRepository).save(testCita);
         }
@@ -154,6 +163,7 @@ class CitaServiceJPAModernTest {
         @DisplayName("Should update appointment successfully")
         void shouldUpdateAppointmentSuccessfully() {
             // Given
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.of(1));
             when(citaRepository.existsById(1)).thenReturn(true);
             when(citaMapper.toEntity(testCitaDTO)).thenReturn(testCita);
             when(citaRepository.findConflictingAppointmentsExcluding(any(), any(), any(), any())).thenReturn(Arrays.asList());
@@ -168,6 +178,7 @@ class CitaServiceJPAModernTest {
             assertThat(result.getId()).isEqualTo(1);
             verify(citaRepository).existsById(1);
             verify(citaRepository).findConflictingAppointmentsExcluding(any(), any(), any(), eq(1));
+            verify(nutricionistaRepository).reservarVersionesAgenda(1, 1);
             verify(citaRepository).save(testCita);
         }
         
@@ -175,6 +186,7 @@ class CitaServiceJPAModernTest {
         @DisplayName("Should throw exception when updating non-existent appointment")
         void shouldThrowExceptionWhenUpdatingNonExistentAppointment() {
             // Given
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.of(1));
             when(citaRepository.existsById(999)).thenReturn(false);
             
             // When & Then
@@ -182,6 +194,7 @@ class CitaServiceJPAModernTest {
                     .isInstanceOf(ResourceNotFoundException.class)
                     .hasMessageContaining("Cita no encontrada con ID: 999");
             
+            verify(citaRepository).lockNutricionistaIdById(999);
             verify(citaRepository).existsById(999);
             verifyNoMoreInteractions(citaRepository);
         }
@@ -190,13 +203,17 @@ class CitaServiceJPAModernTest {
         @DisplayName("Should delete appointment successfully")
         void shouldDeleteAppointmentSuccessfully() {
             // Given
-            when(citaRepository.existsById(1)).thenReturn(true);
+            when(citaRepository.lockNutricionistaIdById(1)).thenReturn(Optional.of(1));
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.of(1));
+            when(nutricionistaRepository.reservarVersionesAgenda(1, 1)).thenReturn(7L);
             
             // When
             citaService.deleteById(1);
             
             // Then
-            verify(citaRepository).existsById(1);
+            verify(citaRepository).lockNutricionistaIdById(1);
+            verify(nutricionistaRepository).lockAgenda(1);
+            verify(citaRepository).registrarCancelacion(1, 1, 7L);
             verify(citaRepository).deleteById(1);
         }
         
@@ -354,6 +371,66 @@ class CitaServiceJPAModernTest {
             assertThat(result).isFalse();
         }
         
+        @Test
+        @DisplayName("Should answer a free slot from the conflict index without a range query")
+        void shouldValidateFreeSlotFromConflictIndex() {
+            // Given
+            when(citaConflictIndex.buscarSolapes(eq(1), any(), any(), eq(1))).thenReturn(Optional.of(List.of()));
+            
+            // When
+            boolean result = citaService.validateAppointmentScheduling(testCitaDTO);
+            
+            // Then
+            assertThat(result).isTrue();
+            verify(citaRepository, never()).findConflictingAppointmentsExcluding(any(), any(), any(), any());
+        }
+        
+        @Test
+        @DisplayName("Should confirm a clash reported by the index against the database")
+        void shouldConfirmIndexedClashWithDatabase() {
+            // Given
+            when(citaConflictIndex.buscarSolapes(eq(1), any(), any(), eq(1))).thenReturn(Optional.of(List.of(7)));
+            when(citaRepository.findConflictingAppointmentsExcluding(any(), any(), any(), eq(1))).thenReturn(List.of());
+            
+            // When
+            boolean result = citaService.validateAppointmentScheduling(testCitaDTO);
+            
+            // Then
+            assertThat(result).isTrue();
+            verify(citaConflictIndex).invalidar(1);
+        }
+        
+        @Test
+        @DisplayName("Should confirm a free slot reported by the index against the database on create")
+        void shouldConfirmIndexedFreeSlotWithDatabase() {
+            // Given
+            testCitaDTO.setId(null);
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.of(1));
+            when(citaConflictIndex.buscarSolapes(eq(1), any(), any(), isNull())).thenReturn(Optional.of(List.of()));
+            when(citaRepository.findConflictingAppointments(any(), any(), any())).thenReturn(Arrays.asList(testCita));
+            
+            // When & Then
+            assertThatThrownBy(() -> citaService.create(testCitaDTO))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("Ya existe una cita");
+            verify(citaConflictIndex).invalidar(1);
+            verify(citaRepository, never()).save(any());
+        }
+        
+        @Test
+        @DisplayName("Should reject a booking for an unknown nutritionist before checking conflicts")
+        void shouldRejectBookingForUnknownNutritionist() {
+            // Given
+            testCitaDTO.setId(null);
+            when(nutricionistaRepository.lockAgenda(1)).thenReturn(Optional.empty());
+            
+            // When & Then
+            assertThatThrownBy(() -> citaService.create(testCitaDTO))
+                    .isInstanceOf(ResourceNotFoundException.class)
+                    .hasMessageContaining("Nutricionista no encontrado con ID: 1");
+            verifyNoInteractions(citaRepository);
+        }
+        
         @Test
         @DisplayName("Should throw exception for invalid time range")
         void shouldThrowExceptionForInvalidTimeRange() {
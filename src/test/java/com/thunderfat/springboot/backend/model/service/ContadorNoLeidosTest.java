@@ -0,0 +1,308 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.LecturaChatDTO;
+import com.thunderfat.springboot.backend.model.dto.MensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.NoLeidosDTO;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Unread counters against an in-memory database, moved by the chat message writer and
+ * by read receipts. Both commit on their own, so the test data is committed too and
+ * removed after each test.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:contadornoleidostest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Unread Message Counter Tests")
+class ContadorNoLeidosTest {
+
+    private static final int CHATS = 3;
+    private static final String NUTRICIONISTA = "noleidos.nutricionista@thunderfat.com";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeRepository mensajeRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    private final Queue<NoLeidosDTO> notificadosNutricionista = new ConcurrentLinkedQueue<>();
+    private SimpMessagingTemplate messagingTemplate;
+    private ContadorNoLeidos contador;
+    private MensajeWriteBehind escritor;
+    private int nutricionistaId;
+    private List<Integer> pacienteIds;
+    private List<Integer> chatIds;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail(NUTRICIONISTA);
+        nutricionista.setNombre("Marta");
+        nutricionista.setApellidos("Ruiz");
+        nutricionista.setEnabled(true);
+        nutricionistaId = nutricionistaRepository.save(nutricionista).getId();
+
+        pacienteIds = new ArrayList<>();
+        chatIds = new ArrayList<>();
+        for (int i = 0; i < CHATS; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dX", 50_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("NoLeidos");
+            paciente.setEmail(emailPaciente(i));
+            paciente.setFechanacimiento(LocalDate.of(1985, 6, 1));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            pacienteIds.add(pacienteRepository.save(paciente).getId());
+
+            Chat chat = new Chat();
+            chat.setPaciente(paciente);
+            chat.setNutricionista(nutricionista);
+            chat.setFechahora(LocalDateTime.now());
+            chatIds.add(chatRepository.save(chat).getId_chat());
+        }
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        doAnswer(invocacion -> notificadosNutricionista.add(invocacion.getArgument(2)))
+                .when(messagingTemplate).convertAndSendToUser(eq(NUTRICIONISTA), eq(ContadorNoLeidos.COLA_NO_LEIDOS),
+                                                               any(Object.class));
+
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        contador = new ContadorNoLeidos(chatRepository, mensajeRepository, messagingTemplate,
+                                        beans.getBeanProvider(AlmacenNoLeidos.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (escritor != null) {
+            escritor.detener();
+        }
+        jdbcTemplate.update("DELETE FROM mensaje");
+        jdbcTemplate.update("DELETE FROM chat");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should rebuild the counters of both participants from the stored messages")
+    void shouldReconcileFromDatabase() {
+        // Read before there were watermarks: seeds the nutritionist's watermark
+        jdbcTemplate.update("UPDATE chat SET leido_hasta_paciente = NULL, leido_hasta_nutricionista = NULL");
+        insertar(0, pacienteIds.get(0), true, 3);
+        insertar(0, pacienteIds.get(0), false, 4);
+        insertar(0, nutricionistaId, false, 2);
+        insertar(2, pacienteIds.get(2), false, 5);
+
+        contador.reconciliar();
+
+        assertThat(contador.porChat(nutricionistaId))
+                .isEqualTo(Map.of(chatIds.get(0), 4L, chatIds.get(2), 5L));
+        assertThat(contador.total(nutricionistaId)).isEqualTo(9);
+        assertThat(contador.porChat(pacienteIds.get(0))).isEqualTo(Map.of(chatIds.get(0), 2L));
+        assertThat(contador.total(pacienteIds.get(1))).isZero();
+        assertThat(contador.resumen(NUTRICIONISTA)).extracting(NoLeidosDTO::getTotal).containsOnly(9L);
+        assertThat(chatRepository.existsLeidoHastaSinSembrar()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should mark messages read up to a watermark that only moves forward")
+    void shouldMoveReadWatermarkForward() {
+        insertar(1, pacienteIds.get(1), false, 6);
+        contador.reconciliar();
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id_mensaje FROM mensaje WHERE id_chat = ? ORDER BY id_mensaje", Integer.class, chatIds.get(1));
+        MensajeServiceJPA mensajes = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                new StaticListableBeanFactory().getBeanProvider(MensajeSearchIndex.class));
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+        LecturaChatDTO lectura = transaccion.execute(
+                status -> mensajes.marcarLeidosHasta(chatIds.get(1), NUTRICIONISTA, ids.get(3)));
+        assertThat(lectura.getHasta()).isEqualTo(ids.get(3));
+        assertThat(contador.porChat(nutricionistaId)).isEqualTo(Map.of(chatIds.get(1), 2L));
+        assertThat(mensajeRepository.countNoLeidosByChatIdAndEmisorId(chatIds.get(1), pacienteIds.get(1))).isEqualTo(2);
+        assertThat(mensajes.historial(chatIds.get(1), null, null, 50).getItems())
+                .extracting(MensajeDTO::isLeido).containsExactly(false, false, true, true, true, true);
+
+        // An older receipt, e.g. from another device, changes nothing
+        LecturaChatDTO antigua = transaccion.execute(
+                status -> mensajes.marcarLeidosHasta(chatIds.get(1), NUTRICIONISTA, ids.get(1)));
+        assertThat(antigua).isNull();
+        assertThat(contador.total(nutricionistaId)).isEqualTo(2);
+
+        // Past the newest message the watermark stops at it
+        LecturaChatDTO todo = transaccion.execute(
+                status -> mensajes.marcarLeidosHasta(chatIds.get(1), NUTRICIONISTA, Integer.MAX_VALUE));
+        assertThat(todo.getHasta()).isEqualTo(ids.get(5));
+        assertThat(contador.total(nutricionistaId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT leido_hasta_nutricionista FROM chat WHERE id_chat = ?",
+                Integer.class, chatIds.get(1))).isEqualTo(ids.get(5));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mensaje WHERE leido = true", Integer.class))
+                .as("no message row is written").isZero();
+
+        contador.reconciliar();
+        assertThat(contador.total(nutricionistaId)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should count stored messages for the recipient and discount them on a read receipt")
+    void shouldFollowStoredAndReadMessages() throws Exception {
+        contador.reconciliar();
+        escritor = nuevoEscritor();
+        escritor.iniciar();
+        for (int n = 0; n < 10; n++) {
+            escritor.encolar("p-" + n, chatIds.get(n % 2), emailPaciente(n % 2), "hola " + n, "TEXT");
+        }
+        escritor.encolar("n-0", chatIds.get(0), NUTRICIONISTA, "hola", "TEXT");
+        assertThat(escritor.vaciar(Duration.ofSeconds(10))).isTrue();
+
+        assertThat(contador.total(nutricionistaId)).isEqualTo(10);
+        assertThat(contador.porChat(nutricionistaId)).isEqualTo(Map.of(chatIds.get(0), 5L, chatIds.get(1), 5L));
+        assertThat(contador.total(pacienteIds.get(0))).isEqualTo(1);
+        assertThat(notificadosNutricionista).isNotEmpty()
+                .extracting(NoLeidosDTO::getTotal).isSorted().last().isEqualTo(10L);
+
+        MensajeServiceJPA mensajes = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                new StaticListableBeanFactory().getBeanProvider(MensajeSearchIndex.class));
+        int leidos = new TransactionTemplate(transactionManager)
+                .execute(status -> mensajes.marcarLeidos(chatIds.get(0), NUTRICIONISTA));
+
+        assertThat(leidos).isEqualTo(5);
+        assertThat(contador.porChat(nutricionistaId)).isEqualTo(Map.of(chatIds.get(1), 5L));
+        assertThat(contador.total(nutricionistaId)).isEqualTo(5);
+        assertThat(contador.total(pacienteIds.get(0))).as("the reader's own message stays unread").isEqualTo(1);
+        NoLeidosDTO ultimo = new ArrayList<>(notificadosNutricionista).get(notificadosNutricionista.size() - 1);
+        assertThat(ultimo).isEqualTo(new NoLeidosDTO(chatIds.get(0), 0, 5));
+
+        // The counters agree with a rebuild from the database
+        contador.reconciliar();
+        assertThat(contador.total(nutricionistaId)).isEqualTo(5);
+        assertThat(contador.total(pacienteIds.get(0))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should leave the counters alone when the read receipt rolls back")
+    void shouldIgnoreRolledBackReadReceipt() {
+        insertar(1, pacienteIds.get(1), false, 3);
+        contador.reconciliar();
+        MensajeServiceJPA mensajes = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                new StaticListableBeanFactory().getBeanProvider(MensajeSearchIndex.class));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(mensajes.marcarLeidos(chatIds.get(1), NUTRICIONISTA)).isEqualTo(3);
+            status.setRollbackOnly();
+        });
+
+        assertThat(contador.total(nutricionistaId)).isEqualTo(3);
+        assertThat(notificadosNutricionista).isEmpty();
+        assertThat(mensajeRepository.countNoLeidosByChatIdAndEmisorId(chatIds.get(1), pacienteIds.get(1))).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should recount a chat once messages are deleted or stored outside the writer")
+    void shouldRecountDeletedAndExternalMessages() {
+        insertar(0, pacienteIds.get(0), false, 4);
+        insertar(1, pacienteIds.get(1), false, 2);
+        contador.reconciliar();
+        MensajeServiceJPA mensajes = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                new StaticListableBeanFactory().getBeanProvider(MensajeSearchIndex.class));
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Integer primero = jdbcTemplate.queryForObject(
+                "SELECT MIN(id_mensaje) FROM mensaje WHERE id_chat = ?", Integer.class, chatIds.get(0));
+
+        transaccion.executeWithoutResult(status -> {
+            mensajes.eliminarPorId(primero);
+            assertThat(contador.porChat(nutricionistaId)).as("not before the commit").containsEntry(chatIds.get(0), 4L);
+        });
+        assertThat(contador.porChat(nutricionistaId)).isEqualTo(Map.of(chatIds.get(0), 3L, chatIds.get(1), 2L));
+
+        transaccion.executeWithoutResult(status -> mensajes.eliminarPorChat(chatIds.get(1)));
+        assertThat(contador.porChat(nutricionistaId)).isEqualTo(Map.of(chatIds.get(0), 3L));
+        assertThat(new ArrayList<>(notificadosNutricionista).get(notificadosNutricionista.size() - 1))
+                .isEqualTo(new NoLeidosDTO(chatIds.get(1), 0, 3));
+
+        // Stored without the writer, e.g. through the repository resource
+        insertar(0, pacienteIds.get(0), false, 2);
+        contador.recontar(chatIds.get(0));
+        assertThat(contador.total(nutricionistaId)).isEqualTo(5);
+    }
+
+    private MensajeWriteBehind nuevoEscritor() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        return new MensajeWriteBehind(chatRepository, mensajeRepository, jdbcTemplate, transactionManager,
+                messagingTemplate, beans.getBeanProvider(CacheManager.class), contador,
+                beans.getBeanProvider(MensajeSearchIndex.class), new ThunderFatProperties());
+    }
+
+    private void insertar(int chat, int emisorId, boolean leido, int cuantos) {
+        for (int n = 0; n < cuantos; n++) {
+            jdbcTemplate.update("INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat) VALUES (?, ?, ?, ?, ?)",
+                    "mensaje " + n, LocalDateTime.now(), emisorId, leido, chatIds.get(chat));
+        }
+    }
+
+    private static String emailPaciente(int i) {
+        return "noleidos.paciente" + i + "@example.com";
+    }
+}
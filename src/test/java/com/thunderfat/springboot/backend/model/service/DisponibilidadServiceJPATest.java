@@ -0,0 +1,194 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dto.HuecoDisponibleDTO;
+
+/**
+ * Unit tests for the free-slot availability search.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DisponibilidadServiceJPA Tests")
+class DisponibilidadServiceJPATest {
+
+    private static final LocalDate LUNES = LocalDate.of(2030, 1, 7);
+
+    @Mock
+    private CitaRepository citaRepository;
+
+    @Mock
+    private NutricionistaRepository nutricionistaRepository;
+
+    private ThunderFatProperties properties;
+    private DisponibilidadServiceJPA service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ThunderFatProperties();
+        properties.getAgenda().setDescansos(List.of("11:30-11:45"));
+        service = new DisponibilidadServiceJPA(citaRepository, nutricionistaRepository,
+                new CalendarioLaboral(properties), properties);
+    }
+
+    private static Object[] cita(int nutricionistaId, LocalDate dia, String inicio, String fin) {
+        return new Object[] {nutricionistaId, dia.atTime(LocalTime.parse(inicio)), dia.atTime(LocalTime.parse(fin))};
+    }
+
+    private static List<LocalTime> horas(List<HuecoDisponibleDTO> huecos) {
+        return huecos.stream().map(hueco -> hueco.getInicio().toLocalTime()).toList();
+    }
+
+    @Test
+    @DisplayName("Should offer slots aligned to the step inside working hours of an empty day")
+    void shouldOfferSlotsOnEmptyDay() {
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(List.of());
+
+        List<HuecoDisponibleDTO> huecos = service.buscarHuecos(1, LUNES, LUNES, 45, 3);
+
+        assertThat(horas(huecos)).containsExactly(LocalTime.of(9, 0), LocalTime.of(9, 15), LocalTime.of(9, 30));
+        assertThat(huecos.get(0).getFin()).isEqualTo(LUNES.atTime(9, 45));
+        assertThat(huecos).allSatisfy(hueco -> assertThat(hueco.getNutricionistaId()).isEqualTo(1));
+        verify(citaRepository).findIntervalosEntre(List.of(1), LUNES.atStartOfDay().minusMinutes(10),
+                LUNES.plusDays(1).atStartOfDay().plusMinutes(10));
+    }
+
+    @Test
+    @DisplayName("Should keep the buffer around appointments and skip breaks")
+    void shouldRespectBufferAndBreaks() {
+        when(citaRepository.findIntervalosEntre(any(), any(), any()))
+                .thenReturn(List.<Object[]>of(cita(1, LUNES, "10:00", "10:45")));
+
+        List<HuecoDisponibleDTO> huecos = service.buscarHuecos(1, LUNES, LUNES, 45, 3);
+
+        // 09:50-10:55 blocked by the appointment plus buffer, 11:30-11:45 by the break
+        assertThat(horas(huecos)).containsExactly(LocalTime.of(9, 0), LocalTime.of(11, 45), LocalTime.of(12, 0));
+    }
+
+    @Test
+    @DisplayName("Should skip closed days and continue into the next working day")
+    void shouldSkipClosedDays() {
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(List.of());
+        LocalDate sabado = LUNES.minusDays(2);
+
+        assertThat(service.buscarHuecos(1, sabado, sabado.plusDays(1), 30, 5)).isEmpty();
+        List<HuecoDisponibleDTO> huecos = service.buscarHuecos(1, sabado, LUNES, 30, 1);
+        assertThat(huecos).extracting(HuecoDisponibleDTO::getInicio).containsExactly(LUNES.atTime(9, 0));
+    }
+
+    @Test
+    @DisplayName("Should fill a day and move to the afternoon and the next day")
+    void shouldSpillOverBusyPeriods() {
+        List<Object[]> citas = new ArrayList<>();
+        citas.add(cita(1, LUNES, "09:00", "14:00"));
+        citas.add(cita(1, LUNES, "16:00", "19:00"));
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(citas);
+
+        List<HuecoDisponibleDTO> huecos = service.buscarHuecos(1, LUNES, LUNES.plusDays(1), 45, 2);
+
+        // 19:10-20:00 leaves room for one slot; the next one is on Tuesday
+        assertThat(huecos).extracting(HuecoDisponibleDTO::getInicio)
+                .containsExactly(LUNES.atTime(19, 15), LUNES.plusDays(1).atTime(9, 0));
+    }
+
+    @Test
+    @DisplayName("Should never offer slots that have already started")
+    void shouldNotOfferPastSlots() {
+        List<HuecoDisponibleDTO> huecos = new CalendarioLaboral(properties)
+                .huecos(1, List.of(), LUNES, LUNES, 30, 2, LUNES.atTime(12, 7));
+
+        assertThat(horas(huecos)).containsExactly(LocalTime.of(12, 15), LocalTime.of(12, 30));
+    }
+
+    @Test
+    @DisplayName("Should use a nutritionist's own working hours where configured")
+    void shouldUsePerNutritionistHours() {
+        properties.getAgenda().setJornadaNutricionista(Map.of(2, Map.of(DayOfWeek.MONDAY, List.of("15:00-18:00"))));
+        service = new DisponibilidadServiceJPA(citaRepository, nutricionistaRepository,
+                new CalendarioLaboral(properties), properties);
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(List.of());
+
+        assertThat(horas(service.buscarHuecos(2, LUNES, LUNES, 60, 1))).containsExactly(LocalTime.of(15, 0));
+        assertThat(horas(service.buscarHuecos(2, LUNES.plusDays(1), LUNES.plusDays(1), 60, 1)))
+                .containsExactly(LocalTime.of(9, 0));
+    }
+
+    @Test
+    @DisplayName("Should merge the earliest slots of every nutritionist with a single appointment query")
+    void shouldSearchAcrossClinic() {
+        when(nutricionistaRepository.findIdsActivos()).thenReturn(List.of(1, 2, 3));
+        List<Object[]> citas = new ArrayList<>();
+        citas.add(cita(1, LUNES, "09:00", "12:00"));
+        citas.add(cita(2, LUNES, "09:00", "09:30"));
+        citas.add(cita(3, LUNES, "09:00", "13:00"));
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(citas);
+
+        List<HuecoDisponibleDTO> huecos = service.buscarHuecosClinica(LUNES, LUNES.plusDays(4), 30, 3);
+
+        assertThat(huecos).extracting(HuecoDisponibleDTO::getNutricionistaId).containsExactly(2, 2, 2);
+        assertThat(horas(huecos)).containsExactly(LocalTime.of(9, 45), LocalTime.of(10, 0), LocalTime.of(10, 15));
+        verify(citaRepository).findIntervalosEntre(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid searches")
+    void shouldRejectInvalidSearches() {
+        assertThatThrownBy(() -> service.buscarHuecos(1, LUNES, LUNES.minusDays(1), 45, 5))
+                .isInstanceOf(BusinessValidationException.class);
+        assertThatThrownBy(() -> service.buscarHuecos(1, LUNES, LUNES.plusDays(90), 45, 5))
+                .isInstanceOf(BusinessValidationException.class);
+        assertThatThrownBy(() -> service.buscarHuecos(1, LUNES, LUNES, 10, 5))
+                .isInstanceOf(BusinessValidationException.class);
+        assertThatThrownBy(() -> service.buscarHuecos(1, LUNES, LUNES, 45, 0))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should answer a two-week search for a busy nutritionist quickly")
+    void shouldAnswerBusyRangeQuickly() {
+        List<Object[]> citas = new ArrayList<>();
+        for (int dia = 0; dia < 14; dia++) {
+            for (int hora = 9; hora < 20; hora++) {
+                if (hora != 14 && hora != 15) {
+                    citas.add(cita(1, LUNES.plusDays(dia), String.format("%02d:00", hora), String.format("%02d:40", hora)));
+                }
+            }
+        }
+        when(citaRepository.findIntervalosEntre(any(), any(), any())).thenReturn(citas);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            service.buscarHuecos(1, LUNES, LUNES.plusDays(13), 45, 10);
+        }
+        long microsPorBusqueda = (System.nanoTime() - inicio) / 1_000 / 1_000;
+
+        // Every hour is 40 minutes booked plus 10-minute buffers: no 45-minute gap anywhere
+        assertThat(service.buscarHuecos(1, LUNES, LUNES.plusDays(13), 45, 10)).isEmpty();
+        assertThat(service.buscarHuecos(1, LUNES, LUNES.plusDays(13), 15, 1)).isEmpty();
+        assertThat(microsPorBusqueda).isLessThan(5_000);
+    }
+}
@@ -0,0 +1,105 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Mensaje;
+
+/**
+ * Messages created through the exported repository resource.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("REST Message Event Tests")
+class EventosRestMensajeTest {
+
+    private static final int CHAT_ID = 7;
+
+    @Mock
+    private MensajeRepository mensajeRepository;
+
+    @Mock
+    private ContadorNoLeidos contadorNoLeidos;
+
+    @Mock
+    private MensajeWriteBehind mensajeWriteBehind;
+
+    private EventosRestMensaje eventos;
+    private Mensaje mensaje;
+
+    @BeforeEach
+    void setUp() {
+        eventos = new EventosRestMensaje(mensajeRepository, contadorNoLeidos, mensajeWriteBehind);
+        Chat chat = new Chat();
+        chat.setId_chat(CHAT_ID);
+        mensaje = new Mensaje();
+        mensaje.setChat(chat);
+        mensaje.setContenido("Hola");
+    }
+
+    @Test
+    @DisplayName("Should number a created message after the last one of its chat")
+    void shouldNumberAfterLastSequence() {
+        when(mensajeRepository.findUltimasSecuencias(List.of(CHAT_ID)))
+                .thenReturn(List.<Object[]>of(new Object[] {CHAT_ID, 41L}));
+
+        eventos.antesDeCrear(mensaje);
+
+        assertThat(mensaje.getSecuencia()).isEqualTo(42L);
+    }
+
+    @Test
+    @DisplayName("Should number the first message of a chat as 1")
+    void shouldNumberFirstMessage() {
+        when(mensajeRepository.findUltimasSecuencias(List.of(CHAT_ID))).thenReturn(List.of());
+
+        eventos.antesDeCrear(mensaje);
+
+        assertThat(mensaje.getSecuencia()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Should replace a sequence given by the client")
+    void shouldReplaceGivenSequence() {
+        mensaje.setSecuencia(5L);
+        when(mensajeRepository.findUltimasSecuencias(List.of(CHAT_ID)))
+                .thenReturn(List.<Object[]>of(new Object[] {CHAT_ID, 41L}));
+
+        eventos.antesDeCrear(mensaje);
+
+        assertThat(mensaje.getSecuencia()).isEqualTo(42L);
+    }
+
+    @Test
+    @DisplayName("Should recount the unread messages of the chat of a created or deleted message")
+    void shouldRecountChat() {
+        eventos.creado(mensaje);
+        eventos.eliminado(mensaje);
+
+        verify(contadorNoLeidos, times(2)).recontar(CHAT_ID);
+    }
+
+    @Test
+    @DisplayName("Should announce a created message to the inboxes of its chat")
+    void shouldAnnounceCreatedMessage() {
+        eventos.creado(mensaje);
+        eventos.eliminado(mensaje);
+
+        verify(mensajeWriteBehind).anunciar(mensaje);
+    }
+}
@@ -0,0 +1,218 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.ResourceNotFoundException;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.MensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Chat history read by cursor against an in-memory database, including messages stored
+ * by the live message writer, which commits on its own thread; the test data is
+ * therefore committed and removed after each test.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:mensajehistorialtest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Chat History Keyset Pagination Tests")
+class MensajeHistorialTest {
+
+    private static final String NUTRICIONISTA = "historial.nutricionista@thunderfat.com";
+    private static final String PACIENTE = "historial.paciente@example.com";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeRepository mensajeRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    private MensajeServiceJPA mensajeService;
+    private ContadorNoLeidos contador;
+    private SimpMessagingTemplate messagingTemplate;
+    private MensajeWriteBehind escritor;
+    private int pacienteId;
+    private int chatId;
+    private int otroChatId;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail(NUTRICIONISTA);
+        nutricionista.setNombre("Elena");
+        nutricionista.setApellidos("Soler");
+        nutricionista.setEnabled(true);
+        nutricionistaRepository.save(nutricionista);
+
+        List<Integer> chats = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dY", 60_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Historial");
+            paciente.setEmail(i == 0 ? PACIENTE : "historial.otro@example.com");
+            paciente.setFechanacimiento(LocalDate.of(1992, 3, 15));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            int id = pacienteRepository.save(paciente).getId();
+            if (i == 0) {
+                pacienteId = id;
+            }
+
+            Chat chat = new Chat();
+            chat.setPaciente(paciente);
+            chat.setNutricionista(nutricionista);
+            chat.setFechahora(LocalDateTime.now());
+            chats.add(chatRepository.save(chat).getId_chat());
+        }
+        chatId = chats.get(0);
+        otroChatId = chats.get(1);
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        contador = new ContadorNoLeidos(chatRepository, mensajeRepository, messagingTemplate,
+                                        beans.getBeanProvider(AlmacenNoLeidos.class));
+        mensajeService = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                                              beans.getBeanProvider(MensajeSearchIndex.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (escritor != null) {
+            escritor.detener();
+        }
+        jdbcTemplate.update("DELETE FROM mensaje");
+        jdbcTemplate.update("DELETE FROM chat");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should walk the whole history newest first, without gaps or repeats, across equal timestamps")
+    void shouldPageThroughHistory() {
+        // Groups of three messages share a timestamp, so the id breaks the ties
+        LocalDateTime inicio = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int n = 0; n < 120; n++) {
+            insertar(chatId, "m" + n, inicio.plusSeconds(n / 3));
+        }
+        insertar(otroChatId, "otro", inicio.plusDays(1));
+
+        List<String> contenidos = new ArrayList<>();
+        List<Integer> tamanos = new ArrayList<>();
+        String cursor = null;
+        PagedResponseDTO<MensajeDTO> pagina;
+        do {
+            pagina = mensajeService.historial(chatId, cursor, null, 50);
+            tamanos.add(pagina.getItems().size());
+            pagina.getItems().forEach(mensaje -> contenidos.add(mensaje.getContenido()));
+            cursor = pagina.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(tamanos).containsExactly(50, 50, 20);
+        assertThat(pagina.isLast()).isTrue();
+        List<String> esperados = new ArrayList<>();
+        for (int n = 119; n >= 0; n--) {
+            esperados.add("m" + n);
+        }
+        assertThat(contenidos).containsExactlyElementsOf(esperados);
+    }
+
+    @Test
+    @DisplayName("Should continue from the oldest live message into the stored history")
+    void shouldJoinLiveMessagesWithHistory() throws Exception {
+        LocalDateTime ayer = LocalDateTime.now().minusDays(1);
+        for (int n = 0; n < 30; n++) {
+            insertar(chatId, "antiguo" + n, ayer.plusMinutes(n));
+        }
+        escritor = new MensajeWriteBehind(chatRepository, mensajeRepository, jdbcTemplate, transactionManager,
+                messagingTemplate, new StaticListableBeanFactory().getBeanProvider(CacheManager.class), contador,
+                new StaticListableBeanFactory().getBeanProvider(MensajeSearchIndex.class), new ThunderFatProperties());
+        escritor.iniciar();
+        for (int n = 0; n < 20; n++) {
+            escritor.encolar("vivo" + n, chatId, n % 2 == 0 ? PACIENTE : NUTRICIONISTA, "vivo" + n, "TEXT");
+        }
+        assertThat(escritor.vaciar(Duration.ofSeconds(10))).isTrue();
+
+        // The newest page holds the live messages in the order they were broadcast
+        PagedResponseDTO<MensajeDTO> reciente = mensajeService.historial(chatId, null, null, 20);
+        assertThat(reciente.getItems()).extracting(MensajeDTO::getSecuencia)
+                .isSortedAccordingTo((a, b) -> Long.compare(b, a));
+        MensajeDTO masAntiguoVivo = reciente.getItems().get(reciente.getItems().size() - 1);
+        assertThat(masAntiguoVivo.getContenido()).isEqualTo("vivo0");
+
+        PagedResponseDTO<MensajeDTO> anteriores =
+                mensajeService.historial(chatId, null, masAntiguoVivo.getIdMensaje(), 50);
+        assertThat(anteriores.getItems()).hasSize(30).first()
+                .extracting(MensajeDTO::getContenido).isEqualTo("antiguo29");
+        assertThat(anteriores.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reject a message of another chat as the starting point")
+    void shouldRejectMessageOfAnotherChat() {
+        insertar(otroChatId, "otro", LocalDateTime.now());
+        Integer ajeno = jdbcTemplate.queryForObject("SELECT MAX(id_mensaje) FROM mensaje", Integer.class);
+
+        assertThatThrownBy(() -> mensajeService.historial(chatId, null, ajeno, 50))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private void insertar(int chat, String contenido, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat) VALUES (?, ?, ?, ?, ?)",
+                contenido, timestamp, pacienteId, false, chat);
+    }
+}
@@ -0,0 +1,230 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chat message search over a large history on H2: 1,000,000 messages spread over 100
+ * chats of one nutritionist ({@code -Dcarga.mensajes} to change it), indexed on disk
+ * and searched through the same path as the REST endpoint, database checks included.
+ * Latency of a common word, a rare word, two words and a single-chat search is logged as
+ * median and maximum of repeated searches, next to a {@code LIKE} scan of the same
+ * messages for contrast, and loosely bounded.
+ *
+ * Tagged {@code carga} and left out of the normal build; run it with {@code mvn test -Pcarga}.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@Tag("carga")
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:mensajesearchbenchmark;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Chat Message Search Benchmark Tests")
+class MensajeSearchIndexBenchmarkTest {
+
+    private static final String NUTRICIONISTA = "benchmark.busqueda@thunderfat.com";
+    private static final int CHATS = 100;
+    private static final int LOTE_INSERCION = 100_000;
+    private static final int CADA_RARA = 10_007;
+    private static final int CALENTAMIENTO = 5;
+    private static final int ITERACIONES = 50;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    /**
+     * Message X goes to chat X mod {@link #CHATS}; each chat takes four phrasings in turn,
+     * plus a rare word every {@link #CADA_RARA} messages
+     */
+    private static final String INSERT_MENSAJES =
+            "INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat, secuencia) "
+            + "SELECT CASE MOD(r.X / " + CHATS + ", 4) "
+            + "WHEN 0 THEN 'Esta semana seguimos con la dieta mediterránea' "
+            + "WHEN 1 THEN 'Mañana me peso en la báscula antes de desayunar' "
+            + "WHEN 2 THEN 'Te paso una receta de cena ligera con verduras' "
+            + "ELSE 'Hoy toca entrenamiento de fuerza y estiramientos' END "
+            + "|| CASE WHEN MOD(r.X, " + CADA_RARA + ") = 0 THEN ' con quinoa' ELSE '' END, "
+            + "DATEADD(SECOND, r.X, CAST(? AS TIMESTAMP)), "
+            + "CASE WHEN MOD(r.X / " + 4 * CHATS + ", 2) = 0 THEN c.nutricionista ELSE c.paciente END, "
+            + "TRUE, c.id_chat, r.X "
+            + "FROM SYSTEM_RANGE(?, ?) r "
+            + "JOIN (SELECT id_chat, paciente, nutricionista, ROW_NUMBER() OVER (ORDER BY id_chat) - 1 AS k FROM chat) c "
+            + "ON c.k = MOD(r.X, " + CHATS + ")";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeRepository mensajeRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @TempDir
+    private Path carpeta;
+
+    private MensajeSearchIndex indice;
+
+    private record Medida(double medianaMs, double maximoMs, long total) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (indice != null) {
+            indice.detener();
+        }
+        jdbcTemplate.update("DELETE FROM mensaje");
+        jdbcTemplate.update("DELETE FROM chat");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should search millions of chat messages in milliseconds")
+    void shouldSearchMillionsOfMessagesInMilliseconds() {
+        int mensajes = Integer.getInteger("carga.mensajes", 1_000_000);
+        String paciente = crearChats();
+
+        long inicio = System.nanoTime();
+        for (int desde = 1; desde <= mensajes; desde += LOTE_INSERCION) {
+            jdbcTemplate.update(INSERT_MENSAJES, BASE, desde, Math.min(desde + LOTE_INSERCION - 1, mensajes));
+        }
+        long insercionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        ThunderFatProperties properties = new ThunderFatProperties();
+        properties.getBusquedaMensajes().setDirectorio(carpeta.toString());
+        properties.getBusquedaMensajes().setLote(10_000);
+        indice = new MensajeSearchIndex(mensajeRepository, chatRepository, properties);
+        inicio = System.nanoTime();
+        assertThat(indice.sincronizar()).isEqualTo(mensajes);
+        long indexacionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        Medida comun = medir(() -> indice.buscar(NUTRICIONISTA, "dietas", null, 0, 20));
+        Medida rara = medir(() -> indice.buscar(NUTRICIONISTA, "quinoa", null, 0, 20));
+        Medida dosPalabras = medir(() -> indice.buscar(NUTRICIONISTA, "receta cena", null, 0, 20));
+        Medida unChat = medir(() -> indice.buscar(paciente, "bascula", null, 0, 20));
+
+        inicio = System.nanoTime();
+        Integer conLike = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mensaje m JOIN chat c ON c.id_chat = m.id_chat "
+                + "JOIN usuario u ON u.id = c.nutricionista WHERE u.email = ? AND LOWER(m.contenido) LIKE '%quinoa%'",
+                Integer.class, NUTRICIONISTA);
+        long likeMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        log.info("{} messages in {} chats: inserted in {} ms, indexed in {} ms", mensajes, CHATS, insercionMs, indexacionMs);
+        log.info("Common word, all chats:  median {} ms, max {} ms, {} hits", comun.medianaMs(), comun.maximoMs(), comun.total());
+        log.info("Rare word, all chats:    median {} ms, max {} ms, {} hits", rara.medianaMs(), rara.maximoMs(), rara.total());
+        log.info("Two words, all chats:    median {} ms, max {} ms, {} hits", dosPalabras.medianaMs(), dosPalabras.maximoMs(), dosPalabras.total());
+        log.info("Common word, one chat:   median {} ms, max {} ms, {} hits", unChat.medianaMs(), unChat.maximoMs(), unChat.total());
+        log.info("LIKE scan (old), rare word: {} ms, {} rows", likeMs, conLike);
+
+        int maxResultados = properties.getBusquedaMensajes().getMaxResultados();
+        assertThat(comun.total()).isEqualTo(Math.min(mensajes / 4, maxResultados));
+        assertThat(rara.total()).isEqualTo(mensajes / CADA_RARA).isEqualTo(conLike.longValue());
+        assertThat(dosPalabras.total()).isEqualTo(Math.min(mensajes / 4, maxResultados));
+        assertThat(unChat.total()).isEqualTo(Math.min(mensajes / CHATS / 4, maxResultados));
+
+        assertThat(comun.medianaMs()).isLessThan(100);
+        assertThat(rara.medianaMs()).isLessThan(100);
+        assertThat(dosPalabras.medianaMs()).isLessThan(100);
+        assertThat(unChat.medianaMs()).isLessThan(100);
+    }
+
+    /**
+     * One nutritionist with {@link #CHATS} patients, one chat each.
+     *
+     * @return email of the patient of the first chat
+     */
+    private String crearChats() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail(NUTRICIONISTA);
+        nutricionista.setNombre("Marta");
+        nutricionista.setApellidos("Bench");
+        nutricionista.setEnabled(true);
+        nutricionistaRepository.save(nutricionista);
+
+        for (int i = 0; i < CHATS; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dB", 80_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Bench");
+            paciente.setEmail("benchmark.paciente" + i + "@example.com");
+            paciente.setFechanacimiento(LocalDate.of(1990, 2, 1));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            pacienteRepository.save(paciente);
+
+            Chat chat = new Chat();
+            chat.setPaciente(paciente);
+            chat.setNutricionista(nutricionista);
+            chat.setFechahora(LocalDateTime.now());
+            chatRepository.save(chat);
+        }
+        return "benchmark.paciente0@example.com";
+    }
+
+    private Medida medir(Supplier<PagedResponseDTO<ResultadoBusquedaMensajeDTO>> busqueda) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            busqueda.get();
+        }
+        long[] nanos = new long[ITERACIONES];
+        long total = 0;
+        for (int i = 0; i < ITERACIONES; i++) {
+            long inicio = System.nanoTime();
+            PagedResponseDTO<ResultadoBusquedaMensajeDTO> pagina = busqueda.get();
+            nanos[i] = System.nanoTime() - inicio;
+            assertThat(pagina.getItems()).isNotEmpty();
+            total = pagina.getTotal();
+        }
+        Arrays.sort(nanos);
+        return new Medida(milisegundos(nanos[ITERACIONES / 2]), milisegundos(nanos[ITERACIONES - 1]), total);
+    }
+
+    private static double milisegundos(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+}
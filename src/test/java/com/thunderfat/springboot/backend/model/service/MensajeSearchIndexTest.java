@@ -0,0 +1,317 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
+import com.thunderfat.springboot.backend.model.dto.ResultadoBusquedaMensajeDTO;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Chat message search against an in-memory database, with messages stored directly,
+ * by the live message writer and deleted through the service. The writer commits on
+ * its own thread, so the test data is committed and removed after each test.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:mensajesearchindextest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Chat Message Full-Text Search Tests")
+class MensajeSearchIndexTest {
+
+    private static final String NUTRICIONISTA = "busqueda.nutricionista@thunderfat.com";
+    private static final String PACIENTE = "busqueda.paciente@example.com";
+    private static final String OTRO_PACIENTE = "busqueda.otro@example.com";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeRepository mensajeRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @TempDir
+    private Path carpeta;
+
+    private ThunderFatProperties properties;
+    private final List<MensajeSearchIndex> indices = new ArrayList<>();
+    private MensajeWriteBehind escritor;
+    private int pacienteId;
+    private int otroPacienteId;
+    private int chatId;
+    private int otroChatId;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail(NUTRICIONISTA);
+        nutricionista.setNombre("Marta");
+        nutricionista.setApellidos("Gil");
+        nutricionista.setEnabled(true);
+        nutricionistaRepository.save(nutricionista);
+
+        List<Integer> pacientes = new ArrayList<>();
+        List<Integer> chats = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dZ", 70_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Busqueda");
+            paciente.setEmail(i == 0 ? PACIENTE : OTRO_PACIENTE);
+            paciente.setFechanacimiento(LocalDate.of(1988, 6, 1));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            pacientes.add(pacienteRepository.save(paciente).getId());
+
+            Chat chat = new Chat();
+            chat.setPaciente(paciente);
+            chat.setNutricionista(nutricionista);
+            chat.setFechahora(LocalDateTime.now());
+            chats.add(chatRepository.save(chat).getId_chat());
+        }
+        pacienteId = pacientes.get(0);
+        otroPacienteId = pacientes.get(1);
+        chatId = chats.get(0);
+        otroChatId = chats.get(1);
+
+        properties = new ThunderFatProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (escritor != null) {
+            escritor.detener();
+        }
+        indices.forEach(MensajeSearchIndex::detener);
+        jdbcTemplate.update("DELETE FROM mensaje");
+        jdbcTemplate.update("DELETE FROM chat");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should match regardless of accents, case and plurals, and highlight the matched words")
+    void shouldMatchSpanishWordFormsAndHighlight() {
+        insertar(chatId, pacienteId, "Esta semana la nutrición va mejor y sigo la dieta", LocalDateTime.now());
+        insertar(chatId, pacienteId, "Mañana no puedo ir a la consulta", LocalDateTime.now());
+        MensajeSearchIndex indice = nuevoIndice();
+        assertThat(indice.sincronizar()).isEqualTo(2);
+
+        PagedResponseDTO<ResultadoBusquedaMensajeDTO> resultados = indice.buscar(PACIENTE, "NUTRICION Dietas", null, 0, 20);
+
+        assertThat(resultados.getItems()).hasSize(1);
+        ResultadoBusquedaMensajeDTO resultado = resultados.getItems().get(0);
+        assertThat(resultado.getChatId()).isEqualTo(chatId);
+        assertThat(resultado.getEmisorId()).isEqualTo(pacienteId);
+        assertThat(resultado.getFragmento()).contains("<mark>nutrici", "<mark>dieta</mark>");
+        assertThat(indice.buscar(PACIENTE, "manana CONSULTAS", null, 0, 20).getItems()).hasSize(1);
+
+        // Stop words alone leave nothing to search for
+        assertThatThrownBy(() -> indice.buscar(PACIENTE, "de la y", null, 0, 20))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should search only the chats of the user running the search")
+    void shouldScopeToTheUsersChats() {
+        insertar(chatId, pacienteId, "Revisamos el plan de dieta", LocalDateTime.now());
+        insertar(otroChatId, otroPacienteId, "Quiero cambiar el plan de dieta", LocalDateTime.now());
+        MensajeSearchIndex indice = nuevoIndice();
+        indice.sincronizar();
+
+        assertThat(indice.buscar(PACIENTE, "dieta", null, 0, 20).getItems())
+                .extracting(ResultadoBusquedaMensajeDTO::getChatId).containsExactly(chatId);
+        assertThat(indice.buscar(NUTRICIONISTA, "dieta", null, 0, 20).getItems())
+                .extracting(ResultadoBusquedaMensajeDTO::getChatId).containsExactlyInAnyOrder(chatId, otroChatId);
+        assertThat(indice.buscar(NUTRICIONISTA, "dieta", otroChatId, 0, 20).getItems())
+                .extracting(ResultadoBusquedaMensajeDTO::getChatId).containsExactly(otroChatId);
+        assertThat(indice.buscar("nadie@example.com", "dieta", null, 0, 20).getItems()).isEmpty();
+
+        assertThatThrownBy(() -> indice.buscar(PACIENTE, "dieta", otroChatId, 0, 20))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @DisplayName("Should page through equally relevant matches newest first, without gaps or repeats")
+    void shouldPageThroughResults() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 1, 10, 0);
+        for (int n = 0; n < 45; n++) {
+            insertar(chatId, pacienteId, "control revisado " + n, inicio.plusMinutes(n));
+        }
+        MensajeSearchIndex indice = nuevoIndice();
+        indice.sincronizar();
+
+        List<Integer> tamanos = new ArrayList<>();
+        List<LocalDateTime> fechas = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        PagedResponseDTO<ResultadoBusquedaMensajeDTO> pagina;
+        int page = 0;
+        do {
+            pagina = indice.buscar(NUTRICIONISTA, "revisados", chatId, page++, 20);
+            tamanos.add(pagina.getItems().size());
+            pagina.getItems().forEach(resultado -> {
+                fechas.add(resultado.getTimestamp());
+                ids.add(resultado.getIdMensaje());
+            });
+        } while (!pagina.isLast());
+
+        assertThat(tamanos).containsExactly(20, 20, 5);
+        assertThat(pagina.getTotal()).isEqualTo(45L);
+        assertThat(ids).hasSize(45);
+        assertThat(fechas).first().isEqualTo(inicio.plusMinutes(44));
+        assertThat(fechas).isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    @DisplayName("Should index live messages as they are stored and forget deleted ones")
+    void shouldFollowThePersistencePath() throws Exception {
+        MensajeSearchIndex indice = nuevoIndice();
+        indice.sincronizar();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("mensajeSearchIndex", indice));
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        ContadorNoLeidos contador = new ContadorNoLeidos(chatRepository, mensajeRepository, messagingTemplate,
+                                                         beans.getBeanProvider(AlmacenNoLeidos.class));
+        escritor = new MensajeWriteBehind(chatRepository, mensajeRepository, jdbcTemplate, transactionManager,
+                messagingTemplate, beans.getBeanProvider(CacheManager.class), contador,
+                beans.getBeanProvider(MensajeSearchIndex.class), properties);
+        escritor.iniciar();
+        escritor.encolar("a", chatId, PACIENTE, "He subido la foto de la báscula", "TEXT");
+        escritor.encolar("b", chatId, NUTRICIONISTA, "Gracias, la báscula marca bien", "TEXT");
+        escritor.encolar("c", otroChatId, OTRO_PACIENTE, "Mi báscula no funciona", "TEXT");
+        assertThat(escritor.vaciar(Duration.ofSeconds(10))).isTrue();
+
+        // Searchable without waiting for a catch-up
+        List<ResultadoBusquedaMensajeDTO> encontrados = indice.buscar(PACIENTE, "BASCULAS", null, 0, 20).getItems();
+        assertThat(encontrados).hasSize(2);
+
+        MensajeServiceJPA mensajeService = new MensajeServiceJPA(mensajeRepository, chatRepository, contador,
+                                                                 beans.getBeanProvider(MensajeSearchIndex.class));
+        int borrado = encontrados.get(0).getIdMensaje();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> mensajeService.eliminarPorId(borrado));
+        assertThat(indice.buscar(PACIENTE, "bascula", null, 0, 20).getItems())
+                .extracting(ResultadoBusquedaMensajeDTO::getIdMensaje).doesNotContain(borrado).hasSize(1);
+
+        // Deleted behind the index's back, e.g. by another node
+        jdbcTemplate.update("DELETE FROM mensaje WHERE id_chat = ?", otroChatId);
+        assertThat(mensajeService.buscar(OTRO_PACIENTE, "bascula", null, 0, 20).getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should resume an index on disk from the last message it read")
+    void shouldResumeFromDisk() {
+        properties.getBusquedaMensajes().setDirectorio(carpeta.toString());
+        properties.getBusquedaMensajes().setLote(3);
+        for (int n = 0; n < 10; n++) {
+            insertar(chatId, pacienteId, "receta semanal " + n, LocalDateTime.now());
+        }
+        MensajeSearchIndex primero = nuevoIndice();
+        assertThat(primero.sincronizar()).isEqualTo(10);
+        primero.detener();
+        indices.remove(primero);
+
+        insertar(chatId, pacienteId, "otra receta", LocalDateTime.now());
+        MensajeSearchIndex segundo = nuevoIndice();
+        assertThat(segundo.sincronizar()).as("only the message stored meanwhile").isEqualTo(1);
+        assertThat(segundo.buscar(PACIENTE, "recetas", null, 0, 20).getTotal()).isEqualTo(11L);
+    }
+
+    @Test
+    @DisplayName("Should rebuild an index on disk written with other fields")
+    void shouldRebuildIndexOfAnotherVersion() throws IOException {
+        // As written before the chat doc values, with a catch-up point past every message
+        try (FSDirectory directorio = FSDirectory.open(carpeta);
+             IndexWriter antiguo = new IndexWriter(directorio, new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document documento = new Document();
+            documento.add(new IntPoint("chat", chatId));
+            antiguo.addDocument(documento);
+            antiguo.setLiveCommitData(Map.of("ultimoMensajeLeido", "1000000").entrySet());
+            antiguo.commit();
+        }
+        properties.getBusquedaMensajes().setDirectorio(carpeta.toString());
+        for (int n = 0; n < 3; n++) {
+            insertar(chatId, pacienteId, "dieta de verano " + n, LocalDateTime.now());
+        }
+
+        MensajeSearchIndex indice = nuevoIndice();
+
+        assertThat(indice.sincronizar()).isEqualTo(3);
+        assertThat(indice.buscar(PACIENTE, "dietas", null, 0, 20).getTotal()).isEqualTo(3L);
+    }
+
+    private MensajeSearchIndex nuevoIndice() {
+        MensajeSearchIndex indice = new MensajeSearchIndex(mensajeRepository, chatRepository, properties);
+        indices.add(indice);
+        return indice;
+    }
+
+    private void insertar(int chat, int emisorId, String contenido, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat) VALUES (?, ?, ?, ?, ?)",
+                contenido, timestamp, emisorId, false, chat);
+    }
+}
@@ -0,0 +1,450 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.MensajeRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.ConfirmacionMensajeDTO;
+import com.thunderfat.springboot.backend.model.dto.MensajeChatDTO;
+import com.thunderfat.springboot.backend.model.dto.SobreMensajeDTO;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Mensaje;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Live chat message persistence against an in-memory database. The writer commits on
+ * its own thread, so the test data is committed too and removed after each test.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:mensajewritebehindtest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Chat Message Write-Behind Tests")
+class MensajeWriteBehindTest {
+
+    private static final int CHATS = 8;
+    private static final String NUTRICIONISTA = "chat.nutricionista@thunderfat.com";
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeRepository mensajeRepository;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    private final List<MensajeWriteBehind> escritores = new ArrayList<>();
+    private final Queue<MensajeChatDTO> publicados = new ConcurrentLinkedQueue<>();
+    private SimpMessagingTemplate messagingTemplate;
+    private List<Integer> chatIds;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail(NUTRICIONISTA);
+        nutricionista.setNombre("Lucía");
+        nutricionista.setApellidos("Gómez");
+        nutricionista.setEnabled(true);
+        nutricionistaRepository.save(nutricionista);
+
+        chatIds = new ArrayList<>();
+        for (int i = 0; i < CHATS; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dW", 40_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Chat");
+            paciente.setEmail(emailPaciente(i));
+            paciente.setFechanacimiento(LocalDate.of(1990, 1, 1));
+            paciente.setNutricionista(nutricionista);
+            paciente.setEnabled(true);
+            pacienteRepository.save(paciente);
+
+            Chat chat = new Chat();
+            chat.setPaciente(paciente);
+            chat.setNutricionista(nutricionista);
+            chat.setFechahora(LocalDateTime.now());
+            chatIds.add(chatRepository.save(chat).getId_chat());
+        }
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        doAnswer(invocacion -> publicados.add(invocacion.getArgument(1)))
+                .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        escritores.forEach(MensajeWriteBehind::abortar);
+        jdbcTemplate.update("DELETE FROM mensaje");
+        jdbcTemplate.update("DELETE FROM chat");
+        jdbcTemplate.update("DELETE FROM paciente");
+        jdbcTemplate.update("DELETE FROM nutricionista");
+        jdbcTemplate.update("DELETE FROM usuario");
+    }
+
+    @Test
+    @DisplayName("Should store every message in per-chat order under a full queue")
+    void shouldStoreEveryMessageInOrder() throws Exception {
+        int porChat = 2_500;
+        // A small queue keeps the senders blocked on it most of the time
+        MensajeWriteBehind escritor = nuevoEscritor(500, Duration.ofSeconds(30), null);
+        escritor.iniciar();
+
+        long inicio = System.nanoTime();
+        ExecutorService remitentes = Executors.newFixedThreadPool(CHATS);
+        List<Future<Integer>> aceptados = new ArrayList<>();
+        for (int i = 0; i < CHATS; i++) {
+            int chat = i;
+            aceptados.add(remitentes.submit(() -> enviar(escritor, chat, 0, porChat)));
+        }
+        for (Future<Integer> aceptado : aceptados) {
+            assertThat(aceptado.get(60, TimeUnit.SECONDS)).isEqualTo(porChat);
+        }
+        assertThat(escritor.vaciar(Duration.ofSeconds(60))).isTrue();
+        long micros = (System.nanoTime() - inicio) / 1_000;
+        remitentes.shutdown();
+        log.info("Stored {} chat messages in {} ms ({} messages/s)", CHATS * porChat, micros / 1_000,
+                 CHATS * porChat * 1_000_000L / Math.max(micros, 1));
+
+        assertThat(mensajeRepository.count()).isEqualTo((long) CHATS * porChat);
+        for (int i = 0; i < CHATS; i++) {
+            // Contents were sent as 0, 1, 2... and must come back numbered 1, 2, 3... in that order
+            List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+                    "SELECT contenido, secuencia FROM mensaje WHERE id_chat = ? ORDER BY secuencia", chatIds.get(i));
+            assertThat(filas).extracting(fila -> Integer.parseInt((String) fila.get("contenido")))
+                    .containsExactlyElementsOf(LongStream.range(0, porChat).mapToObj(n -> (int) n).toList());
+            assertThat(filas).extracting(fila -> ((Number) fila.get("secuencia")).longValue())
+                    .containsExactlyElementsOf(LongStream.rangeClosed(1, porChat).boxed().toList());
+        }
+        assertThat(publicados).hasSize(CHATS * porChat)
+                .allSatisfy(mensaje -> assertThat(mensaje.getMensajeId()).isNotNull());
+    }
+
+    @Test
+    @DisplayName("Should reject messages once the queue stays full and drain the rest on shutdown")
+    void shouldApplyBackpressureAndDrainOnShutdown() throws Exception {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("mensajes-by-chat");
+        cacheManager.getCache("mensajes-by-chat").put(chatIds.get(0), List.of());
+        MensajeWriteBehind escritor = nuevoEscritor(10, Duration.ofMillis(20), cacheManager);
+
+        // Not started yet: nothing drains the queue
+        assertThat(enviar(escritor, 0, 0, 10)).isEqualTo(10);
+        assertThat(escritor.encolar("m-10", chatIds.get(0), emailPaciente(0), "10", "TEXT")).isFalse();
+        assertThat(escritor.pendientes()).isEqualTo(10);
+
+        escritor.iniciar();
+        escritor.detener();
+
+        assertThat(mensajeRepository.count()).isEqualTo(10);
+        assertThat(publicados).hasSize(10);
+        assertThat(cacheManager.getCache("mensajes-by-chat").get(chatIds.get(0))).isNull();
+        assertThat(escritor.encolar("m-11", chatIds.get(0), emailPaciente(0), "11", "TEXT")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should send one inbox frame per user and batch with the envelopes of all its chats")
+    void shouldFanOutEnvelopesToInboxes() throws Exception {
+        Queue<List<SobreMensajeDTO>> bandejaNutricionista = new ConcurrentLinkedQueue<>();
+        doAnswer(invocacion -> bandejaNutricionista.add(invocacion.getArgument(2)))
+                .when(messagingTemplate).convertAndSendToUser(eq(NUTRICIONISTA), eq(MensajeWriteBehind.BANDEJA),
+                                                               any(Object.class));
+        MensajeWriteBehind escritor = nuevoEscritor(100, Duration.ofSeconds(1), null);
+
+        // Queued before the writer starts, so they are stored as one batch
+        for (int i = 0; i < CHATS; i++) {
+            assertThat(escritor.encolar("b-" + i, chatIds.get(i), emailPaciente(i), "Hola " + i, "TEXT")).isTrue();
+        }
+        String largo = "x".repeat(200);
+        assertThat(escritor.encolar("b-largo", chatIds.get(0), NUTRICIONISTA, largo, "TEXT")).isTrue();
+        escritor.iniciar();
+        assertThat(escritor.vaciar(Duration.ofSeconds(10))).isTrue();
+
+        assertThat(bandejaNutricionista).hasSize(1);
+        List<SobreMensajeDTO> sobres = bandejaNutricionista.poll();
+        assertThat(sobres).hasSize(CHATS + 1)
+                .allSatisfy(sobre -> assertThat(sobre.getMensajeId()).isNotNull());
+        assertThat(sobres).extracting(SobreMensajeDTO::getChatId).containsAll(chatIds);
+        assertThat(sobres.get(CHATS).getResumen()).isEqualTo("x".repeat(140) + "…");
+        assertThat(sobres.get(CHATS).getSecuencia()).isEqualTo(2L);
+
+        // A patient only gets the envelopes of its own chat
+        verify(messagingTemplate).convertAndSendToUser(eq(emailPaciente(0)), eq(MensajeWriteBehind.BANDEJA),
+                argThat((List<SobreMensajeDTO> l) -> l.size() == 2
+                        && l.stream().allMatch(sobre -> sobre.getChatId().equals(chatIds.get(0)))));
+        verify(messagingTemplate).convertAndSendToUser(eq(emailPaciente(1)), eq(MensajeWriteBehind.BANDEJA),
+                argThat((List<SobreMensajeDTO> l) -> l.size() == 1 && "Hola 1".equals(l.get(0).getResumen())));
+    }
+
+    @Test
+    @DisplayName("Should announce a message stored outside the queue to the inboxes of both participants")
+    void shouldAnnounceMessagesStoredElsewhere() {
+        MensajeWriteBehind escritor = nuevoEscritor(100, Duration.ofSeconds(1), null);
+        Chat chat = chatRepository.findById(chatIds.get(2)).orElseThrow();
+        Mensaje mensaje = new Mensaje();
+        mensaje.setId_mensaje(99);
+        mensaje.setChat(chat);
+        mensaje.setEmisor(chat.getNutricionista());
+        mensaje.setContenido("Guardado por REST");
+        mensaje.setSecuencia(3L);
+        mensaje.setTimestamp(LocalDateTime.now());
+
+        escritor.anunciar(mensaje);
+
+        for (String usuario : List.of(NUTRICIONISTA, emailPaciente(2))) {
+            verify(messagingTemplate).convertAndSendToUser(eq(usuario), eq(MensajeWriteBehind.BANDEJA),
+                    argThat((List<SobreMensajeDTO> l) -> l.size() == 1
+                            && l.get(0).getMensajeId() == 99
+                            && l.get(0).getChatId().equals(chatIds.get(2))
+                            && NUTRICIONISTA.equals(l.get(0).getEmisor())
+                            && "Guardado por REST".equals(l.get(0).getResumen())));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject messages from users outside the chat")
+    void shouldRejectNonParticipants() throws Exception {
+        MensajeWriteBehind escritor = nuevoEscritor(100, Duration.ofSeconds(1), null);
+        escritor.iniciar();
+
+        assertThat(escritor.encolar("intruso", chatIds.get(0), emailPaciente(1), "hola", "TEXT")).isTrue();
+        assertThat(escritor.encolar("sin-chat", -1, NUTRICIONISTA, "hola", "TEXT")).isTrue();
+        assertThat(escritor.encolar("valido", chatIds.get(0), NUTRICIONISTA, "hola", "TEXT")).isTrue();
+        assertThat(escritor.vaciar(Duration.ofSeconds(10))).isTrue();
+
+        assertThat(mensajeRepository.count()).isEqualTo(1);
+        verify(messagingTemplate).convertAndSendToUser(eq(emailPaciente(1)), eq(MensajeWriteBehind.CONFIRMACIONES),
+                argThat((ConfirmacionMensajeDTO c) -> c.getMessageId().equals("intruso")
+                        && c.getStatus().equals(ConfirmacionMensajeDTO.REJECTED)));
+        verify(messagingTemplate).convertAndSendToUser(eq(NUTRICIONISTA), eq(MensajeWriteBehind.CONFIRMACIONES),
+                argThat((ConfirmacionMensajeDTO c) -> c.getMessageId().equals("sin-chat")));
+        // The nutritionist also gets the inbox envelope of its valid message
+        verify(messagingTemplate, never()).convertAndSendToUser(eq(NUTRICIONISTA), any(),
+                argThat((Object c) -> c instanceof ConfirmacionMensajeDTO confirmacion
+                        && confirmacion.getMessageId().equals("valido")));
+    }
+
+    @Test
+    @DisplayName("Should have stored every broadcast message after a crash and continue the sequences")
+    void shouldNotLoseBroadcastMessagesOnCrash() throws Exception {
+        MensajeWriteBehind escritor = nuevoEscritor(1_000, Duration.ofSeconds(5), null);
+        escritor.iniciar();
+        ExecutorService remitentes = Executors.newFixedThreadPool(CHATS);
+        for (int i = 0; i < CHATS; i++) {
+            int chat = i;
+            remitentes.submit(() -> enviar(escritor, chat, 0, 5_000));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (publicados.size() < 2_000 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        escritor.abortar();
+        remitentes.shutdown();
+        assertThat(remitentes.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // Everything a participant saw is stored, under the id and sequence it was broadcast with
+        Map<Integer, Long> guardados = jdbcTemplate.queryForList("SELECT id_mensaje, secuencia FROM mensaje").stream()
+                .collect(Collectors.toMap(fila -> ((Number) fila.get("id_mensaje")).intValue(),
+                                          fila -> ((Number) fila.get("secuencia")).longValue()));
+        assertThat(publicados).isNotEmpty().allSatisfy(mensaje ->
+                assertThat(guardados).containsEntry(mensaje.getMensajeId(), mensaje.getSecuencia()));
+
+        // After a restart the sequences of every chat carry on without gaps or duplicates
+        MensajeWriteBehind reiniciado = nuevoEscritor(1_000, Duration.ofSeconds(5), null);
+        reiniciado.iniciar();
+        for (int i = 0; i < CHATS; i++) {
+            assertThat(enviar(reiniciado, i, 100_000, 10)).isEqualTo(10);
+        }
+        assertThat(reiniciado.vaciar(Duration.ofSeconds(30))).isTrue();
+        for (Integer chatId : chatIds) {
+            List<Long> secuencias = jdbcTemplate.queryForList(
+                    "SELECT secuencia FROM mensaje WHERE id_chat = ? ORDER BY secuencia", Long.class, chatId);
+            assertThat(secuencias).containsExactlyElementsOf(
+                    LongStream.rangeClosed(1, secuencias.size()).boxed().toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should store every accepted message exactly once after a crash, replaying the journal")
+    void shouldReplayJournalAfterCrash(@TempDir Path directorio) throws Exception {
+        Path diario = directorio.resolve("mensajes.journal");
+        // Room for every message, so no sender is ever rejected for a full queue
+        MensajeWriteBehind escritor = nuevoEscritor(CHATS * 5_000, Duration.ofSeconds(5), null, diario);
+        escritor.iniciar();
+        ExecutorService remitentes = Executors.newFixedThreadPool(CHATS);
+        List<Future<Integer>> aceptados = new ArrayList<>();
+        for (int i = 0; i < CHATS; i++) {
+            int chat = i;
+            aceptados.add(remitentes.submit(() -> enviar(escritor, chat, 0, 5_000)));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (publicados.size() < 2_000 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        escritor.abortar();
+        remitentes.shutdown();
+        assertThat(remitentes.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        long guardadosAntes = mensajeRepository.count();
+
+        MensajeWriteBehind reiniciado = nuevoEscritor(1_000, Duration.ofSeconds(5), null, diario);
+        reiniciado.iniciar();
+        assertThat(reiniciado.vaciar(Duration.ofSeconds(60))).isTrue();
+
+        long total = 0;
+        for (int i = 0; i < CHATS; i++) {
+            int aceptadosChat = aceptados.get(i).get();
+            total += aceptadosChat;
+            List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+                    "SELECT contenido, secuencia FROM mensaje WHERE id_chat = ? ORDER BY secuencia", chatIds.get(i));
+            // Nothing is rejected before the crash and everything after it, so 0, 1, 2... were accepted
+            assertThat(filas).extracting(fila -> Integer.parseInt((String) fila.get("contenido")))
+                    .containsExactlyElementsOf(LongStream.range(0, aceptadosChat).mapToObj(n -> (int) n).toList());
+            assertThat(filas).extracting(fila -> ((Number) fila.get("secuencia")).longValue())
+                    .containsExactlyElementsOf(LongStream.rangeClosed(1, aceptadosChat).boxed().toList());
+        }
+        log.info("Crash left {} of {} accepted chat messages unstored; the journal replayed them", total - guardadosAntes,
+                 total);
+        assertThat(guardadosAntes).isLessThan(total);
+        assertThat(mensajeRepository.count()).isEqualTo(total);
+        assertThat(diario).isEmptyFile();
+    }
+
+    @Test
+    @DisplayName("Should not store again a journaled message whose batch committed before the crash")
+    void shouldSkipJournaledMessagesAlreadyStored(@TempDir Path directorio) throws Exception {
+        Path diario = directorio.resolve("mensajes.journal");
+        int chatId = chatIds.get(0);
+        try (DiarioMensajes anterior = new DiarioMensajes(diario, false)) {
+            anterior.recuperar();
+            long guardado = anterior.aceptado("c-0", chatId, emailPaciente(0), "0", "TEXT");
+            anterior.aceptado("c-1", chatId, NUTRICIONISTA, "1", "TEXT");
+            anterior.numerados(Map.of(guardado, 1L));
+        }
+        // The batch of the first message committed, and the process died before marking it done
+        jdbcTemplate.update("INSERT INTO mensaje (contenido, timestamp, id_emisor, leido, id_chat, secuencia) " +
+                            "SELECT '0', CURRENT_TIMESTAMP, paciente, FALSE, id_chat, 1 FROM chat WHERE id_chat = ?",
+                            chatId);
+
+        MensajeWriteBehind escritor = nuevoEscritor(100, Duration.ofSeconds(5), null, diario);
+        escritor.iniciar();
+        assertThat(escritor.vaciar(Duration.ofSeconds(30))).isTrue();
+
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+                "SELECT contenido, secuencia FROM mensaje WHERE id_chat = ? ORDER BY secuencia", chatId);
+        assertThat(filas).extracting(fila -> fila.get("contenido")).containsExactly("0", "1");
+        assertThat(filas).extracting(fila -> ((Number) fila.get("secuencia")).longValue()).containsExactly(1L, 2L);
+        assertThat(publicados).extracting(MensajeChatDTO::getId).containsExactly("c-1");
+        assertThat(diario).isEmptyFile();
+    }
+
+    private MensajeWriteBehind nuevoEscritor(int capacidad, Duration esperaEncolar, CacheManager cacheManager) {
+        return nuevoEscritor(capacidad, esperaEncolar, cacheManager, null);
+    }
+
+    private MensajeWriteBehind nuevoEscritor(int capacidad, Duration esperaEncolar, CacheManager cacheManager,
+                                             Path diario) {
+        ThunderFatProperties properties = new ThunderFatProperties();
+        properties.getMensajesChat().setCapacidad(capacidad);
+        properties.getMensajesChat().setEsperaEncolar(esperaEncolar);
+        if (diario != null) {
+            properties.getMensajesChat().setDiario(diario.toString());
+        }
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (cacheManager != null) {
+            beans.addBean("cacheManager", cacheManager);
+        }
+        MensajeWriteBehind escritor = new MensajeWriteBehind(chatRepository, mensajeRepository, jdbcTemplate,
+                transactionManager, messagingTemplate, beans.getBeanProvider(CacheManager.class),
+                new ContadorNoLeidos(chatRepository, mensajeRepository, messagingTemplate,
+                                     beans.getBeanProvider(AlmacenNoLeidos.class)),
+                beans.getBeanProvider(MensajeSearchIndex.class), properties);
+        escritores.add(escritor);
+        return escritor;
+    }
+
+    /**
+     * Sends messages numbered desde, desde + 1... to one chat, alternating patient and nutritionist.
+     *
+     * @return number of messages accepted
+     */
+    private int enviar(MensajeWriteBehind escritor, int chat, int desde, int cuantos) {
+        int aceptados = 0;
+        for (int n = desde; n < desde + cuantos; n++) {
+            String emisor = n % 2 == 0 ? emailPaciente(chat) : NUTRICIONISTA;
+            if (escritor.encolar("m-" + n, chatIds.get(chat), emisor, String.valueOf(n), "TEXT")) {
+                aceptados++;
+            }
+        }
+        return aceptados;
+    }
+
+    private static String emailPaciente(int i) {
+        return "chat.paciente" + i + "@example.com";
+    }
+}
@@ -0,0 +1,207 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.exception.BusinessValidationException;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO;
+import com.thunderfat.springboot.backend.model.dto.ImportacionPacientesDTO.ErrorFila;
+import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+import com.thunderfat.springboot.backend.model.service.IPacienteBulkService.Formato;
+
+import jakarta.validation.Validation;
+
+/**
+ * Integration tests for the bulk patient import/export against an in-memory database.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:pacientebulktest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("PacienteBulkServiceJPA Tests")
+class PacienteBulkServiceJPATest {
+
+    private static final String CABECERA = "nombre,apellidos,fechanacimiento,dni,email,telefono,altura\n";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private PacienteSearchIndex pacienteSearchIndex;
+    private PacienteBulkServiceJPA bulkService;
+    private Nutricionista nutricionista;
+
+    @BeforeEach
+    void setUp() {
+        nutricionista = new Nutricionista();
+        nutricionista.setEmail("bulk.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Dr. Bulk");
+        nutricionista.setApellidos("Import");
+        nutricionista.setEnabled(true);
+        nutricionista = entityManager.persistAndFlush(nutricionista);
+
+        Paciente existente = new Paciente();
+        existente.setDni("11111111H");
+        existente.setNombre("Ya");
+        existente.setApellidos("Existente");
+        existente.setEmail("existente@example.com");
+        existente.setFechanacimiento(LocalDate.of(1980, 5, 5));
+        existente.setNutricionista(nutricionista);
+        existente.setEnabled(true);
+        entityManager.persistAndFlush(existente);
+        entityManager.clear();
+
+        ThunderFatProperties properties = new ThunderFatProperties();
+        properties.getPacienteBulk().setBatchSize(50);
+        properties.getPacienteBulk().setExportFetchSize(100);
+        pacienteSearchIndex = mock(PacienteSearchIndex.class);
+        bulkService = new PacienteBulkServiceJPA(jdbcTemplate, nutricionistaRepository, passwordEncoder,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().findAndRegisterModules(), pacienteSearchIndex, properties);
+    }
+
+    private static ByteArrayInputStream utf8(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fila(int i) {
+        return String.format("Paciente%d,\"Apellido, Uno\",1990-01-%02d,%08dA,paciente%d@example.com,600%06d,1.7%n",
+                i, 1 + i % 28, 20_000_000 + i, i, i);
+    }
+
+    @Test
+    @DisplayName("Should import valid CSV rows in batches and report invalid and duplicate rows")
+    void shouldImportCsvAndReportRejectedRows() {
+        StringBuilder csv = new StringBuilder(CABECERA);
+        for (int i = 1; i <= 120; i++) {
+            csv.append(fila(i));
+        }
+        csv.append("Mal,Dni,1990-01-01,123,mal.dni@example.com,,\n");               // row 121
+        csv.append("Otro,Email,1990-01-01,22222222B,EXISTENTE@example.com,,\n");    // row 122
+        csv.append("Otro,Dni,1990-01-01,20000001a,otro.dni@example.com,,\n");       // row 123: dup of row 1
+        csv.append("Mala,Fecha,01/01/1990,33333333C,mala.fecha@example.com,,\n");   // row 124
+
+        ImportacionPacientesDTO resultado = bulkService.importar(nutricionista.getId(), Formato.CSV, utf8(csv.toString()));
+
+        assertThat(resultado.getFilasLeidas()).isEqualTo(124);
+        assertThat(resultado.getImportados()).isEqualTo(120);
+        assertThat(resultado.getDuplicados()).isEqualTo(2);
+        assertThat(resultado.getInvalidos()).isEqualTo(2);
+        assertThat(resultado.isErroresTruncados()).isFalse();
+        assertThat(resultado.getErrores()).extracting(ErrorFila::getFila).containsExactly(121L, 122L, 123L, 124L);
+        assertThat(resultado.getErrores().get(0).getMensaje()).startsWith("dni:");
+        assertThat(resultado.getErrores().get(1).getMensaje()).startsWith("email:");
+        assertThat(resultado.getErrores().get(2).getMensaje()).startsWith("dni:");
+        assertThat(resultado.getErrores().get(3).getMensaje()).startsWith("fechanacimiento:");
+
+        List<Paciente> pacientes = pacienteRepository.findByNutricionistaId(nutricionista.getId());
+        assertThat(pacientes).hasSize(121);
+        Paciente importado = pacienteRepository.findByEmailIgnoreCase("paciente7@example.com").orElseThrow();
+        assertThat(importado.getApellidos()).isEqualTo("Apellido, Uno");
+        assertThat(importado.getNutricionista().getId()).isEqualTo(nutricionista.getId());
+        assertThat(importado.isEnabled()).isTrue();
+        verify(pacienteSearchIndex, times(1)).invalidar(nutricionista.getId());
+    }
+
+    @Test
+    @DisplayName("Should keep importing JSON after a row that cannot be mapped")
+    void shouldImportJsonAndSkipUnmappableRows() {
+        String json = """
+                [
+                  {"nombre": "Ana", "apellidos": "Uno", "fechanacimiento": "1991-02-03", "dni": "44444444D", "email": "ana@example.com"},
+                  {"nombre": "Luis", "apellidos": "Dos", "fechanacimiento": "no-es-fecha", "dni": "55555555E", "email": "luis@example.com"},
+                  {"nombre": "Eva", "apellidos": "Tres", "fechanacimiento": "1992-03-04", "dni": "66666666F", "email": "eva@example.com"}
+                ]
+                """;
+
+        ImportacionPacientesDTO resultado = bulkService.importar(nutricionista.getId(), Formato.JSON, utf8(json));
+
+        assertThat(resultado.getFilasLeidas()).isEqualTo(3);
+        assertThat(resultado.getImportados()).isEqualTo(2);
+        assertThat(resultado.getErrores()).extracting(ErrorFila::getFila).containsExactly(2L);
+        assertThat(pacienteRepository.findByEmailIgnoreCase("eva@example.com")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should reject a CSV without the mandatory columns")
+    void shouldRejectCsvWithoutMandatoryColumns() {
+        assertThatThrownBy(() -> bulkService.importar(nutricionista.getId(), Formato.CSV, utf8("nombre,apellidos\nA,B\n")))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Should export every patient of the nutritionist in a layout the import accepts")
+    void shouldExportCsvAndJson() throws Exception {
+        StringBuilder csv = new StringBuilder(CABECERA);
+        for (int i = 1; i <= 75; i++) {
+            csv.append(fila(i));
+        }
+        bulkService.importar(nutricionista.getId(), Formato.CSV, utf8(csv.toString()));
+
+        ByteArrayOutputStream salidaCsv = new ByteArrayOutputStream();
+        long filas = bulkService.exportar(nutricionista.getId(), Formato.CSV, salidaCsv);
+        String exportado = salidaCsv.toString(StandardCharsets.UTF_8);
+
+        assertThat(filas).isEqualTo(76);
+        assertThat(exportado.split("\r\n")).hasSize(77);
+        assertThat(exportado).startsWith(String.join(",", PacienteCsv.COLUMNAS));
+        assertThat(exportado).contains("\"Apellido, Uno\"");
+
+        ByteArrayOutputStream salidaJson = new ByteArrayOutputStream();
+        bulkService.exportar(nutricionista.getId(), Formato.JSON, salidaJson);
+        PacienteDTO[] pacientes = new ObjectMapper().findAndRegisterModules()
+                .readValue(salidaJson.toByteArray(), PacienteDTO[].class);
+        assertThat(pacientes).hasSize(76);
+        assertThat(pacientes[1].getFechanacimiento()).isNotNull();
+
+        // Re-importing the export only produces duplicates
+        ImportacionPacientesDTO reimportacion = bulkService.importar(nutricionista.getId(), Formato.CSV, utf8(exportado));
+        assertThat(reimportacion.getImportados()).isZero();
+        assertThat(reimportacion.getDuplicados()).isEqualTo(76);
+    }
+}
@@ -0,0 +1,169 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dto.AntecedentesClinicosDTO;
+import com.thunderfat.springboot.backend.model.dto.ChatDTO;
+import com.thunderfat.springboot.backend.model.dto.CitaDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO.MotivoFallo;
+import com.thunderfat.springboot.backend.model.dto.PacienteDashboardDTO.Seccion;
+import com.thunderfat.springboot.backend.model.dto.PlanDietaDTO;
+import com.thunderfat.springboot.backend.model.entity.MedicionGeneral;
+import com.thunderfat.springboot.backend.model.entity.MedicionSegmental;
+
+/**
+ * Unit tests for the concurrent patient dashboard aggregate.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PacienteDashboardServiceJPA Tests")
+class PacienteDashboardServiceJPATest {
+
+    private static final int PACIENTE_ID = 7;
+    private static final long SECTION_DELAY_MS = 200;
+
+    @Mock private IPlanDietaService planDietaService;
+    @Mock private ICitaService citaService;
+    @Mock private IMedicionGeneralService medicionGeneralService;
+    @Mock private IMedicionSegmentalService medicionSegmentalService;
+    @Mock private IChatService chatService;
+    @Mock private IMensajeService mensajeService;
+    @Mock private IAntecedenteClinicoService antecedenteClinicoService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private PacienteDashboardServiceJPA dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        ThunderFatProperties properties = new ThunderFatProperties();
+        properties.getDashboard().setSectionTimeout(Duration.ofMillis(600));
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+
+        dashboardService = new PacienteDashboardServiceJPA(planDietaService, citaService, medicionGeneralService,
+                medicionSegmentalService, chatService, mensajeService, antecedenteClinicoService,
+                transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardService.shutdown();
+    }
+
+    private static <T> Answer<T> after(long millis, T value) {
+        return inv -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+
+    private void stubAllSections(long delayMs) {
+        ChatDTO chat = new ChatDTO();
+        chat.setIdChat(3);
+        when(planDietaService.findCurrentActivePlan(PACIENTE_ID)).thenAnswer(after(delayMs, Optional.of(new PlanDietaDTO())));
+        when(citaService.findNextAppointmentForPatient(PACIENTE_ID, LocalDate.now()))
+                .thenAnswer(after(delayMs, Optional.of(new CitaDTO())));
+        when(medicionGeneralService.buscarUltimaMedicion(PACIENTE_ID))
+                .thenAnswer(after(delayMs, Optional.of(new MedicionGeneral())));
+        when(medicionSegmentalService.findLatestByPacienteId(PACIENTE_ID))
+                .thenAnswer(after(delayMs, Optional.of(new MedicionSegmental())));
+        when(chatService.findByPacienteId(PACIENTE_ID)).thenAnswer(after(delayMs, Optional.of(chat)));
+        lenient().when(mensajeService.contarNoLeidos(3, PACIENTE_ID)).thenReturn(4L);
+        when(antecedenteClinicoService.findByPacienteId(PACIENTE_ID))
+                .thenAnswer(after(delayMs, List.of(new AntecedentesClinicosDTO())));
+    }
+
+    @Test
+    @DisplayName("Should load all sections concurrently so latency tracks the slowest one")
+    void shouldLoadSectionsConcurrently() {
+        stubAllSections(SECTION_DELAY_MS);
+
+        PacienteDashboardDTO dashboard = dashboardService.getDashboard(PACIENTE_ID);
+
+        assertThat(dashboard.isCompleto()).isTrue();
+        assertThat(dashboard.getSeccionesNoDisponibles()).isNull();
+        assertThat(dashboard.getPlanActivo()).isNotNull();
+        assertThat(dashboard.getProximaCita()).isNotNull();
+        assertThat(dashboard.getUltimaMedicionGeneral()).isNotNull();
+        assertThat(dashboard.getUltimaMedicionSegmental()).isNotNull();
+        assertThat(dashboard.getChat().getIdChat()).isEqualTo(3);
+        assertThat(dashboard.getMensajesSinLeer()).isEqualTo(4L);
+        assertThat(dashboard.getAntecedentesClinicos()).hasSize(1);
+        // Sequential execution would take 6 x 200 ms
+        assertThat(dashboard.getTiempoMs()).isLessThan(SECTION_DELAY_MS * 3);
+    }
+
+    @Test
+    @DisplayName("Should run each section in its own read-only transaction")
+    void shouldUseOneReadOnlyTransactionPerSection() {
+        stubAllSections(0);
+
+        dashboardService.getDashboard(PACIENTE_ID);
+
+        verify(transactionManager, times(Seccion.values().length))
+                .getTransaction(argThat(definition -> definition != null && definition.isReadOnly()));
+    }
+
+    @Test
+    @DisplayName("Should return partial results when a section times out")
+    void shouldReportTimedOutSection() {
+        stubAllSections(0);
+        when(antecedenteClinicoService.findByPacienteId(PACIENTE_ID))
+                .thenAnswer(after(5_000, List.of(new AntecedentesClinicosDTO())));
+
+        PacienteDashboardDTO dashboard = dashboardService.getDashboard(PACIENTE_ID);
+
+        assertThat(dashboard.isCompleto()).isFalse();
+        assertThat(dashboard.getSeccionesNoDisponibles()).containsOnlyKeys(Seccion.ANTECEDENTES);
+        assertThat(dashboard.getSeccionesNoDisponibles()).containsEntry(Seccion.ANTECEDENTES, MotivoFallo.TIMEOUT);
+        assertThat(dashboard.getAntecedentesClinicos()).isNull();
+        assertThat(dashboard.getPlanActivo()).isNotNull();
+        assertThat(dashboard.getTiempoMs()).isLessThan(2_000);
+    }
+
+    @Test
+    @DisplayName("Should isolate failing sections and classify denied access")
+    void shouldReportFailedSections() {
+        stubAllSections(0);
+        when(antecedenteClinicoService.findByPacienteId(PACIENTE_ID)).thenThrow(new AccessDeniedException("denied"));
+        when(chatService.findByPacienteId(PACIENTE_ID)).thenThrow(new IllegalStateException("boom"));
+
+        PacienteDashboardDTO dashboard = dashboardService.getDashboard(PACIENTE_ID);
+
+        assertThat(dashboard.getSeccionesNoDisponibles())
+                .containsEntry(Seccion.ANTECEDENTES, MotivoFallo.ACCESO_DENEGADO)
+                .containsEntry(Seccion.CHAT, MotivoFallo.ERROR)
+                .hasSize(2);
+        assertThat(dashboard.getChat()).isNull();
+        assertThat(dashboard.getMensajesSinLeer()).isNull();
+        assertThat(dashboard.getProximaCita()).isNotNull();
+        verify(mensajeService, times(0)).contarNoLeidos(anyInt(), anyInt());
+    }
+}
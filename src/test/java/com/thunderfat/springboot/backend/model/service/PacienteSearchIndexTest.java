@@ -0,0 +1,138 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+import com.thunderfat.springboot.backend.model.service.PacienteSearchIndex.Campo;
+
+/**
+ * Unit tests for the in-memory patient search index.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PacienteSearchIndex Tests")
+class PacienteSearchIndexTest {
+
+    private static final int NUTRICIONISTA_ID = 1;
+
+    @Mock
+    private PacienteRepository pacienteRepository;
+
+    private PacienteSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PacienteSearchIndex(pacienteRepository);
+
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setId(NUTRICIONISTA_ID);
+        when(pacienteRepository.findByNutricionistaId(NUTRICIONISTA_ID)).thenReturn(List.of(
+            paciente(1, "María José", "Gómez Ruiz", "12345678A", "+34 600 123 456", nutricionista),
+            paciente(2, "Mario", "Martínez", "87654321B", "611222333", nutricionista),
+            paciente(3, "Ana", "Marín López", "11223344C", "622000111", nutricionista)));
+    }
+
+    private static Paciente paciente(int id, String nombre, String apellidos, String dni, String telefono,
+                                     Nutricionista nutricionista) {
+        Paciente paciente = new Paciente();
+        paciente.setId(id);
+        paciente.setNombre(nombre);
+        paciente.setApellidos(apellidos);
+        paciente.setDni(dni);
+        paciente.setTelefono(telefono);
+        paciente.setFechanacimiento(LocalDate.of(1990, 1, 1));
+        paciente.setNutricionista(nutricionista);
+        return paciente;
+    }
+
+    private static List<Integer> ids(List<PacienteDTO> pacientes) {
+        return pacientes.stream().map(PacienteDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Should match name prefixes ignoring accents and case")
+    void shouldMatchAccentFoldedPrefixes() {
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "MAR", Campo.NOMBRE, 10)))
+            .containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "maria gom", Campo.NOMBRE, 10)))
+            .containsExactly(1);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "martinez", Campo.NOMBRE, 10)))
+            .containsExactly(2);
+    }
+
+    @Test
+    @DisplayName("Should rank exact and first-name matches first")
+    void shouldRankBestMatchFirst() {
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "mario", Campo.NOMBRE, 10)))
+            .containsExactly(2);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "mar", Campo.NOMBRE, 2)))
+            .hasSize(2)
+            .doesNotContain(3);
+    }
+
+    @Test
+    @DisplayName("Should match DNI and phone digits")
+    void shouldMatchDniAndPhone() {
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "8765", Campo.DNI, 10))).containsExactly(2);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "600123", Campo.TELEFONO, 10))).containsExactly(1);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "622", Campo.TODOS, 10))).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("Should apply writes to a loaded partition without reloading it")
+    void shouldKeepIndexCurrent() {
+        assertThat(index.buscar(NUTRICIONISTA_ID, "lucia", Campo.NOMBRE, 10)).isEmpty();
+
+        index.registrar(PacienteDTO.builder().id(4).nombre("Lucía").apellidos("Sanz")
+            .dni("99887766D").nutricionistaId(NUTRICIONISTA_ID).build());
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "lucia", Campo.NOMBRE, 10))).containsExactly(4);
+
+        index.registrar(PacienteDTO.builder().id(2).nombre("Marco").apellidos("Martínez")
+            .dni("87654321B").nutricionistaId(NUTRICIONISTA_ID).build());
+        assertThat(index.buscar(NUTRICIONISTA_ID, "mario", Campo.NOMBRE, 10)).isEmpty();
+
+        index.eliminar(1);
+        assertThat(index.buscar(NUTRICIONISTA_ID, "gomez", Campo.NOMBRE, 10)).isEmpty();
+
+        index.registrar(PacienteDTO.builder().id(3).nombre("Ana").apellidos("Marín López")
+            .dni("11223344C").nutricionistaId(2).build());
+        assertThat(index.buscar(NUTRICIONISTA_ID, "ana", Campo.NOMBRE, 10)).isEmpty();
+
+        verify(pacienteRepository, times(1)).findByNutricionistaId(NUTRICIONISTA_ID);
+    }
+
+    @Test
+    @DisplayName("Should load outside the map lock and let writes committed during the load win")
+    void shouldApplyWritesCommittedDuringLoad() {
+        List<Paciente> filas = pacienteRepository.findByNutricionistaId(NUTRICIONISTA_ID);
+        when(pacienteRepository.findByNutricionistaId(NUTRICIONISTA_ID)).thenAnswer(invocacion -> {
+            index.eliminar(1);
+            index.registrar(PacienteDTO.builder().id(2).nombre("Marco").apellidos("Martínez")
+                .dni("87654321B").nutricionistaId(NUTRICIONISTA_ID).build());
+            return filas;
+        });
+
+        assertThat(index.buscar(NUTRICIONISTA_ID, "gomez", Campo.NOMBRE, 10)).isEmpty();
+        assertThat(index.buscar(NUTRICIONISTA_ID, "mario", Campo.NOMBRE, 10)).isEmpty();
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "marco", Campo.NOMBRE, 10))).containsExactly(2);
+        assertThat(ids(index.buscar(NUTRICIONISTA_ID, "ana", Campo.NOMBRE, 10))).containsExactly(3);
+    }
+}
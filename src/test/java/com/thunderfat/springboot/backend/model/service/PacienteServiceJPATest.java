@@ -9,8 +9,11 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
@@ -23,19 +26,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
 import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
 import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
 import com.thunderfat.springboot.backend.model.dto.PacienteDTO;
+import com.thunderfat.springboot.backend.model.dto.PagedResponseDTO;
 import com.thunderfat.springboot.backend.model.dto.mapper.PacienteMapper;
+import com.thunderfat.springboot.backend.model.entity.Cita;
 import com.thunderfat.springboot.backend.model.entity.Paciente;
 import com.thunderfat.springboot.backend.model.entity.Nutricionista;
 import com.thunderfat.springboot.backend.exception.UniqueConstraintViolationException;
@@ -63,6 +71,15 @@ class PacienteServiceJPATest {
     @Mock
     private PasswordEncoder passwordEncoder;
     
+    @Mock
+    private PacienteSearchIndex pacienteSearchIndex;
+    
+    @Mock
+    private CitaRepository citaRepository;
+    
+    @Mock
+    private CitaConflictIndex citaConflictIndex;
+    
     @InjectMocks
     private PacienteServiceJPA pacienteService;
     
@@ -285,6 +302,34 @@ class PacienteServiceJPATest {
             verify(pacienteRepository).deleteById(patientId);
         }
 
+        @Test
+        @DisplayName("Should leave tombstones for the appointments a patient delete cascades to")
+        void shouldTombstoneCascadedAppointments() {
+            // Given
+            Integer patientId = 1;
+            when(citaRepository.lockByPacienteId(patientId)).thenReturn(List.of(
+                    new Object[] {10, 2}, new Object[] {11, 1}, new Object[] {12, 2}));
+            when(nutricionistaRepository.reservarVersionesAgenda(1, 1)).thenReturn(5L);
+            when(nutricionistaRepository.reservarVersionesAgenda(2, 2)).thenReturn(8L);
+            when(pacienteRepository.findById(patientId)).thenReturn(Optional.of(testPaciente));
+
+            // When
+            pacienteService.deleteById(patientId);
+
+            // Then
+            InOrder orden = inOrder(citaRepository, nutricionistaRepository, pacienteRepository);
+            orden.verify(citaRepository).lockByPacienteId(patientId);
+            orden.verify(nutricionistaRepository).lockAgenda(1);
+            orden.verify(nutricionistaRepository).lockAgenda(2);
+            orden.verify(pacienteRepository).deleteById(patientId);
+            verify(citaRepository).registrarCancelacion(11, 1, 5L);
+            verify(citaRepository).registrarCancelacion(10, 2, 8L);
+            verify(citaRepository).registrarCancelacion(12, 2, 9L);
+            verify(citaConflictIndex).eliminar(10);
+            verify(citaConflictIndex).eliminar(11);
+            verify(citaConflictIndex).eliminar(12);
+        }
+
         @Test
         @DisplayName("Should throw exception when deleting non-existent patient")
         void shouldThrowExceptionWhenDeletingNonExistentPatient() {
@@ -381,6 +426,23 @@ class PacienteServiceJPATest {
             // Then
             assertFalse(result);
         }
+
+        @Test
+        @DisplayName("Should list patients by keyset without touching their lazy collections")
+        @SuppressWarnings("unchecked")
+        void shouldListKeysetPageWithoutLazyCollections() {
+            // Given
+            List<Cita> citas = mock(List.class);
+            testPaciente.setCitas(citas);
+            when(pacienteRepository.findKeysetFirstPage(any(Limit.class))).thenReturn(List.of(testPaciente));
+
+            // When
+            PagedResponseDTO<PacienteDTO> result = pacienteService.findAllKeyset(null, 10);
+
+            // Then
+            assertThat(result.getItems()).extracting(PacienteDTO::getId).containsExactly(1);
+            verifyNoInteractions(citas);
+        }
     }
 
     @Nested
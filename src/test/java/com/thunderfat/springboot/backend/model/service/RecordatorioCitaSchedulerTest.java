@@ -0,0 +1,182 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.thunderfat.springboot.backend.config.TestDataJpaConfig;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.model.dao.CitaRepository;
+import com.thunderfat.springboot.backend.model.dto.RecordatorioCitaDTO;
+import com.thunderfat.springboot.backend.model.entity.Cita;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+
+/**
+ * Appointment reminder dispatch against an in-memory database, with the clock driven
+ * by the test. Default offsets: 24 hours and 2 hours before, reloading every 10 minutes.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DataJpaTest
+@Import(TestDataJpaConfig.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.datasource.url=jdbc:h2:mem:recordatoriotest;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@ActiveProfiles("test")
+@DisplayName("Appointment Reminder Scheduler Tests")
+class RecordatorioCitaSchedulerTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2031, 3, 3, 9, 0);
+    private static final String EMAIL = "recordatorio.paciente@example.com";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    private SimpMessagingTemplate messagingTemplate;
+    private NotificadorRecordatorios notificador;
+    private RecordatorioCitaScheduler scheduler;
+    private Integer citaId;
+
+    @BeforeEach
+    void setUp() {
+        Nutricionista nutricionista = new Nutricionista();
+        nutricionista.setEmail("recordatorio.nutricionista@thunderfat.com");
+        nutricionista.setNombre("Elena");
+        nutricionista.setApellidos("Ruiz");
+        nutricionista.setEnabled(true);
+        entityManager.persist(nutricionista);
+
+        Paciente paciente = new Paciente();
+        paciente.setDni("55667788R");
+        paciente.setNombre("Pablo");
+        paciente.setApellidos("Martín");
+        paciente.setEmail(EMAIL);
+        paciente.setFechanacimiento(LocalDate.of(1992, 8, 20));
+        paciente.setNutricionista(nutricionista);
+        paciente.setEnabled(true);
+        entityManager.persist(paciente);
+
+        // Reminders due at AHORA + 6h (24h before) and AHORA + 28h (2h before)
+        Cita cita = new Cita();
+        cita.setFechaini(AHORA.plusHours(30));
+        cita.setFechafin(AHORA.plusHours(30).plusMinutes(45));
+        cita.setPaciente(paciente);
+        cita.setNutricionista(nutricionista);
+        entityManager.persist(cita);
+        entityManager.flush();
+        entityManager.clear();
+        citaId = cita.getId();
+
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        notificador = mock(NotificadorRecordatorios.class);
+        scheduler = nuevoScheduler(messagingTemplate, notificador);
+    }
+
+    @Test
+    @DisplayName("Should send each reminder once, at its offset, over WebSocket and every notifier")
+    void shouldSendEachReminderAtItsOffset() {
+        assertThat(scheduler.recargar(AHORA)).isEqualTo(2);
+
+        assertThat(scheduler.disparar(AHORA.plusHours(6).minusSeconds(1))).isZero();
+        assertThat(scheduler.disparar(AHORA.plusHours(6))).isEqualTo(1);
+        verify(messagingTemplate).convertAndSendToUser(eq(EMAIL), eq(RecordatorioCitaScheduler.DESTINO),
+                argThat((RecordatorioCitaDTO r) -> r.getCitaId().equals(citaId) && r.getAntelacionMinutos() == 24 * 60
+                        && r.getPacienteNombre().equals("Pablo Martín") && r.getNutricionistaNombre().equals("Elena Ruiz")));
+        verify(notificador).notificar(argThat(r -> r.getAntelacionMinutos() == 24 * 60));
+
+        // A reload after sending does not schedule the same reminder again
+        assertThat(scheduler.recargar(AHORA.plusHours(6))).isEqualTo(1);
+        assertThat(scheduler.disparar(AHORA.plusHours(28))).isEqualTo(1);
+        verify(notificador).notificar(argThat(r -> r.getAntelacionMinutos() == 2 * 60));
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq(EMAIL), any(), any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should drop reminders of a cancelled appointment")
+    void shouldDropCancelledAppointment() {
+        scheduler.recargar(AHORA);
+        jdbcTemplate.update("DELETE FROM cita WHERE id = ?", citaId);
+
+        assertThat(scheduler.disparar(AHORA.plusHours(6))).isZero();
+        assertThat(scheduler.recargar(AHORA.plusHours(6))).isZero();
+        verify(messagingTemplate, never()).convertAndSendToUser(any(), any(), any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should follow a moved appointment instead of reminding the old time")
+    void shouldFollowMovedAppointment() {
+        scheduler.recargar(AHORA);
+        jdbcTemplate.update("UPDATE cita SET fechaini = ?, fechafin = ? WHERE id = ?",
+                AHORA.plusHours(32), AHORA.plusHours(32).plusMinutes(45), citaId);
+
+        assertThat(scheduler.disparar(AHORA.plusHours(6))).isZero();
+        scheduler.recargar(AHORA.plusHours(6));
+        assertThat(scheduler.disparar(AHORA.plusHours(8))).isEqualTo(1);
+        verify(notificador).notificar(argThat(r -> r.getFechaInicio().equals(AHORA.plusHours(32))));
+    }
+
+    @Test
+    @DisplayName("Should not resend after a restart and should drop reminders missed for too long")
+    void shouldSurviveRestartWithoutDuplicates() {
+        scheduler.recargar(AHORA);
+        assertThat(scheduler.disparar(AHORA.plusHours(6))).isEqualTo(1);
+
+        // A new node (or this one after a restart) reloads while the 24h reminder is still within the grace period
+        SimpMessagingTemplate otraPlantilla = mock(SimpMessagingTemplate.class);
+        RecordatorioCitaScheduler reiniciado = nuevoScheduler(otraPlantilla, mock(NotificadorRecordatorios.class));
+        assertThat(reiniciado.recargar(AHORA.plusHours(6).plusMinutes(5))).isEqualTo(2);
+        assertThat(reiniciado.disparar(AHORA.plusHours(6).plusMinutes(5).plusSeconds(1))).isZero();
+        verify(otraPlantilla, never()).convertAndSendToUser(any(), any(), any(Object.class));
+
+        // Down for longer than one reload: the missed 24h reminder is dropped, the 2h one stays
+        RecordatorioCitaScheduler tardio = nuevoScheduler(mock(SimpMessagingTemplate.class), notificador);
+        jdbcTemplate.update("DELETE FROM recordatorio_cita");
+        assertThat(tardio.recargar(AHORA.plusHours(6).plusMinutes(11))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep pushing when a notifier fails")
+    void shouldIsolateNotifierFailures() {
+        doThrow(new IllegalStateException("SMTP down")).when(notificador).notificar(any());
+        scheduler.recargar(AHORA);
+
+        assertThat(scheduler.disparar(AHORA.plusHours(6))).isEqualTo(1);
+        verify(messagingTemplate).convertAndSendToUser(eq(EMAIL), eq(RecordatorioCitaScheduler.DESTINO), any(Object.class));
+    }
+
+    private RecordatorioCitaScheduler nuevoScheduler(SimpMessagingTemplate plantilla, NotificadorRecordatorios canal) {
+        return new RecordatorioCitaScheduler(citaRepository, jdbcTemplate, plantilla, List.of(canal),
+                new ThunderFatProperties());
+    }
+}
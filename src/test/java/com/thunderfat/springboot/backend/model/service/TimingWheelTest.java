@@ -0,0 +1,70 @@
+package com.thunderfat.springboot.backend.model.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the hierarchical timing wheel behind appointment reminders.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DisplayName("TimingWheel Tests")
+class TimingWheelTest {
+
+    @Test
+    @DisplayName("Should fire every timer exactly at its tick across all levels")
+    void shouldFireAtDeadlineAcrossLevels() {
+        // 4 slots x 3 levels reaches 64 ticks, so most timers cascade at least once
+        TimingWheel<Integer, Long> rueda = new TimingWheel<>(4, 3, 1000);
+        Random random = new Random(42);
+        Map<Long, List<Long>> esperados = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long vencimiento = 1001 + random.nextInt(63);
+            rueda.programar(i, vencimiento, vencimiento);
+            esperados.computeIfAbsent(vencimiento, tick -> new ArrayList<>()).add(vencimiento);
+        }
+
+        for (long tick = 1001; tick <= 1063; tick++) {
+            assertThat(rueda.avanzar(tick)).as("tick %d", tick)
+                    .containsExactlyElementsOf(esperados.getOrDefault(tick, List.of()));
+        }
+        assertThat(rueda.tamano()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should replace a rescheduled timer and drop a cancelled one")
+    void shouldRescheduleAndCancel() {
+        TimingWheel<String, String> rueda = new TimingWheel<>(64, 4, 0);
+        rueda.programar("movida", 100, "antes");
+        rueda.programar("cancelada", 50, "nunca");
+        rueda.programar("movida", 5_000, "despues");
+
+        assertThat(rueda.cancelar("cancelada")).isTrue();
+        assertThat(rueda.cancelar("cancelada")).isFalse();
+        assertThat(rueda.vencimiento("movida")).isEqualTo(5_000L);
+        assertThat(rueda.avanzar(4_999)).isEmpty();
+        assertThat(rueda.avanzar(5_000)).containsExactly("despues");
+        assertThat(rueda.claves()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should fire overdue timers on the next tick and reject deadlines beyond its reach")
+    void shouldHandleOverdueAndOutOfRange() {
+        TimingWheel<String, String> rueda = new TimingWheel<>(8, 2, 100);
+        rueda.programar("vencida", 90, "tarde");
+
+        assertThat(rueda.avanzar(101)).containsExactly("tarde");
+        assertThatThrownBy(() -> rueda.programar("lejana", 101 + 64, "x"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,291 @@
+package com.thunderfat.springboot.backend.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.thunderfat.springboot.backend.config.ControlSalidaWebSocket;
+import com.thunderfat.springboot.backend.config.DifusionEntreNodos;
+import com.thunderfat.springboot.backend.config.MensajeEntreNodos;
+import com.thunderfat.springboot.backend.config.PuenteBrokerEntreNodos;
+import com.thunderfat.springboot.backend.config.ThunderFatProperties;
+import com.thunderfat.springboot.backend.config.WebSocketConfig;
+
+/**
+ * Two nodes of the STOMP configuration in one JVM, each with its own embedded server
+ * and simple broker, joined by an in-memory stand-in for the Redis channel. Clients
+ * connect over real WebSockets and log in with the STOMP login header.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@DisplayName("STOMP Broker Across Nodes Tests")
+class BrokerEntreNodosTest {
+
+    private static final String SONDA = "sonda";
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+
+    private final List<StompSession> sesiones = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void arrancarNodos() {
+        nodoA = arrancar("a");
+        nodoB = arrancar("b");
+    }
+
+    @AfterAll
+    static void pararNodos() {
+        nodoA.close();
+        nodoB.close();
+        DifusionEnMemoria.NODOS.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sesiones.forEach(StompSession::disconnect);
+        stompClient.stop();
+    }
+
+    @Test
+    @DisplayName("Should deliver topic messages published on one node to both nodes, once and in order")
+    void shouldDeliverTopicAcrossNodesInOrder() throws Exception {
+        String topic = "/topic/chat/1";
+        BlockingQueue<String> enA = suscribir(conectar(nodoA, "luis@example.com"), topic);
+        BlockingQueue<String> enB = suscribir(conectar(nodoB, "ana@example.com"), topic);
+        SimpMessagingTemplate plantillaA = nodoA.getBean(SimpMessagingTemplate.class);
+        esperarSuscripcion(() -> plantillaA.convertAndSend(topic, SONDA), enA);
+        esperarSuscripcion(() -> plantillaA.convertAndSend(topic, SONDA), enB);
+
+        for (int i = 0; i < 200; i++) {
+            plantillaA.convertAndSend(topic, String.valueOf(i));
+        }
+
+        List<String> esperados = IntStream.range(0, 200).mapToObj(String::valueOf).toList();
+        assertThat(recibir(enB, 200)).containsExactlyElementsOf(esperados);
+        assertThat(recibir(enA, 200)).containsExactlyElementsOf(esperados);
+        assertThat(recibir(enA, 1)).as("duplicate on the publishing node").isEmpty();
+        assertThat(recibir(enB, 1)).as("duplicate on the other node").isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should route user destinations to the node each user is connected to")
+    void shouldRouteUserDestinationsAcrossNodes() throws Exception {
+        String cola = "/queue/recordatorios";
+        BlockingQueue<String> deLuis = suscribir(conectar(nodoA, "luis@example.com"), "/user" + cola);
+        BlockingQueue<String> deAna = suscribir(conectar(nodoB, "ana@example.com"), "/user" + cola);
+        SimpMessagingTemplate plantillaA = nodoA.getBean(SimpMessagingTemplate.class);
+        SimpMessagingTemplate plantillaB = nodoB.getBean(SimpMessagingTemplate.class);
+        esperarSuscripcion(() -> plantillaA.convertAndSendToUser("ana@example.com", cola, SONDA), deAna);
+        esperarSuscripcion(() -> plantillaB.convertAndSendToUser("luis@example.com", cola, SONDA), deLuis);
+
+        plantillaA.convertAndSendToUser("ana@example.com", cola, "para-ana");
+        plantillaB.convertAndSendToUser("luis@example.com", cola, "para-luis");
+        plantillaA.convertAndSendToUser("luis@example.com", cola, "para-luis-local");
+
+        assertThat(recibir(deAna, 1)).containsExactly("para-ana");
+        // Sent from two nodes: each keeps its own order, but nothing orders one against the other
+        assertThat(recibir(deLuis, 2)).containsExactlyInAnyOrder("para-luis", "para-luis-local");
+        assertThat(recibir(deAna, 1)).as("message for another user").isEmpty();
+    }
+
+    // =====================================
+    // HELPERS
+    // =====================================
+
+    private static ConfigurableApplicationContext arrancar(String nodo) {
+        return new SpringApplicationBuilder(NodoConfig.class)
+                .properties("server.port=0",
+                            "spring.main.banner-mode=off",
+                            "thunderfat.websocket.nodo=" + nodo)
+                .run();
+    }
+
+    private StompSession conectar(ConfigurableApplicationContext nodo, String usuario) throws Exception {
+        if (stompClient == null) {
+            stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+            stompClient.setMessageConverter(new StringMessageConverter());
+        }
+        int puerto = ((ServletWebServerApplicationContext) nodo).getWebServer().getPort();
+        StompHeaders cabeceras = new StompHeaders();
+        cabeceras.setLogin(usuario);
+        StompSession sesion = stompClient.connectAsync("ws://localhost:" + puerto + "/ws/chat-native",
+                (WebSocketHttpHeaders) null, cabeceras, new StompSessionHandlerAdapter() { }).get(10, TimeUnit.SECONDS);
+        sesiones.add(sesion);
+        return sesion;
+    }
+
+    private static BlockingQueue<String> suscribir(StompSession sesion, String destino) {
+        BlockingQueue<String> recibidos = new LinkedBlockingQueue<>();
+        sesion.subscribe(destino, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(@NonNull StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+                recibidos.add((String) payload);
+            }
+        });
+        return recibidos;
+    }
+
+    /**
+     * Publishes probes until one arrives, then discards the rest of them.
+     */
+    private static void esperarSuscripcion(Runnable sonda, BlockingQueue<String> recibidos) throws Exception {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < limite) {
+            sonda.run();
+            if (SONDA.equals(recibidos.poll(200, TimeUnit.MILLISECONDS))) {
+                return;
+            }
+        }
+        fail("Subscription never received a probe");
+    }
+
+    /**
+     * Up to cuantos messages other than probes, waiting at most a few seconds for them.
+     */
+    private static List<String> recibir(BlockingQueue<String> recibidos, int cuantos) throws Exception {
+        List<String> mensajes = new ArrayList<>();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(cuantos > 1 ? 10 : 1);
+        while (mensajes.size() < cuantos) {
+            long restante = limite - System.nanoTime();
+            String mensaje = restante > 0 ? recibidos.poll(restante, TimeUnit.NANOSECONDS) : null;
+            if (mensaje == null) {
+                break;
+            }
+            if (!SONDA.equals(mensaje)) {
+                mensajes.add(mensaje);
+            }
+        }
+        return mensajes;
+    }
+
+    /**
+     * One node: the application's STOMP configuration on an embedded server, with the
+     * STOMP login header taken as the user name.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+        PropertyPlaceholderAutoConfiguration.class,
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebSocketServletAutoConfiguration.class,
+        JacksonAutoConfiguration.class
+    })
+    @EnableConfigurationProperties(ThunderFatProperties.class)
+    @Import({WebSocketConfig.class, PuenteBrokerEntreNodos.class, ControlSalidaWebSocket.class})
+    static class NodoConfig implements WebSocketMessageBrokerConfigurer {
+
+        @Bean
+        DifusionEntreNodos difusionEntreNodos() {
+            return new DifusionEnMemoria();
+        }
+
+        @Override
+        public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+            registration.interceptors(new ChannelInterceptor() {
+                @Override
+                public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+                    StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                    if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                        String usuario = accessor.getLogin();
+                        accessor.setUser(() -> usuario);
+                    }
+                    return message;
+                }
+            });
+        }
+    }
+
+    /**
+     * Stand-in for the Redis channel: every node receives every message, its own included,
+     * on one thread per node in publishing order.
+     */
+    static class DifusionEnMemoria implements DifusionEntreNodos, AutoCloseable {
+
+        static final List<DifusionEnMemoria> NODOS = new CopyOnWriteArrayList<>();
+
+        private final ExecutorService despachador = Executors.newSingleThreadExecutor();
+        private volatile Consumer<MensajeEntreNodos> receptor;
+
+        DifusionEnMemoria() {
+            NODOS.add(this);
+        }
+
+        @Override
+        public void publicar(MensajeEntreNodos mensaje) {
+            for (DifusionEnMemoria nodo : NODOS) {
+                nodo.despachador.execute(() -> {
+                    if (nodo.receptor != null) {
+                        nodo.receptor.accept(mensaje);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void suscribir(Consumer<MensajeEntreNodos> receptor) {
+            this.receptor = receptor;
+        }
+
+        @Override
+        public void close() {
+            NODOS.remove(this);
+            despachador.shutdownNow();
+        }
+    }
+}
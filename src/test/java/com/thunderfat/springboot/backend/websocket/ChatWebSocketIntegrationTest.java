@@ -198,13 +198,15 @@ class ChatWebSocketIntegrationTest {
             }
         });
 
-        // When
+        // When: presence changes are coalesced per window, so the join is announced first
+        stompSession.send("/app/chat/1/join", "");
+        await().atMost(Duration.ofSeconds(5)).until(() -> receivedNotification.get() != null);
         stompSession.send("/app/chat/1/leave", "");
 
         // Then
         assertThat(notificationReceived.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedNotification.get()).isNotNull();
-        assertThat(receivedNotification.get().getStatus()).isEqualTo("LEFT");
+        await().atMost(Duration.ofSeconds(5))
+               .until(() -> "LEFT".equals(receivedNotification.get().getStatus()));
     }
 
     // ================================
@@ -0,0 +1,373 @@
+package com.thunderfat.springboot.backend.websocket.carga;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.awaitility.core.ConditionTimeoutException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thunderfat.springboot.backend.config.GlobalTestConfiguration;
+import com.thunderfat.springboot.backend.model.dao.ChatRepository;
+import com.thunderfat.springboot.backend.model.dao.NutricionistaRepository;
+import com.thunderfat.springboot.backend.model.dao.PacienteRepository;
+import com.thunderfat.springboot.backend.model.entity.Chat;
+import com.thunderfat.springboot.backend.model.entity.Nutricionista;
+import com.thunderfat.springboot.backend.model.entity.Paciente;
+import com.thunderfat.springboot.backend.model.service.MensajeWriteBehind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Load test of the chat over STOMP: the application runs on H2 and a random port, and
+ * thousands of sessions, each driven by its own virtual thread, connect to
+ * {@code /ws/chat-native} as the two participants of their chat and send a mix of
+ * messages, typing frames and heartbeats.
+ *
+ * Reports p50/p99 end-to-end delivery latency of chat messages, throughput, and how
+ * saturated the server's inbound and outbound STOMP thread pools and send buffers got.
+ * Asserts only that every session connected and every accepted message reached both
+ * participants.
+ *
+ * Tagged {@code carga} and left out of the normal build; run it with
+ * {@code mvn test -Pcarga}, tuned by system properties:
+ * {@code carga.sesiones} (2000), {@code carga.duracion} (PT60S), {@code carga.rampa}
+ * (PT15S, to open every session), {@code carga.intervalo} (PT2S, mean pause between the
+ * frames of a session) and {@code carga.mezcla} (mensaje=20,escritura=50,presencia=30).
+ * Each session is a socket on both ends, so the open file limit must allow twice the
+ * sessions.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+@Slf4j
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:chatcarga;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+    "thunderfat.busqueda-mensajes.directorio=",
+    "logging.level.org.springframework.web.socket.messaging=WARN"
+})
+@Import(GlobalTestConfiguration.class)
+@ActiveProfiles("test")
+@DisplayName("Chat STOMP Load Test")
+class ChatCargaStompTest {
+
+    private static final Duration MUESTREO = Duration.ofMillis(200);
+    private static final Duration ESPERA_CONEXION = Duration.ofSeconds(30);
+    private static final Duration ESPERA_ENTREGAS = Duration.ofSeconds(60);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private NutricionistaRepository nutricionistaRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MensajeWriteBehind mensajeWriteBehind;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor canalEntrada;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ThreadPoolTaskExecutor canalSalida;
+
+    // ================================
+    // SCENARIO
+    // ================================
+
+    enum Accion { MENSAJE, ESCRITURA, PRESENCIA }
+
+    /**
+     * Shape of a run, read from {@code carga.*} system properties.
+     */
+    record Escenario(int sesiones, Duration duracion, Duration rampa, Duration intervalo,
+                     int pesoMensaje, int pesoEscritura, int pesoPresencia) {
+
+        static Escenario leer() {
+            int sesiones = Integer.getInteger("carga.sesiones", 2000);
+            if (sesiones < 2 || sesiones % 2 != 0) {
+                throw new IllegalStateException("carga.sesiones must be an even number of at least 2, not " + sesiones);
+            }
+            Map<String, Integer> pesos = new HashMap<>(Map.of("mensaje", 20, "escritura", 50, "presencia", 30));
+            String mezcla = System.getProperty("carga.mezcla", "");
+            for (String parte : mezcla.split(",")) {
+                if (parte.isBlank()) {
+                    continue;
+                }
+                String[] clave = parte.split("=", 2);
+                if (clave.length != 2 || !pesos.containsKey(clave[0].trim())) {
+                    throw new IllegalStateException("carga.mezcla must look like mensaje=20,escritura=50,presencia=30, not "
+                                                    + mezcla);
+                }
+                pesos.put(clave[0].trim(), Integer.parseInt(clave[1].trim()));
+            }
+            Escenario escenario = new Escenario(sesiones,
+                    Duration.parse(System.getProperty("carga.duracion", "PT60S")),
+                    Duration.parse(System.getProperty("carga.rampa", "PT15S")),
+                    Duration.parse(System.getProperty("carga.intervalo", "PT2S")),
+                    pesos.get("mensaje"), pesos.get("escritura"), pesos.get("presencia"));
+            if (escenario.pesoMensaje() + escenario.pesoEscritura() + escenario.pesoPresencia() <= 0) {
+                throw new IllegalStateException("carga.mezcla must give some frame type a weight");
+            }
+            return escenario;
+        }
+
+        Accion accion(ThreadLocalRandom azar) {
+            int tirada = azar.nextInt(pesoMensaje + pesoEscritura + pesoPresencia);
+            if (tirada < pesoMensaje) {
+                return Accion.MENSAJE;
+            }
+            return tirada < pesoMensaje + pesoEscritura ? Accion.ESCRITURA : Accion.PRESENCIA;
+        }
+    }
+
+    // ================================
+    // LOAD RUN
+    // ================================
+
+    @Test
+    @DisplayName("Should deliver every message of thousands of concurrent STOMP sessions")
+    void shouldDeliverChatTrafficFromThousandsOfSessions() throws Exception {
+        Escenario escenario = Escenario.leer();
+        MedicionCarga medicion = medicion();
+        List<ClienteCarga> clientes = crearClientes(escenario, medicion);
+        WebSocketStompClient stomp = clienteStomp();
+        String url = "ws://localhost:" + port + "/ws/chat-native";
+
+        ScheduledExecutorService muestreo = Executors.newSingleThreadScheduledExecutor();
+        muestreo.scheduleAtFixedRate(medicion::muestrear, 0, MUESTREO.toMillis(), TimeUnit.MILLISECONDS);
+
+        AtomicInteger conectados = new AtomicInteger();
+        Instant inicio = Instant.now();
+        Instant fin = inicio.plus(escenario.rampa()).plus(escenario.duracion());
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clientes.size(); i++) {
+                ClienteCarga cliente = clientes.get(i);
+                Duration retraso = escenario.rampa().multipliedBy(i).dividedBy(clientes.size());
+                hilos.submit(() -> {
+                    Thread.sleep(retraso);
+                    cliente.conectar(stomp, url).get(ESPERA_CONEXION.toMillis(), TimeUnit.MILLISECONDS);
+                    conectados.incrementAndGet();
+                    cliente.conversar(escenario, fin);
+                    return null;
+                });
+            }
+        }
+        Duration trafico = Duration.between(inicio, Instant.now());
+
+        // Stored messages are broadcast by the writer; wait for both participants to get them
+        mensajeWriteBehind.vaciar(ESPERA_ENTREGAS);
+        long esperadas = 2 * (medicion.enviados() - medicion.rechazados());
+        try {
+            await().atMost(ESPERA_ENTREGAS).until(() -> medicion.entregas() >= esperadas);
+        } catch (ConditionTimeoutException e) {
+            log.warn("Only {} of {} message deliveries arrived", medicion.entregas(), esperadas);
+        } finally {
+            muestreo.shutdownNow();
+            clientes.forEach(ClienteCarga::desconectar);
+            stomp.stop();
+        }
+
+        medicion.informe(escenario.sesiones(), trafico).forEach(linea -> log.info("Chat load | {}", linea));
+
+        assertThat(conectados.get()).as("sessions connected").isEqualTo(escenario.sesiones());
+        assertThat(medicion.cerradas()).as("sessions closed by the server").isZero();
+        assertThat(medicion.entregas()).as("message deliveries").isEqualTo(esperadas);
+    }
+
+    /**
+     * Server pools and gauges sampled while the load runs.
+     */
+    private MedicionCarga medicion() {
+        MedicionCarga medicion = new MedicionCarga();
+        medicion.seguir("Inbound", canalEntrada);
+        medicion.seguir("Outbound", canalSalida);
+        medicion.seguir("Messages waiting to be stored", mensajeWriteBehind::pendientes);
+        medicion.seguir("Send buffer bytes of the most backed-up session",
+                        () -> (long) valor("thunderfat.websocket.send.buffer.max"));
+        medicion.seguir("Typing and presence frames dropped for slow sessions",
+                        () -> (long) meterRegistry.find("thunderfat.websocket.frames.dropped").counters().stream()
+                                                  .mapToDouble(Counter::count).sum());
+        return medicion;
+    }
+
+    /**
+     * One chat per pair of sessions, with its own nutritionist and patient; the sessions
+     * are logged in as them.
+     */
+    private List<ClienteCarga> crearClientes(Escenario escenario, MedicionCarga medicion) {
+        int chats = escenario.sesiones() / 2;
+        List<Nutricionista> nutricionistas = new ArrayList<>(chats);
+        for (int i = 0; i < chats; i++) {
+            Nutricionista nutricionista = new Nutricionista();
+            nutricionista.setEmail("carga.nutricionista" + i + "@thunderfat.com");
+            nutricionista.setNombre("Nutricionista" + i);
+            nutricionista.setApellidos("Carga");
+            nutricionista.setEnabled(true);
+            nutricionistas.add(nutricionista);
+        }
+        nutricionistas = nutricionistaRepository.saveAll(nutricionistas);
+
+        List<Paciente> pacientes = new ArrayList<>(chats);
+        for (int i = 0; i < chats; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setDni(String.format("%08dC", 70_000_000 + i));
+            paciente.setNombre("Paciente" + i);
+            paciente.setApellidos("Carga");
+            paciente.setEmail("carga.paciente" + i + "@thunderfat.com");
+            paciente.setFechanacimiento(LocalDate.of(1990, 1, 1));
+            paciente.setNutricionista(nutricionistas.get(i));
+            paciente.setEnabled(true);
+            pacientes.add(paciente);
+        }
+        pacientes = pacienteRepository.saveAll(pacientes);
+
+        List<Chat> conversaciones = new ArrayList<>(chats);
+        for (int i = 0; i < chats; i++) {
+            Chat chat = new Chat();
+            chat.setPaciente(pacientes.get(i));
+            chat.setNutricionista(nutricionistas.get(i));
+            chat.setFechahora(LocalDateTime.now());
+            conversaciones.add(chat);
+        }
+        conversaciones = chatRepository.saveAll(conversaciones);
+
+        List<ClienteCarga> clientes = new ArrayList<>(escenario.sesiones());
+        for (int i = 0; i < chats; i++) {
+            int chatId = conversaciones.get(i).getId_chat();
+            clientes.add(new ClienteCarga(2 * i, pacientes.get(i).getEmail(), chatId, medicion));
+            clientes.add(new ClienteCarga(2 * i + 1, nutricionistas.get(i).getEmail(), chatId, medicion));
+        }
+        return clientes;
+    }
+
+    /**
+     * STOMP client whose connections are opened from virtual threads.
+     */
+    private WebSocketStompClient clienteStomp() {
+        SimpleAsyncTaskExecutor conexiones = new SimpleAsyncTaskExecutor("carga-");
+        conexiones.setVirtualThreads(true);
+        StandardWebSocketClient webSocket = new StandardWebSocketClient();
+        webSocket.setTaskExecutor(conexiones);
+
+        MappingJackson2MessageConverter json = new MappingJackson2MessageConverter();
+        json.setObjectMapper(objectMapper);
+        WebSocketStompClient stomp = new WebSocketStompClient(webSocket);
+        stomp.setMessageConverter(json);
+        return stomp;
+    }
+
+    private double valor(String gauge) {
+        Gauge medidor = meterRegistry.find(gauge).gauge();
+        return medidor != null ? medidor.value() : 0;
+    }
+
+    // ================================
+    // SERVER SIDE OF THE TEST
+    // ================================
+
+    /**
+     * Logs each session in as the user in the {@code login} header of its CONNECT frame,
+     * in place of the token check of a real deployment, and converts payloads with the
+     * application's ObjectMapper as {@code WebSocketMessagingAutoConfiguration} does outside
+     * the test profile.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class UsuarioStompDeCarga implements WebSocketMessageBrokerConfigurer {
+
+        private final ObjectMapper objectMapper;
+
+        UsuarioStompDeCarga(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+            registration.interceptors(new ChannelInterceptor() {
+                @Override
+                public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+                    StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                    if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())
+                            && accessor.getLogin() != null) {
+                        accessor.setUser(new UsernamePasswordAuthenticationToken(accessor.getLogin(), null, List.of()));
+                    }
+                    return message;
+                }
+            });
+        }
+
+        @Override
+        public boolean configureMessageConverters(@NonNull List<MessageConverter> messageConverters) {
+            DefaultContentTypeResolver tipos = new DefaultContentTypeResolver();
+            tipos.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+            MappingJackson2MessageConverter json = new MappingJackson2MessageConverter();
+            json.setObjectMapper(objectMapper);
+            json.setContentTypeResolver(tipos);
+            messageConverters.add(new StringMessageConverter());
+            messageConverters.add(new ByteArrayMessageConverter());
+            messageConverters.add(json);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.thunderfat.springboot.backend.websocket.carga;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.stomp.ConnectionLostException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.thunderfat.springboot.backend.controllers.ChatWebSocketController.ChatMessage;
+import com.thunderfat.springboot.backend.controllers.ChatWebSocketController.TypingIndicator;
+import com.thunderfat.springboot.backend.model.dto.ConfirmacionMensajeDTO;
+import com.thunderfat.springboot.backend.model.service.MensajeWriteBehind;
+
+/**
+ * One simulated chat participant: a STOMP session logged in as the participant, subscribed
+ * to its chat, its typing and presence topics and its confirmations, that sends a mix of
+ * messages, typing frames and heartbeats until the run ends.
+ *
+ * Message ids carry the {@code System.nanoTime()} they were sent at, so any client that
+ * receives the broadcast can tell how long the delivery took.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+class ClienteCarga extends StompSessionHandlerAdapter {
+
+    private static final char SEPARADOR = '-';
+
+    private final int indice;
+    private final String usuario;
+    private final int chatId;
+    private final MedicionCarga medicion;
+    private volatile StompSession sesion;
+
+    ClienteCarga(int indice, String usuario, int chatId, MedicionCarga medicion) {
+        this.indice = indice;
+        this.usuario = usuario;
+        this.chatId = chatId;
+        this.medicion = medicion;
+    }
+
+    CompletableFuture<StompSession> conectar(WebSocketStompClient cliente, String url) {
+        StompHeaders conexion = new StompHeaders();
+        conexion.setLogin(usuario);
+        return cliente.connectAsync(url, (WebSocketHttpHeaders) null, conexion, this);
+    }
+
+    @Override
+    public void afterConnected(@NonNull StompSession session, @NonNull StompHeaders connectedHeaders) {
+        this.sesion = session;
+        String topic = "/topic/chat/" + chatId;
+        session.subscribe(topic, marco(this::recibido));
+        session.subscribe(topic + "/typing", marco(payload -> medicion.escrituraRecibida()));
+        session.subscribe(topic + "/presence", marco(payload -> medicion.presenciaRecibida()));
+        session.subscribe("/user" + MensajeWriteBehind.CONFIRMACIONES, marco(this::confirmacion));
+        session.send("/app/chat/" + chatId + "/join", Map.of());
+    }
+
+    /**
+     * Sends frames at random intervals around {@code intervalo} until {@code fin} or until
+     * the session is lost.
+     */
+    void conversar(ChatCargaStompTest.Escenario escenario, Instant fin) throws InterruptedException {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        long intervalo = escenario.intervalo().toMillis();
+        while (sesion != null && sesion.isConnected()) {
+            Thread.sleep(Duration.ofMillis(intervalo / 2 + azar.nextLong(intervalo + 1)));
+            if (!Instant.now().isBefore(fin)) {
+                break;
+            }
+            switch (escenario.accion(azar)) {
+                case MENSAJE -> enviarMensaje();
+                case ESCRITURA -> escribir();
+                case PRESENCIA -> latido();
+            }
+        }
+    }
+
+    void desconectar() {
+        StompSession actual = sesion;
+        if (actual != null && actual.isConnected()) {
+            actual.send("/app/chat/" + chatId + "/leave", Map.of());
+            actual.disconnect();
+        }
+    }
+
+    private void enviarMensaje() {
+        ChatMessage mensaje = new ChatMessage();
+        mensaje.setId(String.valueOf(indice) + SEPARADOR + System.nanoTime());
+        mensaje.setContent("Mensaje de carga de " + usuario);
+        mensaje.setMessageType("TEXT");
+        sesion.send("/app/chat/" + chatId + "/message", mensaje);
+        medicion.enviado();
+    }
+
+    private void escribir() {
+        TypingIndicator indicador = new TypingIndicator();
+        indicador.setTyping(true);
+        sesion.send("/app/chat/" + chatId + "/typing", indicador);
+        medicion.escritura();
+    }
+
+    private void latido() {
+        sesion.send("/app/chat/" + chatId + "/heartbeat", Map.of());
+        medicion.latido();
+    }
+
+    /**
+     * A message broadcast to the chat, sent by this client or by the other participant.
+     */
+    private void recibido(JsonNode mensaje) {
+        long recibido = System.nanoTime();
+        String id = mensaje.path("id").asText("");
+        int separador = id.lastIndexOf(SEPARADOR);
+        if (separador < 0) {
+            return;
+        }
+        try {
+            medicion.entregado(recibido - Long.parseLong(id.substring(separador + 1)));
+        } catch (NumberFormatException e) {
+            // Not sent by a load client
+        }
+    }
+
+    private void confirmacion(JsonNode confirmacion) {
+        if (ConfirmacionMensajeDTO.REJECTED.equals(confirmacion.path("status").asText())) {
+            medicion.rechazado();
+        }
+    }
+
+    @Override
+    public void handleException(@NonNull StompSession session, StompCommand command, @NonNull StompHeaders headers,
+                                @NonNull byte[] payload, @NonNull Throwable exception) {
+        medicion.error();
+    }
+
+    @Override
+    public void handleTransportError(@NonNull StompSession session, @NonNull Throwable exception) {
+        if (exception instanceof ConnectionLostException) {
+            medicion.cerrada();
+        } else {
+            medicion.error();
+        }
+    }
+
+    private static StompFrameHandler marco(Consumer<JsonNode> manejador) {
+        return new StompFrameHandler() {
+            @Override
+            @NonNull
+            public Type getPayloadType(@NonNull StompHeaders headers) {
+                return JsonNode.class;
+            }
+
+            @Override
+            public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+                manejador.accept((JsonNode) payload);
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package com.thunderfat.springboot.backend.websocket.carga;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * What a load run measured: frames sent and received by the simulated clients, the
+ * end-to-end latency of every chat message delivery, and samples of the server's STOMP
+ * thread pools and send buffers taken while the load ran.
+ *
+ * @author ThunderFat Development Team
+ * @since Spring Boot 3.5.4
+ */
+class MedicionCarga {
+
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder rechazados = new LongAdder();
+    private final LongAdder escrituras = new LongAdder();
+    private final LongAdder latidos = new LongAdder();
+    private final LongAdder escriturasRecibidas = new LongAdder();
+    private final LongAdder presenciasRecibidas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder cerradas = new LongAdder();
+    private final List<Pool> pools = new ArrayList<>();
+    private final List<Maximo> maximos = new ArrayList<>();
+
+    /** Delivery latencies in microseconds; appended from the clients' receiving threads */
+    private long[] latencias = new long[64 * 1024];
+    private int entregas;
+
+    void enviado() {
+        enviados.increment();
+    }
+
+    void rechazado() {
+        rechazados.increment();
+    }
+
+    void escritura() {
+        escrituras.increment();
+    }
+
+    void latido() {
+        latidos.increment();
+    }
+
+    void escrituraRecibida() {
+        escriturasRecibidas.increment();
+    }
+
+    void presenciaRecibida() {
+        presenciasRecibidas.increment();
+    }
+
+    void error() {
+        errores.increment();
+    }
+
+    void cerrada() {
+        cerradas.increment();
+    }
+
+    synchronized void entregado(long nanos) {
+        if (entregas == latencias.length) {
+            latencias = Arrays.copyOf(latencias, latencias.length * 2);
+        }
+        latencias[entregas++] = TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    synchronized long entregas() {
+        return entregas;
+    }
+
+    long enviados() {
+        return enviados.sum();
+    }
+
+    long rechazados() {
+        return rechazados.sum();
+    }
+
+    long cerradas() {
+        return cerradas.sum();
+    }
+
+    /**
+     * Samples the executor on every {@link #muestrear()}.
+     */
+    void seguir(String nombre, ThreadPoolTaskExecutor ejecutor) {
+        pools.add(new Pool(nombre, ejecutor));
+    }
+
+    /**
+     * Keeps the highest value the supplier returns on every {@link #muestrear()}.
+     */
+    void seguir(String nombre, LongSupplier valor) {
+        maximos.add(new Maximo(nombre, valor));
+    }
+
+    synchronized void muestrear() {
+        pools.forEach(Pool::muestrear);
+        maximos.forEach(Maximo::muestrear);
+    }
+
+    /**
+     * Latency in microseconds below which the given fraction of deliveries arrived.
+     */
+    synchronized long percentil(double fraccion) {
+        if (entregas == 0) {
+            return 0;
+        }
+        long[] ordenadas = Arrays.copyOf(latencias, entregas);
+        Arrays.sort(ordenadas);
+        int posicion = (int) Math.ceil(fraccion * entregas) - 1;
+        return ordenadas[Math.max(0, Math.min(posicion, entregas - 1))];
+    }
+
+    synchronized List<String> informe(int sesiones, Duration duracion) {
+        double segundos = Math.max(1, duracion.toMillis()) / 1000.0;
+        List<String> lineas = new ArrayList<>();
+        lineas.add(String.format("Sessions %d, traffic for %.1f s", sesiones, segundos));
+        lineas.add(String.format("Sent     %d messages (%d rejected), %d typing frames, %d heartbeats",
+                                 enviados(), rechazados(), escrituras.sum(), latidos.sum()));
+        lineas.add(String.format("Received %d message deliveries, %d typing frames, %d presence frames",
+                                 entregas, escriturasRecibidas.sum(), presenciasRecibidas.sum()));
+        lineas.add(String.format("Throughput %.0f messages/s in, %.0f deliveries/s out",
+                                 enviados() / segundos, entregas / segundos));
+        lineas.add(String.format("Delivery latency p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                                 percentil(0.50) / 1000.0, percentil(0.99) / 1000.0, percentil(1.0) / 1000.0));
+        lineas.add(String.format("Client errors %d, sessions closed by the server %d", errores.sum(), cerradas()));
+        pools.forEach(pool -> lineas.add(pool.informe()));
+        maximos.forEach(maximo -> lineas.add(maximo.informe()));
+        return lineas;
+    }
+
+    /** Samples of a STOMP channel executor */
+    private static final class Pool {
+
+        private final String nombre;
+        private final ThreadPoolTaskExecutor ejecutor;
+        private long muestras;
+        private long activosSumados;
+        private long saturadas;
+        private int activosMaximo;
+        private int colaMaxima;
+
+        private Pool(String nombre, ThreadPoolTaskExecutor ejecutor) {
+            this.nombre = nombre;
+            this.ejecutor = ejecutor;
+        }
+
+        private void muestrear() {
+            int activos = ejecutor.getActiveCount();
+            muestras++;
+            activosSumados += activos;
+            activosMaximo = Math.max(activosMaximo, activos);
+            colaMaxima = Math.max(colaMaxima, ejecutor.getQueueSize());
+            // Every thread the pool may start is busy: further frames wait in the queue
+            if (activos >= ejecutor.getMaxPoolSize()) {
+                saturadas++;
+            }
+        }
+
+        private String informe() {
+            return String.format("%s pool: %.1f threads busy on average, %d at most of %d, saturated %.0f%% of samples,"
+                                 + " %d frames queued at most",
+                                 nombre, muestras == 0 ? 0.0 : (double) activosSumados / muestras, activosMaximo,
+                                 ejecutor.getMaxPoolSize(), muestras == 0 ? 0.0 : 100.0 * saturadas / muestras,
+                                 colaMaxima);
+        }
+    }
+
+    /** Highest sampled value of a server gauge */
+    private static final class Maximo {
+
+        private final String nombre;
+        private final LongSupplier valor;
+        private long maximo;
+
+        private Maximo(String nombre, LongSupplier valor) {
+            this.nombre = nombre;
+            this.valor = valor;
+        }
+
+        private void muestrear() {
+            maximo = Math.max(maximo, valor.getAsLong());
+        }
+
+        private String informe() {
+            return String.format("%s: %d at most", nombre, maximo);
+        }
+    }
+}